@@ -1,7 +1,13 @@
 package cs6650.assignment1;
 
+import cs6650.assignment1.client.DeflateExtension;
+import cs6650.assignment1.client.LoadProfile;
+import cs6650.assignment1.client.RoomSelector;
 import cs6650.assignment1.client.MessageGenerator;
 import cs6650.assignment1.client.MessageSender;
+import cs6650.assignment1.client.SendSchedule;
+import cs6650.assignment1.client.TrafficStats;
+import cs6650.assignment1.client.WireFormat;
 import cs6650.assignment1.model.ChatMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,26 +27,51 @@ public class Main {
     private static final int WARMUP_TOTAL = WARMUP_THREADS * WARMUP_MESSAGES_PER_THREAD;
     private static final int MAIN_PHASE_MESSAGES = TOTAL_MESSAGES - WARMUP_TOTAL;
     
-    // Server URL - CHANGE THIS TO YOUR SERVER URL
-    private static final String SERVER_URL = "ws://16.147.50.158:8081";
+    // Server URL - CHANGE THIS TO YOUR SERVER URL (or pass -Dchatflow.server.url)
+    private static final String SERVER_URL = System.getProperty("chatflow.server.url", "ws://16.147.50.158:8081");
+    
+    // Wire format: -Dchatflow.protocol=json|binary
+    private static final WireFormat WIRE_FORMAT = WireFormat.fromSystemProperty();
+    
+    // Open-loop main phase: -Dchatflow.load=constant:5000|step:...|ramp:...|spike:... (unset = closed loop)
+    private static final LoadProfile LOAD_PROFILE = LoadProfile.fromSystemProperty();
+    
+    // Rooms to spread connections over: -Dchatflow.rooms=20 -Dchatflow.rooms.zipf=0 (0 = uniform)
+    private static final RoomSelector ROOMS = RoomSelector.fromSystemProperties();
+    
+    // Main phase connections, one thread each: -Dchatflow.threads. Each connection stays in one
+    // room, so at most this many rooms (plus the warmup's) see traffic
+    private static final int MAIN_THREADS =
+        Math.min(MAIN_PHASE_MESSAGES, Math.max(1, Integer.getInteger("chatflow.threads", 64)));
     
     // Metrics
     private static final AtomicInteger successCount = new AtomicInteger(0);
     private static final AtomicInteger failureCount = new AtomicInteger(0);
     private static final AtomicInteger reconnectionCount = new AtomicInteger(0);
     private static final AtomicInteger totalConnections = new AtomicInteger(0);
+    private static final TrafficStats trafficStats = new TrafficStats();
     
     public static void main(String[] args) {
         logger.info("========================================");
         logger.info("ChatFlow Client - Part 1");
         logger.info("========================================");
         logger.info("Server URL: {}", SERVER_URL);
+        logger.info("Wire format: {}", WIRE_FORMAT);
+        DeflateExtension compression = DeflateExtension.fromSystemProperties(trafficStats);
+        logger.info("Compression: {}", compression != null ? compression : "off");
+        logger.info("Rooms: {}", ROOMS);
+        logger.info("Main phase load: {}", LOAD_PROFILE != null ? LOAD_PROFILE + " (open loop)" : "closed loop");
         logger.info("Total messages to send: {}", TOTAL_MESSAGES);
         logger.info("Warmup threads: {}", WARMUP_THREADS);
         logger.info("Warmup messages per thread: {}", WARMUP_MESSAGES_PER_THREAD);
+        logger.info("Main phase threads: {}", MAIN_THREADS);
+        if (ROOMS.getRooms() > WARMUP_THREADS + MAIN_THREADS) {
+            logger.warn("Only {} connections for {} rooms, so most rooms get no traffic; raise -Dchatflow.threads",
+                        WARMUP_THREADS + MAIN_THREADS, ROOMS.getRooms());
+        }
         logger.info("========================================");
         
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
         
         try {
             // Create message queue
@@ -56,10 +87,10 @@ public class Main {
             
             // Phase 1: Warmup
             logger.info("Starting Warmup Phase...");
-            long warmupStartTime = System.currentTimeMillis();
+            long warmupStartTime = System.nanoTime();
             runWarmupPhase(messageQueue);
-            long warmupEndTime = System.currentTimeMillis();
-            long warmupDuration = warmupEndTime - warmupStartTime;
+            long warmupEndTime = System.nanoTime();
+            long warmupDuration = TimeUnit.NANOSECONDS.toMillis(warmupEndTime - warmupStartTime);
             
             logger.info("Warmup Phase completed in {} ms", warmupDuration);
             logger.info("Warmup throughput: {} messages/second", 
@@ -67,21 +98,22 @@ public class Main {
             
             // Phase 2: Main Phase
             logger.info("Starting Main Phase...");
-            long mainStartTime = System.currentTimeMillis();
-            runMainPhase(messageQueue);
-            long mainEndTime = System.currentTimeMillis();
-            long mainDuration = mainEndTime - mainStartTime;
+            long mainStartTime = System.nanoTime();
+            SendSchedule schedule = LOAD_PROFILE != null ? new SendSchedule(LOAD_PROFILE) : null;
+            runMainPhase(messageQueue, schedule);
+            long mainEndTime = System.nanoTime();
+            long mainDuration = TimeUnit.NANOSECONDS.toMillis(mainEndTime - mainStartTime);
             
             logger.info("Main Phase completed in {} ms", mainDuration);
             
             // Wait for generator to complete
             generatorThread.join();
             
-            long endTime = System.currentTimeMillis();
-            long totalDuration = endTime - startTime;
+            long endTime = System.nanoTime();
+            long totalDuration = TimeUnit.NANOSECONDS.toMillis(endTime - startTime);
             
             // Print results
-            printResults(totalDuration, warmupDuration, mainDuration);
+            printResults(totalDuration, warmupDuration, mainDuration, schedule);
             
         } catch (Exception e) {
             logger.error("Error in main execution", e);
@@ -96,7 +128,7 @@ public class Main {
             totalConnections.incrementAndGet();
             MessageSender sender = new MessageSender(
                 messageQueue, SERVER_URL, successCount, failureCount, 
-                reconnectionCount, WARMUP_MESSAGES_PER_THREAD
+                reconnectionCount, WARMUP_MESSAGES_PER_THREAD, WIRE_FORMAT, trafficStats, null, ROOMS
             );
             futures.add(executor.submit(sender));
         }
@@ -114,24 +146,23 @@ public class Main {
         executor.awaitTermination(5, TimeUnit.MINUTES);
     }
     
-    private static void runMainPhase(BlockingQueue<ChatMessage> messageQueue) throws InterruptedException {
-        // Optimize thread count for main phase
-        int optimalThreads = 64;
-        int messagesPerThread = MAIN_PHASE_MESSAGES / optimalThreads;
-        int remainderMessages = MAIN_PHASE_MESSAGES % optimalThreads;
+    private static void runMainPhase(BlockingQueue<ChatMessage> messageQueue,
+                                    SendSchedule schedule) throws InterruptedException {
+        int messagesPerThread = MAIN_PHASE_MESSAGES / MAIN_THREADS;
+        int remainderMessages = MAIN_PHASE_MESSAGES % MAIN_THREADS;
         
-        logger.info("Main phase using {} threads", optimalThreads);
+        logger.info("Main phase using {} threads", MAIN_THREADS);
         logger.info("Messages per thread: {}", messagesPerThread);
         
-        ExecutorService executor = Executors.newFixedThreadPool(optimalThreads);
+        ExecutorService executor = Executors.newFixedThreadPool(MAIN_THREADS);
         List<Future<?>> futures = new ArrayList<>();
         
-        for (int i = 0; i < optimalThreads; i++) {
+        for (int i = 0; i < MAIN_THREADS; i++) {
             totalConnections.incrementAndGet();
             int messagesToSend = messagesPerThread + (i == 0 ? remainderMessages : 0);
             MessageSender sender = new MessageSender(
                 messageQueue, SERVER_URL, successCount, failureCount, 
-                reconnectionCount, messagesToSend
+                reconnectionCount, messagesToSend, WIRE_FORMAT, trafficStats, schedule, ROOMS
             );
             futures.add(executor.submit(sender));
         }
@@ -149,7 +180,8 @@ public class Main {
         executor.awaitTermination(60, TimeUnit.SECONDS);
     }
     
-    private static void printResults(long totalDuration, long warmupDuration, long mainDuration) {
+    private static void printResults(long totalDuration, long warmupDuration, long mainDuration,
+                                     SendSchedule schedule) {
         logger.info("");
         logger.info("========================================");
         logger.info("PERFORMANCE RESULTS");
@@ -165,9 +197,30 @@ public class Main {
                    (WARMUP_TOTAL * 1000.0) / warmupDuration);
         logger.info("   - Main phase throughput: {} messages/second", 
                    (MAIN_PHASE_MESSAGES * 1000.0) / mainDuration);
+        if (schedule != null) {
+            // Achieved below offered means the server could not keep up with the profile;
+            // a large send lag means the client could not
+            logger.info("   - Main phase offered: {} messages/second ({}), max send lag {} ms",
+                       String.format("%.1f", schedule.getOfferedRate()), schedule.getProfile(),
+                       schedule.getMaxLagMillis());
+        }
         logger.info("5. Connection statistics:");
         logger.info("   - Total persistent connections: {}", totalConnections.get());
         logger.info("   - Reconnections: {}", reconnectionCount.get());
+        logger.info("6. Payload bytes ({}):", WIRE_FORMAT);
+        logger.info("   - Sent: {} ({} bytes/message)", trafficStats.getBytesSent(),
+                   trafficStats.getBytesSent() / Math.max(1, TOTAL_MESSAGES));
+        logger.info("   - Received: {} ({} bytes/response)", trafficStats.getBytesReceived(),
+                   trafficStats.getBytesReceived() / Math.max(1, successCount.get() + failureCount.get()));
+        if (trafficStats.getDeflatedMessages() > 0 || trafficStats.getInflatedMessages() > 0) {
+            logger.info("7. Compression (bytes on the wire vs. zlib time):");
+            logger.info("   - Sent: {} messages, {} -> {} bytes, {} us/message deflating",
+                       trafficStats.getDeflatedMessages(), trafficStats.getDeflateInputBytes(),
+                       trafficStats.getDeflateOutputBytes(), String.format("%.2f", trafficStats.getMeanDeflateMicros()));
+            logger.info("   - Received: {} messages, {} -> {} bytes, {} us/message inflating",
+                       trafficStats.getInflatedMessages(), trafficStats.getInflateInputBytes(),
+                       trafficStats.getInflateOutputBytes(), String.format("%.2f", trafficStats.getMeanInflateMicros()));
+        }
         logger.info("========================================");
     }
 }
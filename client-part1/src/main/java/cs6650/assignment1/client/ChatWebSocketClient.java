@@ -4,28 +4,40 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import cs6650.assignment1.model.ChatMessage;
 import cs6650.assignment1.model.ChatResponse;
+import org.java_websocket.WebSocket;
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.framing.TextFrame;
 import org.java_websocket.handshake.ServerHandshake;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
-public class ChatWebSocketClient extends WebSocketClient {
+public class ChatWebSocketClient extends WebSocketClient implements ChatDraft.TextFrameListener {
     
     private static final Logger logger = LoggerFactory.getLogger(ChatWebSocketClient.class);
     private final ObjectMapper objectMapper;
     private final AtomicInteger successCount;
     private final AtomicInteger failureCount;
+    private final WireFormat wireFormat;
+    private final TrafficStats trafficStats;
+    private final BinaryCodec binaryCodec = new BinaryCodec();
     private CountDownLatch responseLatch;
+    // Open-loop sends still waiting for a response
+    private final AtomicInteger pending = new AtomicInteger(0);
     
-    public ChatWebSocketClient(URI serverUri, AtomicInteger successCount, AtomicInteger failureCount) {
-        super(serverUri);
+    public ChatWebSocketClient(URI serverUri, AtomicInteger successCount, AtomicInteger failureCount,
+                               WireFormat wireFormat, TrafficStats trafficStats) {
+        super(serverUri, wireFormat.draft(DeflateExtension.fromSystemProperties(trafficStats)));
         this.successCount = successCount;
         this.failureCount = failureCount;
+        this.wireFormat = wireFormat;
+        this.trafficStats = trafficStats;
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
     }
@@ -35,15 +47,43 @@ public class ChatWebSocketClient extends WebSocketClient {
         logger.debug("WebSocket connection opened");
     }
     
+    /**
+     * JSON responses, parsed straight from the frame's UTF-8 bytes.
+     */
     @Override
-    public void onMessage(String message) {
+    public void onTextFrame(WebSocket conn, ByteBuffer payload) {
+        trafficStats.recordReceived(payload.remaining());
         try {
-            ChatResponse response = objectMapper.readValue(message, ChatResponse.class);
-            if ("success".equalsIgnoreCase(response.getStatus())) {
-                successCount.incrementAndGet();
-            } else {
-                failureCount.incrementAndGet();
+            recordResponse(readResponse(payload));
+        } catch (Exception e) {
+            logger.error("Error parsing response of {} bytes", payload.remaining(), e);
+            failureCount.incrementAndGet();
+        } finally {
+            if (responseLatch != null) {
+                responseLatch.countDown();
             }
+            pending.updateAndGet(count -> count > 0 ? count - 1 : 0);
+        }
+    }
+    
+    private ChatResponse readResponse(ByteBuffer payload) throws IOException {
+        if (payload.hasArray()) {
+            return objectMapper.readValue(payload.array(), payload.arrayOffset() + payload.position(),
+                                          payload.remaining(), ChatResponse.class);
+        }
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(payload.position(), bytes);
+        return objectMapper.readValue(bytes, ChatResponse.class);
+    }
+    
+    /**
+     * Fragmented text messages arrive here already decoded by the library.
+     */
+    @Override
+    public void onMessage(String message) {
+        trafficStats.recordReceived(TrafficStats.utf8Length(message));
+        try {
+            recordResponse(objectMapper.readValue(message, ChatResponse.class));
         } catch (Exception e) {
             logger.error("Error parsing response: {}", message, e);
             failureCount.incrementAndGet();
@@ -51,6 +91,31 @@ public class ChatWebSocketClient extends WebSocketClient {
             if (responseLatch != null) {
                 responseLatch.countDown();
             }
+            pending.updateAndGet(count -> count > 0 ? count - 1 : 0);
+        }
+    }
+    
+    @Override
+    public void onMessage(ByteBuffer bytes) {
+        trafficStats.recordReceived(bytes.remaining());
+        try {
+            recordResponse(BinaryCodec.decodeResponse(bytes));
+        } catch (Exception e) {
+            logger.error("Error parsing binary response of {} bytes", bytes.remaining(), e);
+            failureCount.incrementAndGet();
+        } finally {
+            if (responseLatch != null) {
+                responseLatch.countDown();
+            }
+            pending.updateAndGet(count -> count > 0 ? count - 1 : 0);
+        }
+    }
+    
+    private void recordResponse(ChatResponse response) {
+        if ("success".equalsIgnoreCase(response.getStatus())) {
+            successCount.incrementAndGet();
+        } else {
+            failureCount.incrementAndGet();
         }
     }
     
@@ -68,8 +133,7 @@ public class ChatWebSocketClient extends WebSocketClient {
         for (int attempt = 0; attempt < maxRetries; attempt++) {
             try {
                 responseLatch = new CountDownLatch(1);
-                String json = objectMapper.writeValueAsString(chatMessage);
-                send(json);
+                sendEncoded(chatMessage);
 
                 // Wait for response (with timeout)
                 boolean received = responseLatch.await(1000, java.util.concurrent.TimeUnit.MILLISECONDS);
@@ -91,4 +155,48 @@ public class ChatWebSocketClient extends WebSocketClient {
         }
         return false;
     }
+    
+    /**
+     * Open-loop send: returns as soon as the message is written, without waiting for the
+     * response. Responses are counted as they arrive; see {@link #awaitPendingResponses}.
+     */
+    public boolean sendChatMessageAsync(ChatMessage chatMessage) {
+        pending.incrementAndGet();
+        try {
+            sendEncoded(chatMessage);
+            return true;
+        } catch (Exception e) {
+            pending.decrementAndGet();
+            logger.error("Error sending message", e);
+            return false;
+        }
+    }
+    
+    /**
+     * Waits up to {@code timeoutMillis} for the responses to open-loop sends.
+     *
+     * @return how many are still unanswered
+     */
+    public int awaitPendingResponses(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (pending.get() > 0 && System.nanoTime() - deadline < 0) {
+            Thread.sleep(10);
+        }
+        return pending.get();
+    }
+    
+    private void sendEncoded(ChatMessage chatMessage) throws Exception {
+        if (wireFormat == WireFormat.BINARY) {
+            ByteBuffer payload = binaryCodec.encode(chatMessage);
+            trafficStats.recordSent(payload.remaining());
+            send(payload);
+        } else {
+            // Send the serialized bytes directly so they can be counted without re-encoding
+            byte[] json = objectMapper.writeValueAsBytes(chatMessage);
+            trafficStats.recordSent(json.length);
+            TextFrame frame = new TextFrame();
+            frame.setPayload(ByteBuffer.wrap(json));
+            sendFrame(frame);
+        }
+    }
 }
@@ -5,7 +5,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
-import java.util.Random;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -13,6 +12,7 @@ public class MessageSender implements Runnable {
     
     private static final Logger logger = LoggerFactory.getLogger(MessageSender.class);
     private static final int MAX_RETRIES = 5;
+    private static final long RESPONSE_TIMEOUT_MS = 1000;
     
     private final BlockingQueue<ChatMessage> messageQueue;
     private final String serverUrl;
@@ -20,18 +20,26 @@ public class MessageSender implements Runnable {
     private final AtomicInteger failureCount;
     private final AtomicInteger reconnectionCount;
     private final int messagesToSend;
-    private final Random random;
+    private final WireFormat wireFormat;
+    private final TrafficStats trafficStats;
+    private final SendSchedule schedule;
+    private final RoomSelector rooms;
     
     public MessageSender(BlockingQueue<ChatMessage> messageQueue, String serverUrl,
                         AtomicInteger successCount, AtomicInteger failureCount,
-                        AtomicInteger reconnectionCount, int messagesToSend) {
+                        AtomicInteger reconnectionCount, int messagesToSend,
+                        WireFormat wireFormat, TrafficStats trafficStats, SendSchedule schedule,
+                        RoomSelector rooms) {
         this.messageQueue = messageQueue;
         this.serverUrl = serverUrl;
         this.successCount = successCount;
         this.failureCount = failureCount;
         this.reconnectionCount = reconnectionCount;
         this.messagesToSend = messagesToSend;
-        this.random = new Random();
+        this.wireFormat = wireFormat;
+        this.trafficStats = trafficStats;
+        this.schedule = schedule;
+        this.rooms = rooms;
     }
     
     @Override
@@ -40,9 +48,9 @@ public class MessageSender implements Runnable {
         
         try {
             // Establish ONE persistent WebSocket connection for this thread
-            int roomId = random.nextInt(20) + 1;
+            int roomId = rooms.next();
             URI serverUri = new URI(serverUrl + "/chat/" + roomId);
-            client = new ChatWebSocketClient(serverUri, successCount, failureCount);
+            client = new ChatWebSocketClient(serverUri, successCount, failureCount, wireFormat, trafficStats);
             
             boolean connected = client.connectBlocking();
             if (!connected) {
@@ -54,7 +62,18 @@ public class MessageSender implements Runnable {
             
             // Send all messages through this ONE persistent connection
             for (int i = 0; i < messagesToSend; i++) {
+                if (schedule != null) {
+                    // Open loop: send on the schedule's time, whether or not responses are back
+                    schedule.awaitNextSlot();
+                }
                 ChatMessage message = messageQueue.take();
+                message.setRoomId(roomId);
+                if (schedule != null) {
+                    if (!client.sendChatMessageAsync(message)) {
+                        failureCount.incrementAndGet();
+                    }
+                    continue;
+                }
                 
                 boolean sent = client.sendChatMessage(message, MAX_RETRIES);
                 if (!sent) {
@@ -62,6 +81,14 @@ public class MessageSender implements Runnable {
                 }
             }
             
+            if (schedule != null) {
+                int unanswered = client.awaitPendingResponses(RESPONSE_TIMEOUT_MS);
+                if (unanswered > 0) {
+                    logger.warn("{} messages unanswered after {} ms", unanswered, RESPONSE_TIMEOUT_MS);
+                    failureCount.addAndGet(unanswered);
+                }
+            }
+            
         } catch (Exception e) {
             logger.error("Error in message sender", e);
         } finally {
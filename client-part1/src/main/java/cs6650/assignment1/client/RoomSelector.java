@@ -0,0 +1,74 @@
+package cs6650.assignment1.client;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks which room each connection joins, read from -Dchatflow.rooms (room count, default 20)
+ * and -Dchatflow.rooms.zipf (skew exponent, default 0).
+ *
+ * With an exponent of 0 every room is equally likely. Above 0, room k is chosen with weight
+ * 1 / k^s, so room 1 is the hottest and a long tail of rooms sees little traffic; 1.0 is the
+ * classic Zipf distribution. Sampling is a binary search over a precomputed CDF, which stays
+ * cheap for tens of thousands of rooms and is safe to share between threads.
+ */
+public final class RoomSelector {
+
+    private final int rooms;
+    private final double exponent;
+    // Null when uniform
+    private final double[] cdf;
+
+    public RoomSelector(int rooms, double exponent) {
+        if (rooms < 1) {
+            throw new IllegalArgumentException("Room count must be at least 1: " + rooms);
+        }
+        if (exponent < 0) {
+            throw new IllegalArgumentException("Zipf exponent must not be negative: " + exponent);
+        }
+        this.rooms = rooms;
+        this.exponent = exponent;
+        this.cdf = exponent == 0 ? null : cdf(rooms, exponent);
+    }
+
+    public static RoomSelector fromSystemProperties() {
+        String exponent = System.getProperty("chatflow.rooms.zipf");
+        return new RoomSelector(Integer.getInteger("chatflow.rooms", 20),
+                                exponent == null || exponent.isBlank() ? 0 : Double.parseDouble(exponent.trim()));
+    }
+
+    private static double[] cdf(int rooms, double exponent) {
+        double[] cdf = new double[rooms];
+        double total = 0;
+        for (int k = 1; k <= rooms; k++) {
+            total += 1.0 / Math.pow(k, exponent);
+            cdf[k - 1] = total;
+        }
+        for (int i = 0; i < rooms; i++) {
+            cdf[i] /= total;
+        }
+        return cdf;
+    }
+
+    /**
+     * A room ID from 1 to the room count.
+     */
+    public int next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (cdf == null) {
+            return random.nextInt(rooms) + 1;
+        }
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        // A miss returns -(insertion point) - 1; the insertion point is the room's index
+        return Math.min(rooms - 1, index >= 0 ? index : -index - 1) + 1;
+    }
+
+    public int getRooms() {
+        return rooms;
+    }
+
+    @Override
+    public String toString() {
+        return rooms + " rooms, " + (cdf == null ? "uniform" : "zipf s=" + exponent);
+    }
+}
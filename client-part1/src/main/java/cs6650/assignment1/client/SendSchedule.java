@@ -0,0 +1,75 @@
+package cs6650.assignment1.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop pacing shared by all sender threads: hands out intended send times that follow a
+ * {@link LoadProfile}, whenever responses arrive. A sender that falls behind sends late instead
+ * of pushing the schedule back, so server queuing shows up as latency measured from the
+ * intended time rather than as a quietly lower offered rate (coordinated omission).
+ *
+ * How late senders woke is tracked as the send lag: a large lag means the client could not
+ * keep up with the profile and the run understates what was asked of the server.
+ */
+public class SendSchedule {
+
+    private final LoadProfile profile;
+    private final LongAccumulator maxLagNanos = new LongAccumulator(Math::max, 0);
+
+    // Guarded by this; the clock starts at the first send so connection setup is not counted
+    private long startNanos;
+    private long nextNanos;
+    private long lastNanos;
+    private long issued;
+
+    public SendSchedule(LoadProfile profile) {
+        this.profile = profile;
+    }
+
+    /**
+     * Claims the next send slot and waits until it is due.
+     *
+     * @return the intended send time, in {@link System#nanoTime()} terms
+     */
+    public long awaitNextSlot() throws InterruptedException {
+        long intended;
+        synchronized (this) {
+            if (issued == 0) {
+                startNanos = System.nanoTime();
+                nextNanos = startNanos;
+            }
+            intended = nextNanos;
+            nextNanos += profile.intervalNanos(intended - startNanos);
+            lastNanos = intended;
+            issued++;
+        }
+
+        long wait;
+        while ((wait = intended - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(this, wait);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        maxLagNanos.accumulate(-wait);
+        return intended;
+    }
+
+    public LoadProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Mean rate of the slots handed out so far, in messages per second.
+     */
+    public synchronized double getOfferedRate() {
+        long span = lastNanos - startNanos;
+        return span > 0 ? (issued - 1) * 1e9 / span : 0;
+    }
+
+    public long getMaxLagMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLagNanos.get());
+    }
+}
@@ -0,0 +1,101 @@
+package cs6650.assignment1.client;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Message payload bytes sent and received, shared by all connections, for comparing
+ * wire formats. With permessage-deflate it also tracks the compressed sizes and the time
+ * spent in zlib, to weigh bandwidth saved against CPU.
+ */
+public class TrafficStats {
+
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder deflatedMessages = new LongAdder();
+    private final LongAdder deflateInputBytes = new LongAdder();
+    private final LongAdder deflateOutputBytes = new LongAdder();
+    private final LongAdder deflateNanos = new LongAdder();
+    private final LongAdder inflatedMessages = new LongAdder();
+    private final LongAdder inflateInputBytes = new LongAdder();
+    private final LongAdder inflateOutputBytes = new LongAdder();
+    private final LongAdder inflateNanos = new LongAdder();
+
+    public void recordSent(int bytes) {
+        bytesSent.add(bytes);
+    }
+
+    public void recordReceived(int bytes) {
+        bytesReceived.add(bytes);
+    }
+
+    void recordDeflate(int rawBytes, int wireBytes, long nanos) {
+        deflatedMessages.increment();
+        deflateInputBytes.add(rawBytes);
+        deflateOutputBytes.add(wireBytes);
+        deflateNanos.add(nanos);
+    }
+
+    void recordInflate(int wireBytes, int rawBytes, long nanos) {
+        inflatedMessages.increment();
+        inflateInputBytes.add(wireBytes);
+        inflateOutputBytes.add(rawBytes);
+        inflateNanos.add(nanos);
+    }
+
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    public long getDeflatedMessages() {
+        return deflatedMessages.sum();
+    }
+
+    public long getDeflateInputBytes() {
+        return deflateInputBytes.sum();
+    }
+
+    public long getDeflateOutputBytes() {
+        return deflateOutputBytes.sum();
+    }
+
+    public double getMeanDeflateMicros() {
+        long count = deflatedMessages.sum();
+        return count == 0 ? 0.0 : deflateNanos.sum() / 1000.0 / count;
+    }
+
+    public long getInflatedMessages() {
+        return inflatedMessages.sum();
+    }
+
+    public long getInflateInputBytes() {
+        return inflateInputBytes.sum();
+    }
+
+    public long getInflateOutputBytes() {
+        return inflateOutputBytes.sum();
+    }
+
+    public double getMeanInflateMicros() {
+        long count = inflatedMessages.sum();
+        return count == 0 ? 0.0 : inflateNanos.sum() / 1000.0 / count;
+    }
+
+    /**
+     * UTF-8 length of a received text frame without re-encoding it.
+     */
+    static int utf8Length(String text) {
+        int bytes = text.length();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                // Surrogate pairs are 4 bytes for 2 chars, so 1 extra each
+                bytes += c >= 0x800 && !Character.isSurrogate(c) ? 2 : 1;
+            }
+        }
+        return bytes;
+    }
+}
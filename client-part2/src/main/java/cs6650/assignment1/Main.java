@@ -1,20 +1,31 @@
 package cs6650.assignment1;
 
+import cs6650.assignment1.client.DeflateExtension;
+import cs6650.assignment1.client.LoadProfile;
 import cs6650.assignment1.client.MessageGenerator;
 import cs6650.assignment1.client.MessageSender;
+import cs6650.assignment1.client.RoomSelector;
+import cs6650.assignment1.client.SendSchedule;
+import cs6650.assignment1.client.TrafficStats;
+import cs6650.assignment1.client.WireFormat;
 import cs6650.assignment1.model.ChatMessage;
-import cs6650.assignment1.model.MetricRecord;
 import cs6650.assignment1.util.CsvWriter;
+import cs6650.assignment1.util.DashboardServer;
+import cs6650.assignment1.util.LatencyRecorder;
+import cs6650.assignment1.util.LiveStats;
+import cs6650.assignment1.util.MetricsCollector;
+import cs6650.assignment1.util.MetricsFileWriter;
 import cs6650.assignment1.util.PerformanceAnalyzer;
+import org.HdrHistogram.Histogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -28,23 +39,68 @@ public class Main {
     private static final int WARMUP_TOTAL = WARMUP_THREADS * WARMUP_MESSAGES_PER_THREAD;
     private static final int MAIN_PHASE_MESSAGES = TOTAL_MESSAGES - WARMUP_TOTAL;
     
-    // Server URL - CHANGE THIS TO YOUR SERVER URL
-    private static final String SERVER_URL = "ws://16.147.50.158:8081";
+    // Server URL - CHANGE THIS TO YOUR SERVER URL (or pass -Dchatflow.server.url)
+    private static final String SERVER_URL = System.getProperty("chatflow.server.url", "ws://16.147.50.158:8081");
+    
+    // Wire format: -Dchatflow.protocol=json|binary
+    private static final WireFormat WIRE_FORMAT = WireFormat.fromSystemProperty();
+    
+    // Open-loop main phase: -Dchatflow.load=constant:5000|step:...|ramp:...|spike:... (unset = closed loop)
+    private static final LoadProfile LOAD_PROFILE = LoadProfile.fromSystemProperty();
+    
+    // Rooms to spread connections over: -Dchatflow.rooms=20 -Dchatflow.rooms.zipf=0 (0 = uniform)
+    private static final RoomSelector ROOMS = RoomSelector.fromSystemProperties();
+    
+    // Main phase connections, one thread each: -Dchatflow.threads. Each connection stays in one
+    // room, so at most this many rooms (plus the warmup's) see traffic
+    private static final int MAIN_THREADS =
+        Math.min(MAIN_PHASE_MESSAGES, Math.max(1, Integer.getInteger("chatflow.threads", 64)));
+    
+    // Requests outstanding per connection: -Dchatflow.inflight (1 = send, wait, send); an open
+    // loop needs room for the server to fall behind without the window throttling the schedule
+    private static final int MAX_IN_FLIGHT = Math.max(1,
+        Integer.getInteger("chatflow.inflight", LOAD_PROFILE != null ? 256 : 1));
+    
+    // Seconds between live latency percentile log lines: -Dchatflow.latency.interval (0 disables)
+    private static final int LATENCY_INTERVAL_SECONDS = Integer.getInteger("chatflow.latency.interval", 10);
+    
+    // Per-message metric records buffered per connection: -Dchatflow.metrics.buffer
+    private static final int METRICS_BUFFER = Integer.getInteger("chatflow.metrics.buffer", 8192);
+    
+    // Live stats endpoint, http://localhost:<port>/stats: -Dchatflow.dashboard.port (0 disables)
+    private static final int DASHBOARD_PORT = Integer.getInteger("chatflow.dashboard.port", 8090);
+    
+    // Also convert the binary metrics file to CSV after the run: -Dchatflow.metrics.csv=true
+    private static final boolean EXPORT_CSV = Boolean.getBoolean("chatflow.metrics.csv");
     
     // Metrics
     private static final AtomicInteger successCount = new AtomicInteger(0);
     private static final AtomicInteger failureCount = new AtomicInteger(0);
     private static final AtomicInteger reconnectionCount = new AtomicInteger(0);
     private static final AtomicInteger totalConnections = new AtomicInteger(0);
+    private static final TrafficStats trafficStats = new TrafficStats();
+    private static final LatencyRecorder latencyRecorder = new LatencyRecorder();
+    private static final LiveStats liveStats = new LiveStats(latencyRecorder, reconnectionCount);
     
     public static void main(String[] args) {
         logger.info("========================================");
         logger.info("ChatFlow Client - Part 2 (Performance Analysis)");
         logger.info("========================================");
         logger.info("Server URL: {}", SERVER_URL);
+        logger.info("Wire format: {}", WIRE_FORMAT);
+        DeflateExtension compression = DeflateExtension.fromSystemProperties(trafficStats);
+        logger.info("Compression: {}", compression != null ? compression : "off");
+        logger.info("Requests in flight per connection: {}", MAX_IN_FLIGHT);
+        logger.info("Rooms: {}", ROOMS);
+        logger.info("Main phase load: {}", LOAD_PROFILE != null ? LOAD_PROFILE + " (open loop)" : "closed loop");
         logger.info("Total messages to send: {}", TOTAL_MESSAGES);
         logger.info("Warmup threads: {}", WARMUP_THREADS);
         logger.info("Warmup messages per thread: {}", WARMUP_MESSAGES_PER_THREAD);
+        logger.info("Main phase threads: {}", MAIN_THREADS);
+        if (ROOMS.getRooms() > WARMUP_THREADS + MAIN_THREADS) {
+            logger.warn("Only {} connections for {} rooms, so most rooms get no traffic; raise -Dchatflow.threads",
+                        WARMUP_THREADS + MAIN_THREADS, ROOMS.getRooms());
+        }
         logger.info("========================================");
         
         // Create results directory
@@ -55,22 +111,41 @@ public class Main {
         
         // Generate timestamp for output files
         String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
+        String metricsFilePath = "results/metrics_" + timestamp + ".bin";
         String csvFilePath = "results/metrics_" + timestamp + ".csv";
         String chartFilePath = "results/throughput_" + timestamp + ".txt";
+        String histogramLogPath = "results/latency_" + timestamp + ".hlog";
+        String percentilesPath = "results/latency_" + timestamp + ".hgrm";
         
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
+        DashboardServer dashboard = null;
         
         try {
             // Create message queue
             BlockingQueue<ChatMessage> messageQueue = new LinkedBlockingQueue<>(TOTAL_MESSAGES + 1000);
             
-            // Create metrics queue
-            BlockingQueue<MetricRecord> metricsQueue = new LinkedBlockingQueue<>();
+            // Per-connection metrics rings, drained by the metrics file writer
+            MetricsCollector metrics = new MetricsCollector(METRICS_BUFFER);
+            
+            // Record latencies into histograms, logging percentiles as the run goes
+            latencyRecorder.openLog(histogramLogPath);
+            latencyRecorder.startSampling(LATENCY_INTERVAL_SECONDS);
             
-            // Start CSV writer thread
-            CsvWriter csvWriter = new CsvWriter(metricsQueue, csvFilePath);
-            Thread csvWriterThread = new Thread(csvWriter, "CsvWriter");
-            csvWriterThread.start();
+            // Serve live stats while the run goes; the run does not depend on it
+            liveStats.start();
+            if (DASHBOARD_PORT > 0) {
+                try {
+                    dashboard = new DashboardServer(DASHBOARD_PORT, liveStats);
+                    dashboard.start();
+                } catch (IOException e) {
+                    logger.warn("Live stats endpoint not started on port {}: {}", DASHBOARD_PORT, e.getMessage());
+                }
+            }
+            
+            // Start metrics file writer thread
+            MetricsFileWriter metricsWriter = new MetricsFileWriter(metrics, metricsFilePath);
+            Thread metricsWriterThread = new Thread(metricsWriter, "MetricsWriter");
+            metricsWriterThread.start();
             
             // Start message generator thread
             Thread generatorThread = new Thread(new MessageGenerator(messageQueue), "MessageGenerator");
@@ -82,10 +157,11 @@ public class Main {
             
             // Phase 1: Warmup
             logger.info("Starting Warmup Phase...");
-            long warmupStartTime = System.currentTimeMillis();
-            runWarmupPhase(messageQueue, metricsQueue);
-            long warmupEndTime = System.currentTimeMillis();
-            long warmupDuration = warmupEndTime - warmupStartTime;
+            liveStats.setPhase("warmup");
+            long warmupStartTime = System.nanoTime();
+            runWarmupPhase(messageQueue, metrics);
+            long warmupEndTime = System.nanoTime();
+            long warmupDuration = TimeUnit.NANOSECONDS.toMillis(warmupEndTime - warmupStartTime);
             
             logger.info("Warmup Phase completed in {} ms", warmupDuration);
             logger.info("Warmup throughput: {} messages/second", 
@@ -93,57 +169,75 @@ public class Main {
             
             // Phase 2: Main Phase
             logger.info("Starting Main Phase...");
-            long mainStartTime = System.currentTimeMillis();
-            runMainPhase(messageQueue, metricsQueue);
-            long mainEndTime = System.currentTimeMillis();
-            long mainDuration = mainEndTime - mainStartTime;
+            liveStats.setPhase("main");
+            long mainStartTime = System.nanoTime();
+            SendSchedule schedule = LOAD_PROFILE != null ? new SendSchedule(LOAD_PROFILE) : null;
+            runMainPhase(messageQueue, metrics, schedule);
+            long mainEndTime = System.nanoTime();
+            long mainDuration = TimeUnit.NANOSECONDS.toMillis(mainEndTime - mainStartTime);
             
             logger.info("Main Phase completed in {} ms", mainDuration);
             
             // Wait for generator to complete
             generatorThread.join();
             
-            // Stop CSV writer and wait for it to finish
-            logger.info("Waiting for CSV writer to complete...");
-            Thread.sleep(2000); // Give time for remaining metrics to be written
-            csvWriter.stop();
-            csvWriterThread.join(10000);
+            // Stop metrics writer and wait for it to finish; it drains every record left in the rings
+            logger.info("Waiting for metrics writer to complete...");
+            metricsWriter.stop();
+            metricsWriterThread.join(10000);
+            if (metrics.getDropped() > 0) {
+                logger.warn("{} metric records dropped because a buffer was full (raise -Dchatflow.metrics.buffer)",
+                           metrics.getDropped());
+            }
             
-            long endTime = System.currentTimeMillis();
-            long totalDuration = endTime - startTime;
+            long endTime = System.nanoTime();
+            long totalDuration = TimeUnit.NANOSECONDS.toMillis(endTime - startTime);
+            liveStats.setPhase("finished");
+            Histogram latencies = latencyRecorder.finish();
+            LatencyRecorder.savePercentileDistribution(latencies, percentilesPath);
             
             // Print basic results
-            printResults(totalDuration, warmupDuration, mainDuration);
+            printResults(totalDuration, warmupDuration, mainDuration, schedule);
+            
+            if (EXPORT_CSV) {
+                CsvWriter.export(metricsFilePath, csvFilePath);
+            }
             
-            // Perform statistical analysis
+            // Statistical analysis and throughput over time, in one pass over the metrics file
             logger.info("\nPerforming statistical analysis...");
-            PerformanceAnalyzer.Statistics stats = PerformanceAnalyzer.analyzeMetrics(csvFilePath);
+            PerformanceAnalyzer.Statistics stats = PerformanceAnalyzer.analyze(metricsFilePath, latencies, 10);
             if (stats != null) {
                 System.out.println(stats.toString());
-            }
-            
-            // Calculate throughput over time
-            logger.info("Calculating throughput over time...");
-            Map<Long, Integer> throughputData = PerformanceAnalyzer.calculateThroughputOverTime(csvFilePath, 10);
-            
-            if (!throughputData.isEmpty()) {
-                PerformanceAnalyzer.saveThroughputData(throughputData, chartFilePath);
-                logger.info("Throughput data saved to: {}", chartFilePath);
+                
+                if (!stats.throughputOverTime.isEmpty()) {
+                    PerformanceAnalyzer.saveThroughputData(stats.throughputOverTime, stats.bucketSizeSeconds, chartFilePath);
+                    logger.info("Throughput data saved to: {}", chartFilePath);
+                }
             }
             
             logger.info("\n========================================");
             logger.info("RESULTS SAVED:");
-            logger.info("  - Metrics CSV: {}", csvFilePath);
+            logger.info("  - Metrics: {}", metricsFilePath);
+            if (EXPORT_CSV) {
+                logger.info("  - Metrics CSV: {}", csvFilePath);
+            }
             logger.info("  - Throughput Chart: {}", chartFilePath);
+            logger.info("  - Latency Histogram Log: {}", histogramLogPath);
+            logger.info("  - Latency Percentiles: {}", percentilesPath);
             logger.info("========================================");
             
         } catch (Exception e) {
             logger.error("Error in main execution", e);
+        } finally {
+            liveStats.stop();
+            if (dashboard != null) {
+                dashboard.stop();
+            }
         }
     }
     
     private static void runWarmupPhase(BlockingQueue<ChatMessage> messageQueue,
-                                      BlockingQueue<MetricRecord> metricsQueue) throws InterruptedException {
+                                      MetricsCollector metrics) throws InterruptedException {
         ExecutorService executor = Executors.newFixedThreadPool(WARMUP_THREADS);
         List<Future<?>> futures = new ArrayList<>();
         
@@ -151,7 +245,8 @@ public class Main {
             totalConnections.incrementAndGet();
             MessageSender sender = new MessageSender(
                 messageQueue, SERVER_URL, successCount, failureCount, 
-                reconnectionCount, WARMUP_MESSAGES_PER_THREAD, metricsQueue
+                reconnectionCount, WARMUP_MESSAGES_PER_THREAD, metrics, latencyRecorder, liveStats,
+                WIRE_FORMAT, trafficStats, MAX_IN_FLIGHT, null, ROOMS
             );
             futures.add(executor.submit(sender));
         }
@@ -170,24 +265,24 @@ public class Main {
     }
     
     private static void runMainPhase(BlockingQueue<ChatMessage> messageQueue,
-                                    BlockingQueue<MetricRecord> metricsQueue) throws InterruptedException {
-        // Optimize thread count for main phase
-        int optimalThreads = 64;
-        int messagesPerThread = MAIN_PHASE_MESSAGES / optimalThreads;
-        int remainderMessages = MAIN_PHASE_MESSAGES % optimalThreads;
+                                    MetricsCollector metrics,
+                                    SendSchedule schedule) throws InterruptedException {
+        int messagesPerThread = MAIN_PHASE_MESSAGES / MAIN_THREADS;
+        int remainderMessages = MAIN_PHASE_MESSAGES % MAIN_THREADS;
         
-        logger.info("Main phase using {} threads", optimalThreads);
+        logger.info("Main phase using {} threads", MAIN_THREADS);
         logger.info("Messages per thread: {}", messagesPerThread);
         
-        ExecutorService executor = Executors.newFixedThreadPool(optimalThreads);
+        ExecutorService executor = Executors.newFixedThreadPool(MAIN_THREADS);
         List<Future<?>> futures = new ArrayList<>();
         
-        for (int i = 0; i < optimalThreads; i++) {
+        for (int i = 0; i < MAIN_THREADS; i++) {
             totalConnections.incrementAndGet();
             int messagesToSend = messagesPerThread + (i == 0 ? remainderMessages : 0);
             MessageSender sender = new MessageSender(
                 messageQueue, SERVER_URL, successCount, failureCount, 
-                reconnectionCount, messagesToSend, metricsQueue
+                reconnectionCount, messagesToSend, metrics, latencyRecorder, liveStats,
+                WIRE_FORMAT, trafficStats, MAX_IN_FLIGHT, schedule, ROOMS
             );
             futures.add(executor.submit(sender));
         }
@@ -205,7 +300,8 @@ public class Main {
         executor.awaitTermination(10, TimeUnit.MINUTES);
     }
     
-    private static void printResults(long totalDuration, long warmupDuration, long mainDuration) {
+    private static void printResults(long totalDuration, long warmupDuration, long mainDuration,
+                                     SendSchedule schedule) {
         logger.info("");
         logger.info("========================================");
         logger.info("BASIC PERFORMANCE RESULTS");
@@ -221,9 +317,30 @@ public class Main {
                    (WARMUP_TOTAL * 1000.0) / warmupDuration);
         logger.info("   - Main phase throughput: {} messages/second", 
                    (MAIN_PHASE_MESSAGES * 1000.0) / mainDuration);
+        if (schedule != null) {
+            // Achieved below offered means the server could not keep up with the profile;
+            // a large send lag means the client could not
+            logger.info("   - Main phase offered: {} messages/second ({}), max send lag {} ms",
+                       String.format("%.1f", schedule.getOfferedRate()), schedule.getProfile(),
+                       schedule.getMaxLagMillis());
+        }
         logger.info("5. Connection statistics:");
         logger.info("   - Total persistent connections: {}", totalConnections.get());
         logger.info("   - Reconnections: {}", reconnectionCount.get());
+        logger.info("6. Payload bytes ({}):", WIRE_FORMAT);
+        logger.info("   - Sent: {} ({} bytes/message)", trafficStats.getBytesSent(),
+                   trafficStats.getBytesSent() / Math.max(1, TOTAL_MESSAGES));
+        logger.info("   - Received: {} ({} bytes/response)", trafficStats.getBytesReceived(),
+                   trafficStats.getBytesReceived() / Math.max(1, successCount.get() + failureCount.get()));
+        if (trafficStats.getDeflatedMessages() > 0 || trafficStats.getInflatedMessages() > 0) {
+            logger.info("7. Compression (bytes on the wire vs. zlib time):");
+            logger.info("   - Sent: {} messages, {} -> {} bytes, {} us/message deflating",
+                       trafficStats.getDeflatedMessages(), trafficStats.getDeflateInputBytes(),
+                       trafficStats.getDeflateOutputBytes(), String.format("%.2f", trafficStats.getMeanDeflateMicros()));
+            logger.info("   - Received: {} messages, {} -> {} bytes, {} us/message inflating",
+                       trafficStats.getInflatedMessages(), trafficStats.getInflateInputBytes(),
+                       trafficStats.getInflateOutputBytes(), String.format("%.2f", trafficStats.getMeanInflateMicros()));
+        }
         logger.info("========================================");
     }
 }
\ No newline at end of file
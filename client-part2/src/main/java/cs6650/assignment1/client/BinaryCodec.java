@@ -0,0 +1,130 @@
+package cs6650.assignment1.client;
+
+import cs6650.assignment1.model.ChatMessage;
+import cs6650.assignment1.model.ChatResponse;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Client side of the server's binary wire format (see the server's BinaryMessageCodec).
+ * Integers are big-endian; strings are a u16 byte length followed by UTF-8.
+ *
+ * <pre>
+ * request:  flags u8 | userId i32 | timestamp i64 (epoch ms) | messageType u8 | username | message
+ *           [| messageId i64]
+ * success:  0x00 | flags u8 | userId i32 | clientTimestamp i64 | serverTimestamp i64
+ *           | messageType u8 | username | message [| messageId i64]
+ * error:    0x01 | timestamp i64 | count u8 | count x error string [| messageId i64]
+ * </pre>
+ *
+ * The messageId is only present when FLAG_MESSAGE_ID is set; errors carry it when the server
+ * could read it from the request.
+ *
+ * Not thread-safe: the encode buffer is reused, which is fine because WebSocket.send copies
+ * the payload into the wire frame before returning.
+ */
+public class BinaryCodec {
+
+    private static final int FLAG_USER_ID = 1;
+    private static final int FLAG_USERNAME = 1 << 1;
+    private static final int FLAG_MESSAGE = 1 << 2;
+    private static final int FLAG_TIMESTAMP = 1 << 3;
+    private static final int FLAG_MESSAGE_TYPE = 1 << 4;
+    private static final int FLAG_MESSAGE_ID = 1 << 5;
+
+    private static final byte STATUS_SUCCESS = 0;
+    private static final ChatMessage.MessageType[] TYPES = ChatMessage.MessageType.values();
+
+    private ByteBuffer buffer = ByteBuffer.allocate(512);
+
+    public ByteBuffer encode(ChatMessage message) {
+        byte[] username = message.getUsername() != null ? message.getUsername().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        byte[] text = message.getMessage() != null ? message.getMessage().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int size = 1 + 4 + 8 + 1 + 2 + username.length + 2 + text.length + 8;
+        if (buffer.capacity() < size) {
+            buffer = ByteBuffer.allocate(Math.max(size, buffer.capacity() * 2));
+        }
+
+        int flags = 0;
+        if (message.getUserId() != null) {
+            flags |= FLAG_USER_ID;
+        }
+        if (message.getUsername() != null) {
+            flags |= FLAG_USERNAME;
+        }
+        if (message.getMessage() != null) {
+            flags |= FLAG_MESSAGE;
+        }
+        if (message.getTimestamp() != null) {
+            flags |= FLAG_TIMESTAMP;
+        }
+        if (message.getMessageType() != null) {
+            flags |= FLAG_MESSAGE_TYPE;
+        }
+        if (message.getMessageId() != null) {
+            flags |= FLAG_MESSAGE_ID;
+        }
+
+        buffer.clear();
+        buffer.put((byte) flags);
+        buffer.putInt(message.getUserId() != null ? message.getUserId() : 0);
+        buffer.putLong(message.getTimestamp() != null ? message.getTimestamp().toEpochMilli() : 0);
+        buffer.put(message.getMessageType() != null ? (byte) message.getMessageType().ordinal() : 0);
+        buffer.putShort((short) username.length).put(username);
+        buffer.putShort((short) text.length).put(text);
+        if (message.getMessageId() != null) {
+            buffer.putLong(message.getMessageId());
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Decodes a response frame. Error responses come back with status "error" and only the
+     * messageId, if any.
+     */
+    public static ChatResponse decodeResponse(ByteBuffer frame) {
+        ByteBuffer in = frame.duplicate();
+        ChatResponse response = new ChatResponse();
+        if (in.get() != STATUS_SUCCESS) {
+            response.setStatus("error");
+            in.position(in.position() + 8);
+            int count = in.get() & 0xFF;
+            for (int i = 0; i < count; i++) {
+                int length = in.getShort() & 0xFFFF;
+                in.position(in.position() + length);
+            }
+            if (in.remaining() >= 8) {
+                response.setMessageId(in.getLong());
+            }
+            return response;
+        }
+        int flags = in.get();
+        int userId = in.getInt();
+        long clientTimestamp = in.getLong();
+        long serverTimestamp = in.getLong();
+        int type = in.get();
+        String username = readString(in);
+        String text = readString(in);
+
+        response.setUserId((flags & FLAG_USER_ID) != 0 ? userId : null);
+        response.setUsername((flags & FLAG_USERNAME) != 0 ? username : null);
+        response.setMessage((flags & FLAG_MESSAGE) != 0 ? text : null);
+        response.setClientTimestamp((flags & FLAG_TIMESTAMP) != 0 ? Instant.ofEpochMilli(clientTimestamp) : null);
+        response.setServerTimestamp(Instant.ofEpochMilli(serverTimestamp));
+        response.setMessageType((flags & FLAG_MESSAGE_TYPE) != 0 ? TYPES[type] : null);
+        if ((flags & FLAG_MESSAGE_ID) != 0) {
+            response.setMessageId(in.getLong());
+        }
+        response.setStatus("success");
+        return response;
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
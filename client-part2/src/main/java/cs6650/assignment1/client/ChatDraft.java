@@ -0,0 +1,83 @@
+package cs6650.assignment1.client;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.enums.Opcode;
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.protocols.IProtocol;
+import org.java_websocket.protocols.Protocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RFC 6455 draft that hands complete text frames to the client as raw UTF-8 bytes, so JSON
+ * responses are parsed from the frame's bytes instead of a String decoded from them first.
+ * Frames are already UTF-8 validated by the time they get here. Fragmented messages still
+ * take the normal String path; an unfragmented text frame arriving while one is open goes to the
+ * library too, which rejects it.
+ */
+public class ChatDraft extends Draft_6455 {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatDraft.class);
+
+    // A data frame without FIN has been processed and its final continuation frame has not
+    private boolean fragmentOpen;
+
+    /**
+     * Receives the payload of unfragmented text frames. The buffer is owned by the frame and
+     * is not reused by the library.
+     */
+    public interface TextFrameListener {
+        void onTextFrame(WebSocket conn, ByteBuffer payload);
+    }
+
+    public ChatDraft(List<IExtension> extensions) {
+        this(extensions, List.of(new Protocol("")));
+    }
+
+    public ChatDraft(List<IExtension> extensions, List<IProtocol> protocols) {
+        super(extensions, protocols);
+    }
+
+    @Override
+    public void processFrame(WebSocketImpl webSocketImpl, Framedata frame) throws InvalidDataException {
+        Opcode opcode = frame.getOpcode();
+        boolean fragmented = fragmentOpen;
+        if (opcode == Opcode.TEXT || opcode == Opcode.BINARY || opcode == Opcode.CONTINUOUS) {
+            fragmentOpen = !frame.isFin();
+        }
+        if (opcode == Opcode.TEXT && frame.isFin() && !fragmented
+            && webSocketImpl.getWebSocketListener() instanceof TextFrameListener) {
+            try {
+                ((TextFrameListener) webSocketImpl.getWebSocketListener())
+                    .onTextFrame(webSocketImpl, frame.getPayloadData());
+            } catch (RuntimeException e) {
+                logger.error("Runtime exception during onTextFrame", e);
+                webSocketImpl.getWebSocketListener().onWebsocketError(webSocketImpl, e);
+            }
+            return;
+        }
+        super.processFrame(webSocketImpl, frame);
+    }
+
+    @Override
+    public Draft copyInstance() {
+        List<IExtension> extensions = new ArrayList<>();
+        for (IExtension extension : getKnownExtensions()) {
+            extensions.add(extension.copyInstance());
+        }
+        List<IProtocol> protocols = new ArrayList<>();
+        for (IProtocol protocol : getKnownProtocols()) {
+            protocols.add(protocol.copyInstance());
+        }
+        return new ChatDraft(extensions, protocols);
+    }
+}
@@ -4,51 +4,57 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import cs6650.assignment1.model.ChatMessage;
 import cs6650.assignment1.model.ChatResponse;
+import org.java_websocket.WebSocket;
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.framing.TextFrame;
 import org.java_websocket.handshake.ServerHandshake;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.URI;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicInteger;
 
-public class ChatWebSocketClient extends WebSocketClient {
+/**
+ * Pipelined chat connection: up to maxInFlight requests are outstanding at once, each tagged
+ * with a messageId that the server echoes, so responses are matched exactly even when they
+ * arrive out of order or in the same millisecond. Outcomes go to the {@link ResponseListener}.
+ *
+ * {@link #sendChatMessage} and {@link #awaitResponses} must be called from one thread.
+ */
+public class ChatWebSocketClient extends WebSocketClient implements ChatDraft.TextFrameListener {
     
     private static final Logger logger = LoggerFactory.getLogger(ChatWebSocketClient.class);
+    private static final long RESPONSE_TIMEOUT_MS = 1000;
+    
     private final ObjectMapper objectMapper;
     private final AtomicInteger successCount;
     private final AtomicInteger failureCount;
-    private final ConcurrentHashMap<String, MessageContext> pendingMessages;
-    
-    private static class MessageContext {
-        final long sendTimestamp;
-        final CompletableFuture<ResponseData> future;
-        
-        MessageContext(long sendTimestamp, CompletableFuture<ResponseData> future) {
-            this.sendTimestamp = sendTimestamp;
-            this.future = future;
-        }
-    }
+    private final InFlightWindow inFlight;
+    private final WireFormat wireFormat;
+    private final TrafficStats trafficStats;
+    private final BinaryCodec binaryCodec = new BinaryCodec();
     
-    public static class ResponseData {
-        public final String status;
-        public final long latencyMs;
-        
-        public ResponseData(String status, long latencyMs) {
-            this.status = status;
-            this.latencyMs = latencyMs;
-        }
+    /**
+     * Called once per request with the server's status, "timeout" or "connection_closed", and
+     * the latency from System.nanoTime(). Runs on the connection's read thread or the sending thread.
+     */
+    public interface ResponseListener {
+        void onResponse(ChatMessage.MessageType messageType, long sendTimestamp, long latencyNanos, String status);
     }
     
-    public ChatWebSocketClient(URI serverUri, AtomicInteger successCount, AtomicInteger failureCount) {
-        super(serverUri);
+    public ChatWebSocketClient(URI serverUri, AtomicInteger successCount, AtomicInteger failureCount,
+                               WireFormat wireFormat, TrafficStats trafficStats,
+                               int maxInFlight, ResponseListener responseListener) {
+        super(serverUri, wireFormat.draft(DeflateExtension.fromSystemProperties(trafficStats)));
         this.successCount = successCount;
         this.failureCount = failureCount;
+        this.wireFormat = wireFormat;
+        this.trafficStats = trafficStats;
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
-        this.pendingMessages = new ConcurrentHashMap<>();
+        this.inFlight = new InFlightWindow(maxInFlight, RESPONSE_TIMEOUT_MS, responseListener::onResponse);
     }
     
     @Override
@@ -56,54 +62,82 @@ public class ChatWebSocketClient extends WebSocketClient {
         logger.debug("WebSocket connection opened");
     }
     
+    /**
+     * JSON responses, parsed straight from the frame's UTF-8 bytes.
+     */
+    @Override
+    public void onTextFrame(WebSocket conn, ByteBuffer payload) {
+        trafficStats.recordReceived(payload.remaining());
+        try {
+            completeResponse(readResponse(payload));
+        } catch (Exception e) {
+            logger.error("Error parsing response of {} bytes", payload.remaining(), e);
+            failOldest();
+        }
+    }
+    
+    private ChatResponse readResponse(ByteBuffer payload) throws IOException {
+        if (payload.hasArray()) {
+            return objectMapper.readValue(payload.array(), payload.arrayOffset() + payload.position(),
+                                          payload.remaining(), ChatResponse.class);
+        }
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(payload.position(), bytes);
+        return objectMapper.readValue(bytes, ChatResponse.class);
+    }
+    
+    /**
+     * Fragmented text messages arrive here already decoded by the library.
+     */
     @Override
     public void onMessage(String message) {
+        trafficStats.recordReceived(TrafficStats.utf8Length(message));
         try {
-            ChatResponse response = objectMapper.readValue(message, ChatResponse.class);
-            long receiveTimestamp = System.currentTimeMillis();
-            
-            // Find the corresponding pending message (use a simple approach)
-            if (!pendingMessages.isEmpty()) {
-                // Get the first pending message (FIFO approximation)
-                String firstKey = pendingMessages.keys().nextElement();
-                MessageContext ctx = pendingMessages.remove(firstKey);
-                
-                if (ctx != null) {
-                    long latencyMs = receiveTimestamp - ctx.sendTimestamp;
-                    String status = response.getStatus() != null ? response.getStatus() : "unknown";
-                    
-                    if ("success".equalsIgnoreCase(status)) {
-                        successCount.incrementAndGet();
-                    } else {
-                        failureCount.incrementAndGet();
-                    }
-                    
-                    ctx.future.complete(new ResponseData(status, latencyMs));
-                }
-            }
+            completeResponse(objectMapper.readValue(message, ChatResponse.class));
         } catch (Exception e) {
             logger.error("Error parsing response: {}", message, e);
+            failOldest();
+        }
+    }
+    
+    @Override
+    public void onMessage(ByteBuffer bytes) {
+        trafficStats.recordReceived(bytes.remaining());
+        try {
+            completeResponse(BinaryCodec.decodeResponse(bytes));
+        } catch (Exception e) {
+            logger.error("Error parsing binary response of {} bytes", bytes.remaining(), e);
+            failOldest();
+        }
+    }
+    
+    private void completeResponse(ChatResponse response) {
+        String status = response.getStatus() != null ? response.getStatus() : "unknown";
+        
+        // Responses without a messageId (e.g. "server busy" rejections) are matched to the oldest request
+        boolean matched = response.getMessageId() != null
+            ? inFlight.complete(response.getMessageId(), status)
+            : inFlight.completeOldest(status);
+        if (!matched) {
+            // Another member's message in BROADCAST mode, or a response that already timed out
+            return;
+        }
+        if ("success".equalsIgnoreCase(status)) {
+            successCount.incrementAndGet();
+        } else {
             failureCount.incrementAndGet();
-            
-            // Complete any pending futures with error
-            if (!pendingMessages.isEmpty()) {
-                String firstKey = pendingMessages.keys().nextElement();
-                MessageContext ctx = pendingMessages.remove(firstKey);
-                if (ctx != null) {
-                    ctx.future.complete(new ResponseData("error", 0));
-                }
-            }
         }
     }
     
+    private void failOldest() {
+        failureCount.incrementAndGet();
+        inFlight.completeOldest("error");
+    }
+    
     @Override
     public void onClose(int code, String reason, boolean remote) {
         logger.debug("WebSocket connection closed: {} - {}", code, reason);
-        // Complete all pending futures with failure
-        pendingMessages.values().forEach(ctx -> 
-            ctx.future.complete(new ResponseData("connection_closed", 0))
-        );
-        pendingMessages.clear();
+        inFlight.failAll("connection_closed");
     }
     
     @Override
@@ -111,28 +145,51 @@ public class ChatWebSocketClient extends WebSocketClient {
         logger.error("WebSocket error", ex);
     }
     
-    public CompletableFuture<ResponseData> sendChatMessageAsync(ChatMessage chatMessage) {
-        CompletableFuture<ResponseData> future = new CompletableFuture<>();
-        
+    /**
+     * Sends a message once fewer than maxInFlight requests are outstanding, blocking until then.
+     * The message's messageId is overwritten. If the send throws, nothing is reported for it.
+     */
+    public void sendChatMessage(ChatMessage chatMessage) throws Exception {
+        sendRegistered(chatMessage, inFlight.register(chatMessage.getMessageType()));
+    }
+    
+    /**
+     * Open-loop variant: latency is measured from {@code intendedNanos} (a {@link System#nanoTime()}
+     * value from the {@link SendSchedule}), however late the message actually leaves.
+     */
+    public void sendChatMessage(ChatMessage chatMessage, long intendedNanos) throws Exception {
+        sendRegistered(chatMessage, inFlight.register(chatMessage.getMessageType(), intendedNanos));
+    }
+    
+    private void sendRegistered(ChatMessage chatMessage, long messageId) throws Exception {
+        chatMessage.setMessageId(messageId);
         try {
-            long sendTimestamp = System.currentTimeMillis();
-            String json = objectMapper.writeValueAsString(chatMessage);
-            String messageId = String.valueOf(sendTimestamp);
-            
-            pendingMessages.put(messageId, new MessageContext(sendTimestamp, future));
-            send(json);
-            
-            // Set a timeout
-            future.orTimeout(1, java.util.concurrent.TimeUnit.SECONDS)
-                .exceptionally(throwable -> {
-                    pendingMessages.remove(messageId);
-                    return new ResponseData("timeout", 0);
-                });
+            sendEncoded(chatMessage);
         } catch (Exception e) {
-            logger.error("Error sending message", e);
-            future.complete(new ResponseData("error", 0));
+            inFlight.cancel(messageId);
+            throw e;
+        }
+    }
+    
+    /**
+     * Waits until every request sent has been answered or has timed out.
+     */
+    public void awaitResponses() throws InterruptedException {
+        inFlight.drain();
+    }
+    
+    private void sendEncoded(ChatMessage chatMessage) throws Exception {
+        if (wireFormat == WireFormat.BINARY) {
+            ByteBuffer payload = binaryCodec.encode(chatMessage);
+            trafficStats.recordSent(payload.remaining());
+            send(payload);
+        } else {
+            // Send the serialized bytes directly so they can be counted without re-encoding
+            byte[] json = objectMapper.writeValueAsBytes(chatMessage);
+            trafficStats.recordSent(json.length);
+            TextFrame frame = new TextFrame();
+            frame.setPayload(ByteBuffer.wrap(json));
+            sendFrame(frame);
         }
-        
-        return future;
     }
 }
@@ -0,0 +1,229 @@
+package cs6650.assignment1.client;
+
+import org.java_websocket.enums.Opcode;
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.exceptions.InvalidFrameException;
+import org.java_websocket.extensions.CompressionExtension;
+import org.java_websocket.extensions.ExtensionRequestData;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.framing.DataFrame;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.framing.FramedataImpl1;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Client side of permessage-deflate (RFC 7692), enabled with -Dchatflow.compression=true.
+ *
+ * Each connection keeps one Deflater, one Inflater and their output buffers for its lifetime,
+ * resetting zlib between messages only when no context takeover was negotiated. Messages under
+ * the threshold are sent uncompressed. Sizes and zlib time go to {@link TrafficStats}.
+ *
+ * Encoding state is only used by the connection's sender thread and decoding state by its
+ * read thread.
+ */
+public class DeflateExtension extends CompressionExtension {
+
+    private static final String EXTENSION_NAME = "permessage-deflate";
+    private static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+    private static final String CLIENT_NO_CONTEXT_TAKEOVER = "client_no_context_takeover";
+    private static final String CLIENT_MAX_WINDOW_BITS = "client_max_window_bits";
+
+    // Empty stored block ending every sync flush; stripped on send, appended before inflating
+    private static final byte[] TAIL = {0, 0, (byte) 0xFF, (byte) 0xFF};
+
+    private final int threshold;
+    private final int level;
+    private final boolean contextTakeover;
+    private final TrafficStats trafficStats;
+
+    // Negotiated with the server
+    private boolean resetDeflater;
+    private boolean resetInflater;
+
+    // Created on first use so connections that never compress hold no zlib memory
+    private Deflater deflater;
+    private Inflater inflater;
+    // Encoding runs on the sender thread and decoding on the read thread, so each has its own
+    private byte[] deflated = new byte[1024];
+    private byte[] inflated = new byte[1024];
+
+    public DeflateExtension(int threshold, int level, boolean contextTakeover, TrafficStats trafficStats) {
+        this.threshold = threshold;
+        this.level = level;
+        this.contextTakeover = contextTakeover;
+        this.trafficStats = trafficStats;
+    }
+
+    /**
+     * Reads -Dchatflow.compression (false), -Dchatflow.compression.threshold (256 bytes),
+     * -Dchatflow.compression.level (1) and -Dchatflow.compression.context.takeover (true).
+     *
+     * @return the extension, or null when compression is off
+     */
+    public static DeflateExtension fromSystemProperties(TrafficStats trafficStats) {
+        if (!Boolean.getBoolean("chatflow.compression")) {
+            return null;
+        }
+        return new DeflateExtension(
+            Integer.getInteger("chatflow.compression.threshold", 256),
+            Integer.getInteger("chatflow.compression.level", Deflater.BEST_SPEED),
+            Boolean.parseBoolean(System.getProperty("chatflow.compression.context.takeover", "true")),
+            trafficStats
+        );
+    }
+
+    @Override
+    public void encodeFrame(Framedata frame) {
+        if (!(frame instanceof DataFrame) || frame.getOpcode() == Opcode.CONTINUOUS || !frame.isFin()) {
+            return;
+        }
+        ByteBuffer payload = frame.getPayloadData();
+        int rawBytes = payload.remaining();
+        if (rawBytes < threshold) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        if (deflater == null) {
+            deflater = new Deflater(level, true);
+        }
+        if (payload.hasArray()) {
+            deflater.setInput(payload.array(), payload.arrayOffset() + payload.position(), rawBytes);
+        } else {
+            deflater.setInput(payload.duplicate());
+        }
+        int length = 0;
+        while (true) {
+            length += deflater.deflate(deflated, length, deflated.length - length, Deflater.SYNC_FLUSH);
+            if (length < deflated.length) {
+                break;
+            }
+            deflated = Arrays.copyOf(deflated, deflated.length * 2);
+        }
+        length -= TAIL.length;
+        if (resetDeflater) {
+            deflater.reset();
+        }
+
+        // The library copies the payload into the wire frame before send() returns
+        ((DataFrame) frame).setRSV1(true);
+        ((FramedataImpl1) frame).setPayload(ByteBuffer.wrap(deflated, 0, length));
+        trafficStats.recordDeflate(rawBytes, length, System.nanoTime() - start);
+    }
+
+    /**
+     * Only called for frames of messages that arrived with RSV1 set.
+     */
+    @Override
+    public void decodeFrame(Framedata frame) throws InvalidDataException {
+        if (!(frame instanceof DataFrame)) {
+            return;
+        }
+        long start = System.nanoTime();
+        if (inflater == null) {
+            inflater = new Inflater(true);
+        }
+        ByteBuffer payload = frame.getPayloadData();
+        int wireBytes = payload.remaining();
+        int length;
+        try {
+            if (payload.hasArray()) {
+                inflater.setInput(payload.array(), payload.arrayOffset() + payload.position(), wireBytes);
+            } else {
+                inflater.setInput(payload);
+            }
+            length = inflate(0);
+            if (frame.isFin()) {
+                inflater.setInput(TAIL);
+                length = inflate(length);
+                if (resetInflater) {
+                    inflater.reset();
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new InvalidDataException(CloseFrame.POLICY_VALIDATION, e.getMessage());
+        }
+
+        ((FramedataImpl1) frame).setPayload(ByteBuffer.wrap(Arrays.copyOf(inflated, length)));
+        trafficStats.recordInflate(wireBytes, length, System.nanoTime() - start);
+    }
+
+    private int inflate(int length) throws DataFormatException {
+        while (true) {
+            if (length == inflated.length) {
+                inflated = Arrays.copyOf(inflated, inflated.length * 2);
+            }
+            int count = inflater.inflate(inflated, length, inflated.length - length);
+            length += count;
+            if (count == 0 && (inflater.needsInput() || inflater.finished() || inflater.needsDictionary())) {
+                return length;
+            }
+        }
+    }
+
+    @Override
+    public void isFrameValid(Framedata frame) throws InvalidDataException {
+        if (frame.getOpcode() == Opcode.CONTINUOUS && frame.isRSV1()) {
+            throw new InvalidFrameException("RSV1 may only be set on the first frame of a message");
+        }
+        super.isFrameValid(frame);
+    }
+
+    @Override
+    public String getProvidedExtensionAsClient() {
+        return EXTENSION_NAME + (contextTakeover ? "" : "; " + CLIENT_NO_CONTEXT_TAKEOVER);
+    }
+
+    @Override
+    public boolean acceptProvidedExtensionAsClient(String inputExtension) {
+        for (String response : inputExtension.split(",")) {
+            ExtensionRequestData data = ExtensionRequestData.parseExtensionRequest(response.trim());
+            if (!EXTENSION_NAME.equalsIgnoreCase(data.getExtensionName())) {
+                continue;
+            }
+            Map<String, String> parameters = data.getExtensionParameters();
+            // java.util.zip always compresses with a 32 KB window, so a smaller one cannot be honoured
+            String clientWindowBits = parameters.get(CLIENT_MAX_WINDOW_BITS);
+            if (clientWindowBits != null && !clientWindowBits.isEmpty() && !"15".equals(clientWindowBits)) {
+                return false;
+            }
+            resetDeflater = !contextTakeover || parameters.containsKey(CLIENT_NO_CONTEXT_TAKEOVER);
+            resetInflater = parameters.containsKey(SERVER_NO_CONTEXT_TAKEOVER);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public IExtension copyInstance() {
+        return new DeflateExtension(threshold, level, contextTakeover, trafficStats);
+    }
+
+    /**
+     * Called when the connection closes; frees native zlib memory.
+     */
+    @Override
+    public void reset() {
+        if (deflater != null) {
+            deflater.end();
+            deflater = null;
+        }
+        if (inflater != null) {
+            inflater.end();
+            inflater = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return EXTENSION_NAME + " (threshold " + threshold + " bytes, level " + level
+            + ", context takeover " + (contextTakeover ? "on" : "off") + ")";
+    }
+}
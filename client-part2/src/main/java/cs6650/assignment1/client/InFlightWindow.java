@@ -0,0 +1,206 @@
+package cs6650.assignment1.client;
+
+import cs6650.assignment1.model.ChatMessage;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sliding window of requests awaiting a response on one connection, keyed by messageId.
+ *
+ * A messageId is the connection's prefix in the high 32 bits and a sequence number in the low
+ * 32, so its slot in the ring is the sequence modulo the capacity: no hashing, boxing or
+ * allocation per request. Prefixes differ per connection, so in BROADCAST mode other members'
+ * messages never match. Sequence n can only be sent once sequence n - capacity has completed
+ * or timed out.
+ *
+ * The sender thread registers and expires entries; the read thread completes them. An entry is
+ * claimed by a CAS on its id, so a late response and a timeout cannot both report it.
+ */
+class InFlightWindow {
+
+    private static final long EMPTY = -1;
+    private static final long SEQUENCE_MASK = 0xFFFFFFFFL;
+    // Unique per connection in this process; the random start keeps separate processes apart
+    private static final AtomicInteger NEXT_PREFIX = new AtomicInteger(ThreadLocalRandom.current().nextInt());
+
+    /**
+     * Receives each request's outcome: a server status, "timeout" or "connection_closed".
+     */
+    interface Listener {
+        void onComplete(ChatMessage.MessageType messageType, long sendTimestamp, long latencyNanos, String status);
+    }
+
+    private final int mask;
+    private final long timeoutNanos;
+    private final long prefix;
+    private final Listener listener;
+
+    private final AtomicLongArray ids;
+    private final long[] sendTimestamps;
+    private final long[] sendNanos;
+    private final ChatMessage.MessageType[] messageTypes;
+
+    // Sender thread only
+    private long nextSequence;
+    private volatile Thread waitingSender;
+
+    /**
+     * @param capacity maximum requests in flight, rounded up to a power of two
+     */
+    InFlightWindow(int capacity, long timeoutMillis, Listener listener) {
+        int size = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.prefix = (NEXT_PREFIX.getAndIncrement() & 0x7FFFFFFFL) << 32;
+        this.listener = listener;
+        this.ids = new AtomicLongArray(size);
+        this.sendTimestamps = new long[size];
+        this.sendNanos = new long[size];
+        this.messageTypes = new ChatMessage.MessageType[size];
+        for (int i = 0; i < size; i++) {
+            ids.set(i, EMPTY);
+        }
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Waits until the next slot is free, expiring its occupant once it is older than the
+     * timeout, then registers a request and returns its messageId. Sender thread only.
+     */
+    long register(ChatMessage.MessageType messageType) throws InterruptedException {
+        int slot = awaitNextSlot();
+        return register(slot, messageType, System.currentTimeMillis(), System.nanoTime());
+    }
+
+    /**
+     * Like {@link #register(ChatMessage.MessageType)}, but latency and the timeout run from
+     * {@code intendedNanos}, the time an open-loop schedule meant the request to go out, so
+     * waiting for a free slot counts against the request. Sender thread only.
+     */
+    long register(ChatMessage.MessageType messageType, long intendedNanos) throws InterruptedException {
+        int slot = awaitNextSlot();
+        long lateMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - intendedNanos);
+        return register(slot, messageType, System.currentTimeMillis() - lateMillis, intendedNanos);
+    }
+
+    private int awaitNextSlot() throws InterruptedException {
+        int slot = (int) (nextSequence & mask);
+        awaitFree(slot);
+        return slot;
+    }
+
+    private long register(int slot, ChatMessage.MessageType messageType, long sendTimestamp, long startNanos) {
+        long id = prefix | (nextSequence & SEQUENCE_MASK);
+        sendTimestamps[slot] = sendTimestamp;
+        sendNanos[slot] = startNanos;
+        messageTypes[slot] = messageType;
+        // Publishes the fields above to the read thread
+        ids.set(slot, id);
+        nextSequence++;
+        return id;
+    }
+
+    /**
+     * Drops a registered request whose send failed, without reporting it.
+     */
+    void cancel(long id) {
+        ids.compareAndSet((int) (id & mask), id, EMPTY);
+    }
+
+    /**
+     * Reports the response to {@code id}.
+     *
+     * @return false if the id is unknown: another connection's, or already timed out
+     */
+    boolean complete(long id, String status) {
+        long receivedNanos = System.nanoTime();
+        if (id < 0 || (id & ~SEQUENCE_MASK) != prefix) {
+            return false;
+        }
+        return complete((int) (id & mask), id, status, receivedNanos);
+    }
+
+    /**
+     * Reports a response that carried no messageId against the oldest request in flight.
+     */
+    boolean completeOldest(String status) {
+        long receivedNanos = System.nanoTime();
+        int oldest = -1;
+        long oldestId = EMPTY;
+        for (int slot = 0; slot <= mask; slot++) {
+            long id = ids.get(slot);
+            if (id != EMPTY && (oldest < 0 || sendNanos[slot] - sendNanos[oldest] < 0)) {
+                oldest = slot;
+                oldestId = id;
+            }
+        }
+        return oldest >= 0 && complete(oldest, oldestId, status, receivedNanos);
+    }
+
+    /**
+     * Waits for every request in flight to complete or time out. Sender thread only.
+     */
+    void drain() throws InterruptedException {
+        for (int slot = 0; slot <= mask; slot++) {
+            awaitFree(slot);
+        }
+    }
+
+    /**
+     * Reports everything still in flight, e.g. when the connection closes.
+     */
+    void failAll(String status) {
+        for (int slot = 0; slot <= mask; slot++) {
+            long id = ids.get(slot);
+            if (id != EMPTY) {
+                complete(slot, id, status, System.nanoTime());
+            }
+        }
+    }
+
+    private boolean complete(int slot, long id, String status, long completedNanos) {
+        // The volatile read of the id makes the slot's fields visible
+        if (ids.get(slot) != id) {
+            return false;
+        }
+        long sendTimestamp = sendTimestamps[slot];
+        long latencyNanos = completedNanos - sendNanos[slot];
+        ChatMessage.MessageType messageType = messageTypes[slot];
+        // Fields were read before releasing the slot to the sender; losing the CAS discards them
+        if (!ids.compareAndSet(slot, id, EMPTY)) {
+            return false;
+        }
+        Thread sender = waitingSender;
+        if (sender != null) {
+            LockSupport.unpark(sender);
+        }
+        listener.onComplete(messageType, sendTimestamp, latencyNanos, status);
+        return true;
+    }
+
+    private void awaitFree(int slot) throws InterruptedException {
+        long id;
+        while ((id = ids.get(slot)) != EMPTY) {
+            long remaining = timeoutNanos - (System.nanoTime() - sendNanos[slot]);
+            if (remaining <= 0) {
+                complete(slot, id, "timeout", System.nanoTime());
+                continue;
+            }
+            waitingSender = Thread.currentThread();
+            if (ids.get(slot) == id) {
+                LockSupport.parkNanos(this, remaining);
+            }
+            waitingSender = null;
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package cs6650.assignment1.client;
+
+/**
+ * Target send rate over time for open-loop runs, read from -Dchatflow.load:
+ *
+ * <pre>
+ *   constant:5000              5000 msg/s throughout
+ *   step:1000,2000,4000/10s    each rate for 10 s in turn; the last one holds
+ *   ramp:1000-20000/60s        linear from 1000 to 20000 msg/s over 60 s, then holds
+ *   spike:2000,20000/5s@30s    2000 msg/s, except 20000 msg/s for 5 s starting at 30 s
+ * </pre>
+ *
+ * Rates are messages per second across all connections; durations are seconds, with an
+ * optional "s" suffix. Time is measured from the first scheduled send.
+ */
+public final class LoadProfile {
+
+    private enum Shape { CONSTANT, STEP, RAMP, SPIKE }
+
+    private final String spec;
+    private final Shape shape;
+    private final double[] rates;
+    // Step length, ramp length or spike length
+    private final double seconds;
+    private final double spikeStart;
+
+    private LoadProfile(String spec, Shape shape, double[] rates, double seconds, double spikeStart) {
+        this.spec = spec;
+        this.shape = shape;
+        this.rates = rates;
+        this.seconds = seconds;
+        this.spikeStart = spikeStart;
+    }
+
+    /**
+     * @return the profile, or null when -Dchatflow.load is unset (closed-loop run)
+     */
+    public static LoadProfile fromSystemProperty() {
+        String spec = System.getProperty("chatflow.load");
+        return spec == null || spec.isBlank() ? null : parse(spec);
+    }
+
+    public static LoadProfile parse(String spec) {
+        String trimmed = spec.trim();
+        int colon = trimmed.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Load profile must look like <shape>:<rates>, got: " + spec);
+        }
+        Shape shape;
+        try {
+            shape = Shape.valueOf(trimmed.substring(0, colon).trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown load profile shape (constant, step, ramp, spike): " + spec);
+        }
+        String args = trimmed.substring(colon + 1).trim();
+
+        switch (shape) {
+            case CONSTANT:
+                return new LoadProfile(trimmed, shape, rates(args, ",", 1, spec), 0, 0);
+            case STEP: {
+                String[] parts = split(args, "/", spec);
+                return new LoadProfile(trimmed, shape, rates(parts[0], ",", 0, spec), seconds(parts[1], spec), 0);
+            }
+            case RAMP: {
+                String[] parts = split(args, "/", spec);
+                return new LoadProfile(trimmed, shape, rates(parts[0], "-", 2, spec), seconds(parts[1], spec), 0);
+            }
+            default: {
+                String[] parts = split(args, "/", spec);
+                String[] timing = split(parts[1], "@", spec);
+                return new LoadProfile(trimmed, shape, rates(parts[0], ",", 2, spec),
+                    seconds(timing[0], spec), seconds(timing[1], spec));
+            }
+        }
+    }
+
+    private static String[] split(String text, String separator, String spec) {
+        int at = text.indexOf(separator);
+        if (at < 0) {
+            throw new IllegalArgumentException("Missing '" + separator + "' in load profile: " + spec);
+        }
+        return new String[] {text.substring(0, at), text.substring(at + 1)};
+    }
+
+    /**
+     * @param count required number of rates, or 0 for one or more
+     */
+    private static double[] rates(String text, String separator, int count, String spec) {
+        String[] parts = text.split(separator);
+        if (count > 0 ? parts.length != count : parts.length == 0) {
+            throw new IllegalArgumentException("Wrong number of rates in load profile: " + spec);
+        }
+        double[] rates = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            rates[i] = number(parts[i], spec);
+            if (rates[i] <= 0) {
+                throw new IllegalArgumentException("Rates must be positive in load profile: " + spec);
+            }
+        }
+        return rates;
+    }
+
+    private static double seconds(String text, String spec) {
+        String value = text.trim();
+        if (value.endsWith("s")) {
+            value = value.substring(0, value.length() - 1);
+        }
+        double seconds = number(value, spec);
+        if (seconds < 0) {
+            throw new IllegalArgumentException("Durations must not be negative in load profile: " + spec);
+        }
+        return seconds;
+    }
+
+    private static double number(String text, String spec) {
+        try {
+            return Double.parseDouble(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number '" + text.trim() + "' in load profile: " + spec);
+        }
+    }
+
+    /**
+     * Target rate in messages per second, {@code elapsedSeconds} after the schedule started.
+     */
+    public double rateAt(double elapsedSeconds) {
+        switch (shape) {
+            case CONSTANT:
+                return rates[0];
+            case STEP:
+                int step = seconds > 0 ? (int) Math.min(rates.length - 1, elapsedSeconds / seconds) : rates.length - 1;
+                return rates[Math.max(0, step)];
+            case RAMP:
+                if (elapsedSeconds >= seconds) {
+                    return rates[1];
+                }
+                return rates[0] + (rates[1] - rates[0]) * Math.max(0, elapsedSeconds) / seconds;
+            default:
+                boolean inSpike = elapsedSeconds >= spikeStart && elapsedSeconds < spikeStart + seconds;
+                return inSpike ? rates[1] : rates[0];
+        }
+    }
+
+    /**
+     * Gap before the next send, for a send scheduled {@code elapsedNanos} after the start.
+     */
+    long intervalNanos(long elapsedNanos) {
+        return Math.max(1, (long) (1_000_000_000.0 / rateAt(elapsedNanos / 1e9)));
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
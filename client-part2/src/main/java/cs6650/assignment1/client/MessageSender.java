@@ -1,14 +1,15 @@
 package cs6650.assignment1.client;
 
 import cs6650.assignment1.model.ChatMessage;
-import cs6650.assignment1.model.MetricRecord;
+import cs6650.assignment1.util.LatencyRecorder;
+import cs6650.assignment1.util.LiveStats;
+import cs6650.assignment1.util.MetricsCollector;
+import cs6650.assignment1.util.MetricsRing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
-import java.util.Random;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class MessageSender implements Runnable {
@@ -22,65 +23,87 @@ public class MessageSender implements Runnable {
     private final AtomicInteger failureCount;
     private final AtomicInteger reconnectionCount;
     private final int messagesToSend;
-    private final Random random;
-    private final BlockingQueue<MetricRecord> metricsQueue;
+    private final MetricsCollector metrics;
+    private final LatencyRecorder latencyRecorder;
+    private final LiveStats liveStats;
+    private final WireFormat wireFormat;
+    private final TrafficStats trafficStats;
+    private final int maxInFlight;
+    private final SendSchedule schedule;
+    private final RoomSelector rooms;
     
     public MessageSender(BlockingQueue<ChatMessage> messageQueue, String serverUrl,
                         AtomicInteger successCount, AtomicInteger failureCount,
                         AtomicInteger reconnectionCount, int messagesToSend,
-                        BlockingQueue<MetricRecord> metricsQueue) {
+                        MetricsCollector metrics, LatencyRecorder latencyRecorder, LiveStats liveStats,
+                        WireFormat wireFormat, TrafficStats trafficStats, int maxInFlight,
+                        SendSchedule schedule, RoomSelector rooms) {
         this.messageQueue = messageQueue;
         this.serverUrl = serverUrl;
         this.successCount = successCount;
         this.failureCount = failureCount;
         this.reconnectionCount = reconnectionCount;
         this.messagesToSend = messagesToSend;
-        this.random = new Random();
-        this.metricsQueue = metricsQueue;
+        this.metrics = metrics;
+        this.latencyRecorder = latencyRecorder;
+        this.liveStats = liveStats;
+        this.wireFormat = wireFormat;
+        this.trafficStats = trafficStats;
+        this.maxInFlight = maxInFlight;
+        this.schedule = schedule;
+        this.rooms = rooms;
     }
     
     @Override
     public void run() {
         ChatWebSocketClient client = null;
-        int roomId = random.nextInt(20) + 1;
+        boolean connected = false;
+        int roomId = rooms.next();
         
         try {
             // Establish ONE persistent WebSocket connection for this thread
             URI serverUri = new URI(serverUrl + "/chat/" + roomId);
-            client = new ChatWebSocketClient(serverUri, successCount, failureCount);
+            // Responses are recorded as they arrive, on the connection's read thread, into this
+            // connection's own ring; nothing is allocated per response
+            MetricsRing ring = metrics.newRing();
+            LiveStats.Room room = liveStats.room(roomId);
+            client = new ChatWebSocketClient(serverUri, successCount, failureCount, wireFormat, trafficStats,
+                maxInFlight, (messageType, sendTimestamp, latencyNanos, status) -> {
+                    latencyRecorder.record(latencyNanos);
+                    int statusCode = MetricsRing.statusCode(status);
+                    ring.offer(sendTimestamp, latencyNanos, messageType.ordinal(), roomId, statusCode);
+                    room.recordResponse(statusCode == MetricsRing.STATUS_SUCCESS);
+                });
             
-            boolean connected = client.connectBlocking();
+            connected = client.connectBlocking();
             if (!connected) {
                 logger.error("Failed to connect to server");
                 return;
             }
+            liveStats.connectionOpened();
             
             logger.debug("Thread {} connected to room {}", Thread.currentThread().getName(), roomId);
             
-            // Send all messages through this ONE persistent connection
+            // Send all messages through this ONE persistent connection, keeping up to
+            // maxInFlight outstanding; sendChatMessage blocks while the window is full.
+            // With a schedule (open loop), each send first waits for its slot, and latency runs
+            // from the slot's time so time spent blocked or retrying is counted
             for (int i = 0; i < messagesToSend; i++) {
+                long intendedNanos = schedule != null ? schedule.awaitNextSlot() : 0;
                 ChatMessage message = messageQueue.take();
                 
                 boolean sent = false;
                 for (int attempt = 0; attempt < MAX_RETRIES && !sent; attempt++) {
                     try {
-                        long sendTimestamp = System.currentTimeMillis();
-                        CompletableFuture<ChatWebSocketClient.ResponseData> future = 
-                            client.sendChatMessageAsync(message);
-                        
-                        ChatWebSocketClient.ResponseData response = future.get();
-                        
-                        // Record metrics
-                        MetricRecord metric = new MetricRecord(
-                            sendTimestamp,
-                            message.getMessageType().toString(),
-                            response.latencyMs,
-                            response.status,
-                            roomId
-                        );
-                        metricsQueue.offer(metric);
-                        
+                        if (schedule != null) {
+                            client.sendChatMessage(message, intendedNanos);
+                        } else {
+                            client.sendChatMessage(message);
+                        }
                         sent = true;
+                        liveStats.recordSent();
+                    } catch (InterruptedException e) {
+                        throw e;
                     } catch (Exception e) {
                         logger.warn("Send attempt {} failed", attempt + 1);
                         if (attempt < MAX_RETRIES - 1) {
@@ -94,11 +117,16 @@ public class MessageSender implements Runnable {
                 }
             }
             
+            client.awaitResponses();
+            
         } catch (Exception e) {
             logger.error("Error in message sender", e);
         } finally {
             // Close the persistent connection when thread is done
             if (client != null) {
+                if (connected) {
+                    liveStats.connectionClosed();
+                }
                 try {
                     client.closeBlocking();
                 } catch (InterruptedException e) {
@@ -0,0 +1,41 @@
+package cs6650.assignment1.client;
+
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.protocols.Protocol;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Message encoding used with the server. BINARY is negotiated with the
+ * {@link #BINARY_SUBPROTOCOL} WebSocket subprotocol; the server also accepts
+ * {@code ?protocol=binary} on the URL.
+ */
+public enum WireFormat {
+    JSON, BINARY;
+
+    public static final String BINARY_SUBPROTOCOL = "chatflow.binary.v1";
+
+    /**
+     * Reads -Dchatflow.protocol (json or binary), defaulting to JSON.
+     */
+    public static WireFormat fromSystemProperty() {
+        return valueOf(System.getProperty("chatflow.protocol", "json").trim().toUpperCase());
+    }
+
+    /**
+     * Handshake draft for this format. Requesting the subprotocol makes the handshake fail if
+     * the server does not support it, rather than silently falling back to JSON. Text frames
+     * reach the client as raw bytes (see {@link ChatDraft}).
+     *
+     * @param compression extension to offer, or null
+     */
+    public Draft draft(IExtension compression) {
+        List<IExtension> extensions = compression != null ? List.of(compression) : Collections.emptyList();
+        if (this == BINARY) {
+            return new ChatDraft(extensions, List.of(new Protocol(BINARY_SUBPROTOCOL)));
+        }
+        return new ChatDraft(extensions);
+    }
+}
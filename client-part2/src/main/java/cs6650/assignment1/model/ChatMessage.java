@@ -1,6 +1,6 @@
 package cs6650.assignment1.model;
 
-import com.fasterxml.jackson.annotation.JsonProperty;import com.fasterxml.jackson.annotation.JsonIgnore;import java.time.Instant;
+import com.fasterxml.jackson.annotation.JsonProperty;import com.fasterxml.jackson.annotation.JsonIgnore;import com.fasterxml.jackson.annotation.JsonInclude;import java.time.Instant;
 
 public class ChatMessage {
     
@@ -9,7 +9,7 @@ public class ChatMessage {
     }
     
     @JsonProperty("userId")
-    private int userId;
+    private Integer userId;
     
     @JsonProperty("username")
     private String username;
@@ -23,6 +23,11 @@ public class ChatMessage {
     @JsonProperty("messageType")
     private MessageType messageType;
     
+    // Set by ChatWebSocketClient when sending; the server echoes it in the response
+    @JsonProperty("messageId")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long messageId;
+    
     public ChatMessage() {
     }
     
@@ -34,11 +39,11 @@ public class ChatMessage {
         this.messageType = messageType;
     }
     
-    public int getUserId() {
+    public Integer getUserId() {
         return userId;
     }
     
-    public void setUserId(int userId) {
+    public void setUserId(Integer userId) {
         this.userId = userId;
     }
     
@@ -73,4 +78,12 @@ public class ChatMessage {
     public void setMessageType(MessageType messageType) {
         this.messageType = messageType;
     }
+    
+    public Long getMessageId() {
+        return messageId;
+    }
+    
+    public void setMessageId(Long messageId) {
+        this.messageId = messageId;
+    }
 }
@@ -1,8 +1,11 @@
 package cs6650.assignment1.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.time.Instant;
 
+// Also used for error responses, which carry "timestamp" and "errors" instead of the echo fields
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class ChatResponse {
     private Integer userId;
     private String username;
@@ -16,6 +19,7 @@ public class ChatResponse {
     
     private ChatMessage.MessageType messageType;
     private String status;
+    private Long messageId;
     
     // Constructors
     public ChatResponse() {
@@ -88,4 +92,12 @@ public class ChatResponse {
     public void setStatus(String status) {
         this.status = status;
     }
+    
+    public Long getMessageId() {
+        return messageId;
+    }
+    
+    public void setMessageId(Long messageId) {
+        this.messageId = messageId;
+    }
 }
@@ -1,64 +1,93 @@
 package cs6650.assignment1.util;
 
-import cs6650.assignment1.model.MetricRecord;
+import cs6650.assignment1.model.ChatMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.atomic.AtomicBoolean;
 
-public class CsvWriter implements Runnable {
-    
+/**
+ * Converts a binary {@link MetricsFile} into a CSV file. Lines are built in a reused buffer,
+ * so writing a record allocates nothing; latency is written in milliseconds with microsecond
+ * precision, e.g. 0.412.
+ *
+ * Usage: {@code CsvWriter <metrics.bin> [output.csv]}
+ */
+public class CsvWriter {
+
     private static final Logger logger = LoggerFactory.getLogger(CsvWriter.class);
-    private final BlockingQueue<MetricRecord> metricsQueue;
-    private final String outputPath;
-    private final AtomicBoolean running;
-    
-    public CsvWriter(BlockingQueue<MetricRecord> metricsQueue, String outputPath) {
-        this.metricsQueue = metricsQueue;
-        this.outputPath = outputPath;
-        this.running = new AtomicBoolean(true);
-    }
-    
-    public void stop() {
-        running.set(false);
+    private static final ChatMessage.MessageType[] TYPES = ChatMessage.MessageType.values();
+
+    private final BufferedWriter writer;
+    private final StringBuilder line = new StringBuilder(128);
+    private char[] chars = new char[128];
+    private long recordCount;
+
+    private CsvWriter(BufferedWriter writer) {
+        this.writer = writer;
     }
-    
-    @Override
-    public void run() {
-        logger.info("CSV Writer started. Output file: {}", outputPath);
-        
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputPath))) {
+
+    /**
+     * Writes every row of {@code metricsFilePath} to {@code outputPath}.
+     *
+     * @return the number of records written
+     */
+    public static long export(String metricsFilePath, String outputPath) throws IOException {
+        logger.info("Exporting {} to CSV: {}", metricsFilePath, outputPath);
+
+        try (MetricsFile source = MetricsFile.open(metricsFilePath);
+             BufferedWriter out = new BufferedWriter(new FileWriter(outputPath), 1 << 16)) {
+            CsvWriter csv = new CsvWriter(out);
             // Write header
-            writer.write("timestamp,messageType,latency,statusCode,roomId\n");
-            
-            int recordCount = 0;
-            while (running.get() || !metricsQueue.isEmpty()) {
-                MetricRecord record = metricsQueue.poll();
-                if (record != null) {
-                    writer.write(record.toCsvString() + "\n");
-                    recordCount++;
-                    
-                    if (recordCount % 10000 == 0) {
-                        writer.flush();
-                        logger.info("Written {} records to CSV", recordCount);
-                    }
-                } else {
-                    Thread.sleep(100);
-                }
-            }
-            
-            writer.flush();
-            logger.info("CSV Writer completed. Total records: {}", recordCount);
-            
-        } catch (IOException e) {
-            logger.error("Error writing CSV file", e);
-        } catch (InterruptedException e) {
-            logger.error("CSV Writer interrupted", e);
-            Thread.currentThread().interrupt();
+            out.write("timestamp,messageType,latency,statusCode,roomId\n");
+            source.forEachRow(csv::write);
+            out.flush();
+
+            logger.info("CSV export completed. Total records: {}", csv.recordCount);
+            return csv.recordCount;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: CsvWriter <metrics.bin> [output.csv]");
+            System.exit(1);
+        }
+        String outputPath = args.length > 1 ? args[1] : args[0].replaceFirst("\\.bin$", "") + ".csv";
+        export(args[0], outputPath);
+    }
+
+    private void write(long timestamp, long latencyNanos, int messageType, int roomId, int status) throws IOException {
+        line.setLength(0);
+        line.append(timestamp).append(',').append(TYPES[messageType].name()).append(',');
+        appendMillis(line, latencyNanos);
+        line.append(',').append(MetricsRing.statusName(status)).append(',').append(roomId).append('\n');
+
+        int length = line.length();
+        if (length > chars.length) {
+            chars = new char[length * 2];
+        }
+        line.getChars(0, length, chars, 0);
+        writer.write(chars, 0, length);
+
+        recordCount++;
+    }
+
+    /**
+     * Appends nanoseconds as milliseconds with three decimals.
+     */
+    static void appendMillis(StringBuilder target, long nanos) {
+        long micros = Math.max(0, nanos) / 1000;
+        long fraction = micros % 1000;
+        target.append(micros / 1000).append('.');
+        if (fraction < 100) {
+            target.append('0');
+        }
+        if (fraction < 10) {
+            target.append('0');
         }
+        target.append(fraction);
     }
 }
@@ -0,0 +1,77 @@
+package cs6650.assignment1.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+
+/**
+ * Simple HTTP server for the live stats endpoint: {@code GET /stats?window=N} returns the
+ * {@link LiveStats} snapshot over the last N seconds (default 10) as JSON.
+ */
+public class DashboardServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardServer.class);
+    private static final int DEFAULT_WINDOW_SECONDS = 10;
+    private final HttpServer server;
+
+    public DashboardServer(int port, LiveStats liveStats) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.server.createContext("/stats", new StatsHandler(liveStats));
+        this.server.setExecutor(null); // Use default executor
+    }
+
+    public void start() {
+        server.start();
+        logger.info("Live stats endpoint: http://localhost:{}/stats", server.getAddress().getPort());
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    static class StatsHandler implements HttpHandler {
+        private final LiveStats liveStats;
+        private final ObjectMapper objectMapper = new ObjectMapper();
+
+        StatsHandler(LiveStats liveStats) {
+            this.liveStats = liveStats;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if ("GET".equals(exchange.getRequestMethod())) {
+                byte[] response = objectMapper.writerWithDefaultPrettyPrinter()
+                    .writeValueAsBytes(liveStats.snapshot(windowSeconds(exchange.getRequestURI().getQuery())));
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, response.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(response);
+                }
+            } else {
+                exchange.sendResponseHeaders(405, -1); // Method Not Allowed
+            }
+        }
+
+        private static int windowSeconds(String query) {
+            if (query != null) {
+                for (String parameter : query.split("&")) {
+                    if (parameter.startsWith("window=")) {
+                        try {
+                            return Integer.parseInt(parameter.substring("window=".length()));
+                        } catch (NumberFormatException e) {
+                            break;
+                        }
+                    }
+                }
+            }
+            return DEFAULT_WINDOW_SECONDS;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package cs6650.assignment1.util;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.SingleWriterRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process latency recording with HdrHistogram, in nanoseconds.
+ *
+ * Every thread that records (connection read threads, and sender threads for timeouts) gets
+ * its own packed {@link SingleWriterRecorder}, so recording is a wait-free, allocation-free
+ * bucket increment with no contention between threads. Once a second {@link #sampleInterval()}
+ * swaps each recorder's active histogram out, merges the intervals, adds them to the run's
+ * total and keeps the last minute of them, so percentiles over the whole run or a sliding
+ * window are available live and at the end without keeping or sorting individual samples.
+ *
+ * Each interval can also be written to an HdrHistogram log (.hlog), which the HdrHistogram
+ * tools (HistogramLogProcessor, HistogramLogAnalyzer) read back to compare runs.
+ */
+public class LatencyRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(LatencyRecorder.class);
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    // One-second intervals kept for sliding-window percentiles
+    public static final int WINDOW_SECONDS = 60;
+
+    private final List<SingleWriterRecorder> recorders = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<SingleWriterRecorder> local = ThreadLocal.withInitial(() -> {
+        SingleWriterRecorder recorder = new SingleWriterRecorder(SIGNIFICANT_DIGITS, true);
+        recorders.add(recorder);
+        return recorder;
+    });
+
+    // Guarded by this
+    private final Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+    private final Histogram scratch = new Histogram(SIGNIFICANT_DIGITS);
+    private final Histogram[] recent = new Histogram[WINDOW_SECONDS];
+    private int recentCount;
+    private int recentNext;
+    private long intervalStartMillis = System.currentTimeMillis();
+    private HistogramLogWriter log;
+
+    private ScheduledExecutorService reporter;
+
+    public void record(long latencyNanos) {
+        local.get().recordValue(Math.max(0, latencyNanos));
+    }
+
+    /**
+     * Writes every interval sampled from now on to an HdrHistogram log at {@code path}.
+     */
+    public synchronized void openLog(String path) throws FileNotFoundException {
+        log = new HistogramLogWriter(new File(path));
+        log.outputComment("ChatFlow client-part2 response latency, values in nanoseconds");
+        log.outputLogFormatVersion();
+        log.outputStartTime(intervalStartMillis);
+        log.setBaseTime(intervalStartMillis);
+        log.outputLegend();
+    }
+
+    /**
+     * Samples an interval every second on a daemon thread, and every
+     * {@code reportIntervalSeconds} logs percentiles over that many seconds (at most
+     * {@link #WINDOW_SECONDS}) next to the run's; 0 samples without logging.
+     */
+    public void startSampling(int reportIntervalSeconds) {
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "LatencyReporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long[] ticks = {0};
+        int windowSeconds = Math.min(reportIntervalSeconds, WINDOW_SECONDS);
+        reporter.scheduleAtFixedRate(() -> {
+            sampleInterval();
+            if (reportIntervalSeconds <= 0 || ++ticks[0] % reportIntervalSeconds != 0) {
+                return;
+            }
+            Histogram window = getWindow(windowSeconds);
+            if (window.getTotalCount() > 0) {
+                logger.info("Latency last {}s: {} responses, p50 {} ms, p99 {} ms, max {} ms (run p99 {} ms)",
+                    windowSeconds, window.getTotalCount(), millis(window.getValueAtPercentile(50)),
+                    millis(window.getValueAtPercentile(99)), millis(window.getMaxValue()),
+                    millis(getTotalPercentile(99)));
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Collects what every thread recorded since the previous call, adds it to the total and
+     * the window, and writes it to the log if one is open.
+     */
+    public synchronized void sampleInterval() {
+        Histogram interval = recent[recentNext];
+        if (interval == null) {
+            interval = new Histogram(SIGNIFICANT_DIGITS);
+            recent[recentNext] = interval;
+        } else {
+            interval.reset();
+        }
+        for (SingleWriterRecorder recorder : recorders) {
+            recorder.getIntervalHistogramInto(scratch);
+            interval.add(scratch);
+        }
+        long now = System.currentTimeMillis();
+        interval.setStartTimeStamp(intervalStartMillis);
+        interval.setEndTimeStamp(now);
+        intervalStartMillis = now;
+        recentNext = (recentNext + 1) % WINDOW_SECONDS;
+        recentCount = Math.min(recentCount + 1, WINDOW_SECONDS);
+
+        total.add(interval);
+        if (log != null && interval.getTotalCount() > 0) {
+            log.outputIntervalHistogram(interval);
+        }
+    }
+
+    /**
+     * Latencies of the last {@code seconds} sampled intervals, at most {@link #WINDOW_SECONDS}.
+     */
+    public synchronized Histogram getWindow(int seconds) {
+        Histogram window = new Histogram(SIGNIFICANT_DIGITS);
+        int count = Math.min(Math.max(seconds, 1), recentCount);
+        for (int i = 1; i <= count; i++) {
+            window.add(recent[(recentNext - i + WINDOW_SECONDS) % WINDOW_SECONDS]);
+        }
+        return window;
+    }
+
+    /**
+     * Latencies of every interval sampled so far.
+     */
+    public synchronized Histogram getTotal() {
+        return total.copy();
+    }
+
+    private synchronized long getTotalPercentile(double percentile) {
+        return total.getValueAtPercentile(percentile);
+    }
+
+    /**
+     * Stops live reporting, takes a final sample and closes the log.
+     *
+     * @return everything recorded during the run
+     */
+    public synchronized Histogram finish() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+        }
+        sampleInterval();
+        if (log != null) {
+            log.close();
+            log = null;
+        }
+        return total.copy();
+    }
+
+    /**
+     * Writes the percentile distribution (.hgrm, in milliseconds) for plotting.
+     */
+    public static void savePercentileDistribution(Histogram histogram, String path) {
+        try (PrintStream out = new PrintStream(path)) {
+            histogram.outputPercentileDistribution(out, 5, NANOS_PER_MILLI);
+        } catch (FileNotFoundException e) {
+            logger.error("Error saving percentile distribution", e);
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f", nanos / NANOS_PER_MILLI);
+    }
+}
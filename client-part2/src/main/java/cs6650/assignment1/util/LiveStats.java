@@ -0,0 +1,217 @@
+package cs6650.assignment1.util;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counters for the dashboard, updated on the hot path with LongAdder increments: requests
+ * sent, responses and failures per room, and open connections. Once a second the totals are
+ * copied into a ring of samples, so rates over a sliding window are the difference between
+ * the newest sample and an older one; latency percentiles over the same window come from the
+ * {@link LatencyRecorder}'s one-second intervals.
+ */
+public class LiveStats {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final int SAMPLES = LatencyRecorder.WINDOW_SECONDS + 1;
+
+    /**
+     * Counters of one room, looked up once per connection rather than per response.
+     */
+    public static final class Room {
+        private final LongAdder responses = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+
+        public void recordResponse(boolean success) {
+            responses.increment();
+            if (!success) {
+                failures.increment();
+            }
+        }
+    }
+
+    private static final class Sample {
+        final long nanos;
+        final long sent;
+        final long responses;
+        final long failures;
+        final Map<Integer, Long> roomResponses;
+
+        Sample(long nanos, long sent, long responses, long failures, Map<Integer, Long> roomResponses) {
+            this.nanos = nanos;
+            this.sent = sent;
+            this.responses = responses;
+            this.failures = failures;
+            this.roomResponses = roomResponses;
+        }
+    }
+
+    private final LatencyRecorder latencyRecorder;
+    private final AtomicInteger reconnections;
+    private final long startNanos = System.nanoTime();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder openConnections = new LongAdder();
+    private final Map<Integer, Room> rooms = new ConcurrentHashMap<>();
+    private volatile String phase = "starting";
+
+    // Guarded by this
+    private final Sample[] samples = new Sample[SAMPLES];
+    private int sampleCount;
+    private int nextSample;
+
+    private ScheduledExecutorService sampler;
+
+    public LiveStats(LatencyRecorder latencyRecorder, AtomicInteger reconnections) {
+        this.latencyRecorder = latencyRecorder;
+        this.reconnections = reconnections;
+    }
+
+    public Room room(int roomId) {
+        return rooms.computeIfAbsent(roomId, id -> new Room());
+    }
+
+    public void recordSent() {
+        sent.increment();
+    }
+
+    public void connectionOpened() {
+        openConnections.increment();
+    }
+
+    public void connectionClosed() {
+        openConnections.decrement();
+    }
+
+    public void setPhase(String phase) {
+        this.phase = phase;
+    }
+
+    /**
+     * Samples the counters every second on a daemon thread.
+     */
+    public void start() {
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "LiveStatsSampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sample();
+        sampler.scheduleAtFixedRate(this::sample, 1, 1, TimeUnit.SECONDS);
+    }
+
+    public void stop() {
+        if (sampler != null) {
+            sampler.shutdownNow();
+        }
+    }
+
+    private Sample current() {
+        Map<Integer, Long> roomResponses = new TreeMap<>();
+        long responses = 0;
+        long failures = 0;
+        for (Map.Entry<Integer, Room> entry : rooms.entrySet()) {
+            long count = entry.getValue().responses.sum();
+            roomResponses.put(entry.getKey(), count);
+            responses += count;
+            failures += entry.getValue().failures.sum();
+        }
+        // Read sent last, so in-flight (sent - responses) is never negative
+        return new Sample(System.nanoTime(), sent.sum(), responses, failures, roomResponses);
+    }
+
+    private synchronized void sample() {
+        samples[nextSample] = current();
+        nextSample = (nextSample + 1) % SAMPLES;
+        sampleCount = Math.min(sampleCount + 1, SAMPLES);
+    }
+
+    private synchronized Sample sampleAgo(int seconds) {
+        int back = Math.min(Math.max(seconds, 1), sampleCount - 1);
+        return back < 1 ? null : samples[(nextSample - 1 - back + 2 * SAMPLES) % SAMPLES];
+    }
+
+    /**
+     * Current totals, and rates and latency percentiles over the last {@code windowSeconds}
+     * (at most {@link LatencyRecorder#WINDOW_SECONDS}), as nested maps ready for JSON.
+     */
+    public Map<String, Object> snapshot(int windowSeconds) {
+        int window = Math.min(Math.max(windowSeconds, 1), LatencyRecorder.WINDOW_SECONDS);
+        // Histograms first: they lag the counters by up to a second, so reading them last
+        // could show more latencies than responses
+        Histogram windowLatencies = latencyRecorder.getWindow(window);
+        Histogram runLatencies = latencyRecorder.getTotal();
+        Sample now = current();
+        Sample then = sampleAgo(window);
+        double elapsedSeconds = (now.nanos - startNanos) / 1e9;
+        double windowElapsed = then != null ? (now.nanos - then.nanos) / 1e9 : 0;
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("phase", phase);
+        snapshot.put("elapsedSeconds", round(elapsedSeconds));
+        snapshot.put("windowSeconds", window);
+        snapshot.put("sent", now.sent);
+        snapshot.put("responses", now.responses);
+        snapshot.put("failures", now.failures);
+        snapshot.put("inFlight", Math.max(0, now.sent - now.responses));
+        snapshot.put("openConnections", openConnections.sum());
+        snapshot.put("reconnections", reconnections.get());
+
+        Map<String, Object> throughput = new LinkedHashMap<>();
+        throughput.put("window", then != null ? round(rate(now.responses - then.responses, windowElapsed)) : null);
+        throughput.put("overall", round(rate(now.responses, elapsedSeconds)));
+        throughput.put("failuresWindow", then != null ? round(rate(now.failures - then.failures, windowElapsed)) : null);
+        snapshot.put("throughputPerSecond", throughput);
+
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("window", percentiles(windowLatencies));
+        latency.put("run", percentiles(runLatencies));
+        snapshot.put("latencyMillis", latency);
+
+        Map<String, Object> roomStats = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Long> entry : now.roomResponses.entrySet()) {
+            Map<String, Object> room = new LinkedHashMap<>();
+            room.put("responses", entry.getValue());
+            if (then != null) {
+                long before = then.roomResponses.getOrDefault(entry.getKey(), 0L);
+                room.put("ratePerSecond", round(rate(entry.getValue() - before, windowElapsed)));
+            }
+            roomStats.put(String.valueOf(entry.getKey()), room);
+        }
+        snapshot.put("rooms", roomStats);
+        return snapshot;
+    }
+
+    private static Map<String, Object> percentiles(Histogram histogram) {
+        Map<String, Object> percentiles = new LinkedHashMap<>();
+        percentiles.put("count", histogram.getTotalCount());
+        if (histogram.getTotalCount() > 0) {
+            percentiles.put("p50", millis(histogram.getValueAtPercentile(50)));
+            percentiles.put("p95", millis(histogram.getValueAtPercentile(95)));
+            percentiles.put("p99", millis(histogram.getValueAtPercentile(99)));
+            percentiles.put("p999", millis(histogram.getValueAtPercentile(99.9)));
+            percentiles.put("max", millis(histogram.getMaxValue()));
+        }
+        return percentiles;
+    }
+
+    private static double rate(long count, double seconds) {
+        return seconds > 0 ? count / seconds : 0;
+    }
+
+    private static double millis(long nanos) {
+        return round(nanos / NANOS_PER_MILLI);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
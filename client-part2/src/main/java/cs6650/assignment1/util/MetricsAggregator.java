@@ -0,0 +1,219 @@
+package cs6650.assignment1.util;
+
+import cs6650.assignment1.model.ChatMessage;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Running totals over the rows of a metrics file, computed in a single pass with memory that
+ * does not grow with the number of rows: a latency histogram, counters indexed by message type
+ * and room, and one counter per second of the run for throughput over time.
+ *
+ * Parts of a file, or separate files, can be aggregated on separate threads into partial
+ * aggregators from {@link #newPartial()} and combined with {@link #merge}.
+ */
+final class MetricsAggregator implements MetricsRing.Sink {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsAggregator.class);
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final ChatMessage.MessageType[] TYPES = ChatMessage.MessageType.values();
+    private static final int ROOMS = 1 << 16;
+    // Longest span of timestamps bucketed, 31 days; rows outside it are left out of the buckets
+    private static final int MAX_SPAN_SECONDS = 31 * 24 * 3600;
+
+    // Percentiles come from a histogram in nanoseconds, so no latency list is kept or sorted
+    private final Histogram latencies;
+    private final boolean recordLatencies;
+    private final long[] typeCounts = new long[TYPES.length];
+    private final long[] roomCounts = new long[ROOMS];
+    private final long[] roomFirstTimestamps = new long[ROOMS];
+    private final long[] roomLastTimestamps = new long[ROOMS];
+    private long totalMessages;
+    private long latencySumNanos;
+    private long minLatencyNanos = Long.MAX_VALUE;
+    private long maxLatencyNanos = Long.MIN_VALUE;
+
+    // Messages per second; secondCounts[i] counts epoch second firstSecond + i
+    private int[] secondCounts = new int[1024];
+    private long firstSecond = Long.MIN_VALUE;
+    private long unbucketed;
+
+    /**
+     * @param recordedLatencies latencies recorded during the run, used for percentiles instead
+     *        of the rows' latencies; null to record the rows' latencies
+     */
+    MetricsAggregator(Histogram recordedLatencies) {
+        this(recordedLatencies == null ? new Histogram(3) : recordedLatencies, recordedLatencies == null);
+    }
+
+    private MetricsAggregator(Histogram latencies, boolean recordLatencies) {
+        this.latencies = latencies;
+        this.recordLatencies = recordLatencies;
+    }
+
+    /**
+     * An empty aggregator that records latencies only if this one does, for {@link #merge}.
+     */
+    MetricsAggregator newPartial() {
+        return recordLatencies ? new MetricsAggregator(null) : new MetricsAggregator(latencies, false);
+    }
+
+    /**
+     * Adds the totals of {@code other}, a partial aggregator of this one, to this one.
+     */
+    void merge(MetricsAggregator other) {
+        if (recordLatencies) {
+            latencies.add(other.latencies);
+        }
+        totalMessages += other.totalMessages;
+        latencySumNanos += other.latencySumNanos;
+        minLatencyNanos = Math.min(minLatencyNanos, other.minLatencyNanos);
+        maxLatencyNanos = Math.max(maxLatencyNanos, other.maxLatencyNanos);
+        for (int type = 0; type < TYPES.length; type++) {
+            typeCounts[type] += other.typeCounts[type];
+        }
+        for (int room = 0; room < ROOMS; room++) {
+            long count = other.roomCounts[room];
+            if (count == 0) {
+                continue;
+            }
+            if (roomCounts[room] == 0) {
+                roomFirstTimestamps[room] = other.roomFirstTimestamps[room];
+                roomLastTimestamps[room] = other.roomLastTimestamps[room];
+            } else {
+                roomFirstTimestamps[room] = Math.min(roomFirstTimestamps[room], other.roomFirstTimestamps[room]);
+                roomLastTimestamps[room] = Math.max(roomLastTimestamps[room], other.roomLastTimestamps[room]);
+            }
+            roomCounts[room] += count;
+        }
+        unbucketed += other.unbucketed;
+        for (int i = 0; i < other.secondCounts.length; i++) {
+            if (other.secondCounts[i] > 0) {
+                countSecond(other.firstSecond + i, other.secondCounts[i]);
+            }
+        }
+    }
+
+    long getTotalMessages() {
+        return totalMessages;
+    }
+
+    @Override
+    public void accept(long timestamp, long latencyNanos, int messageType, int roomId, int status) {
+        long latency = Math.max(0, latencyNanos);
+        if (recordLatencies) {
+            latencies.recordValue(latency);
+        }
+        totalMessages++;
+        latencySumNanos += latency;
+        minLatencyNanos = Math.min(minLatencyNanos, latency);
+        maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+        typeCounts[messageType]++;
+
+        // Track timestamps per room
+        int room = roomId & (ROOMS - 1);
+        if (roomCounts[room]++ == 0) {
+            roomFirstTimestamps[room] = timestamp;
+            roomLastTimestamps[room] = timestamp;
+        } else {
+            roomFirstTimestamps[room] = Math.min(roomFirstTimestamps[room], timestamp);
+            roomLastTimestamps[room] = Math.max(roomLastTimestamps[room], timestamp);
+        }
+
+        countSecond(Math.floorDiv(timestamp, 1000), 1);
+    }
+
+    private void countSecond(long second, int count) {
+        if (firstSecond == Long.MIN_VALUE) {
+            firstSecond = second;
+        }
+        long index = second - firstSecond;
+        if (index < 0 || index >= secondCounts.length) {
+            // Rows are roughly in time order, so this is rare: grow towards the new second
+            long lastSecond = firstSecond + secondCounts.length - 1;
+            long from = Math.min(firstSecond, second);
+            long to = Math.max(lastSecond, second);
+            if (to - from >= MAX_SPAN_SECONDS) {
+                unbucketed += count;
+                return;
+            }
+            int length = (int) Math.min(MAX_SPAN_SECONDS, Math.max(to - from + 1, secondCounts.length * 2L));
+            int[] grown = new int[length];
+            long newFirst = index < 0 ? Math.max(to - length + 1, from - length / 4) : firstSecond;
+            System.arraycopy(secondCounts, 0, grown, (int) (firstSecond - newFirst), secondCounts.length);
+            secondCounts = grown;
+            firstSecond = newFirst;
+            index = second - firstSecond;
+        }
+        secondCounts[(int) index] += count;
+    }
+
+    /**
+     * Messages per bucket, keyed by the bucket's start in seconds from the first second with
+     * any messages.
+     */
+    Map<Long, Integer> throughputOverTime(int bucketSizeSeconds) {
+        if (unbucketed > 0) {
+            logger.warn("{} rows more than {} days from the rest left out of throughput over time",
+                unbucketed, MAX_SPAN_SECONDS / 86400);
+        }
+        Map<Long, Integer> buckets = new TreeMap<>();
+        int start = 0;
+        while (start < secondCounts.length && secondCounts[start] == 0) {
+            start++;
+        }
+        for (int i = start; i < secondCounts.length; i++) {
+            if (secondCounts[i] > 0) {
+                long bucketKey = ((long) (i - start) / bucketSizeSeconds) * bucketSizeSeconds;
+                buckets.merge(bucketKey, secondCounts[i], Integer::sum);
+            }
+        }
+        return buckets;
+    }
+
+    PerformanceAnalyzer.Statistics toStatistics(int bucketSizeSeconds) {
+        PerformanceAnalyzer.Statistics stats = new PerformanceAnalyzer.Statistics();
+        stats.totalMessages = totalMessages;
+
+        // Mean, min and max are exact; median and percentiles come from the histogram
+        stats.meanLatency = latencySumNanos / (double) totalMessages / NANOS_PER_MILLI;
+        stats.medianLatency = latencies.getValueAtPercentile(50) / NANOS_PER_MILLI;
+        stats.p95Latency = latencies.getValueAtPercentile(95) / NANOS_PER_MILLI;
+        stats.p99Latency = latencies.getValueAtPercentile(99) / NANOS_PER_MILLI;
+        stats.minLatency = minLatencyNanos / NANOS_PER_MILLI;
+        stats.maxLatency = maxLatencyNanos / NANOS_PER_MILLI;
+
+        // Distributions
+        stats.messageTypeDistribution = new HashMap<>();
+        for (int type = 0; type < TYPES.length; type++) {
+            if (typeCounts[type] > 0) {
+                stats.messageTypeDistribution.put(TYPES[type].name(), typeCounts[type]);
+            }
+        }
+
+        // Calculate throughput per room (messages/second)
+        stats.messageCountPerRoom = new TreeMap<>();
+        stats.throughputPerRoom = new TreeMap<>();
+        for (int room = 0; room < ROOMS; room++) {
+            long count = roomCounts[room];
+            if (count == 0) {
+                continue;
+            }
+            double durationSeconds = (roomLastTimestamps[room] - roomFirstTimestamps[room]) / 1000.0;
+
+            // Avoid division by zero
+            double throughput = durationSeconds > 0 ? count / durationSeconds : count;
+            stats.messageCountPerRoom.put(room, count);
+            stats.throughputPerRoom.put(room, throughput);
+        }
+
+        stats.bucketSizeSeconds = bucketSizeSeconds;
+        stats.throughputOverTime = throughputOverTime(bucketSizeSeconds);
+        return stats;
+    }
+}
@@ -0,0 +1,52 @@
+package cs6650.assignment1.util;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The set of {@link MetricsRing}s of a run: each sender takes its own ring, and the writer
+ * drains them all in batches.
+ */
+public class MetricsCollector {
+
+    private final int ringCapacity;
+    private final List<MetricsRing> rings = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param ringCapacity records buffered per connection before new ones are dropped
+     */
+    public MetricsCollector(int ringCapacity) {
+        this.ringCapacity = ringCapacity;
+    }
+
+    public MetricsRing newRing() {
+        MetricsRing ring = new MetricsRing(ringCapacity);
+        rings.add(ring);
+        return ring;
+    }
+
+    /**
+     * Drains up to {@code limitPerRing} records from each ring. Single consumer thread only.
+     *
+     * @return the number of records drained
+     */
+    public int drain(MetricsRing.Sink sink, int limitPerRing) throws IOException {
+        int count = 0;
+        for (MetricsRing ring : rings) {
+            count += ring.drain(sink, limitPerRing);
+        }
+        return count;
+    }
+
+    /**
+     * Records dropped because a ring was full.
+     */
+    public long getDropped() {
+        long dropped = 0;
+        for (MetricsRing ring : rings) {
+            dropped += ring.getDropped();
+        }
+        return dropped;
+    }
+}
@@ -0,0 +1,223 @@
+package cs6650.assignment1.util;
+
+import cs6650.assignment1.model.ChatMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a metrics CSV ({@code timestamp,messageType,latency,statusCode,roomId}) in byte ranges
+ * that start and end on line boundaries, so ranges can be parsed on separate threads. Each
+ * range is memory-mapped and parsed straight from the bytes, without building a String per
+ * line.
+ */
+final class MetricsCsvReader implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsCsvReader.class);
+    private static final byte[][] TYPE_NAMES = names(ChatMessage.MessageType.values().length, true);
+    private static final byte[][] STATUS_NAMES = names(MetricsRing.STATUS_UNKNOWN + 1, false);
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+
+    private final String path;
+    private final FileChannel channel;
+    private final long size;
+
+    MetricsCsvReader(String path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        this.size = channel.size();
+    }
+
+    private static byte[][] names(int count, boolean types) {
+        byte[][] names = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            String name = types ? ChatMessage.MessageType.values()[i].name() : MetricsRing.statusName(i);
+            names[i] = name.getBytes(StandardCharsets.US_ASCII);
+        }
+        return names;
+    }
+
+    /**
+     * Splits the rows after the header line into ranges of about {@code targetBytes}.
+     *
+     * @return ascending byte offsets, each the start of a line or the end of the file; range i
+     *         runs from element i to element i + 1
+     */
+    long[] lineBoundaries(long targetBytes) throws IOException {
+        List<Long> boundaries = new ArrayList<>();
+        long start = lineAfter(0);
+        boundaries.add(start);
+        while (start < size) {
+            start = start + targetBytes >= size ? size : lineAfter(start + targetBytes);
+            boundaries.add(start);
+        }
+        return boundaries.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Offset of the first line starting after {@code position}, or the file size.
+     */
+    private long lineAfter(long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Passes the rows of the lines between two offsets from {@link #lineBoundaries} to
+     * {@code sink}, skipping lines that do not parse. Ranges may be read concurrently.
+     */
+    void forEachRow(MetricsRing.Sink sink, long from, long to) throws IOException {
+        if (to - from > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Range too large to map: " + (to - from) + " bytes");
+        }
+        ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        int end = bytes.limit();
+        int lineStart = 0;
+        while (lineStart < end) {
+            int lineEnd = lineStart;
+            while (lineEnd < end && bytes.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int contentEnd = lineEnd > lineStart && bytes.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            parseLine(bytes, lineStart, contentEnd, sink);
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    private void parseLine(ByteBuffer bytes, int start, int end, MetricsRing.Sink sink) throws IOException {
+        int c1 = indexOf(bytes, ',', start, end);
+        int c2 = c1 < 0 ? -1 : indexOf(bytes, ',', c1 + 1, end);
+        int c3 = c2 < 0 ? -1 : indexOf(bytes, ',', c2 + 1, end);
+        int c4 = c3 < 0 ? -1 : indexOf(bytes, ',', c3 + 1, end);
+        if (c4 < 0) {
+            return;
+        }
+        int c5 = indexOf(bytes, ',', c4 + 1, end);
+
+        long timestamp = parseLong(bytes, start, c1);
+        int messageType = match(bytes, c1 + 1, c2, TYPE_NAMES, false);
+        long latencyNanos = parseMillisAsNanos(bytes, c2 + 1, c3);
+        int status = match(bytes, c3 + 1, c4, STATUS_NAMES, true);
+        long roomId = parseLong(bytes, c4 + 1, c5 < 0 ? end : c5);
+        if (timestamp == Long.MIN_VALUE || messageType < 0 || latencyNanos < 0 || roomId < 0) {
+            logger.warn("Skipping invalid line in {}: {}", path, text(bytes, start, end));
+            return;
+        }
+        sink.accept(timestamp, latencyNanos, messageType, (int) roomId,
+            status < 0 ? MetricsRing.STATUS_UNKNOWN : status);
+    }
+
+    private static int indexOf(ByteBuffer bytes, char c, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (bytes.get(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number, or Long.MIN_VALUE if the field is not a decimal integer
+     */
+    private static long parseLong(ByteBuffer bytes, int start, int end) {
+        boolean negative = start < end && bytes.get(start) == '-';
+        int i = negative ? start + 1 : start;
+        if (i == end || end - i > 18) {
+            return Long.MIN_VALUE;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = bytes.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses milliseconds such as {@code 12} or {@code 0.412} into nanoseconds, rounded like
+     * {@code Math.round(Double.parseDouble(field) * 1e6)}; other forms fall back to exactly that.
+     *
+     * @return the latency, 0 if negative, or -1 if the field is not a number
+     */
+    private static long parseMillisAsNanos(ByteBuffer bytes, int start, int end) {
+        int dot = indexOf(bytes, '.', start, end);
+        int integerEnd = dot < 0 ? end : dot;
+        long millis = parseLong(bytes, start, integerEnd);
+        long fraction = 0;
+        int digits = dot < 0 ? 0 : end - dot - 1;
+        if (digits > 0 && digits <= 6) {
+            fraction = parseLong(bytes, dot + 1, end);
+        }
+        boolean simple = millis >= 0 && fraction >= 0 && digits <= 6 && millis <= Long.MAX_VALUE / 2_000_000
+            && bytes.get(start) != '-';
+        if (!simple) {
+            try {
+                return Math.max(0, Math.round(Double.parseDouble(text(bytes, start, end)) * 1_000_000.0));
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        return millis * 1_000_000 + fraction * POWERS_OF_TEN[6 - digits];
+    }
+
+    /**
+     * @return the index of the name equal to the field, or -1
+     */
+    private static int match(ByteBuffer bytes, int start, int end, byte[][] names, boolean ignoreCase) {
+        int length = end - start;
+        for (int n = 0; n < names.length; n++) {
+            byte[] name = names[n];
+            if (name.length != length) {
+                continue;
+            }
+            int i = 0;
+            while (i < length && sameByte(bytes.get(start + i), name[i], ignoreCase)) {
+                i++;
+            }
+            if (i == length) {
+                return n;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean sameByte(byte a, byte b, boolean ignoreCase) {
+        return a == b || (ignoreCase && Character.toLowerCase(a) == Character.toLowerCase(b));
+    }
+
+    private static String text(ByteBuffer bytes, int start, int end) {
+        byte[] copy = new byte[end - start];
+        bytes.get(start, copy);
+        return new String(copy, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
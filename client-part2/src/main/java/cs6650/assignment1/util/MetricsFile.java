@@ -0,0 +1,224 @@
+package cs6650.assignment1.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reader for the binary per-message metrics file written by {@link MetricsFileWriter}.
+ *
+ * The file is a 32-byte header followed by blocks of rows stored column by column, all
+ * little-endian with fixed-width columns:
+ *
+ * <pre>
+ * header: magic "CFMETRIC" | version u16 | reserved u16 | blockRows i32 | startMillis i64
+ *         | rowCount i64 (-1 if the writer did not finish)
+ * block:  rows i32 | reserved i32 | timestamp i64 x rows | latencyNanos i64 x rows
+ *         | roomId u16 x rows | messageType u8 x rows | status u8 x rows | padding to 8 bytes
+ * </pre>
+ *
+ * messageType is the ChatMessage.MessageType ordinal and status a MetricsRing status code.
+ * Every block but the last holds blockRows rows. The file is read through memory-mapped
+ * segments of up to 1 GB, so files larger than 2 GB work and are paged in from the page
+ * cache rather than copied through the heap.
+ */
+public final class MetricsFile implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsFile.class);
+
+    static final long MAGIC = 0x43495254454D4643L; // "CFMETRIC" read little-endian
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int BLOCK_HEADER_BYTES = 8;
+    static final int ROW_BYTES = 8 + 8 + 2 + 1 + 1;
+    static final int ROW_COUNT_OFFSET = 24;
+
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long size;
+    private final long startMillis;
+    private final long headerRowCount;
+
+    private interface BlockVisitor {
+        void visit(ByteBuffer segment, int offset, int rows) throws IOException;
+    }
+
+    private MetricsFile(Path path, FileChannel channel, ByteBuffer header) {
+        this.path = path;
+        this.channel = channel;
+        this.size = sizeOf(channel);
+        this.startMillis = header.getLong(16);
+        this.headerRowCount = header.getLong(ROW_COUNT_OFFSET);
+    }
+
+    public static MetricsFile open(String path) throws IOException {
+        Path file = Paths.get(path);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = readHeader(channel);
+            if (header == null) {
+                throw new IOException("Not a ChatFlow metrics file: " + path);
+            }
+            int version = header.getShort(8) & 0xFFFF;
+            if (version != VERSION) {
+                throw new IOException("Unsupported metrics file version " + version + ": " + path);
+            }
+            return new MetricsFile(file, channel, header);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * True if {@code path} starts with the metrics file magic; false for CSV files.
+     */
+    public static boolean isMetricsFile(String path) {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            return readHeader(channel) != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static ByteBuffer readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            // read until full or end of file
+        }
+        return header.position() == HEADER_BYTES && header.getLong(0) == MAGIC ? header : null;
+    }
+
+    private static long sizeOf(FileChannel channel) {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Bytes taken by a block of {@code rows} rows, including its header and padding.
+     */
+    static long blockBytes(int rows) {
+        return (BLOCK_HEADER_BYTES + (long) rows * ROW_BYTES + 7) & ~7L;
+    }
+
+    /**
+     * Epoch milliseconds at which the writer created the file.
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * Rows in the file, from the header if the writer finished, otherwise by walking the blocks.
+     */
+    public long getRowCount() throws IOException {
+        if (headerRowCount >= 0) {
+            return headerRowCount;
+        }
+        long[] rows = {0};
+        forEachBlock(HEADER_BYTES, size, (segment, offset, blockRows) -> rows[0] += blockRows);
+        return rows[0];
+    }
+
+    /**
+     * Splits the blocks into ranges of about {@code targetBytes} for reading in parallel.
+     *
+     * @return ascending byte offsets, the first and last being the start of the first block
+     *         and the end of the last; range i runs from element i to element i + 1
+     */
+    public long[] blockBoundaries(long targetBytes) throws IOException {
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add((long) HEADER_BYTES);
+        long[] rangeStart = {HEADER_BYTES};
+        long[] end = {HEADER_BYTES};
+        forEachBlock(HEADER_BYTES, size, (segment, offset, rows) -> {
+            end[0] += blockBytes(rows);
+            if (end[0] - rangeStart[0] >= targetBytes) {
+                boundaries.add(end[0]);
+                rangeStart[0] = end[0];
+            }
+        });
+        if (end[0] > rangeStart[0]) {
+            boundaries.add(end[0]);
+        }
+        return boundaries.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Passes every row to {@code sink}, block by block in file order.
+     */
+    public void forEachRow(MetricsRing.Sink sink) throws IOException {
+        forEachRow(sink, HEADER_BYTES, size);
+    }
+
+    /**
+     * Passes the rows of the blocks between two offsets from {@link #blockBoundaries} to
+     * {@code sink}. Ranges may be read concurrently.
+     */
+    public void forEachRow(MetricsRing.Sink sink, long from, long to) throws IOException {
+        forEachBlock(from, to, (segment, offset, rows) -> {
+            int timestamps = offset + BLOCK_HEADER_BYTES;
+            int latencies = timestamps + rows * 8;
+            int roomIds = latencies + rows * 8;
+            int messageTypes = roomIds + rows * 2;
+            int statuses = messageTypes + rows;
+            for (int i = 0; i < rows; i++) {
+                sink.accept(segment.getLong(timestamps + i * 8), segment.getLong(latencies + i * 8),
+                    segment.get(messageTypes + i) & 0xFF, segment.getShort(roomIds + i * 2) & 0xFFFF,
+                    segment.get(statuses + i) & 0xFF);
+            }
+        });
+    }
+
+    private void forEachBlock(long from, long to, BlockVisitor visitor) throws IOException {
+        ByteBuffer segment = null;
+        long segmentStart = 0;
+        long segmentEnd = 0;
+        long position = from;
+        while (position + BLOCK_HEADER_BYTES <= to) {
+            if (segment == null || position + BLOCK_HEADER_BYTES > segmentEnd) {
+                segment = map(position, to);
+                segmentStart = position;
+                segmentEnd = position + segment.capacity();
+            }
+            int rows = segment.getInt((int) (position - segmentStart));
+            long end = position + blockBytes(rows);
+            if (rows <= 0 || end > to) {
+                logger.warn("Ignoring truncated block at byte {} of {}", position, path);
+                return;
+            }
+            if (end > segmentEnd) {
+                segment = map(position, to);
+                segmentStart = position;
+                segmentEnd = position + segment.capacity();
+            }
+            visitor.visit(segment, (int) (position - segmentStart), rows);
+            position = end;
+        }
+    }
+
+    private ByteBuffer map(long position, long limit) throws IOException {
+        long length = Math.min(limit - position, MAX_SEGMENT_BYTES);
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,160 @@
+package cs6650.assignment1.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Drains the run's {@link MetricsRing}s into a binary {@link MetricsFile}. Each column of the
+ * current block is filled in its own direct buffer, and a full block goes out in one
+ * gathering write on a FileChannel, so writing a record allocates nothing and costs a few
+ * stores.
+ */
+public class MetricsFileWriter implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsFileWriter.class);
+    private static final int BATCH_PER_RING = 4096;
+    static final int BLOCK_ROWS = 1 << 16;
+
+    private final MetricsCollector metrics;
+    private final String outputPath;
+    private final AtomicBoolean running;
+
+    // Writer thread only
+    private final ByteBuffer blockHeader = direct(MetricsFile.BLOCK_HEADER_BYTES);
+    private final ByteBuffer timestamps = direct(BLOCK_ROWS * 8);
+    private final ByteBuffer latencies = direct(BLOCK_ROWS * 8);
+    private final ByteBuffer roomIds = direct(BLOCK_ROWS * 2);
+    private final ByteBuffer messageTypes = direct(BLOCK_ROWS);
+    private final ByteBuffer statuses = direct(BLOCK_ROWS);
+    private final ByteBuffer padding = direct(8);
+    private final ByteBuffer[] block = {blockHeader, timestamps, latencies, roomIds, messageTypes, statuses, padding};
+    private FileChannel channel;
+    private int blockRows;
+    private long recordCount;
+
+    public MetricsFileWriter(MetricsCollector metrics, String outputPath) {
+        this.metrics = metrics;
+        this.outputPath = outputPath;
+        this.running = new AtomicBoolean(true);
+    }
+
+    private static ByteBuffer direct(int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Asks the writer to finish once everything recorded so far is written.
+     */
+    public void stop() {
+        running.set(false);
+    }
+
+    @Override
+    public void run() {
+        logger.info("Metrics Writer started. Output file: {}", outputPath);
+
+        try (FileChannel out = FileChannel.open(Paths.get(outputPath), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel = out;
+            writeFileHeader();
+
+            MetricsRing.Sink sink = this::write;
+            while (true) {
+                // Read the flag first so records offered before stop() are still drained
+                boolean stopping = !running.get();
+                int drained = metrics.drain(sink, BATCH_PER_RING);
+                if (drained == 0) {
+                    if (stopping) {
+                        break;
+                    }
+                    Thread.sleep(10);
+                }
+            }
+
+            flushBlock();
+            writeRowCount();
+            logger.info("Metrics Writer completed. Total records: {}", recordCount);
+
+        } catch (IOException e) {
+            logger.error("Error writing metrics file", e);
+        } catch (InterruptedException e) {
+            logger.error("Metrics Writer interrupted", e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(long timestamp, long latencyNanos, int messageType, int roomId, int status) throws IOException {
+        timestamps.putLong(timestamp);
+        latencies.putLong(latencyNanos);
+        roomIds.putShort((short) roomId);
+        messageTypes.put((byte) messageType);
+        statuses.put((byte) status);
+        if (++blockRows == BLOCK_ROWS) {
+            flushBlock();
+        }
+
+        if (++recordCount % 100000 == 0) {
+            logger.info("Written {} records to metrics file", recordCount);
+        }
+    }
+
+    private void writeFileHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(MetricsFile.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putLong(MetricsFile.MAGIC)
+            .putShort((short) MetricsFile.VERSION)
+            .putShort((short) 0)
+            .putInt(BLOCK_ROWS)
+            .putLong(System.currentTimeMillis())
+            .putLong(-1)
+            .flip();
+        writeFully(header);
+    }
+
+    private void flushBlock() throws IOException {
+        if (blockRows == 0) {
+            return;
+        }
+        blockHeader.clear();
+        blockHeader.putInt(blockRows).putInt(0);
+        long blockBytes = MetricsFile.blockBytes(blockRows);
+        padding.clear().limit((int) (blockBytes - MetricsFile.BLOCK_HEADER_BYTES - (long) blockRows * MetricsFile.ROW_BYTES));
+        for (ByteBuffer column : block) {
+            if (column != padding) {
+                column.flip();
+            }
+        }
+
+        long remaining = blockBytes;
+        while (remaining > 0) {
+            remaining -= channel.write(block);
+        }
+
+        for (ByteBuffer column : block) {
+            column.clear();
+        }
+        blockRows = 0;
+    }
+
+    private void writeRowCount() throws IOException {
+        ByteBuffer count = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        count.putLong(recordCount).flip();
+        long position = MetricsFile.ROW_COUNT_OFFSET;
+        while (count.hasRemaining()) {
+            position += channel.write(count, position);
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
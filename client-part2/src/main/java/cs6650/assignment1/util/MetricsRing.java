@@ -0,0 +1,128 @@
+package cs6650.assignment1.util;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded multi-producer, single-consumer ring of per-message metrics, one per connection.
+ *
+ * Records live in preallocated primitive columns, so recording a response allocates nothing.
+ * Producers (the connection's read thread, and its sender thread for timeouts) claim a
+ * sequence with a CAS on the tail, fill the slot and publish it by storing the sequence in
+ * the slot; the consumer reads slots in order until it meets one not yet published. When
+ * the ring is full the record is dropped and counted rather than buffered without bound.
+ */
+public class MetricsRing {
+
+    public static final int STATUS_SUCCESS = 0;
+    public static final int STATUS_ERROR = 1;
+    public static final int STATUS_TIMEOUT = 2;
+    public static final int STATUS_CONNECTION_CLOSED = 3;
+    public static final int STATUS_UNKNOWN = 4;
+
+    private static final String[] STATUS_NAMES = {"success", "error", "timeout", "connection_closed", "unknown"};
+
+    /**
+     * Receives drained records. Called on the consumer thread only.
+     */
+    public interface Sink {
+        void accept(long timestamp, long latencyNanos, int messageType, int roomId, int status) throws IOException;
+    }
+
+    private final int mask;
+    private final long[] timestamps;
+    private final long[] latencies;
+    private final byte[] messageTypes;
+    private final short[] roomIds;
+    private final byte[] statuses;
+    // Sequence stored in each slot once its fields are written
+    private final AtomicLongArray published;
+
+    private final AtomicLong tail = new AtomicLong();
+    // Next sequence to read; written by the consumer only
+    private volatile long head;
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * @param capacity slots, rounded up to a power of two
+     */
+    public MetricsRing(int capacity) {
+        int size = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.timestamps = new long[size];
+        this.latencies = new long[size];
+        this.messageTypes = new byte[size];
+        this.roomIds = new short[size];
+        this.statuses = new byte[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    public static int statusCode(String status) {
+        for (int code = 0; code < STATUS_NAMES.length; code++) {
+            if (STATUS_NAMES[code].equalsIgnoreCase(status)) {
+                return code;
+            }
+        }
+        return STATUS_UNKNOWN;
+    }
+
+    public static String statusName(int code) {
+        return STATUS_NAMES[code];
+    }
+
+    /**
+     * @return false if the ring was full and the record was dropped
+     */
+    public boolean offer(long timestamp, long latencyNanos, int messageType, int roomId, int status) {
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head > mask) {
+                dropped.increment();
+                return false;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+
+        int slot = (int) (sequence & mask);
+        timestamps[slot] = timestamp;
+        latencies[slot] = latencyNanos;
+        messageTypes[slot] = (byte) messageType;
+        roomIds[slot] = (short) roomId;
+        statuses[slot] = (byte) status;
+        // Release store: the consumer sees the fields once it sees the sequence
+        published.lazySet(slot, sequence);
+        return true;
+    }
+
+    /**
+     * Passes up to {@code limit} published records to {@code sink}, oldest first. Consumer
+     * thread only.
+     *
+     * @return the number of records drained
+     */
+    public int drain(Sink sink, int limit) throws IOException {
+        long position = head;
+        int count = 0;
+        while (count < limit) {
+            int slot = (int) (position & mask);
+            if (published.get(slot) != position) {
+                break;
+            }
+            sink.accept(timestamps[slot], latencies[slot], messageTypes[slot], roomIds[slot] & 0xFFFF, statuses[slot]);
+            position++;
+            count++;
+        }
+        // Frees the drained slots for producers
+        head = position;
+        return count;
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+}
@@ -1,29 +1,44 @@
 package cs6650.assignment1.util;
 
-import cs6650.assignment1.model.MetricRecord;
+import org.HdrHistogram.Histogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
 
 public class PerformanceAnalyzer {
     
     private static final Logger logger = LoggerFactory.getLogger(PerformanceAnalyzer.class);
+    private static final int DEFAULT_BUCKET_SECONDS = 10;
+    // Threads parsing metrics files: -Dchatflow.analysis.threads
+    private static final int ANALYSIS_THREADS = Math.max(1,
+        Integer.getInteger("chatflow.analysis.threads", Runtime.getRuntime().availableProcessors()));
+    private static final long MIN_CHUNK_BYTES = 8L << 20;
+    private static final long MAX_CHUNK_BYTES = 256L << 20;
+    // Passed when percentiles are not needed, so rows' latencies are not recorded
+    private static final Histogram EMPTY_HISTOGRAM = new Histogram(3);
     
     public static class Statistics {
         public double meanLatency;
         public double medianLatency;
         public double p95Latency;
         public double p99Latency;
-        public long minLatency;
-        public long maxLatency;
-        public Map<String, Integer> messageTypeDistribution;
-        public Map<Integer, Integer> messageCountPerRoom;
+        public double minLatency;
+        public double maxLatency;
+        public Map<String, Long> messageTypeDistribution;
+        public Map<Integer, Long> messageCountPerRoom;
         public Map<Integer, Double> throughputPerRoom;
-        public int totalMessages;
+        public Map<Long, Integer> throughputOverTime;
+        public int bucketSizeSeconds;
+        public long totalMessages;
         
         @Override
         public String toString() {
@@ -32,12 +47,12 @@ public class PerformanceAnalyzer {
             sb.append("STATISTICAL ANALYSIS\n");
             sb.append("========================================\n");
             sb.append(String.format("Total Messages: %d\n", totalMessages));
-            sb.append(String.format("Mean Response Time: %.2f ms\n", meanLatency));
-            sb.append(String.format("Median Response Time: %.2f ms\n", medianLatency));
-            sb.append(String.format("95th Percentile: %.2f ms\n", p95Latency));
-            sb.append(String.format("99th Percentile: %.2f ms\n", p99Latency));
-            sb.append(String.format("Min Response Time: %d ms\n", minLatency));
-            sb.append(String.format("Max Response Time: %d ms\n", maxLatency));
+            sb.append(String.format("Mean Response Time: %.3f ms\n", meanLatency));
+            sb.append(String.format("Median Response Time: %.3f ms\n", medianLatency));
+            sb.append(String.format("95th Percentile: %.3f ms\n", p95Latency));
+            sb.append(String.format("99th Percentile: %.3f ms\n", p99Latency));
+            sb.append(String.format("Min Response Time: %.3f ms\n", minLatency));
+            sb.append(String.format("Max Response Time: %.3f ms\n", maxLatency));
             sb.append("\nMessage Type Distribution:\n");
             messageTypeDistribution.forEach((type, count) -> 
                 sb.append(String.format("  %s: %d (%.1f%%)\n", type, count, 
@@ -53,182 +68,241 @@ public class PerformanceAnalyzer {
         }
     }
     
-    public static Statistics analyzeMetrics(String csvFilePath) {
-        logger.info("Analyzing metrics from: {}", csvFilePath);
-        
-        List<Long> latencies = new ArrayList<>();
-        Map<String, Integer> messageTypeCount = new HashMap<>();
-        Map<Integer, Integer> roomCount = new HashMap<>();
-        Map<Integer, Long> roomFirstTimestamp = new HashMap<>();
-        Map<Integer, Long> roomLastTimestamp = new HashMap<>();
+    public static Statistics analyzeMetrics(String metricsFilePath) {
+        return analyzeMetrics(metricsFilePath, null);
+    }
+    
+    public static Statistics analyzeMetrics(String metricsFilePath, Histogram recordedLatencies) {
+        return analyze(metricsFilePath, recordedLatencies, DEFAULT_BUCKET_SECONDS);
+    }
+    
+    /**
+     * Analyzes a binary {@link MetricsFile} or a metrics CSV; see {@link #analyze(List, Histogram, int)}.
+     */
+    public static Statistics analyze(String metricsFilePath, Histogram recordedLatencies, int bucketSizeSeconds) {
+        return analyze(List.of(metricsFilePath), recordedLatencies, bucketSizeSeconds);
+    }
+    
+    /**
+     * Analyzes metrics files, binary or CSV, as one data set; a directory stands for the metrics
+     * files of every run in it. Each file is split into ranges on block or line boundaries, the
+     * ranges are aggregated in parallel on a fork-join pool of {@code -Dchatflow.analysis.threads}
+     * threads, and the partial aggregates are merged. Each row is read once and memory does not
+     * depend on the number of rows, so multi-GB soak test files are fine.
+     *
+     * @param recordedLatencies latencies in nanoseconds recorded during the run (see
+     *        {@link LatencyRecorder}), or null to take the latencies from the files
+     * @param bucketSizeSeconds width of the throughput over time buckets
+     * @return the statistics, or null if a file could not be read or there were no rows
+     */
+    public static Statistics analyze(List<String> paths, Histogram recordedLatencies, int bucketSizeSeconds) {
+        List<String> files = metricsFiles(paths);
+        if (files.isEmpty()) {
+            logger.error("No metrics files found in {}", paths);
+            return null;
+        }
+        logger.info("Analyzing metrics from: {}", files.size() == 1 ? files.get(0) : files.size() + " files");
         
-        try (BufferedReader reader = new BufferedReader(new FileReader(csvFilePath))) {
-            String line;
-            // Skip header
-            reader.readLine();
-            
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 5) {
-                    try {
-                        long timestamp = Long.parseLong(parts[0]);
-                        long latency = Long.parseLong(parts[2]);
-                        String messageType = parts[1];
-                        int roomId = Integer.parseInt(parts[4]);
-                        
-                        latencies.add(latency);
-                        messageTypeCount.put(messageType, messageTypeCount.getOrDefault(messageType, 0) + 1);
-                        roomCount.put(roomId, roomCount.getOrDefault(roomId, 0) + 1);
-                        
-                        // Track timestamps per room
-                        roomFirstTimestamp.put(roomId, 
-                            Math.min(roomFirstTimestamp.getOrDefault(roomId, Long.MAX_VALUE), timestamp));
-                        roomLastTimestamp.put(roomId, 
-                            Math.max(roomLastTimestamp.getOrDefault(roomId, Long.MIN_VALUE), timestamp));
-                    } catch (NumberFormatException e) {
-                        logger.warn("Skipping invalid line: {}", line);
-                    }
-                }
+        MetricsAggregator aggregator = new MetricsAggregator(recordedLatencies);
+        List<Closeable> sources = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(ANALYSIS_THREADS);
+        try {
+            List<Chunk> chunks = split(files, sources);
+            if (!chunks.isEmpty()) {
+                aggregator.merge(pool.invoke(new AnalysisTask(aggregator, chunks, 0, chunks.size())));
             }
-        } catch (IOException e) {
-            logger.error("Error reading CSV file", e);
+        } catch (IOException | UncheckedIOException e) {
+            logger.error("Error reading metrics file", e);
             return null;
+        } finally {
+            pool.shutdown();
+            for (Closeable source : sources) {
+                try {
+                    source.close();
+                } catch (IOException e) {
+                    logger.warn("Error closing metrics file", e);
+                }
+            }
         }
         
-        if (latencies.isEmpty()) {
-            logger.error("No valid data found in CSV");
+        if (aggregator.getTotalMessages() == 0) {
+            logger.error("No valid data found in {}", paths);
             return null;
         }
         
-        // Sort latencies for percentile calculations
-        Collections.sort(latencies);
-        
-        Statistics stats = new Statistics();
-        stats.totalMessages = latencies.size();
-        
-        // Calculate mean
-        stats.meanLatency = latencies.stream()
-            .mapToLong(Long::longValue)
-            .average()
-            .orElse(0.0);
-        
-        // Calculate median
-        stats.medianLatency = getPercentile(latencies, 50);
-        
-        // Calculate percentiles
-        stats.p95Latency = getPercentile(latencies, 95);
-        stats.p99Latency = getPercentile(latencies, 99);
-        
-        // Min and max
-        stats.minLatency = latencies.get(0);
-        stats.maxLatency = latencies.get(latencies.size() - 1);
-        
-        // Distributions
-        stats.messageTypeDistribution = messageTypeCount;
-        stats.messageCountPerRoom = roomCount;
-        
-                // Calculate throughput per room (messages/second)
-        stats.throughputPerRoom = new HashMap<>();
-        for (Map.Entry<Integer, Integer> entry : roomCount.entrySet()) {
-            int roomId = entry.getKey();
-            int count = entry.getValue();
-            long firstTs = roomFirstTimestamp.get(roomId);
-            long lastTs = roomLastTimestamp.get(roomId);
-            double durationSeconds = (lastTs - firstTs) / 1000.0;
-            
-            // Avoid division by zero
-            double throughput = durationSeconds > 0 ? count / durationSeconds : count;
-            stats.throughputPerRoom.put(roomId, throughput);
-        }
-
-        logger.info("Analysis completed");
+        Statistics stats = aggregator.toStatistics(bucketSizeSeconds);
+        logger.info("Analysis completed. {} throughput buckets of {} seconds",
+                   stats.throughputOverTime.size(), bucketSizeSeconds);
         return stats;
     }
     
-    private static double getPercentile(List<Long> sortedList, int percentile) {
-        if (sortedList.isEmpty()) return 0.0;
-        
-        int index = (int) Math.ceil(percentile / 100.0 * sortedList.size()) - 1;
-        index = Math.max(0, Math.min(index, sortedList.size() - 1));
-        
-        return sortedList.get(index);
+    /**
+     * Throughput over time alone; {@link #analyze} gives it with everything else in the same pass.
+     */
+    public static Map<Long, Integer> calculateThroughputOverTime(String metricsFilePath, int bucketSizeSeconds) {
+        logger.info("Calculating throughput over time with {}-second buckets", bucketSizeSeconds);
+        Statistics stats = analyze(metricsFilePath, EMPTY_HISTOGRAM, bucketSizeSeconds);
+        return stats != null ? stats.throughputOverTime : new TreeMap<>();
     }
     
-    public static Map<Long, Integer> calculateThroughputOverTime(String csvFilePath, int bucketSizeSeconds) {
-        logger.info("Calculating throughput over time with {}-second buckets", bucketSizeSeconds);
-        
-        Map<Long, Integer> throughputBuckets = new TreeMap<>();
-        long minTimestamp = Long.MAX_VALUE;
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(csvFilePath))) {
-            String line;
-            // Skip header
-            reader.readLine();
-            
-            // First pass: find minimum timestamp
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 1) {
-                    try {
-                        long timestamp = Long.parseLong(parts[0]);
-                        minTimestamp = Math.min(minTimestamp, timestamp);
-                    } catch (NumberFormatException e) {
-                        // Skip invalid lines
-                    }
+    /**
+     * Expands directories into their metrics_* files, preferring a run's .bin file to its CSV.
+     */
+    private static List<String> metricsFiles(List<String> paths) {
+        List<String> files = new ArrayList<>();
+        for (String path : paths) {
+            File file = new File(path);
+            if (!file.isDirectory()) {
+                files.add(path);
+                continue;
+            }
+            File[] runs = file.listFiles((dir, name) -> name.startsWith("metrics_")
+                && (name.endsWith(".bin") || name.endsWith(".csv")));
+            if (runs == null) {
+                continue;
+            }
+            Arrays.sort(runs);
+            for (File run : runs) {
+                String name = run.getName();
+                if (name.endsWith(".csv") && new File(file, name.replaceFirst("\\.csv$", ".bin")).exists()) {
+                    continue;
                 }
+                files.add(run.getPath());
             }
-        } catch (IOException e) {
-            logger.error("Error reading CSV file", e);
-            return throughputBuckets;
         }
+        return files;
+    }
+    
+    /**
+     * A range of one file, read into an aggregator.
+     */
+    private interface Chunk {
+        void read(MetricsAggregator aggregator) throws IOException;
+    }
+    
+    private static List<Chunk> split(List<String> files, List<Closeable> sources) throws IOException {
+        long totalBytes = 0;
+        for (String file : files) {
+            totalBytes += new File(file).length();
+        }
+        // A few chunks per thread so threads finishing early can take more, within mapping limits
+        long chunkBytes = Math.max(MIN_CHUNK_BYTES, Math.min(MAX_CHUNK_BYTES, totalBytes / (ANALYSIS_THREADS * 4L)));
         
-        // Second pass: bucket the data
-        try (BufferedReader reader = new BufferedReader(new FileReader(csvFilePath))) {
-            String line;
-            // Skip header
-            reader.readLine();
-            
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 1) {
-                    try {
-                        long timestamp = Long.parseLong(parts[0]);
-                        long elapsedSeconds = (timestamp - minTimestamp) / 1000;
-                        long bucketKey = (elapsedSeconds / bucketSizeSeconds) * bucketSizeSeconds;
-                        
-                        throughputBuckets.put(bucketKey, throughputBuckets.getOrDefault(bucketKey, 0) + 1);
-                    } catch (NumberFormatException e) {
-                        // Skip invalid lines
-                    }
+        List<Chunk> chunks = new ArrayList<>();
+        for (String file : files) {
+            long[] boundaries;
+            if (MetricsFile.isMetricsFile(file)) {
+                MetricsFile metrics = MetricsFile.open(file);
+                sources.add(metrics);
+                boundaries = metrics.blockBoundaries(chunkBytes);
+                for (int i = 0; i + 1 < boundaries.length; i++) {
+                    long from = boundaries[i];
+                    long to = boundaries[i + 1];
+                    chunks.add(aggregator -> metrics.forEachRow(aggregator, from, to));
+                }
+            } else {
+                MetricsCsvReader csv = new MetricsCsvReader(file);
+                sources.add(csv);
+                boundaries = csv.lineBoundaries(chunkBytes);
+                for (int i = 0; i + 1 < boundaries.length; i++) {
+                    long from = boundaries[i];
+                    long to = boundaries[i + 1];
+                    chunks.add(aggregator -> csv.forEachRow(aggregator, from, to));
                 }
             }
-        } catch (IOException e) {
-            logger.error("Error reading CSV file", e);
+        }
+        return chunks;
+    }
+    
+    /**
+     * Aggregates chunks [from, to) by halving the range down to single chunks and merging the
+     * halves' partial aggregates.
+     */
+    private static final class AnalysisTask extends RecursiveTask<MetricsAggregator> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final MetricsAggregator root;
+        private final List<Chunk> chunks;
+        private final int from;
+        private final int to;
+        
+        AnalysisTask(MetricsAggregator root, List<Chunk> chunks, int from, int to) {
+            this.root = root;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
         }
         
-        logger.info("Throughput calculation completed. {} buckets created", throughputBuckets.size());
-        return throughputBuckets;
+        @Override
+        protected MetricsAggregator compute() {
+            if (to - from == 1) {
+                MetricsAggregator partial = root.newPartial();
+                try {
+                    chunks.get(from).read(partial);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return partial;
+            }
+            int middle = (from + to) >>> 1;
+            AnalysisTask left = new AnalysisTask(root, chunks, from, middle);
+            left.fork();
+            MetricsAggregator right = new AnalysisTask(root, chunks, middle, to).compute();
+            MetricsAggregator merged = left.join();
+            merged.merge(right);
+            return merged;
+        }
+    }
+    
+    /**
+     * Analyzes metrics files or directories of them and prints the statistics and throughput
+     * over time: {@code PerformanceAnalyzer <metrics file or directory>...}
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: PerformanceAnalyzer <metrics file or directory>...");
+            System.exit(1);
+        }
+        long start = System.nanoTime();
+        Statistics stats = analyze(Arrays.asList(args), null, DEFAULT_BUCKET_SECONDS);
+        if (stats == null) {
+            System.exit(1);
+        }
+        System.out.println(stats);
+        PrintWriter out = new PrintWriter(System.out);
+        writeThroughputData(stats.throughputOverTime, stats.bucketSizeSeconds, out);
+        out.flush();
+        logger.info("Analyzed {} rows in {} ms with {} threads", stats.totalMessages,
+                   TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), ANALYSIS_THREADS);
     }
     
     /**
      * Save throughput data to a text file for visualization
      */
     public static void saveThroughputData(Map<Long, Integer> throughputData, String outputPath) {
+        saveThroughputData(throughputData, DEFAULT_BUCKET_SECONDS, outputPath);
+    }
+    
+    public static void saveThroughputData(Map<Long, Integer> throughputData, int bucketSizeSeconds, String outputPath) {
         logger.info("Saving throughput data to: {}", outputPath);
         
-        try (java.io.PrintWriter writer = new java.io.PrintWriter(outputPath)) {
-            writer.println("Throughput Over Time");
-            writer.println("====================");
-            writer.println("Time (seconds), Messages/Second");
-            
-            for (Map.Entry<Long, Integer> entry : throughputData.entrySet()) {
-                double messagesPerSecond = entry.getValue() / 10.0; // Assuming 10-second buckets
-                writer.printf("%d, %.2f%n", entry.getKey(), messagesPerSecond);
-            }
-            
+        try (PrintWriter writer = new PrintWriter(outputPath)) {
+            writeThroughputData(throughputData, bucketSizeSeconds, writer);
             logger.info("Throughput data saved to text file");
-        } catch (java.io.IOException e) {
+        } catch (IOException e) {
             logger.error("Error saving throughput data", e);
         }
     }
+    
+    private static void writeThroughputData(Map<Long, Integer> throughputData, int bucketSizeSeconds, PrintWriter writer) {
+        writer.println("Throughput Over Time");
+        writer.println("====================");
+        writer.println("Time (seconds), Messages/Second");
+        
+        for (Map.Entry<Long, Integer> entry : throughputData.entrySet()) {
+            double messagesPerSecond = entry.getValue() / (double) bucketSizeSeconds;
+            writer.printf("%d, %.2f%n", entry.getKey(), messagesPerSecond);
+        }
+    }
 }
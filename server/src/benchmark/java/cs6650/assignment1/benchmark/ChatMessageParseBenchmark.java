@@ -0,0 +1,92 @@
+package cs6650.assignment1.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import cs6650.assignment1.codec.ChatMessageHolder;
+import cs6650.assignment1.codec.ChatMessageParser;
+import cs6650.assignment1.model.ChatMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the streaming ChatMessage parser against the ObjectMapper databind path.
+ *
+ * Run with the GC profiler to see allocation per message (gc.alloc.rate.norm), e.g.
+ *
+ *   java -cp target/WebSocketServer-1.0-SNAPSHOT.jar org.openjdk.jmh.Main ChatMessageParseBenchmark -prof gc
+ *
+ * "databindString" is the original path (frame decoded to a String, then readValue);
+ * "databindBytes" skips the String but still goes through databind.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatMessageParseBenchmark {
+
+    @Param({"short", "long", "escaped"})
+    public String payload;
+
+    private ObjectMapper objectMapper;
+    private ByteBuffer frame;
+    private ChatMessageParser parser;
+    private ChatMessageHolder holder;
+
+    @Setup
+    public void setup() {
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        parser = new ChatMessageParser();
+        holder = new ChatMessageHolder();
+
+        String text;
+        switch (payload) {
+            case "long":
+                text = "x".repeat(480);
+                break;
+            case "escaped":
+                text = "She said \\\"hi\\\"\\nthen left \\u00e9\\u00e8";
+                break;
+            default:
+                text = "Hello everyone!";
+        }
+        String json = "{\"userId\":12345,\"username\":\"user12345\",\"message\":\"" + text + "\","
+            + "\"timestamp\":\"2026-02-13T10:00:00.000Z\",\"messageType\":\"TEXT\"}";
+        frame = ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public ChatMessage databindString() throws Exception {
+        String message = StandardCharsets.UTF_8.decode(frame.duplicate()).toString();
+        return objectMapper.readValue(message, ChatMessage.class);
+    }
+
+    @Benchmark
+    public ChatMessage databindBytes() throws Exception {
+        return objectMapper.readValue(frame.array(), frame.arrayOffset() + frame.position(),
+                                      frame.remaining(), ChatMessage.class);
+    }
+
+    @Benchmark
+    public ChatMessageHolder streaming() {
+        if (!parser.parse(frame, holder)) {
+            throw new IllegalStateException("unexpected fallback");
+        }
+        return holder;
+    }
+}
@@ -0,0 +1,88 @@
+package cs6650.assignment1.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import cs6650.assignment1.codec.ChatMessageHolder;
+import cs6650.assignment1.codec.ChatResponseEncoder;
+import cs6650.assignment1.model.ChatMessage;
+import cs6650.assignment1.model.ChatResponse;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.framing.TextFrame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building the echo wire frame with ObjectMapper against the pre-encoded template.
+ *
+ *   java -cp target/WebSocketServer-1.0-SNAPSHOT.jar org.openjdk.jmh.Main ChatResponseEncodeBenchmark -prof gc
+ *
+ * Both paths end in the encoded WebSocket frame so the String-to-bytes step of the old path
+ * is included.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatResponseEncodeBenchmark {
+
+    @Param({"short", "long"})
+    public String payload;
+
+    private ObjectMapper objectMapper;
+    private Draft_6455 draft;
+    private ChatMessage message;
+    private ChatMessageHolder holder;
+    private ChatResponseEncoder encoder;
+
+    @Setup
+    public void setup() {
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        draft = new Draft_6455();
+        String text = "long".equals(payload) ? "x".repeat(480) : "Hello everyone!";
+        message = new ChatMessage(12345, "user12345", text,
+                                  Instant.parse("2026-02-13T10:00:00.000Z"), ChatMessage.MessageType.TEXT);
+        holder = new ChatMessageHolder();
+        holder.copyFrom(message);
+        encoder = new ChatResponseEncoder();
+    }
+
+    @Benchmark
+    public ByteBuffer objectMapper() throws Exception {
+        ChatResponse response = new ChatResponse(
+            message.getUserId(), message.getUsername(), message.getMessage(),
+            message.getTimestamp(), Instant.now(), message.getMessageType(), "success");
+        String json = objectMapper.writeValueAsString(response);
+        TextFrame frame = new TextFrame();
+        frame.setPayload(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)));
+        frame.setFin(true);
+        return draft.createBinaryFrame(frame);
+    }
+
+    @Benchmark
+    public ByteBuffer template() {
+        encoder.encode(holder, System.currentTimeMillis());
+        return draft.createBinaryFrame(encoder.toTextFrame());
+    }
+
+    @Benchmark
+    public int templateEncodeOnly() {
+        return encoder.encode(holder, System.currentTimeMillis());
+    }
+}
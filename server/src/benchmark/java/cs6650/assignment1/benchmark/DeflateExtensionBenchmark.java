@@ -0,0 +1,112 @@
+package cs6650.assignment1.benchmark;
+
+import cs6650.assignment1.compression.CompressionMetrics;
+import cs6650.assignment1.compression.CompressionPolicy;
+import cs6650.assignment1.compression.DeflateExtension;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.framing.TextFrame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Compares the library's PerMessageDeflateExtension, which allocates zlib state and buffers per
+ * message, with the pooled DeflateExtension on a typical success response.
+ *
+ *   java -cp target/WebSocketServer-1.0-SNAPSHOT.jar org.openjdk.jmh.Main DeflateExtensionBenchmark -prof gc
+ *
+ * Both sides run without context takeover, as the server negotiates it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeflateExtensionBenchmark {
+
+    @Param({"short", "long"})
+    public String payload;
+
+    private byte[] raw;
+    private byte[] compressed;
+    private PerMessageDeflateExtension library;
+    private DeflateExtension pooled;
+
+    @Setup
+    public void setup() {
+        String text = "long".equals(payload)
+            ? "The quick brown fox jumps over the lazy dog. ".repeat(10) : "Hello everyone!";
+        raw = ("{\"status\":\"success\",\"userId\":12345,\"username\":\"user12345\",\"message\":\"" + text
+            + "\",\"timestamp\":\"2026-02-13T10:00:00Z\",\"serverTimestamp\":\"2026-02-13T10:00:00.123Z\","
+            + "\"messageType\":\"TEXT\"}").getBytes(StandardCharsets.UTF_8);
+
+        library = new PerMessageDeflateExtension();
+        library.setThreshold(0);
+        library.setClientNoContextTakeover(true);
+        pooled = new DeflateExtension(
+            new CompressionPolicy(true, 0, Deflater.BEST_SPEED, false, Collections.emptySet()),
+            new CompressionMetrics());
+
+        TextFrame frame = frame(raw);
+        pooled.encodeFrame(frame);
+        ByteBuffer deflated = frame.getPayloadData();
+        compressed = new byte[deflated.remaining()];
+        deflated.get(compressed);
+    }
+
+    private static TextFrame frame(byte[] payload) {
+        TextFrame frame = new TextFrame();
+        frame.setPayload(ByteBuffer.wrap(payload));
+        frame.setFin(true);
+        return frame;
+    }
+
+    private static TextFrame compressedFrame(byte[] payload) {
+        TextFrame frame = frame(payload);
+        frame.setRSV1(true);
+        return frame;
+    }
+
+    @Benchmark
+    public ByteBuffer libraryDeflate() {
+        TextFrame frame = frame(raw);
+        library.encodeFrame(frame);
+        return frame.getPayloadData();
+    }
+
+    @Benchmark
+    public ByteBuffer pooledDeflate() {
+        TextFrame frame = frame(raw);
+        pooled.encodeFrame(frame);
+        return frame.getPayloadData();
+    }
+
+    @Benchmark
+    public ByteBuffer libraryInflate() throws Exception {
+        TextFrame frame = compressedFrame(compressed);
+        library.decodeFrame(frame);
+        return frame.getPayloadData();
+    }
+
+    @Benchmark
+    public ByteBuffer pooledInflate() throws Exception {
+        TextFrame frame = compressedFrame(compressed);
+        pooled.decodeFrame(frame);
+        return frame.getPayloadData();
+    }
+}
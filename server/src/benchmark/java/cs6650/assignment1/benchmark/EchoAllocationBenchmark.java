@@ -0,0 +1,160 @@
+package cs6650.assignment1.benchmark;
+
+import cs6650.assignment1.codec.WireFormat;
+import cs6650.assignment1.config.ServerConfig;
+import cs6650.assignment1.server.ChatServerGroup;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+import org.java_websocket.client.WebSocketClient;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures heap allocated per echoed message on the server's threads with JFR allocation
+ * sampling, once with frames encoded on the heap and once with pooled direct buffers.
+ *
+ * The clients run in the same JVM, so only samples from server threads (selector, decoders,
+ * processing workers and the write flusher) are counted. Each sample's weight estimates the bytes
+ * its thread allocated since the previous sample, so their sum over the measured interval divided
+ * by the messages echoed in it gives bytes per message; the heaviest allocation sites are listed
+ * underneath. Run with e.g.
+ *
+ *   java -cp target/WebSocketServer-1.0-SNAPSHOT.jar cs6650.assignment1.benchmark.EchoAllocationBenchmark
+ *
+ * Optional system properties: bench.connections (64), bench.window (16), bench.seconds (10),
+ * bench.protocol (json or binary), bench.sites (8).
+ */
+public class EchoAllocationBenchmark {
+
+    private static final String[] SERVER_THREADS = {
+        "WebSocketSelector-", "WebSocketWorker-", "MessageWorker-", "WriteFlusher"
+    };
+
+    public static void main(String[] args) throws Exception {
+        int connections = Integer.getInteger("bench.connections", 64);
+        int window = Integer.getInteger("bench.window", 16);
+        int seconds = Integer.getInteger("bench.seconds", 10);
+        WireFormat wireFormat = WireFormat.valueOf(System.getProperty("bench.protocol", "json").toUpperCase());
+        System.setProperty("chatflow.delivery", "ECHO");
+
+        System.out.printf("connections=%d window=%d duration=%ds protocol=%s%n",
+                          connections, window, seconds, wireFormat);
+        run("heap", 0, connections, window, seconds, wireFormat);
+        run("pooled", 4096, connections, window, seconds, wireFormat);
+    }
+
+    private static void run(String label, int bufferSize, int connections, int window, int seconds,
+                            WireFormat wireFormat) throws Exception {
+        int port = freePort();
+        System.setProperty("chatflow.websocket.port", String.valueOf(port));
+        System.setProperty("chatflow.buffers.size", String.valueOf(bufferSize));
+
+        ChatServerGroup server = new ChatServerGroup(ServerConfig.fromSystemProperties(), false);
+        server.start();
+        Thread.sleep(500);
+
+        LongAdder responses = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<WebSocketClient> clients = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            URI uri = new URI("ws://localhost:" + port + "/chat/" + (i % 20 + 1)
+                                  + "?" + WireFormat.QUERY_PARAMETER + "=" + wireFormat.name().toLowerCase());
+            WebSocketClient client = new LoadClient(uri, window, wireFormat, responses, running);
+            client.connectBlocking();
+            clients.add(client);
+        }
+
+        // Warm up, then record only the measured interval
+        Thread.sleep(3000);
+        Path file = Files.createTempFile("echo-alloc", ".jfr");
+        long count;
+        double elapsed;
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.ObjectAllocationSample").with("throttle", "2000/s").withStackTrace();
+            recording.start();
+            long startCount = responses.sum();
+            long start = System.nanoTime();
+            Thread.sleep(seconds * 1000L);
+            count = responses.sum() - startCount;
+            elapsed = (System.nanoTime() - start) / 1e9;
+            recording.stop();
+            recording.dump(file);
+        }
+
+        running.set(false);
+        for (WebSocketClient client : clients) {
+            client.closeBlocking();
+        }
+        server.stop(1000);
+
+        Map<String, Long> sites = new HashMap<>();
+        long bytes = 0;
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            if (!isServerThread(event.getThread("eventThread"))) {
+                continue;
+            }
+            long weight = event.getLong("weight");
+            bytes += weight;
+            sites.merge(site(event), weight, Long::sum);
+        }
+        Files.deleteIfExists(file);
+
+        System.out.printf("%n%-7s %10.0f msgs/sec %10.1f bytes/msg on server threads%n",
+                          label, count / elapsed, count == 0 ? 0.0 : (double) bytes / count);
+        long messages = count;
+        sites.entrySet().stream()
+             .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+             .limit(Integer.getInteger("bench.sites", 8))
+             .forEach(e -> System.out.printf("  %8.1f  %s%n",
+                                             (double) e.getValue() / Math.max(1, messages), e.getKey()));
+    }
+
+    private static boolean isServerThread(RecordedThread thread) {
+        String name = thread == null ? null : thread.getJavaName();
+        if (name == null) {
+            return false;
+        }
+        for (String prefix : SERVER_THREADS) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The allocated class and the first frame outside the JDK that allocated it.
+     */
+    private static String site(RecordedEvent event) {
+        String type = event.getClass("objectClass").getName();
+        RecordedStackTrace stack = event.getStackTrace();
+        if (stack != null) {
+            for (RecordedFrame frame : stack.getFrames()) {
+                String owner = frame.getMethod().getType().getName();
+                if (!owner.startsWith("java.") && !owner.startsWith("jdk.") && !owner.startsWith("sun.")) {
+                    return type + " <- " + owner + "." + frame.getMethod().getName();
+                }
+            }
+        }
+        return type;
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package cs6650.assignment1.benchmark;
+
+import cs6650.assignment1.codec.BinaryMessageCodec;
+import cs6650.assignment1.codec.WireFormat;
+import cs6650.assignment1.model.ChatMessage;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop benchmark connection: keeps a fixed window of messages in flight and sends a new
+ * one for every fan-out's worth of responses until the shared running flag is cleared. Responses
+ * from every connection are counted in one adder.
+ */
+class LoadClient extends WebSocketClient {
+
+    static final String MESSAGE =
+        "{\"userId\":123,\"username\":\"user123\",\"message\":\"Hello everyone!\","
+            + "\"timestamp\":\"2026-02-13T10:00:00.000Z\",\"messageType\":\"TEXT\"}";
+
+    /**
+     * The same message as {@link #MESSAGE} in the binary request layout.
+     */
+    static final byte[] BINARY_MESSAGE = binaryMessage();
+
+    private final int window;
+    private final int fanOut;
+    private final WireFormat wireFormat;
+    private final LongAdder responses;
+    private final AtomicBoolean running;
+    private long received;
+
+    LoadClient(URI uri, int window, WireFormat wireFormat, LongAdder responses, AtomicBoolean running) {
+        this(uri, window, 1, wireFormat, responses, running);
+    }
+
+    /**
+     * @param fanOut responses each message brings back, e.g. the room size when broadcasting
+     */
+    LoadClient(URI uri, int window, int fanOut, WireFormat wireFormat, LongAdder responses, AtomicBoolean running) {
+        super(uri);
+        this.window = window;
+        this.fanOut = fanOut;
+        this.wireFormat = wireFormat;
+        this.responses = responses;
+        this.running = running;
+    }
+
+    private static byte[] binaryMessage() {
+        byte[] username = "user123".getBytes(StandardCharsets.UTF_8);
+        byte[] text = "Hello everyone!".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + 8 + 1 + 2 + username.length + 2 + text.length);
+        buffer.put((byte) (BinaryMessageCodec.FLAG_USER_ID | BinaryMessageCodec.FLAG_USERNAME
+            | BinaryMessageCodec.FLAG_MESSAGE | BinaryMessageCodec.FLAG_TIMESTAMP
+            | BinaryMessageCodec.FLAG_MESSAGE_TYPE));
+        buffer.putInt(123);
+        buffer.putLong(1770976800000L);
+        buffer.put((byte) ChatMessage.MessageType.TEXT.ordinal());
+        buffer.putShort((short) username.length).put(username);
+        buffer.putShort((short) text.length).put(text);
+        return buffer.array();
+    }
+
+    /**
+     * Called on the client's read thread just before each message is sent.
+     */
+    void onSend() {
+    }
+
+    /**
+     * Called on the client's read thread for each response, before the next message is sent.
+     */
+    void onResponse() {
+    }
+
+    @Override
+    public void onOpen(ServerHandshake handshake) {
+        for (int i = 0; i < window; i++) {
+            sendMessage();
+        }
+    }
+
+    @Override
+    public void onMessage(String message) {
+        received();
+    }
+
+    @Override
+    public void onMessage(ByteBuffer bytes) {
+        received();
+    }
+
+    private void received() {
+        responses.increment();
+        onResponse();
+        // One new message per fan-out's worth of deliveries keeps the load steady
+        if (++received % fanOut == 0 && running.get() && isOpen()) {
+            sendMessage();
+        }
+    }
+
+    private void sendMessage() {
+        onSend();
+        if (wireFormat == WireFormat.BINARY) {
+            send(BINARY_MESSAGE);
+        } else {
+            send(MESSAGE);
+        }
+    }
+
+    @Override
+    public void onClose(int code, String reason, boolean remote) {
+    }
+
+    @Override
+    public void onError(Exception ex) {
+    }
+}
@@ -0,0 +1,150 @@
+package cs6650.assignment1.benchmark;
+
+import cs6650.assignment1.codec.ChatMessageHolder;
+import cs6650.assignment1.model.ChatMessage;
+import cs6650.assignment1.validation.MessageValidator;
+import cs6650.assignment1.validation.ValidationRules;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the previous regex/ArrayList validator with the single-pass bitmask validator over
+ * a corpus of valid messages and one where every message breaks at least one rule.
+ *
+ *   java -cp target/WebSocketServer-1.0-SNAPSHOT.jar org.openjdk.jmh.Main MessageValidatorBenchmark -prof gc
+ *
+ * Scores are per message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageValidatorBenchmark {
+
+    private static final int CORPUS_SIZE = 256;
+
+    @Param({"valid", "invalid"})
+    public String corpus;
+
+    private ChatMessage[] messages;
+    private ChatMessageHolder[] holders;
+    private MessageValidator validator;
+
+    @Setup
+    public void setup() {
+        validator = new MessageValidator(ValidationRules.defaults());
+        Random random = new Random(42);
+        messages = new ChatMessage[CORPUS_SIZE];
+        holders = new ChatMessageHolder[CORPUS_SIZE];
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            messages[i] = "valid".equals(corpus) ? validMessage(random) : invalidMessage(random, i);
+            holders[i] = new ChatMessageHolder();
+            holders[i].copyFrom(messages[i]);
+        }
+    }
+
+    private static ChatMessage validMessage(Random random) {
+        int userId = random.nextInt(100000) + 1;
+        String text = "message " + "x".repeat(random.nextInt(200));
+        return new ChatMessage(userId, "user" + userId, text, Instant.now(), ChatMessage.MessageType.TEXT);
+    }
+
+    private static ChatMessage invalidMessage(Random random, int i) {
+        ChatMessage message = validMessage(random);
+        switch (i % 6) {
+            case 0:
+                message.setUserId(0);
+                break;
+            case 1:
+                message.setUsername("ab");
+                break;
+            case 2:
+                message.setUsername("user_" + i);
+                break;
+            case 3:
+                message.setMessage("   ");
+                break;
+            case 4:
+                message.setMessage("y".repeat(501));
+                break;
+            default:
+                message.setTimestamp(null);
+                message.setMessageType(null);
+        }
+        return message;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void regexValidator(Blackhole blackhole) {
+        for (ChatMessage message : messages) {
+            blackhole.consume(regexValidate(message));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void bitmaskCheck(Blackhole blackhole) {
+        for (ChatMessageHolder holder : holders) {
+            blackhole.consume(validator.check(holder));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void bitmaskWithMessages(Blackhole blackhole) {
+        for (ChatMessageHolder holder : holders) {
+            blackhole.consume(validator.validate(holder));
+        }
+    }
+
+    /**
+     * The validator as it was before the bitmask rewrite, kept as the baseline.
+     */
+    private static List<String> regexValidate(ChatMessage message) {
+        List<String> errors = new ArrayList<>();
+        if (message.getUserId() == null) {
+            errors.add("userId is required");
+        } else if (message.getUserId() < 1 || message.getUserId() > 100000) {
+            errors.add("userId must be between 1 and 100000");
+        }
+        if (message.getUsername() == null || message.getUsername().isBlank()) {
+            errors.add("username is required");
+        } else if (message.getUsername().length() < 3 || message.getUsername().length() > 20) {
+            errors.add("username must be 3-20 characters");
+        } else if (!message.getUsername().matches("^[a-zA-Z0-9]+$")) {
+            errors.add("username must be alphanumeric");
+        }
+        if (message.getMessage() == null || message.getMessage().isBlank()) {
+            errors.add("message is required");
+        } else if (message.getMessage().length() < 1 || message.getMessage().length() > 500) {
+            errors.add("message must be 1-500 characters");
+        }
+        if (message.getTimestamp() == null) {
+            errors.add("timestamp is required");
+        }
+        if (message.getMessageType() == null) {
+            errors.add("messageType is required");
+        }
+        return errors;
+    }
+}
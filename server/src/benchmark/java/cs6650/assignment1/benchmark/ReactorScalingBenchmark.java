@@ -0,0 +1,118 @@
+package cs6650.assignment1.benchmark;
+
+import cs6650.assignment1.codec.WireFormat;
+import cs6650.assignment1.config.ServerConfig;
+import cs6650.assignment1.server.ChatServerGroup;
+import cs6650.assignment1.server.ReusePortSelectorProvider;
+import org.java_websocket.client.WebSocketClient;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures echo throughput of an in-process server as the number of reactors grows.
+ *
+ * For each reactor count N it runs two layouts: one listener with N decoder threads, and
+ * N SO_REUSEPORT listeners with one decoder each. Loopback clients keep a fixed window of
+ * messages in flight per connection. Pin the JVM with taskset to see scaling per core, e.g.
+ *
+ *   taskset -c 0-7 java --add-exports java.base/sun.nio.ch=ALL-UNNAMED \
+ *       -cp target/WebSocketServer-1.0-SNAPSHOT.jar cs6650.assignment1.benchmark.ReactorScalingBenchmark
+ *
+ * Optional system properties: bench.connections (64), bench.window (16), bench.seconds (10),
+ * bench.reactors (comma-separated list, default 1,2,4..cores), bench.protocol (json or binary).
+ */
+public class ReactorScalingBenchmark {
+
+    private static WireFormat wireFormat = WireFormat.JSON;
+
+    public static void main(String[] args) throws Exception {
+        boolean reusePort = ReusePortSelectorProvider.install();
+        int cores = Runtime.getRuntime().availableProcessors();
+        int connections = Integer.getInteger("bench.connections", 64);
+        int window = Integer.getInteger("bench.window", 16);
+        int seconds = Integer.getInteger("bench.seconds", 10);
+        List<Integer> reactorCounts = reactorCounts(cores);
+        wireFormat = WireFormat.valueOf(System.getProperty("bench.protocol", "json").toUpperCase());
+        int requestBytes = wireFormat == WireFormat.BINARY
+            ? LoadClient.BINARY_MESSAGE.length : LoadClient.MESSAGE.getBytes(StandardCharsets.UTF_8).length;
+
+        System.out.printf("cores=%d connections=%d window=%d duration=%ds reuseport=%s protocol=%s request=%dB%n",
+                          cores, connections, window, seconds, reusePort, wireFormat, requestBytes);
+        System.out.printf("%-10s %-9s %-9s %14s%n", "layout", "listeners", "decoders", "msgs/sec");
+
+        for (int reactors : reactorCounts) {
+            double decoderRate = run(1, reactors, false, connections, window, seconds);
+            System.out.printf("%-10s %-9d %-9d %14.0f%n", "decoders", 1, reactors, decoderRate);
+            if (reusePort && reactors > 1) {
+                double listenerRate = run(reactors, 1, true, connections, window, seconds);
+                System.out.printf("%-10s %-9d %-9d %14.0f%n", "reuseport", reactors, 1, listenerRate);
+            }
+        }
+    }
+
+    private static List<Integer> reactorCounts(int cores) {
+        List<Integer> counts = new ArrayList<>();
+        String explicit = System.getProperty("bench.reactors");
+        if (explicit != null) {
+            for (String part : explicit.split(",")) {
+                counts.add(Integer.parseInt(part.trim()));
+            }
+            return counts;
+        }
+        for (int n = 1; n < cores; n *= 2) {
+            counts.add(n);
+        }
+        counts.add(cores);
+        return counts;
+    }
+
+    private static double run(int listeners, int decoders, boolean reusePort,
+                              int connections, int window, int seconds) throws Exception {
+        int port = freePort();
+        System.setProperty("chatflow.websocket.port", String.valueOf(port));
+        System.setProperty("chatflow.listeners", String.valueOf(listeners));
+        System.setProperty("chatflow.decoders", String.valueOf(decoders));
+
+        ChatServerGroup server = new ChatServerGroup(ServerConfig.fromSystemProperties(), reusePort);
+        server.start();
+        Thread.sleep(500);
+
+        LongAdder responses = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<WebSocketClient> clients = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            URI uri = new URI("ws://localhost:" + port + "/chat/" + (i % 20 + 1)
+                                  + "?" + WireFormat.QUERY_PARAMETER + "=" + wireFormat.name().toLowerCase());
+            WebSocketClient client = new LoadClient(uri, window, wireFormat, responses, running);
+            client.connectBlocking();
+            clients.add(client);
+        }
+
+        // Warm up, then measure
+        Thread.sleep(2000);
+        long startCount = responses.sum();
+        long start = System.nanoTime();
+        Thread.sleep(seconds * 1000L);
+        long count = responses.sum() - startCount;
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        running.set(false);
+        for (WebSocketClient client : clients) {
+            client.closeBlocking();
+        }
+        server.stop(1000);
+        return count / elapsed;
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
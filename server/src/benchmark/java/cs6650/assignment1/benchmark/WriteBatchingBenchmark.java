@@ -0,0 +1,152 @@
+package cs6650.assignment1.benchmark;
+
+import cs6650.assignment1.codec.WireFormat;
+import cs6650.assignment1.config.ServerConfig;
+import cs6650.assignment1.metrics.ServerMetrics;
+import cs6650.assignment1.server.ChatServerGroup;
+import org.java_websocket.client.WebSocketClient;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures how gathering writes and the write batch window change syscalls and throughput.
+ *
+ * An in-process server is run once per write setting: frame by frame, gathering, and gathering
+ * with each batch window. Loopback clients keep a fixed window of messages in flight per
+ * connection. For each run it reports messages delivered per second, write syscalls per
+ * delivered message, frames per write and, in echo mode, the mean round trip. Run with e.g.
+ *
+ *   java -cp target/WebSocketServer-1.0-SNAPSHOT.jar cs6650.assignment1.benchmark.WriteBatchingBenchmark
+ *
+ * Optional system properties: bench.connections (64), bench.window (16), bench.seconds (10),
+ * bench.delivery (echo or broadcast), bench.rooms (4, broadcast only), bench.gather (64) and
+ * bench.windows.us (comma-separated batch windows, default 50,200,1000).
+ */
+public class WriteBatchingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int connections = Integer.getInteger("bench.connections", 64);
+        int window = Integer.getInteger("bench.window", 16);
+        int seconds = Integer.getInteger("bench.seconds", 10);
+        String delivery = System.getProperty("bench.delivery", "echo").toUpperCase();
+        boolean broadcast = delivery.equals("BROADCAST");
+        int rooms = broadcast ? Integer.getInteger("bench.rooms", 4) : 20;
+        // In broadcast mode every message comes back once per room member
+        int fanOut = broadcast ? Math.max(1, connections / rooms) : 1;
+        int gather = Integer.getInteger("bench.gather", 64);
+        System.setProperty("chatflow.delivery", delivery);
+        System.setProperty("chatflow.rooms.max", String.valueOf(Math.max(20, rooms)));
+
+        System.out.printf("connections=%d window=%d duration=%ds delivery=%s rooms=%d%n",
+                          connections, window, seconds, delivery, rooms);
+        System.out.printf("%-8s %-10s %14s %13s %13s %10s%n",
+                          "gather", "window-us", "msgs/sec", "writes/msg", "frames/write", "rtt-us");
+
+        run(1, 0, connections, window, seconds, rooms, fanOut);
+        run(gather, 0, connections, window, seconds, rooms, fanOut);
+        for (String part : System.getProperty("bench.windows.us", "50,200,1000").split(",")) {
+            run(gather, Integer.parseInt(part.trim()), connections, window, seconds, rooms, fanOut);
+        }
+    }
+
+    private static void run(int gather, int windowMicros, int connections, int window, int seconds,
+                            int rooms, int fanOut) throws Exception {
+        int port = freePort();
+        System.setProperty("chatflow.websocket.port", String.valueOf(port));
+        System.setProperty("chatflow.write.gather.frames", String.valueOf(gather));
+        System.setProperty("chatflow.write.window.us", String.valueOf(windowMicros));
+
+        ChatServerGroup server = new ChatServerGroup(ServerConfig.fromSystemProperties(), false);
+        server.start();
+        Thread.sleep(500);
+
+        LongAdder responses = new LongAdder();
+        LongAdder roundTrips = new LongAdder();
+        LongAdder roundTripNanos = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<WebSocketClient> clients = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            URI uri = new URI("ws://localhost:" + port + "/chat/" + (i % rooms + 1));
+            WebSocketClient client = new RoundTripClient(uri, window, fanOut, responses, roundTrips, roundTripNanos,
+                                                         running);
+            client.connectBlocking();
+            clients.add(client);
+        }
+
+        // Warm up, then measure
+        Thread.sleep(2000);
+        ServerMetrics metrics = server.getServerMetrics();
+        long startCount = responses.sum();
+        long startWrites = metrics.getSocketWrites();
+        long startFrames = metrics.getSocketWriteFrames();
+        long startTrips = roundTrips.sum();
+        long startTripNanos = roundTripNanos.sum();
+        long start = System.nanoTime();
+        Thread.sleep(seconds * 1000L);
+        long count = responses.sum() - startCount;
+        long writes = metrics.getSocketWrites() - startWrites;
+        long frames = metrics.getSocketWriteFrames() - startFrames;
+        long trips = roundTrips.sum() - startTrips;
+        long tripNanos = roundTripNanos.sum() - startTripNanos;
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        running.set(false);
+        for (WebSocketClient client : clients) {
+            client.closeBlocking();
+        }
+        server.stop(1000);
+
+        System.out.printf("%-8d %-10d %14.0f %13.3f %13.2f %10s%n",
+                          gather, windowMicros, count / elapsed,
+                          count == 0 ? 0.0 : (double) writes / count,
+                          writes == 0 ? 0.0 : (double) frames / writes,
+                          trips == 0 ? "-" : String.format("%.0f", tripNanos / 1e3 / trips));
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Also times echoes, which come back in send order, from send to reply.
+     */
+    private static class RoundTripClient extends LoadClient {
+        private final boolean echo;
+        private final LongAdder roundTrips;
+        private final LongAdder roundTripNanos;
+        // Send times of echoes in flight; only the client's read thread sends and receives
+        private final ArrayDeque<Long> sent = new ArrayDeque<>();
+
+        RoundTripClient(URI uri, int window, int fanOut, LongAdder responses, LongAdder roundTrips,
+                        LongAdder roundTripNanos, AtomicBoolean running) {
+            super(uri, window, fanOut, WireFormat.JSON, responses, running);
+            this.echo = fanOut == 1;
+            this.roundTrips = roundTrips;
+            this.roundTripNanos = roundTripNanos;
+        }
+
+        @Override
+        void onSend() {
+            if (echo) {
+                sent.add(System.nanoTime());
+            }
+        }
+
+        @Override
+        void onResponse() {
+            Long sentAt = echo ? sent.poll() : null;
+            if (sentAt != null) {
+                roundTrips.increment();
+                roundTripNanos.add(System.nanoTime() - sentAt);
+            }
+        }
+    }
+}
@@ -1,33 +1,62 @@
 package cs6650.assignment1;
 
-import cs6650.assignment1.server.ChatWebSocketServer;
+import cs6650.assignment1.compression.CompressionMetrics;
+import cs6650.assignment1.config.ServerConfig;
+import cs6650.assignment1.processing.ProcessingMetrics;
+import cs6650.assignment1.processing.ProcessingStage;
+import cs6650.assignment1.server.ChatServerGroup;
 import cs6650.assignment1.server.HealthCheckServer;
+import cs6650.assignment1.server.MetricsExporter;
+import cs6650.assignment1.server.ReusePortSelectorProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 public class Main {
     
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
-    private static final int HEALTH_PORT = 8080;
-    private static final int WEBSOCKET_PORT = 8081;
     
     public static void main(String[] args) {
+        ServerConfig config = ServerConfig.fromSystemProperties();
+        
+        // Must happen before the first NIO channel is opened anywhere in the JVM
+        boolean reusePortAvailable = config.getListeners() > 1 && ReusePortSelectorProvider.install();
+        
         logger.info("========================================");
         logger.info("ChatFlow Server");
         logger.info("========================================");
-        logger.info("Health endpoint port: {}", HEALTH_PORT);
-        logger.info("WebSocket endpoint port: {}", WEBSOCKET_PORT);
+        logger.info("Health endpoint port: {}", config.getHealthPort());
+        logger.info("WebSocket endpoint port: {}", config.getWebsocketPort());
+        logger.info("Delivery mode: {}", config.getDeliveryMode());
+        logger.info("Processing mode: {}", config.getProcessingMode());
+        logger.info("Listeners: {} x {} decoder threads", config.getListeners(), config.getDecoders());
+        logger.info("Validation: {}", config.getValidationRules());
+        logger.info("Compression: {}", config.getCompressionPolicy());
+        logger.info("Admission: {}", config.getAdmissionPolicy());
+        logger.info("Outbound: {}", config.getOutboundPolicy());
+        logger.info("Writes: {}", config.getWritePolicy());
         logger.info("========================================");
         
         try {
-            // Start health check HTTP server
-            HealthCheckServer healthServer = new HealthCheckServer(HEALTH_PORT);
+            // Create the WebSocket listener(s); ports are bound on start
+            ChatServerGroup wsServer = new ChatServerGroup(config, reusePortAvailable);
+            
+            // Start health check and metrics HTTP server
+            HealthCheckServer healthServer = new HealthCheckServer(config.getHealthPort(), config.getHealthThreads(),
+                                                                   wsServer.getHealthMonitor(),
+                                                                   new MetricsExporter(wsServer));
             healthServer.start();
             
-            // Create and start the WebSocket server
-            ChatWebSocketServer wsServer = new ChatWebSocketServer(WEBSOCKET_PORT);
             wsServer.start();
             
+            if (config.getStatsIntervalSeconds() > 0) {
+                startStatsReporter(wsServer, config.getStatsIntervalSeconds(),
+                                   config.getCompressionPolicy().isEnabled());
+            }
+            
             // Add shutdown hook for graceful shutdown
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 logger.info("Shutting down servers...");
@@ -43,9 +72,10 @@ public class Main {
             
             logger.info("========================================");
             logger.info("Servers are running!");
-            logger.info("REST Health endpoint: http://localhost:{}/health", HEALTH_PORT);
-            logger.info("WebSocket endpoint: ws://localhost:{}/chat/{{roomId}}", WEBSOCKET_PORT);
-            logger.info("Valid room IDs: 1-20");
+            logger.info("REST Health endpoint: http://localhost:{}/health", config.getHealthPort());
+            logger.info("Metrics endpoint: http://localhost:{}/metrics", config.getHealthPort());
+            logger.info("WebSocket endpoint: ws://localhost:{}/chat/{{roomId}}", config.getWebsocketPort());
+            logger.info("Valid room IDs: {}", config.getRoomRange());
             logger.info("Press Ctrl+C to stop");
             logger.info("========================================");
             
@@ -54,4 +84,38 @@ public class Main {
             System.exit(1);
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Periodically logs processing stage load so worker count and queue size can be tuned, and
+     * with compression on, the bytes saved against the time spent in zlib.
+     */
+    private static void startStatsReporter(ChatServerGroup wsServer, int intervalSeconds, boolean compression) {
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "StatsReporter");
+            t.setDaemon(true);
+            return t;
+        });
+        reporter.scheduleAtFixedRate(() -> {
+            ProcessingStage stage = wsServer.getProcessingStage();
+            ProcessingMetrics metrics = stage.getMetrics();
+            logger.info("Connections: {} | processed: {} | rejected: {} | queue depth: {} (max lane {}) | "
+                            + "queue wait: {} us | service time: {} us (max {} us)",
+                        wsServer.getActiveConnections(), metrics.getCompleted(), metrics.getRejected(),
+                        stage.getQueueDepth(), stage.getMaxLaneDepth(),
+                        String.format("%.1f", metrics.getMeanQueueMicros()),
+                        String.format("%.1f", metrics.getMeanServiceMicros()),
+                        String.format("%.1f", metrics.getMaxServiceMicros()));
+            if (compression) {
+                CompressionMetrics deflate = wsServer.getCompressionMetrics();
+                logger.info("Compression out: {} frames {} -> {} bytes ({}%), {} us/frame, {} sent plain | "
+                                + "in: {} frames {} -> {} bytes ({}%), {} us/frame",
+                            deflate.getDeflatedMessages(), deflate.getDeflateInputBytes(),
+                            deflate.getDeflateOutputBytes(), String.format("%.1f", deflate.getDeflateRatioPercent()),
+                            String.format("%.2f", deflate.getMeanDeflateMicros()), deflate.getSkippedMessages(),
+                            deflate.getInflatedMessages(), deflate.getInflateInputBytes(),
+                            deflate.getInflateOutputBytes(), String.format("%.1f", deflate.getInflateRatioPercent()),
+                            String.format("%.2f", deflate.getMeanInflateMicros()));
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,109 @@
+package cs6650.assignment1.admission;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Enforces the server-wide connection cap of an {@link AdmissionPolicy} across every listener,
+ * and holds back messages when the over-limit action is {@link AdmissionPolicy.OverLimitAction#DELAY}.
+ * The per-room cap is checked by the room registry when a connection reserves its place, so it
+ * lives and dies with the room.
+ *
+ * Slots are taken with a compare-and-set against the cap, so handshakes racing on several
+ * selector threads can never overshoot it. A connection that was admitted must be released
+ * exactly once when it closes.
+ */
+public class AdmissionController {
+
+    private static final long SHUTDOWN_GRACE_MILLIS = 1000;
+
+    private final AdmissionPolicy policy;
+    private final AtomicInteger connections = new AtomicInteger();
+    // Only needed for the delay action
+    private final ScheduledExecutorService delayer;
+
+    public AdmissionController(AdmissionPolicy policy) {
+        this.policy = policy;
+        boolean delaying = policy.isRateLimited()
+            && policy.getOverLimitAction() == AdmissionPolicy.OverLimitAction.DELAY;
+        this.delayer = delaying
+            ? Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "RateLimitDelay");
+                t.setDaemon(true);
+                return t;
+            })
+            : null;
+    }
+
+    /**
+     * @return false if the server is full
+     */
+    public boolean tryAdmit() {
+        int max = policy.getMaxConnections();
+        if (max == 0) {
+            connections.incrementAndGet();
+            return true;
+        }
+        while (true) {
+            int current = connections.get();
+            if (current >= max) {
+                return false;
+            }
+            if (connections.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        connections.decrementAndGet();
+    }
+
+    /**
+     * A rate limiter for a newly admitted connection, or null when messages are not limited.
+     */
+    public TokenBucket newRateLimiter() {
+        return policy.isRateLimited()
+            ? new TokenBucket(policy.getRate(), policy.getBurst(), System.nanoTime())
+            : null;
+    }
+
+    /**
+     * Runs a task after the given delay on a single thread shared by every connection, so the
+     * task must not block. Delays alone do not keep a connection's messages in order; see
+     * {@link cs6650.assignment1.room.ConnectionState#holdBack}.
+     */
+    public void delay(Runnable task, long delayNanos) {
+        delayer.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Longest a message may be held back before it is rejected instead; 0 unless delaying.
+     */
+    public long getMaxWaitNanos() {
+        return delayer == null ? 0 : TimeUnit.MILLISECONDS.toNanos(policy.getMaxDelayMillis());
+    }
+
+    /**
+     * Stops delaying. Delayed messages own pooled payload buffers, so the ones still held back
+     * are dispatched first: waiting out their delays, or at once on this thread if that takes
+     * too long. Call before the processing stage shuts down, so it runs what they dispatch.
+     */
+    public void shutdown() throws InterruptedException {
+        if (delayer == null) {
+            return;
+        }
+        delayer.shutdown();
+        if (!delayer.awaitTermination(policy.getMaxDelayMillis() + SHUTDOWN_GRACE_MILLIS, TimeUnit.MILLISECONDS)) {
+            for (Runnable task : delayer.shutdownNow()) {
+                task.run();
+            }
+        }
+    }
+
+    public AdmissionPolicy getPolicy() {
+        return policy;
+    }
+}
@@ -0,0 +1,110 @@
+package cs6650.assignment1.admission;
+
+/**
+ * Connection caps and per-connection rate limits. Every limit is off (0) unless configured.
+ *
+ * The rate limit is a token bucket refilled at {@code rate} messages per second holding up to
+ * {@code burst} tokens; messages beyond it are handled by the {@link OverLimitAction}.
+ */
+public class AdmissionPolicy {
+
+    public enum OverLimitAction {
+        /** Drop the message and answer with an error response. */
+        REJECT,
+        /** Hold the message until a token is due, rejecting it if that is more than maxDelay away. */
+        DELAY,
+        /** Close the connection with 1008 (policy violation). */
+        CLOSE
+    }
+
+    private final int maxConnections;
+    private final int maxConnectionsPerRoom;
+    private final double rate;
+    private final int burst;
+    private final OverLimitAction overLimitAction;
+    private final int maxDelayMillis;
+
+    /**
+     * @param rate messages per second per connection; 0 disables rate limiting
+     * @param burst messages a connection may send back to back after being idle
+     */
+    public AdmissionPolicy(int maxConnections, int maxConnectionsPerRoom, double rate, int burst,
+                           OverLimitAction overLimitAction, int maxDelayMillis) {
+        if (rate < 0) {
+            throw new IllegalArgumentException("Rate limit must not be negative: " + rate);
+        }
+        this.maxConnections = Math.max(0, maxConnections);
+        this.maxConnectionsPerRoom = Math.max(0, maxConnectionsPerRoom);
+        this.rate = rate;
+        this.burst = Math.max(1, burst);
+        this.overLimitAction = overLimitAction;
+        this.maxDelayMillis = Math.max(0, maxDelayMillis);
+    }
+
+    public static AdmissionPolicy unlimited() {
+        return new AdmissionPolicy(0, 0, 0, 50, OverLimitAction.REJECT, 1000);
+    }
+
+    /**
+     * Defaults overridden by -Dchatflow.connections.* and -Dchatflow.ratelimit.* system properties.
+     */
+    public static AdmissionPolicy fromSystemProperties() {
+        AdmissionPolicy d = unlimited();
+        String rate = System.getProperty("chatflow.ratelimit.rate");
+        String action = System.getProperty("chatflow.ratelimit.action");
+        return new AdmissionPolicy(
+            Integer.getInteger("chatflow.connections.max", d.maxConnections),
+            Integer.getInteger("chatflow.connections.max.per.room", d.maxConnectionsPerRoom),
+            rate == null || rate.isBlank() ? d.rate : Double.parseDouble(rate.trim()),
+            Integer.getInteger("chatflow.ratelimit.burst", d.burst),
+            action == null || action.isBlank() ? d.overLimitAction
+                : OverLimitAction.valueOf(action.trim().toUpperCase()),
+            Integer.getInteger("chatflow.ratelimit.max.delay.ms", d.maxDelayMillis)
+        );
+    }
+
+    /**
+     * 0 when connections are not capped.
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * 0 when rooms are not capped.
+     */
+    public int getMaxConnectionsPerRoom() {
+        return maxConnectionsPerRoom;
+    }
+
+    public boolean isRateLimited() {
+        return rate > 0;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public OverLimitAction getOverLimitAction() {
+        return overLimitAction;
+    }
+
+    public int getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    @Override
+    public String toString() {
+        String caps = "max connections " + (maxConnections == 0 ? "unlimited" : maxConnections)
+            + ", per room " + (maxConnectionsPerRoom == 0 ? "unlimited" : maxConnectionsPerRoom);
+        if (!isRateLimited()) {
+            return caps + ", rate limit off";
+        }
+        return caps + ", rate limit " + rate + "/s burst " + burst + " then " + overLimitAction
+            + (overLimitAction == OverLimitAction.DELAY ? " up to " + maxDelayMillis + " ms" : "");
+    }
+}
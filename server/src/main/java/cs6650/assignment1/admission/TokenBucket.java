@@ -0,0 +1,45 @@
+package cs6650.assignment1.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-connection token bucket kept as a single timestamp (the generic cell rate algorithm), so
+ * taking a token is one CAS with no lock and no allocation.
+ *
+ * The state is the time at which the bucket would be full again. Each message pushes it one
+ * emission interval later; a message is within the limit while that time is no further ahead
+ * of now than the burst allowance.
+ */
+public class TokenBucket {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    public TokenBucket(double ratePerSecond, int burst, long nowNanos) {
+        this.intervalNanos = Math.max(1, Math.round(1e9 / ratePerSecond));
+        this.burstNanos = intervalNanos * burst;
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes a token if one is available now or within {@code maxWaitNanos}.
+     *
+     * @return 0 if a token was available, the nanoseconds until the reserved token is due, or
+     *         -1 if none is due within {@code maxWaitNanos} (nothing is taken)
+     */
+    public long acquire(long nowNanos, long maxWaitNanos) {
+        while (true) {
+            long current = fullAt.get();
+            // Time differences rather than comparisons, so nanoTime wrap-around is harmless
+            long next = (current - nowNanos > 0 ? current : nowNanos) + intervalNanos;
+            long wait = next - nowNanos - burstNanos;
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return Math.max(0, wait);
+            }
+        }
+    }
+}
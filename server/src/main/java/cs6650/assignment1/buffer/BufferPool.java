@@ -0,0 +1,297 @@
+package cs6650.assignment1.buffer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size direct buffers for incoming payloads and outgoing frames, recycled instead of left
+ * to the collector.
+ *
+ * Each thread keeps its own free list, so acquiring and releasing on one thread never contends.
+ * Buffers usually move between threads: a payload is acquired on a decoder and released on the
+ * processing worker that handled it, a response frame on that worker and released on the
+ * selector once written. So a thread whose list fills up spills half of it to a shared queue and
+ * a thread that runs dry takes a batch back from there. Past the shared queue's capacity
+ * released buffers are left to the collector.
+ *
+ * A buffer must be released exactly once and not touched afterwards. Every pooled buffer is
+ * registered by identity with a flag saying whether it is out of the pool, so releasing one
+ * twice, or a duplicate or slice of one, is refused and logged rather than putting the same
+ * memory on a free list twice. The registry is sized for every thread's free list, the shared queue
+ * and buffers in flight; once that many buffers exist, acquire hands out heap buffers instead of
+ * creating more, which release ignores. In debug mode every buffer out of the pool is also tracked
+ * with the stack that acquired it, and {@link #reportLeaks} lists those never released.
+ */
+public class BufferPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(BufferPool.class);
+
+    private static final int LOCAL_CAPACITY = 64;
+    private static final int MAX_REPORTED_LEAKS = 5;
+    private static final int MAX_PROBES = 32;
+    private static final int FREE = 0;
+    private static final int IN_USE = 1;
+    // Marks a registry slot whose buffer was left to the collector; probes continue past it
+    private static final ByteBuffer REMOVED = ByteBuffer.allocate(0);
+
+    private final int bufferSize;
+    private final int maxShared;
+    private final ArrayBlockingQueue<ByteBuffer> shared;
+    private final ThreadLocal<ArrayDeque<ByteBuffer>> local =
+        ThreadLocal.withInitial(() -> new ArrayDeque<>(LOCAL_CAPACITY));
+    // Open addressing on the identity hash: slot i holds a pooled buffer, states[i] its flag
+    private final AtomicReferenceArray<ByteBuffer> registry;
+    private final AtomicIntegerArray states;
+    private final int registryMask;
+    // Buffers the registry holds at most, a quarter of its slots so probes stay short
+    private final int maxRegistered;
+    private final AtomicInteger registered = new AtomicInteger();
+    private final AtomicBoolean fallbackWarned = new AtomicBoolean();
+    // Debug mode only: buffers out of the pool, with where they were acquired
+    private final Map<ByteBuffer, Throwable> outstanding;
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final LongAdder allocated = new LongAdder();
+    private final LongAdder refused = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    /**
+     * @param bufferSize bytes per buffer, or 0 to disable pooling
+     * @param maxShared  free buffers kept in the shared queue
+     * @param threads    threads that acquire or release buffers, each keeping its own free list
+     * @param debug      track every buffer to find leaks
+     */
+    public BufferPool(int bufferSize, int maxShared, int threads, boolean debug) {
+        this.bufferSize = Math.max(0, bufferSize);
+        this.maxShared = Math.max(1, maxShared);
+        this.shared = new ArrayBlockingQueue<>(this.maxShared);
+        // Full free lists and a full shared queue, and as many buffers again in flight
+        long capacity = (long) Math.max(1, threads) * LOCAL_CAPACITY + this.maxShared * 2L;
+        this.maxRegistered = this.bufferSize == 0 ? 0 : (int) Math.min(1 << 27, Math.max(1024, capacity));
+        int slots = this.bufferSize == 0 ? 1 : Integer.highestOneBit(maxRegistered * 4 - 1) << 1;
+        this.registry = new AtomicReferenceArray<>(slots);
+        this.states = new AtomicIntegerArray(slots);
+        this.registryMask = slots - 1;
+        this.outstanding = debug ? new IdentityHashMap<>() : null;
+    }
+
+    public boolean isEnabled() {
+        return bufferSize > 0;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * A cleared buffer of {@link #getBufferSize} bytes.
+     */
+    public ByteBuffer acquire() {
+        ArrayDeque<ByteBuffer> free = local.get();
+        ByteBuffer buffer = free.pollLast();
+        if (buffer == null) {
+            shared.drainTo(free, LOCAL_CAPACITY / 2);
+            buffer = free.pollLast();
+        }
+        if (buffer != null) {
+            states.set(slot(buffer), IN_USE);
+        } else {
+            buffer = allocate();
+            if (buffer == null) {
+                return fallback();
+            }
+        }
+        buffer.clear();
+        acquired.increment();
+        if (outstanding != null) {
+            synchronized (outstanding) {
+                outstanding.put(buffer, new Throwable("Buffer acquired here"));
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Whether the buffer is one of this pool's, in or out of it; anything else is ignored by
+     * {@link #release}. Duplicates and slices of pooled buffers are not.
+     */
+    public boolean owns(ByteBuffer buffer) {
+        return buffer != null && buffer.isDirect() && slot(buffer) >= 0;
+    }
+
+    /**
+     * Returns a buffer to the pool. Heap buffers are ignored; a direct buffer that is not out of
+     * the pool (already released, or a duplicate or slice of a pooled one) is refused and logged.
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) {
+            return;
+        }
+        int slot = slot(buffer);
+        if (slot < 0 || !states.compareAndSet(slot, IN_USE, FREE)) {
+            if (buffer.capacity() == bufferSize) {
+                refused.increment();
+                logger.error("Buffer released twice, or a duplicate of a pooled buffer released",
+                             new IllegalStateException("Buffer released here"));
+            }
+            return;
+        }
+        if (outstanding != null) {
+            synchronized (outstanding) {
+                outstanding.remove(buffer);
+            }
+        }
+        released.increment();
+        ArrayDeque<ByteBuffer> free = local.get();
+        if (free.size() >= LOCAL_CAPACITY) {
+            for (int i = 0; i < LOCAL_CAPACITY / 2; i++) {
+                ByteBuffer spilled = free.pollFirst();
+                if (!shared.offer(spilled)) {
+                    // Shared queue full: left to the collector, so its slot can be reused
+                    registry.set(slot(spilled), REMOVED);
+                    registered.decrementAndGet();
+                }
+            }
+        }
+        free.addLast(buffer);
+    }
+
+    /**
+     * A new registered direct buffer, or null if the registry is full. A place is reserved before
+     * the buffer is created, so none is created only to be thrown away.
+     */
+    private ByteBuffer allocate() {
+        if (registered.incrementAndGet() > maxRegistered) {
+            registered.decrementAndGet();
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+        if (!register(buffer)) {
+            // Every probed slot taken despite the spare room; practically never happens
+            registered.decrementAndGet();
+            return null;
+        }
+        allocated.increment();
+        return buffer;
+    }
+
+    /**
+     * A heap buffer the collector takes care of, for when the registry is full.
+     */
+    private ByteBuffer fallback() {
+        fallbacks.increment();
+        if (fallbackWarned.compareAndSet(false, true)) {
+            logger.warn("Buffer pool full at {} buffers, using heap buffers for the rest", maxRegistered);
+        }
+        return ByteBuffer.allocate(bufferSize);
+    }
+
+    private boolean register(ByteBuffer buffer) {
+        int index = hash(buffer);
+        for (int probe = 0; probe < MAX_PROBES; probe++, index = (index + 1) & registryMask) {
+            ByteBuffer current = registry.get(index);
+            if ((current == null || current == REMOVED) && registry.compareAndSet(index, current, buffer)) {
+                states.set(index, IN_USE);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The buffer's registry slot, or -1 if it is not a pooled buffer.
+     */
+    private int slot(ByteBuffer buffer) {
+        int index = hash(buffer);
+        for (int probe = 0; probe < MAX_PROBES; probe++, index = (index + 1) & registryMask) {
+            ByteBuffer current = registry.get(index);
+            if (current == buffer) {
+                return index;
+            }
+            if (current == null) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private int hash(ByteBuffer buffer) {
+        int h = System.identityHashCode(buffer);
+        return (h ^ (h >>> 16)) & registryMask;
+    }
+
+    /**
+     * Logs the buffers still out of the pool with where they were acquired; only tracked in
+     * debug mode. Call once everything that holds buffers has shut down.
+     *
+     * @return buffers never released, or -1 outside debug mode
+     */
+    public int reportLeaks() {
+        if (outstanding == null) {
+            return -1;
+        }
+        List<Throwable> sites;
+        synchronized (outstanding) {
+            sites = new ArrayList<>(outstanding.values());
+        }
+        if (sites.isEmpty()) {
+            logger.info("Buffer pool: no leaked buffers");
+            return 0;
+        }
+        logger.warn("Buffer pool: {} buffer(s) never released", sites.size());
+        for (Throwable site : sites.subList(0, Math.min(MAX_REPORTED_LEAKS, sites.size()))) {
+            logger.warn("Leaked buffer", site);
+        }
+        return sites.size();
+    }
+
+    /**
+     * Buffers acquired and not yet released.
+     */
+    public long getOutstanding() {
+        return acquired.sum() - released.sum();
+    }
+
+    /**
+     * Direct buffers created because none was free.
+     */
+    public long getAllocated() {
+        return allocated.sum();
+    }
+
+    /**
+     * Heap buffers handed out because the pool already had as many direct buffers as it tracks.
+     */
+    public long getFallbacks() {
+        return fallbacks.sum();
+    }
+
+    /**
+     * Releases refused because the buffer was not out of the pool.
+     */
+    public long getRefused() {
+        return refused.sum();
+    }
+
+    @Override
+    public String toString() {
+        if (!isEnabled()) {
+            return "off";
+        }
+        return bufferSize + "-byte direct buffers, up to " + maxShared + " shared, " + maxRegistered
+            + " in all" + (outstanding != null ? ", leak detection on" : "");
+    }
+}
@@ -0,0 +1,279 @@
+package cs6650.assignment1.codec;
+
+import cs6650.assignment1.model.ChatMessage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary encoding of ChatMessage/ChatResponse, used on connections that negotiated
+ * {@link WireFormat#BINARY}. All integers are big-endian; strings are a u16 byte length
+ * followed by UTF-8.
+ *
+ * <pre>
+ * request:  flags u8 | userId i32 | timestamp i64 (epoch ms) | messageType u8 (ordinal)
+ *           | username str | message str [| messageId i64]
+ * success:  0x00 | flags u8 | userId i32 | clientTimestamp i64 | serverTimestamp i64
+ *           | messageType u8 | username str | message str [| messageId i64]
+ * error:    0x01 | timestamp i64 | count u8 | count x str [| messageId i64]
+ * </pre>
+ *
+ * The flags byte marks which request fields are present, so a missing field is reported by
+ * validation exactly as with JSON. Absent fields are still written (zero / empty), except the
+ * trailing messageId, which is only written when FLAG_MESSAGE_ID is set so requests without
+ * one keep their original layout. An error carries the messageId whenever the request's could
+ * be read; the reader tells by the eight bytes left after the error strings.
+ *
+ * Instances hold a reusable output buffer and are not thread-safe; use {@link #local()}.
+ */
+public final class BinaryMessageCodec {
+
+    public static final int FLAG_USER_ID = 1;
+    public static final int FLAG_USERNAME = 1 << 1;
+    public static final int FLAG_MESSAGE = 1 << 2;
+    public static final int FLAG_TIMESTAMP = 1 << 3;
+    public static final int FLAG_MESSAGE_TYPE = 1 << 4;
+    public static final int FLAG_MESSAGE_ID = 1 << 5;
+
+    public static final byte STATUS_SUCCESS = 0;
+    public static final byte STATUS_ERROR = 1;
+
+    private static final int MAX_STRING_BYTES = 0xFFFF;
+    private static final int REQUEST_HEADER = 1 + 4 + 8 + 1;
+
+    private static final ThreadLocal<BinaryMessageCodec> POOL = ThreadLocal.withInitial(BinaryMessageCodec::new);
+    private static final ChatMessage.MessageType[] TYPES = ChatMessage.MessageType.values();
+
+    private ByteBuffer out = ByteBuffer.allocate(1024);
+
+    public static BinaryMessageCodec local() {
+        return POOL.get();
+    }
+
+    /**
+     * Decodes a request frame into {@code holder}. The buffer's position is left unchanged.
+     *
+     * @return false if the frame is truncated, has trailing bytes, an unknown messageType or
+     *         invalid UTF-8
+     */
+    public static boolean decodeRequest(ByteBuffer frame, ChatMessageHolder holder) {
+        holder.clear();
+        int pos = frame.position();
+        int end = frame.limit();
+        if (end - pos < REQUEST_HEADER + 4) {
+            return false;
+        }
+        int flags = frame.get(pos) & 0xFF;
+        int userId = frame.getInt(pos + 1);
+        long timestamp = frame.getLong(pos + 5);
+        int type = frame.get(pos + 13) & 0xFF;
+        pos += REQUEST_HEADER;
+
+        if ((flags & FLAG_USER_ID) != 0) {
+            holder.setUserId(userId);
+        }
+        if ((flags & FLAG_TIMESTAMP) != 0) {
+            holder.setTimestampMillis(timestamp);
+        }
+        if ((flags & FLAG_MESSAGE_TYPE) != 0) {
+            if (type >= TYPES.length) {
+                return false;
+            }
+            holder.setMessageType(TYPES[type]);
+        }
+
+        pos = readString(frame, pos, end, holder.getUsername(), (flags & FLAG_USERNAME) != 0);
+        if (pos < 0) {
+            return false;
+        }
+        pos = readString(frame, pos, end, holder.getMessage(), (flags & FLAG_MESSAGE) != 0);
+        if (pos >= 0 && (flags & FLAG_MESSAGE_ID) != 0) {
+            if (end - pos < 8) {
+                return false;
+            }
+            holder.setMessageId(frame.getLong(pos));
+            pos += 8;
+        }
+        return pos == end;
+    }
+
+    private static int readString(ByteBuffer frame, int pos, int end, Utf8Text target, boolean present) {
+        if (end - pos < 2) {
+            return -1;
+        }
+        int length = frame.getShort(pos) & 0xFFFF;
+        pos += 2;
+        if (end - pos < length) {
+            return -1;
+        }
+        if (present) {
+            target.set(frame, pos, length);
+            if (!isValidUtf8(target.bytes(), target.byteLength())) {
+                return -1;
+            }
+        }
+        return pos + length;
+    }
+
+    /**
+     * Encodes the success response for {@code message}.
+     *
+     * @return the number of bytes available from {@link #asByteBuffer()}
+     */
+    public int encodeResponse(ChatMessageHolder message, long serverMillis) {
+        Utf8Text username = message.getUsername();
+        Utf8Text text = message.getMessage();
+        out.clear();
+        ensureCapacity(1 + REQUEST_HEADER + 8 + 4 + username.byteLength() + text.byteLength() + 8);
+
+        out.put(STATUS_SUCCESS);
+        out.put((byte) flags(message));
+        out.putInt(message.hasUserId() ? message.getUserId() : 0);
+        out.putLong(message.hasTimestamp() ? message.getTimestampMillis() : 0);
+        out.putLong(serverMillis);
+        out.put(message.getMessageType() != null ? (byte) message.getMessageType().ordinal() : 0);
+        putString(username.bytes(), username.byteLength());
+        putString(text.bytes(), text.byteLength());
+        if (message.hasMessageId()) {
+            out.putLong(message.getMessageId());
+        }
+        out.flip();
+        return out.remaining();
+    }
+
+    /**
+     * @param messageId the request's messageId, or null if it had none or could not be read
+     */
+    public int encodeError(List<String> errors, long timestampMillis, Long messageId) {
+        int count = Math.min(errors.size(), 0xFF);
+        out.clear();
+        ensureCapacity(1 + 8 + 1);
+        out.put(STATUS_ERROR);
+        out.putLong(timestampMillis);
+        out.put((byte) count);
+        for (int i = 0; i < count; i++) {
+            byte[] encoded = errors.get(i).getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(encoded.length, MAX_STRING_BYTES);
+            ensureCapacity(2 + length);
+            putString(encoded, length);
+        }
+        if (messageId != null) {
+            ensureCapacity(8);
+            out.putLong(messageId);
+        }
+        out.flip();
+        return out.remaining();
+    }
+
+    /**
+     * The encoded bytes; valid until the next encode on this thread.
+     */
+    public ByteBuffer asByteBuffer() {
+        return out.duplicate();
+    }
+
+    /**
+     * Backing array of the encoded bytes, which start at 0; valid until the next encode on this thread.
+     */
+    public byte[] buffer() {
+        return out.array();
+    }
+
+    public int length() {
+        return out.limit();
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOfRange(out.array(), 0, out.limit());
+    }
+
+    private static int flags(ChatMessageHolder message) {
+        int flags = 0;
+        if (message.hasUserId()) {
+            flags |= FLAG_USER_ID;
+        }
+        if (message.getUsername().isPresent()) {
+            flags |= FLAG_USERNAME;
+        }
+        if (message.getMessage().isPresent()) {
+            flags |= FLAG_MESSAGE;
+        }
+        if (message.hasTimestamp()) {
+            flags |= FLAG_TIMESTAMP;
+        }
+        if (message.getMessageType() != null) {
+            flags |= FLAG_MESSAGE_TYPE;
+        }
+        if (message.hasMessageId()) {
+            flags |= FLAG_MESSAGE_ID;
+        }
+        return flags;
+    }
+
+    private void putString(byte[] bytes, int length) {
+        if (length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("String of " + length + " bytes exceeds the binary format limit");
+        }
+        out.putShort((short) length);
+        out.put(bytes, 0, length);
+    }
+
+    /**
+     * Grows the buffer (keeping its contents) so {@code extra} more bytes fit.
+     */
+    private void ensureCapacity(int extra) {
+        if (out.remaining() < extra) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + extra));
+            out.flip();
+            grown.put(out);
+            out = grown;
+        }
+    }
+
+    /**
+     * Strict UTF-8 check: rejects overlong forms, surrogates and code points above U+10FFFF,
+     * so binary input can be echoed to JSON (text frame) peers safely.
+     */
+    static boolean isValidUtf8(byte[] bytes, int length) {
+        int i = 0;
+        while (i < length) {
+            int b = bytes[i] & 0xFF;
+            if (b < 0x80) {
+                i++;
+                continue;
+            }
+            int size;
+            int min;
+            if (b >= 0xC2 && b <= 0xDF) {
+                size = 2;
+                min = 0x80;
+            } else if (b >= 0xE0 && b <= 0xEF) {
+                size = 3;
+                min = 0x800;
+            } else if (b >= 0xF0 && b <= 0xF4) {
+                size = 4;
+                min = 0x10000;
+            } else {
+                return false;
+            }
+            if (i + size > length) {
+                return false;
+            }
+            int codePoint = b & (0xFF >> (size + 1));
+            for (int k = 1; k < size; k++) {
+                int c = bytes[i + k] & 0xFF;
+                if ((c & 0xC0) != 0x80) {
+                    return false;
+                }
+                codePoint = codePoint << 6 | (c & 0x3F);
+            }
+            if (codePoint < min || codePoint > 0x10FFFF || (codePoint >= 0xD800 && codePoint <= 0xDFFF)) {
+                return false;
+            }
+            i += size;
+        }
+        return true;
+    }
+}
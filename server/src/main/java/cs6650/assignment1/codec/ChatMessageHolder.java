@@ -0,0 +1,145 @@
+package cs6650.assignment1.codec;
+
+import cs6650.assignment1.model.ChatMessage;
+
+import java.time.Instant;
+
+/**
+ * Mutable, reusable form of {@link ChatMessage} filled by {@link ChatMessageParser}.
+ *
+ * Primitive fields carry a presence flag so "missing" stays distinguishable from zero, the
+ * way a null Integer/Instant is in ChatMessage. One holder per thread is pooled via
+ * {@link #local()}; it is valid until the next message is parsed on that thread.
+ */
+public final class ChatMessageHolder {
+
+    private static final ThreadLocal<ChatMessageHolder> POOL = ThreadLocal.withInitial(ChatMessageHolder::new);
+
+    private int userId;
+    private boolean hasUserId;
+    private final Utf8Text username = new Utf8Text(32);
+    private final Utf8Text message = new Utf8Text(512);
+    private long timestampMillis;
+    private boolean hasTimestamp;
+    private ChatMessage.MessageType messageType;
+    private long messageId;
+    private boolean hasMessageId;
+
+    public static ChatMessageHolder local() {
+        return POOL.get();
+    }
+
+    public void clear() {
+        hasUserId = false;
+        username.clear();
+        message.clear();
+        hasTimestamp = false;
+        messageType = null;
+        hasMessageId = false;
+    }
+
+    /**
+     * Fills the holder from a databind-parsed message (the fallback path).
+     */
+    public void copyFrom(ChatMessage source) {
+        clear();
+        if (source.getUserId() != null) {
+            setUserId(source.getUserId());
+        }
+        username.set(source.getUsername());
+        message.set(source.getMessage());
+        if (source.getTimestamp() != null) {
+            setTimestampMillis(source.getTimestamp().toEpochMilli());
+        }
+        messageType = source.getMessageType();
+        if (source.getMessageId() != null) {
+            setMessageId(source.getMessageId());
+        }
+    }
+
+    public ChatMessage toChatMessage() {
+        ChatMessage chatMessage = new ChatMessage(
+            hasUserId ? userId : null,
+            username.asString(),
+            message.asString(),
+            hasTimestamp ? Instant.ofEpochMilli(timestampMillis) : null,
+            messageType
+        );
+        chatMessage.setMessageId(hasMessageId ? messageId : null);
+        return chatMessage;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public boolean hasUserId() {
+        return hasUserId;
+    }
+
+    public void setUserId(int userId) {
+        this.userId = userId;
+        this.hasUserId = true;
+    }
+
+    public void clearUserId() {
+        this.hasUserId = false;
+    }
+
+    public Utf8Text getUsername() {
+        return username;
+    }
+
+    public Utf8Text getMessage() {
+        return message;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public boolean hasTimestamp() {
+        return hasTimestamp;
+    }
+
+    public void setTimestampMillis(long timestampMillis) {
+        this.timestampMillis = timestampMillis;
+        this.hasTimestamp = true;
+    }
+
+    public void clearTimestamp() {
+        this.hasTimestamp = false;
+    }
+
+    public ChatMessage.MessageType getMessageType() {
+        return messageType;
+    }
+
+    public void setMessageType(ChatMessage.MessageType messageType) {
+        this.messageType = messageType;
+    }
+
+    public long getMessageId() {
+        return messageId;
+    }
+
+    public boolean hasMessageId() {
+        return hasMessageId;
+    }
+
+    public void setMessageId(long messageId) {
+        this.messageId = messageId;
+        this.hasMessageId = true;
+    }
+
+    public void clearMessageId() {
+        this.hasMessageId = false;
+    }
+
+    /**
+     * The messageId as an object for error responses, or null if the request had none.
+     */
+    public Long messageIdOrNull() {
+        return hasMessageId ? messageId : null;
+    }
+}
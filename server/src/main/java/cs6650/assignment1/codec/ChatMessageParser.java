@@ -0,0 +1,399 @@
+package cs6650.assignment1.codec;
+
+import cs6650.assignment1.model.ChatMessage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Hand-rolled parser for the fixed ChatMessage schema, reading UTF-8 JSON straight from a
+ * frame's ByteBuffer into a pooled {@link ChatMessageHolder} without allocating.
+ *
+ * Only the common shape is handled: the six known fields, plain integers, strings and
+ * nulls, and the exact timestamp wire format. Anything else (unknown fields, numeric
+ * strings, other date formats, malformed JSON) makes {@link #parse} return false so the
+ * caller can re-parse with ObjectMapper and get databind's behaviour and error messages.
+ *
+ * Instances are not thread-safe; use {@link #local()}.
+ */
+public final class ChatMessageParser {
+
+    private static final ThreadLocal<ChatMessageParser> POOL = ThreadLocal.withInitial(ChatMessageParser::new);
+
+    private static final byte[] USER_ID = ascii("userId");
+    private static final byte[] USERNAME = ascii("username");
+    private static final byte[] MESSAGE = ascii("message");
+    private static final byte[] TIMESTAMP = ascii("timestamp");
+    private static final byte[] MESSAGE_TYPE = ascii("messageType");
+    private static final byte[] MESSAGE_ID = ascii("messageId");
+    private static final byte[] NULL = ascii("null");
+
+    // Unreachable with at most 18 digits, so it can flag "not a plain integer"
+    private static final long NOT_AN_INTEGER = Long.MIN_VALUE;
+
+    private static final ChatMessage.MessageType[] TYPES = ChatMessage.MessageType.values();
+    private static final byte[][] TYPE_NAMES = new byte[TYPES.length][];
+
+    static {
+        for (int i = 0; i < TYPES.length; i++) {
+            TYPE_NAMES[i] = ascii(TYPES[i].name());
+        }
+    }
+
+    private byte[] scratch = new byte[1024];
+    private byte[] buf;
+    private int pos;
+    private int end;
+
+    public static ChatMessageParser local() {
+        return POOL.get();
+    }
+
+    /**
+     * Parses the remaining bytes of {@code frame} into {@code holder}. The buffer's position is
+     * left unchanged.
+     *
+     * @return true if the holder was filled, false if the input needs the databind fallback
+     */
+    public boolean parse(ByteBuffer frame, ChatMessageHolder holder) {
+        int length = frame.remaining();
+        if (frame.hasArray()) {
+            buf = frame.array();
+            pos = frame.arrayOffset() + frame.position();
+        } else {
+            // Direct buffers are copied once into a reused scratch array
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            frame.get(frame.position(), scratch, 0, length);
+            buf = scratch;
+            pos = 0;
+        }
+        end = pos + length;
+        holder.clear();
+        try {
+            return parseObject(holder);
+        } finally {
+            buf = null;
+        }
+    }
+
+    private boolean parseObject(ChatMessageHolder holder) {
+        skipWhitespace();
+        if (!consume('{')) {
+            return false;
+        }
+        skipWhitespace();
+        if (consume('}')) {
+            return atEnd();
+        }
+        while (true) {
+            if (!consume('"')) {
+                return false;
+            }
+            int keyStart = pos;
+            int keyEnd = scanPlainString();
+            if (keyEnd < 0) {
+                return false;
+            }
+            skipWhitespace();
+            if (!consume(':')) {
+                return false;
+            }
+            skipWhitespace();
+            if (!parseField(holder, keyStart, keyEnd - keyStart)) {
+                return false;
+            }
+            skipWhitespace();
+            if (consume(',')) {
+                skipWhitespace();
+            } else if (consume('}')) {
+                return atEnd();
+            } else {
+                return false;
+            }
+        }
+    }
+
+    private boolean parseField(ChatMessageHolder holder, int keyStart, int keyLength) {
+        if (matches(keyStart, keyLength, USER_ID)) {
+            if (consumeNull()) {
+                holder.clearUserId();
+                return true;
+            }
+            return parseUserId(holder);
+        }
+        if (matches(keyStart, keyLength, USERNAME)) {
+            return parseText(holder.getUsername());
+        }
+        if (matches(keyStart, keyLength, MESSAGE)) {
+            return parseText(holder.getMessage());
+        }
+        if (matches(keyStart, keyLength, TIMESTAMP)) {
+            if (consumeNull()) {
+                holder.clearTimestamp();
+                return true;
+            }
+            if (!consume('"')) {
+                return false;
+            }
+            int start = pos;
+            int stop = scanPlainString();
+            if (stop < 0) {
+                return false;
+            }
+            long millis = Timestamps.parseIsoMillis(buf, start, stop - start);
+            if (millis == Timestamps.INVALID) {
+                return false;
+            }
+            holder.setTimestampMillis(millis);
+            return true;
+        }
+        if (matches(keyStart, keyLength, MESSAGE_TYPE)) {
+            if (consumeNull()) {
+                holder.setMessageType(null);
+                return true;
+            }
+            if (!consume('"')) {
+                return false;
+            }
+            int start = pos;
+            int stop = scanPlainString();
+            if (stop < 0) {
+                return false;
+            }
+            for (int i = 0; i < TYPES.length; i++) {
+                if (matches(start, stop - start, TYPE_NAMES[i])) {
+                    holder.setMessageType(TYPES[i]);
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (matches(keyStart, keyLength, MESSAGE_ID)) {
+            if (consumeNull()) {
+                holder.clearMessageId();
+                return true;
+            }
+            // 19-digit ids fall back to databind, which checks long overflow
+            long value = parseInteger(18);
+            if (value == NOT_AN_INTEGER) {
+                return false;
+            }
+            holder.setMessageId(value);
+            return true;
+        }
+        // Unknown property: databind rejects it with a specific message
+        return false;
+    }
+
+    private boolean parseUserId(ChatMessageHolder holder) {
+        long value = parseInteger(10);
+        if (value == NOT_AN_INTEGER || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            return false;
+        }
+        holder.setUserId((int) value);
+        return true;
+    }
+
+    /**
+     * Reads a plain JSON integer of at most {@code maxDigits} digits (no more than 18), or
+     * returns {@link #NOT_AN_INTEGER} for anything else, including leading zeros, fractions and
+     * exponents.
+     */
+    private long parseInteger(int maxDigits) {
+        boolean negative = consume('-');
+        int start = pos;
+        long value = 0;
+        while (pos < end && buf[pos] >= '0' && buf[pos] <= '9') {
+            value = value * 10 + (buf[pos] - '0');
+            pos++;
+            if (pos - start > maxDigits) {
+                return NOT_AN_INTEGER;
+            }
+        }
+        int digits = pos - start;
+        if (digits == 0 || (digits > 1 && buf[start] == '0')) {
+            return NOT_AN_INTEGER;
+        }
+        if (pos < end && (buf[pos] == '.' || buf[pos] == 'e' || buf[pos] == 'E')) {
+            return NOT_AN_INTEGER;
+        }
+        return negative ? -value : value;
+    }
+
+    private boolean parseText(Utf8Text target) {
+        if (consumeNull()) {
+            target.clear();
+            return true;
+        }
+        if (!consume('"')) {
+            return false;
+        }
+        int start = pos;
+        int stop = scanPlainString();
+        if (stop >= 0) {
+            target.set(buf, start, stop - start);
+            return true;
+        }
+        // Escapes present: decode byte by byte from the opening quote
+        pos = start;
+        target.reset();
+        while (pos < end) {
+            byte b = buf[pos++];
+            if (b == '"') {
+                return true;
+            }
+            if ((b & 0xFF) < 0x20) {
+                return false;
+            }
+            if (b != '\\') {
+                target.append(b);
+                continue;
+            }
+            if (pos >= end) {
+                return false;
+            }
+            byte escaped = buf[pos++];
+            switch (escaped) {
+                case '"': case '\\': case '/':
+                    target.append(escaped);
+                    break;
+                case 'b':
+                    target.append((byte) '\b');
+                    break;
+                case 'f':
+                    target.append((byte) '\f');
+                    break;
+                case 'n':
+                    target.append((byte) '\n');
+                    break;
+                case 'r':
+                    target.append((byte) '\r');
+                    break;
+                case 't':
+                    target.append((byte) '\t');
+                    break;
+                case 'u':
+                    if (!decodeUnicodeEscape(target)) {
+                        return false;
+                    }
+                    break;
+                default:
+                    return false;
+            }
+        }
+        return false;
+    }
+
+    private boolean decodeUnicodeEscape(Utf8Text target) {
+        int unit = readHex4();
+        if (unit < 0) {
+            return false;
+        }
+        int codePoint = unit;
+        if (Character.isHighSurrogate((char) unit)) {
+            if (pos + 1 >= end || buf[pos] != '\\' || buf[pos + 1] != 'u') {
+                return false;
+            }
+            pos += 2;
+            int low = readHex4();
+            if (low < 0 || !Character.isLowSurrogate((char) low)) {
+                return false;
+            }
+            codePoint = Character.toCodePoint((char) unit, (char) low);
+        } else if (Character.isLowSurrogate((char) unit)) {
+            return false;
+        }
+
+        if (codePoint < 0x80) {
+            target.append((byte) codePoint);
+        } else if (codePoint < 0x800) {
+            target.append((byte) (0xC0 | codePoint >> 6));
+            target.append((byte) (0x80 | codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            target.append((byte) (0xE0 | codePoint >> 12));
+            target.append((byte) (0x80 | codePoint >> 6 & 0x3F));
+            target.append((byte) (0x80 | codePoint & 0x3F));
+        } else {
+            target.append((byte) (0xF0 | codePoint >> 18));
+            target.append((byte) (0x80 | codePoint >> 12 & 0x3F));
+            target.append((byte) (0x80 | codePoint >> 6 & 0x3F));
+            target.append((byte) (0x80 | codePoint & 0x3F));
+        }
+        return true;
+    }
+
+    private int readHex4() {
+        if (pos + 4 > end) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(buf[pos++], 16);
+            if (digit < 0) {
+                return -1;
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+
+    /**
+     * Advances past a string with no escapes and returns the index of its closing quote, or
+     * -1 (position undefined) if it contains an escape or control character or is unterminated.
+     */
+    private int scanPlainString() {
+        while (pos < end) {
+            byte b = buf[pos];
+            if (b == '"') {
+                return pos++;
+            }
+            if (b == '\\' || (b & 0xFF) < 0x20) {
+                return -1;
+            }
+            pos++;
+        }
+        return -1;
+    }
+
+    private boolean matches(int start, int length, byte[] expected) {
+        return Arrays.equals(buf, start, start + length, expected, 0, expected.length);
+    }
+
+    private boolean consumeNull() {
+        if (pos + NULL.length <= end && matches(pos, NULL.length, NULL)) {
+            pos += NULL.length;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean consume(char c) {
+        if (pos < end && buf[pos] == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (pos < end) {
+            byte b = buf[pos];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private boolean atEnd() {
+        skipWhitespace();
+        return pos == end;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,223 @@
+package cs6650.assignment1.codec;
+
+import org.java_websocket.framing.TextFrame;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes the success ChatResponse JSON straight into a reusable byte buffer.
+ *
+ * The fixed skeleton (field names, quotes, status) is pre-encoded; only userId, the two text
+ * fields, the timestamps, messageType and the optional messageId are written per message. The serverTimestamp text is
+ * formatted at most once per millisecond. Output is byte-identical to ObjectMapper on
+ * ChatResponse, including Jackson's string escaping.
+ *
+ * Instances are not thread-safe; use {@link #local()}. The encoded bytes are valid until the
+ * next encode on the same thread.
+ */
+public final class ChatResponseEncoder {
+
+    private static final ThreadLocal<ChatResponseEncoder> POOL = ThreadLocal.withInitial(ChatResponseEncoder::new);
+
+    private static final byte[] USER_ID = ascii("{\"userId\":");
+    private static final byte[] USERNAME = ascii(",\"username\":");
+    private static final byte[] MESSAGE = ascii(",\"message\":");
+    private static final byte[] CLIENT_TIMESTAMP = ascii(",\"clientTimestamp\":");
+    private static final byte[] SERVER_TIMESTAMP = ascii(",\"serverTimestamp\":");
+    private static final byte[] MESSAGE_TYPE = ascii(",\"messageType\":");
+    private static final byte[] STATUS_SUCCESS = ascii(",\"status\":\"success\"");
+    private static final byte[] MESSAGE_ID = ascii(",\"messageId\":");
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] HEX = ascii("0123456789ABCDEF");
+
+    // Jackson's default escapes: two-character forms where defined, \\u00XX for other controls
+    private static final byte[] ESCAPES = new byte[128];
+
+    static {
+        for (int i = 0; i < 0x20; i++) {
+            ESCAPES[i] = 'u';
+        }
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\t'] = 't';
+        ESCAPES['\f'] = 'f';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\r'] = 'r';
+    }
+
+    private byte[] buf = new byte[1024];
+    private int length;
+
+    private long cachedServerMillis = Long.MIN_VALUE;
+    private final byte[] cachedServerTimestamp = new byte[Timestamps.ISO_LENGTH];
+
+    public static ChatResponseEncoder local() {
+        return POOL.get();
+    }
+
+    /**
+     * Encodes the success response for {@code message}, stamped with {@code serverMillis}.
+     *
+     * @return the number of bytes written to {@link #buffer()}
+     */
+    public int encode(ChatMessageHolder message, long serverMillis) {
+        length = 0;
+        write(USER_ID);
+        if (message.hasUserId()) {
+            writeInt(message.getUserId());
+        } else {
+            write(NULL);
+        }
+        write(USERNAME);
+        writeText(message.getUsername());
+        write(MESSAGE);
+        writeText(message.getMessage());
+
+        write(CLIENT_TIMESTAMP);
+        if (message.hasTimestamp()) {
+            ensureCapacity(Timestamps.ISO_LENGTH + 2);
+            buf[length++] = '"';
+            Timestamps.formatIsoMillis(message.getTimestampMillis(), buf, length);
+            length += Timestamps.ISO_LENGTH;
+            buf[length++] = '"';
+        } else {
+            write(NULL);
+        }
+
+        write(SERVER_TIMESTAMP);
+        if (serverMillis != cachedServerMillis) {
+            Timestamps.formatIsoMillis(serverMillis, cachedServerTimestamp, 0);
+            cachedServerMillis = serverMillis;
+        }
+        ensureCapacity(Timestamps.ISO_LENGTH + 2);
+        buf[length++] = '"';
+        System.arraycopy(cachedServerTimestamp, 0, buf, length, Timestamps.ISO_LENGTH);
+        length += Timestamps.ISO_LENGTH;
+        buf[length++] = '"';
+
+        write(MESSAGE_TYPE);
+        if (message.getMessageType() != null) {
+            writeAsciiString(message.getMessageType().name());
+        } else {
+            write(NULL);
+        }
+        write(STATUS_SUCCESS);
+        if (message.hasMessageId()) {
+            write(MESSAGE_ID);
+            writeLong(message.getMessageId());
+        }
+        ensureCapacity(1);
+        buf[length++] = '}';
+        return length;
+    }
+
+    public byte[] buffer() {
+        return buf;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Copy of the encoded bytes, for handing to another thread.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, length);
+    }
+
+    /**
+     * Text frame over the encoded bytes. The frame shares this encoder's buffer, so it must be
+     * sent (which encodes it to the wire) before the next encode on this thread.
+     */
+    public TextFrame toTextFrame() {
+        TextFrame frame = new TextFrame();
+        frame.setPayload(ByteBuffer.wrap(buf, 0, length));
+        frame.setFin(true);
+        return frame;
+    }
+
+    private void writeText(Utf8Text text) {
+        if (!text.isPresent()) {
+            write(NULL);
+            return;
+        }
+        byte[] src = text.bytes();
+        int srcLength = text.byteLength();
+        // Worst case every byte becomes a six-byte \\u00XX escape
+        ensureCapacity(srcLength * 6 + 2);
+        buf[length++] = '"';
+        for (int i = 0; i < srcLength; i++) {
+            byte b = src[i];
+            byte escape = b >= 0 ? ESCAPES[b] : 0;
+            if (escape == 0) {
+                buf[length++] = b;
+            } else if (escape == 'u') {
+                buf[length++] = '\\';
+                buf[length++] = 'u';
+                buf[length++] = '0';
+                buf[length++] = '0';
+                buf[length++] = HEX[b >> 4];
+                buf[length++] = HEX[b & 0xF];
+            } else {
+                buf[length++] = '\\';
+                buf[length++] = escape;
+            }
+        }
+        buf[length++] = '"';
+    }
+
+    private void writeAsciiString(String value) {
+        ensureCapacity(value.length() + 2);
+        buf[length++] = '"';
+        for (int i = 0; i < value.length(); i++) {
+            buf[length++] = (byte) value.charAt(i);
+        }
+        buf[length++] = '"';
+    }
+
+    private void writeInt(int value) {
+        writeLong(value);
+    }
+
+    private void writeLong(long value) {
+        ensureCapacity(20);
+        if (value == Long.MIN_VALUE) {
+            write(ascii(Long.toString(value)));
+            return;
+        }
+        long v = value;
+        if (v < 0) {
+            buf[length++] = '-';
+            v = -v;
+        }
+        int digits = 1;
+        for (long t = v; t >= 10; t /= 10) {
+            digits++;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            buf[i] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+        length += digits;
+    }
+
+    private void write(byte[] segment) {
+        ensureCapacity(segment.length);
+        System.arraycopy(segment, 0, buf, length, segment.length);
+        length += segment.length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(length + extra, buf.length * 2));
+        }
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,125 @@
+package cs6650.assignment1.codec;
+
+/**
+ * Allocation-free conversion between epoch millis and the wire format
+ * "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'" (UTC) used by ChatMessage and ChatResponse.
+ */
+public final class Timestamps {
+
+    public static final int ISO_LENGTH = 24;
+    public static final long INVALID = Long.MIN_VALUE;
+    /** 0000-01-01T00:00:00.000Z and 9999-12-31T23:59:59.999Z, the range with a four-digit year. */
+    public static final long MIN_ISO_MILLIS = -62_167_219_200_000L;
+    public static final long MAX_ISO_MILLIS = 253_402_300_799_999L;
+
+    private Timestamps() {
+    }
+
+    /**
+     * Parses exactly the wire format. Anything else (other ISO-8601 variants, out-of-range
+     * fields) returns {@link #INVALID} so callers can fall back to the full Jackson parser.
+     */
+    public static long parseIsoMillis(byte[] buf, int off, int len) {
+        if (len != ISO_LENGTH
+            || buf[off + 4] != '-' || buf[off + 7] != '-' || buf[off + 10] != 'T'
+            || buf[off + 13] != ':' || buf[off + 16] != ':' || buf[off + 19] != '.'
+            || buf[off + 23] != 'Z') {
+            return INVALID;
+        }
+        int year = digits(buf, off, 4);
+        int month = digits(buf, off + 5, 2);
+        int day = digits(buf, off + 8, 2);
+        int hour = digits(buf, off + 11, 2);
+        int minute = digits(buf, off + 14, 2);
+        int second = digits(buf, off + 17, 2);
+        int millis = digits(buf, off + 20, 3);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+            || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 || millis < 0) {
+            return INVALID;
+        }
+        long days = daysFromCivil(year, month, day);
+        return ((days * 24 + hour) * 60 + minute) * 60_000L + second * 1000L + millis;
+    }
+
+    /**
+     * Whether the instant can be written in the wire format, whose year has exactly four digits.
+     */
+    public static boolean isFormattable(long epochMillis) {
+        return epochMillis >= MIN_ISO_MILLIS && epochMillis <= MAX_ISO_MILLIS;
+    }
+
+    /**
+     * Writes the 24-byte wire format for the given instant into {@code out} at {@code off}. Only
+     * instants that are {@link #isFormattable} come out right; the validator rejects the rest.
+     */
+    public static void formatIsoMillis(long epochMillis, byte[] out, int off) {
+        long days = Math.floorDiv(epochMillis, 86_400_000L);
+        int millisOfDay = (int) Math.floorMod(epochMillis, 86_400_000L);
+
+        // Civil-from-days (Howard Hinnant), valid for the proleptic Gregorian calendar
+        long z = days + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long doe = z - era * 146_097;
+        long yoe = (doe - doe / 1460 + doe / 36_524 - doe / 146_096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+
+        writeDigits(out, off, year, 4);
+        out[off + 4] = '-';
+        writeDigits(out, off + 5, month, 2);
+        out[off + 7] = '-';
+        writeDigits(out, off + 8, day, 2);
+        out[off + 10] = 'T';
+        writeDigits(out, off + 11, millisOfDay / 3_600_000, 2);
+        out[off + 13] = ':';
+        writeDigits(out, off + 14, millisOfDay / 60_000 % 60, 2);
+        out[off + 16] = ':';
+        writeDigits(out, off + 17, millisOfDay / 1000 % 60, 2);
+        out[off + 19] = '.';
+        writeDigits(out, off + 20, millisOfDay % 1000, 3);
+        out[off + 23] = 'Z';
+    }
+
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yoe = y - era * 400;
+        int doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146_097L + doe - 719_468;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4: case 6: case 9: case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static int digits(byte[] buf, int off, int count) {
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            int d = buf[off + i] - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    private static void writeDigits(byte[] out, int off, int value, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            out[off + i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package cs6650.assignment1.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reusable, growable UTF-8 string field. Holds decoded (unescaped) text so it can be
+ * validated and re-encoded without materializing a java.lang.String.
+ */
+public final class Utf8Text {
+
+    private byte[] bytes;
+    private int length;
+    private boolean present;
+
+    public Utf8Text(int initialCapacity) {
+        this.bytes = new byte[initialCapacity];
+    }
+
+    public void clear() {
+        length = 0;
+        present = false;
+    }
+
+    /**
+     * Marks the field as present with empty content, ready for {@link #append(byte)}.
+     */
+    public void reset() {
+        length = 0;
+        present = true;
+    }
+
+    public void set(byte[] src, int off, int len) {
+        ensureCapacity(len);
+        System.arraycopy(src, off, bytes, 0, len);
+        length = len;
+        present = true;
+    }
+
+    /**
+     * Copies {@code len} bytes starting at absolute index {@code index} of {@code src}.
+     */
+    public void set(ByteBuffer src, int index, int len) {
+        if (src.hasArray()) {
+            set(src.array(), src.arrayOffset() + index, len);
+            return;
+        }
+        ensureCapacity(len);
+        src.get(index, bytes, 0, len);
+        length = len;
+        present = true;
+    }
+
+    public void set(String value) {
+        if (value == null) {
+            clear();
+            return;
+        }
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        set(encoded, 0, encoded.length);
+    }
+
+    public void append(byte b) {
+        ensureCapacity(length + 1);
+        bytes[length++] = b;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+        }
+    }
+
+    public boolean isPresent() {
+        return present;
+    }
+
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    public int byteLength() {
+        return length;
+    }
+
+    public byte byteAt(int index) {
+        return bytes[index];
+    }
+
+    /**
+     * Materializes the text, or null if the field is absent. Allocates; keep off hot paths.
+     */
+    public String asString() {
+        return present ? new String(bytes, 0, length, StandardCharsets.UTF_8) : null;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(asString());
+    }
+}
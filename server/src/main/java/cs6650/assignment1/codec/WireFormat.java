@@ -0,0 +1,24 @@
+package cs6650.assignment1.codec;
+
+/**
+ * Encoding negotiated per connection. JSON is the default; BINARY is selected with the
+ * {@link #BINARY_SUBPROTOCOL} WebSocket subprotocol or {@code ?protocol=binary} on the URL.
+ */
+public enum WireFormat {
+    JSON, BINARY;
+
+    public static final String BINARY_SUBPROTOCOL = "chatflow.binary.v1";
+    public static final String QUERY_PARAMETER = "protocol";
+
+    /**
+     * @return the format for a {@code protocol} query value, or null if it is not recognised
+     */
+    public static WireFormat fromQueryValue(String value) {
+        for (WireFormat format : values()) {
+            if (format.name().equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,98 @@
+package cs6650.assignment1.compression;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for weighing bandwidth against CPU: payload bytes before and after deflate/inflate
+ * and the time spent in zlib. A broadcast frame shared by a whole room is counted once.
+ */
+public class CompressionMetrics {
+
+    private final LongAdder deflatedMessages = new LongAdder();
+    private final LongAdder deflateInputBytes = new LongAdder();
+    private final LongAdder deflateOutputBytes = new LongAdder();
+    private final LongAdder deflateNanos = new LongAdder();
+    private final LongAdder skippedMessages = new LongAdder();
+    private final LongAdder skippedBytes = new LongAdder();
+    private final LongAdder inflatedMessages = new LongAdder();
+    private final LongAdder inflateInputBytes = new LongAdder();
+    private final LongAdder inflateOutputBytes = new LongAdder();
+    private final LongAdder inflateNanos = new LongAdder();
+
+    void recordDeflate(int rawBytes, int wireBytes, long nanos) {
+        deflatedMessages.increment();
+        deflateInputBytes.add(rawBytes);
+        deflateOutputBytes.add(wireBytes);
+        deflateNanos.add(nanos);
+    }
+
+    /**
+     * A frame sent uncompressed because it was under the threshold or did not shrink.
+     */
+    void recordSkipped(int bytes) {
+        skippedMessages.increment();
+        skippedBytes.add(bytes);
+    }
+
+    void recordInflate(int wireBytes, int rawBytes, long nanos) {
+        inflatedMessages.increment();
+        inflateInputBytes.add(wireBytes);
+        inflateOutputBytes.add(rawBytes);
+        inflateNanos.add(nanos);
+    }
+
+    public long getDeflatedMessages() {
+        return deflatedMessages.sum();
+    }
+
+    public long getDeflateInputBytes() {
+        return deflateInputBytes.sum();
+    }
+
+    public long getDeflateOutputBytes() {
+        return deflateOutputBytes.sum();
+    }
+
+    public long getSkippedMessages() {
+        return skippedMessages.sum();
+    }
+
+    public long getSkippedBytes() {
+        return skippedBytes.sum();
+    }
+
+    public long getInflatedMessages() {
+        return inflatedMessages.sum();
+    }
+
+    public long getInflateInputBytes() {
+        return inflateInputBytes.sum();
+    }
+
+    public long getInflateOutputBytes() {
+        return inflateOutputBytes.sum();
+    }
+
+    /**
+     * Compressed size as a percentage of the original, over all deflated frames.
+     */
+    public double getDeflateRatioPercent() {
+        long input = deflateInputBytes.sum();
+        return input == 0 ? 0.0 : deflateOutputBytes.sum() * 100.0 / input;
+    }
+
+    public double getInflateRatioPercent() {
+        long output = inflateOutputBytes.sum();
+        return output == 0 ? 0.0 : inflateInputBytes.sum() * 100.0 / output;
+    }
+
+    public double getMeanDeflateMicros() {
+        long count = deflatedMessages.sum();
+        return count == 0 ? 0.0 : deflateNanos.sum() / 1000.0 / count;
+    }
+
+    public double getMeanInflateMicros() {
+        long count = inflatedMessages.sum();
+        return count == 0 ? 0.0 : inflateNanos.sum() / 1000.0 / count;
+    }
+}
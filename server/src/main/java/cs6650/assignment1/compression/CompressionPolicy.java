@@ -0,0 +1,127 @@
+package cs6650.assignment1.compression;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+/**
+ * Settings for permessage-deflate (RFC 7692), which is off unless enabled.
+ *
+ * Outgoing frames smaller than the threshold are sent uncompressed, and rooms can be limited so
+ * only some of them spend CPU on compression; connections in other rooms still negotiate the
+ * extension (clients may compress their own messages) but receive plain frames.
+ */
+public class CompressionPolicy {
+
+    /**
+     * Threshold meaning "never compress".
+     */
+    public static final int NEVER = Integer.MAX_VALUE;
+
+    private final boolean enabled;
+    private final int threshold;
+    private final int level;
+    private final boolean clientContextTakeover;
+    private final Set<String> rooms;
+
+    /**
+     * @param rooms rooms whose outgoing frames are compressed; empty means every room
+     */
+    public CompressionPolicy(boolean enabled, int threshold, int level, boolean clientContextTakeover,
+                             Set<String> rooms) {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level must be between -1 and 9: " + level);
+        }
+        this.enabled = enabled;
+        this.threshold = Math.max(0, threshold);
+        this.level = level;
+        this.clientContextTakeover = clientContextTakeover;
+        this.rooms = Collections.unmodifiableSet(new LinkedHashSet<>(rooms));
+    }
+
+    public static CompressionPolicy disabled() {
+        return new CompressionPolicy(false, 256, Deflater.BEST_SPEED, false, Collections.emptySet());
+    }
+
+    /**
+     * Defaults overridden by -Dchatflow.compression.* system properties.
+     */
+    public static CompressionPolicy fromSystemProperties() {
+        CompressionPolicy d = disabled();
+        return new CompressionPolicy(
+            Boolean.getBoolean("chatflow.compression"),
+            Integer.getInteger("chatflow.compression.threshold", d.threshold),
+            Integer.getInteger("chatflow.compression.level", d.level),
+            Boolean.getBoolean("chatflow.compression.client.context.takeover"),
+            parseRooms(System.getProperty("chatflow.compression.rooms", ""))
+        );
+    }
+
+    /**
+     * Parses a comma-separated list of room ids and ranges, e.g. {@code 1-5,8}.
+     */
+    static Set<String> parseRooms(String value) {
+        Set<String> rooms = new LinkedHashSet<>();
+        for (String part : value.split(",")) {
+            part = part.trim();
+            if (part.isEmpty()) {
+                continue;
+            }
+            int dash = part.indexOf('-');
+            if (dash > 0) {
+                int from = Integer.parseInt(part.substring(0, dash).trim());
+                int to = Integer.parseInt(part.substring(dash + 1).trim());
+                for (int room = from; room <= to; room++) {
+                    rooms.add(String.valueOf(room));
+                }
+            } else {
+                rooms.add(String.valueOf(Integer.parseInt(part)));
+            }
+        }
+        return rooms;
+    }
+
+    /**
+     * Minimum payload size to compress outgoing frames for a connection in {@code roomId}, or
+     * {@link #NEVER} if the room is excluded.
+     */
+    public int thresholdForRoom(String roomId) {
+        return rooms.isEmpty() || rooms.contains(roomId) ? threshold : NEVER;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Whether clients may keep their compression context between messages. Better ratio for
+     * repetitive traffic, but the server then holds a 32 KB inflate window per connection
+     * instead of sharing one per decoder thread.
+     */
+    public boolean isClientContextTakeover() {
+        return clientContextTakeover;
+    }
+
+    public Set<String> getRooms() {
+        return rooms;
+    }
+
+    @Override
+    public String toString() {
+        if (!enabled) {
+            return "off";
+        }
+        return "permessage-deflate threshold " + threshold + " bytes, level " + level
+            + ", client context takeover " + (clientContextTakeover ? "on" : "off")
+            + ", rooms " + (rooms.isEmpty() ? "all" : String.join(",", rooms));
+    }
+}
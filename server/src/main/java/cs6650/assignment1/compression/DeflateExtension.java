@@ -0,0 +1,278 @@
+package cs6650.assignment1.compression;
+
+import org.java_websocket.enums.Opcode;
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.exceptions.InvalidFrameException;
+import org.java_websocket.extensions.CompressionExtension;
+import org.java_websocket.extensions.ExtensionRequestData;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.framing.DataFrame;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.framing.FramedataImpl1;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Server side of permessage-deflate (RFC 7692) that reuses zlib state instead of allocating it
+ * per message.
+ *
+ * The server always answers with server_no_context_takeover, so each outgoing message is
+ * compressed from scratch with the calling thread's Deflater. Sends to one connection can come
+ * from several threads, and the library builds frames outside its write lock, so a shared
+ * compression context could reach the wire out of order; without one the extension is
+ * stateless on the way out and a broadcast can compress a frame once for the whole room.
+ * Incoming messages use the decoder thread's Inflater, unless the client keeps its context or
+ * fragments a message, in which case the connection gets its own.
+ *
+ * Unlike the library's PerMessageDeflateExtension this honours the payload's position and
+ * limit, keeps its settings across {@link #copyInstance()} and frees zlib memory on close.
+ */
+public class DeflateExtension extends CompressionExtension {
+
+    public static final String EXTENSION_NAME = "permessage-deflate";
+
+    private static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+    private static final String CLIENT_NO_CONTEXT_TAKEOVER = "client_no_context_takeover";
+    private static final String SERVER_MAX_WINDOW_BITS = "server_max_window_bits";
+
+    // Empty stored block ending every sync flush; stripped on send, appended before inflating
+    private static final byte[] TAIL = {0, 0, (byte) 0xFF, (byte) 0xFF};
+    // Far above any valid chat message; stops decompression bombs
+    private static final int MAX_INFLATED_BYTES = 1 << 20;
+
+    private static final ThreadLocal<Zlib> ZLIB = ThreadLocal.withInitial(Zlib::new);
+
+    private final CompressionPolicy policy;
+    private final CompressionMetrics metrics;
+    private volatile int threshold;
+    private boolean clientContextTakeover;
+    // Decoder thread only
+    private Inflater connectionInflater;
+
+    public DeflateExtension(CompressionPolicy policy, CompressionMetrics metrics) {
+        this.policy = policy;
+        this.metrics = metrics;
+        this.threshold = policy.getThreshold();
+    }
+
+    /**
+     * Per-thread zlib state and output buffer. The buffer's contents are valid until the next
+     * deflate or inflate on the same thread.
+     */
+    private static final class Zlib {
+        private Deflater deflater;
+        private int deflaterLevel;
+        private final Inflater inflater = new Inflater(true);
+        private byte[] out = new byte[1024];
+
+        Deflater deflater(int level) {
+            if (deflater == null || deflaterLevel != level) {
+                // Changing the level on a live Deflater applies it mid-stream, so start a new one
+                if (deflater != null) {
+                    deflater.end();
+                }
+                deflater = new Deflater(level, true);
+                deflaterLevel = level;
+            }
+            deflater.reset();
+            return deflater;
+        }
+
+        void grow() {
+            out = Arrays.copyOf(out, out.length * 2);
+        }
+    }
+
+    // ---- Outgoing ----
+
+    /**
+     * Compresses whole messages of at least {@link #getThreshold()} bytes. Fragmented messages
+     * and messages that would not shrink are sent as they are.
+     */
+    @Override
+    public void encodeFrame(Framedata frame) {
+        if (!(frame instanceof DataFrame) || frame.getOpcode() == Opcode.CONTINUOUS || !frame.isFin()) {
+            return;
+        }
+        ByteBuffer payload = frame.getPayloadData();
+        int rawBytes = payload.remaining();
+        if (rawBytes < threshold) {
+            metrics.recordSkipped(rawBytes);
+            return;
+        }
+
+        long start = System.nanoTime();
+        Zlib zlib = ZLIB.get();
+        Deflater deflater = zlib.deflater(policy.getLevel());
+        if (payload.hasArray()) {
+            deflater.setInput(payload.array(), payload.arrayOffset() + payload.position(), rawBytes);
+        } else {
+            deflater.setInput(payload.duplicate());
+        }
+        int length = 0;
+        while (true) {
+            length += deflater.deflate(zlib.out, length, zlib.out.length - length, Deflater.SYNC_FLUSH);
+            if (length < zlib.out.length) {
+                break;
+            }
+            zlib.grow();
+        }
+        length -= TAIL.length;
+
+        if (length >= rawBytes) {
+            metrics.recordSkipped(rawBytes);
+            return;
+        }
+        ((DataFrame) frame).setRSV1(true);
+        ((FramedataImpl1) frame).setPayload(ByteBuffer.wrap(zlib.out, 0, length));
+        metrics.recordDeflate(rawBytes, length, System.nanoTime() - start);
+    }
+
+    /**
+     * Whether {@link #encodeFrame} would try to compress a message of this size.
+     */
+    public boolean compresses(int payloadLength) {
+        return payloadLength >= threshold;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Applies the room's policy; {@link CompressionPolicy#NEVER} turns outgoing compression off.
+     */
+    public void setThreshold(int threshold) {
+        this.threshold = threshold;
+    }
+
+    // ---- Incoming ----
+
+    /**
+     * Only called for frames of messages that arrived with RSV1 set.
+     */
+    @Override
+    public void decodeFrame(Framedata frame) throws InvalidDataException {
+        if (!(frame instanceof DataFrame)) {
+            return;
+        }
+        boolean wholeMessage = frame.getOpcode() != Opcode.CONTINUOUS && frame.isFin();
+        Inflater inflater;
+        if (wholeMessage && !clientContextTakeover) {
+            inflater = ZLIB.get().inflater;
+            inflater.reset();
+        } else {
+            if (connectionInflater == null) {
+                connectionInflater = new Inflater(true);
+            }
+            inflater = connectionInflater;
+        }
+
+        long start = System.nanoTime();
+        ByteBuffer payload = frame.getPayloadData();
+        int wireBytes = payload.remaining();
+        Zlib zlib = ZLIB.get();
+        int length;
+        try {
+            if (payload.hasArray()) {
+                inflater.setInput(payload.array(), payload.arrayOffset() + payload.position(), wireBytes);
+            } else {
+                inflater.setInput(payload);
+            }
+            length = inflate(inflater, zlib, 0);
+            if (frame.isFin()) {
+                inflater.setInput(TAIL);
+                length = inflate(inflater, zlib, length);
+                if (!clientContextTakeover && inflater == connectionInflater) {
+                    inflater.reset();
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new InvalidDataException(CloseFrame.POLICY_VALIDATION, e.getMessage());
+        }
+
+        // The payload is handed to worker threads, so it cannot stay in the thread's buffer
+        ((FramedataImpl1) frame).setPayload(ByteBuffer.wrap(Arrays.copyOf(zlib.out, length)));
+        metrics.recordInflate(wireBytes, length, System.nanoTime() - start);
+    }
+
+    private static int inflate(Inflater inflater, Zlib zlib, int length)
+            throws DataFormatException, InvalidDataException {
+        while (true) {
+            if (length == zlib.out.length) {
+                if (length >= MAX_INFLATED_BYTES) {
+                    throw new InvalidDataException(CloseFrame.TOOBIG, "Inflated message exceeds " + MAX_INFLATED_BYTES + " bytes");
+                }
+                zlib.grow();
+            }
+            int count = inflater.inflate(zlib.out, length, zlib.out.length - length);
+            length += count;
+            if (count == 0 && (inflater.needsInput() || inflater.finished() || inflater.needsDictionary())) {
+                return length;
+            }
+        }
+    }
+
+    @Override
+    public void isFrameValid(Framedata frame) throws InvalidDataException {
+        if (frame.getOpcode() == Opcode.CONTINUOUS && frame.isRSV1()) {
+            throw new InvalidFrameException("RSV1 may only be set on the first frame of a message");
+        }
+        super.isFrameValid(frame);
+    }
+
+    // ---- Negotiation ----
+
+    @Override
+    public boolean acceptProvidedExtensionAsServer(String inputExtension) {
+        for (String offer : inputExtension.split(",")) {
+            ExtensionRequestData request = ExtensionRequestData.parseExtensionRequest(offer.trim());
+            if (!EXTENSION_NAME.equalsIgnoreCase(request.getExtensionName())) {
+                continue;
+            }
+            Map<String, String> parameters = request.getExtensionParameters();
+            // java.util.zip always compresses with a 32 KB window, so a smaller one cannot be honoured
+            String serverWindowBits = parameters.get(SERVER_MAX_WINDOW_BITS);
+            if (serverWindowBits != null && !serverWindowBits.isEmpty() && !"15".equals(serverWindowBits)) {
+                continue;
+            }
+            clientContextTakeover = policy.isClientContextTakeover()
+                && !parameters.containsKey(CLIENT_NO_CONTEXT_TAKEOVER);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String getProvidedExtensionAsServer() {
+        return EXTENSION_NAME + "; " + SERVER_NO_CONTEXT_TAKEOVER
+            + (clientContextTakeover ? "" : "; " + CLIENT_NO_CONTEXT_TAKEOVER);
+    }
+
+    @Override
+    public IExtension copyInstance() {
+        return new DeflateExtension(policy, metrics);
+    }
+
+    /**
+     * Called when the connection closes.
+     */
+    @Override
+    public void reset() {
+        if (connectionInflater != null) {
+            connectionInflater.end();
+            connectionInflater = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DeflateExtension";
+    }
+}
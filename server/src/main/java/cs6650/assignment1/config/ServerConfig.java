@@ -0,0 +1,231 @@
+package cs6650.assignment1.config;
+
+import cs6650.assignment1.admission.AdmissionPolicy;
+import cs6650.assignment1.compression.CompressionPolicy;
+import cs6650.assignment1.outbound.OutboundPolicy;
+import cs6650.assignment1.outbound.WritePolicy;
+import cs6650.assignment1.processing.ProcessingStage;
+import cs6650.assignment1.validation.ValidationRules;
+
+/**
+ * Server settings, read from -Dchatflow.* system properties with sensible defaults.
+ */
+public class ServerConfig {
+
+    public enum DeliveryMode {
+        ECHO, BROADCAST
+    }
+
+    private final int healthPort;
+    private final int websocketPort;
+    private final DeliveryMode deliveryMode;
+    private final int broadcastThreads;
+    private final ProcessingStage.Mode processingMode;
+    private final int processingWorkers;
+    private final int processingQueueCapacity;
+    private final ProcessingStage.OverflowPolicy processingOverflow;
+    private final int statsIntervalSeconds;
+    private final int listeners;
+    private final int decoders;
+    private final ValidationRules validationRules;
+    private final CompressionPolicy compressionPolicy;
+    private final AdmissionPolicy admissionPolicy;
+    private final OutboundPolicy outboundPolicy;
+    private final WritePolicy writePolicy;
+    private final int healthThreads;
+    private final int healthTickMillis;
+    private final int healthMaxLagMillis;
+    private final double healthMaxQueueFill;
+    private final double healthMaxHeapFill;
+    private final int maxRoomId;
+    private final int roomIdleSeconds;
+    private final int bufferSize;
+    private final int sharedBuffers;
+    private final boolean bufferDebug;
+
+    private ServerConfig() {
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        this.healthPort = Integer.getInteger("chatflow.health.port", 8080);
+        this.websocketPort = Integer.getInteger("chatflow.websocket.port", 8081);
+        this.deliveryMode = enumProperty("chatflow.delivery", DeliveryMode.ECHO);
+        this.broadcastThreads = Integer.getInteger("chatflow.broadcast.threads", cores);
+
+        this.processingMode = enumProperty("chatflow.processing.mode", ProcessingStage.Mode.POOL);
+        // Virtual threads are cheap, so default to many more lanes for finer-grained sharding
+        int defaultWorkers = processingMode == ProcessingStage.Mode.VIRTUAL ? 1024 : cores;
+        this.processingWorkers = Integer.getInteger("chatflow.processing.workers", defaultWorkers);
+        this.processingQueueCapacity = Integer.getInteger("chatflow.processing.queue", 1024);
+        this.processingOverflow = enumProperty("chatflow.processing.overflow", ProcessingStage.OverflowPolicy.REJECT);
+        this.statsIntervalSeconds = Integer.getInteger("chatflow.stats.interval", 60);
+
+        this.listeners = Math.max(1, Integer.getInteger("chatflow.listeners", 1));
+        // Spread the cores across listeners unless told otherwise
+        this.decoders = Math.max(1, Integer.getInteger("chatflow.decoders", Math.max(1, cores / listeners)));
+
+        this.validationRules = ValidationRules.fromSystemProperties();
+        this.compressionPolicy = CompressionPolicy.fromSystemProperties();
+
+        this.admissionPolicy = AdmissionPolicy.fromSystemProperties();
+        this.outboundPolicy = OutboundPolicy.fromSystemProperties();
+        this.writePolicy = WritePolicy.fromSystemProperties();
+        this.healthThreads = Math.max(1, Integer.getInteger("chatflow.health.threads", 2));
+        // Readiness thresholds: past any of them the server reports degraded and sheds new connections
+        this.healthTickMillis = Math.max(10, Integer.getInteger("chatflow.health.tick.ms", 250));
+        this.healthMaxLagMillis = Integer.getInteger("chatflow.health.max.lag.ms", 200);
+        this.healthMaxQueueFill = doubleProperty("chatflow.health.max.queue.fill", 0.8);
+        this.healthMaxHeapFill = doubleProperty("chatflow.health.max.heap.fill", 0.9);
+
+        // Rooms are numbered from 1; 0 accepts any positive room number
+        this.maxRoomId = Math.max(0, Integer.getInteger("chatflow.rooms.max", 20));
+        this.roomIdleSeconds = Math.max(0, Integer.getInteger("chatflow.rooms.idle.seconds", 300));
+
+        // Pooled direct buffers for incoming payloads and outgoing frames; larger ones stay on the heap
+        this.bufferSize = Math.max(0, Integer.getInteger("chatflow.buffers.size", 4096));
+        this.sharedBuffers = Math.max(1, Integer.getInteger("chatflow.buffers.shared", 4096));
+        this.bufferDebug = Boolean.getBoolean("chatflow.buffers.debug");
+    }
+
+    public static ServerConfig fromSystemProperties() {
+        return new ServerConfig();
+    }
+
+    private static <E extends Enum<E>> E enumProperty(String name, E defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        return Enum.valueOf(defaultValue.getDeclaringClass(), value.trim().toUpperCase());
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        return Double.parseDouble(value.trim());
+    }
+
+    public int getHealthPort() {
+        return healthPort;
+    }
+
+    public int getWebsocketPort() {
+        return websocketPort;
+    }
+
+    public DeliveryMode getDeliveryMode() {
+        return deliveryMode;
+    }
+
+    public int getBroadcastThreads() {
+        return broadcastThreads;
+    }
+
+    public ProcessingStage.Mode getProcessingMode() {
+        return processingMode;
+    }
+
+    public int getProcessingWorkers() {
+        return processingWorkers;
+    }
+
+    public int getProcessingQueueCapacity() {
+        return processingQueueCapacity;
+    }
+
+    public ProcessingStage.OverflowPolicy getProcessingOverflow() {
+        return processingOverflow;
+    }
+
+    public int getStatsIntervalSeconds() {
+        return statsIntervalSeconds;
+    }
+
+    public int getListeners() {
+        return listeners;
+    }
+
+    public int getDecoders() {
+        return decoders;
+    }
+
+    public ValidationRules getValidationRules() {
+        return validationRules;
+    }
+
+    public CompressionPolicy getCompressionPolicy() {
+        return compressionPolicy;
+    }
+
+    public AdmissionPolicy getAdmissionPolicy() {
+        return admissionPolicy;
+    }
+
+    public OutboundPolicy getOutboundPolicy() {
+        return outboundPolicy;
+    }
+
+    public WritePolicy getWritePolicy() {
+        return writePolicy;
+    }
+
+    public int getHealthThreads() {
+        return healthThreads;
+    }
+
+    public int getHealthTickMillis() {
+        return healthTickMillis;
+    }
+
+    public int getHealthMaxLagMillis() {
+        return healthMaxLagMillis;
+    }
+
+    public double getHealthMaxQueueFill() {
+        return healthMaxQueueFill;
+    }
+
+    public double getHealthMaxHeapFill() {
+        return healthMaxHeapFill;
+    }
+
+    /**
+     * Highest room number clients may join, or 0 for no limit.
+     */
+    public int getMaxRoomId() {
+        return maxRoomId;
+    }
+
+    /**
+     * The valid room numbers in words, for logs and close reasons.
+     */
+    public String getRoomRange() {
+        return maxRoomId == 0 ? "any positive number" : "between 1 and " + maxRoomId;
+    }
+
+    /**
+     * How long a room stays registered after its last member leaves; 0 keeps rooms forever.
+     */
+    public int getRoomIdleSeconds() {
+        return roomIdleSeconds;
+    }
+
+    /**
+     * Bytes per pooled outbound buffer, or 0 to encode frames on the heap.
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getSharedBuffers() {
+        return sharedBuffers;
+    }
+
+    /**
+     * Whether pooled buffers are tracked to catch double releases and leaks.
+     */
+    public boolean isBufferDebug() {
+        return bufferDebug;
+    }
+}
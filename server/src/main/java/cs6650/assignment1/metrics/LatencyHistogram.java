@@ -0,0 +1,62 @@
+package cs6650.assignment1.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-bucket duration histogram for the hot path: recording is a leading-zero count and two
+ * LongAdder increments, with no locks or allocation.
+ *
+ * Bucket i counts durations up to 2^(i + 10) ns, so the bounds double from ~1 us to ~1.07 s,
+ * and the last bucket takes everything slower.
+ */
+public class LatencyHistogram {
+
+    private static final int MIN_SHIFT = 10;
+    private static final int BUCKETS = 22;
+    private static final String[] BOUNDS = bounds();
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Upper bounds in seconds, as the {@code le} label values.
+     */
+    private static String[] bounds() {
+        String[] bounds = new String[BUCKETS];
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            bounds[i] = Double.toString((1L << (i + MIN_SHIFT)) / 1e9);
+        }
+        bounds[BUCKETS - 1] = "+Inf";
+        return bounds;
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos - 1) >> MIN_SHIFT;
+        counts[Math.min(BUCKETS - 1, Long.SIZE - Long.numberOfLeadingZeros(value))].increment();
+        sumNanos.add(Math.max(0, nanos));
+    }
+
+    /**
+     * Writes the cumulative {@code _bucket}, {@code _sum} and {@code _count} samples, with
+     * {@code labels} (name/value pairs) ahead of {@code le}.
+     */
+    public void writeTo(PrometheusText out, String name, String... labels) {
+        String[] bucketLabels = new String[labels.length + 2];
+        System.arraycopy(labels, 0, bucketLabels, 0, labels.length);
+        bucketLabels[labels.length] = "le";
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += counts[i].sum();
+            bucketLabels[labels.length + 1] = BOUNDS[i];
+            out.sample(name + "_bucket", cumulative, bucketLabels);
+        }
+        out.sample(name + "_sum", sumNanos.sum() / 1e9, labels);
+        out.sample(name + "_count", cumulative, labels);
+    }
+}
@@ -0,0 +1,291 @@
+package cs6650.assignment1.metrics;
+
+import cs6650.assignment1.validation.MessageValidator;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hot-path counters behind the {@code /metrics} endpoint: messages in and out per room,
+ * validation failures by reason, per-stage latencies and connection churn. Everything is a
+ * LongAdder, so threads recording at the same time update separate cells instead of
+ * contending on one counter; sums are only taken when scraped.
+ */
+public class ServerMetrics {
+
+    /**
+     * Steps of handling one message. SEND is the hand-off to the connection in echo mode and
+     * the whole fan-out to the room in broadcast mode.
+     */
+    public enum Stage {
+        PARSE, VALIDATE, SERIALIZE, SEND;
+
+        public String label() {
+            return name().toLowerCase();
+        }
+    }
+
+    /**
+     * Why a handshake was closed straight away.
+     */
+    public enum Refusal {
+        /** Bad path, room or protocol. */
+        INVALID_REQUEST,
+        /** Shed while the server reports degraded. */
+        DEGRADED,
+        SERVER_FULL,
+        ROOM_FULL;
+
+        public String label() {
+            return name().toLowerCase();
+        }
+    }
+
+    /**
+     * What happened to a message over its connection's rate limit.
+     */
+    public enum Throttle {
+        REJECTED, DELAYED, CLOSED;
+
+        public String label() {
+            return name().toLowerCase();
+        }
+    }
+
+    /**
+     * Counters of one room, looked up once per message.
+     */
+    public static final class Room {
+        private final LongAdder in = new LongAdder();
+        private final LongAdder out = new LongAdder();
+
+        public void recordIn() {
+            in.increment();
+        }
+
+        public void recordOut(int messages) {
+            out.add(messages);
+        }
+
+        public long getIn() {
+            return in.sum();
+        }
+
+        public long getOut() {
+            return out.sum();
+        }
+    }
+
+    public static final String INVALID_FORMAT = "invalid_format";
+
+    /**
+     * Room IDs are numeric, so order them by length first to keep "2" ahead of "10".
+     */
+    public static final Comparator<String> ROOM_ORDER =
+        Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder());
+
+    private final Map<String, Room> rooms = new ConcurrentHashMap<>();
+    // Messages that arrive after their connection left its room are not counted per room
+    private final Room unassigned = new Room();
+    private final LatencyHistogram[] stages = new LatencyHistogram[Stage.values().length];
+    private final LongAdder[] ruleFailures = new LongAdder[Long.SIZE];
+    private final LongAdder invalidFormat = new LongAdder();
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder connectionsClosed = new LongAdder();
+    private final LongAdder[] connectionsRefused = new LongAdder[Refusal.values().length];
+    private final LongAdder[] throttled = new LongAdder[Throttle.values().length];
+    private final LongAdder throttleDelayNanos = new LongAdder();
+    private final LongAdder roomsEvicted = new LongAdder();
+    private final LongAdder outboundDroppedFrames = new LongAdder();
+    private final LongAdder outboundDroppedBytes = new LongAdder();
+    private final LongAdder outboundCoalescedFrames = new LongAdder();
+    private final LongAdder slowConsumersClosed = new LongAdder();
+    private final LongAdder socketWrites = new LongAdder();
+    private final LongAdder socketWriteFrames = new LongAdder();
+
+    public ServerMetrics() {
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < ruleFailures.length; i++) {
+            ruleFailures[i] = new LongAdder();
+        }
+        for (int i = 0; i < connectionsRefused.length; i++) {
+            connectionsRefused[i] = new LongAdder();
+        }
+        for (int i = 0; i < throttled.length; i++) {
+            throttled[i] = new LongAdder();
+        }
+    }
+
+    public Room room(String roomId) {
+        if (roomId == null) {
+            return unassigned;
+        }
+        Room room = rooms.get(roomId);
+        return room != null ? room : rooms.computeIfAbsent(roomId, id -> new Room());
+    }
+
+    /**
+     * Drops the counters of a room evicted for being idle, so the per-room series stay bounded
+     * by the rooms in use. A room that comes back starts its counters from zero.
+     */
+    public void recordRoomEvicted(String roomId) {
+        rooms.remove(roomId);
+        roomsEvicted.increment();
+    }
+
+    public void recordStage(Stage stage, long nanos) {
+        stages[stage.ordinal()].record(nanos);
+    }
+
+    /**
+     * Counts each failed rule of a {@link MessageValidator#check} result once.
+     */
+    public void recordValidationFailures(long errors) {
+        while (errors != 0) {
+            ruleFailures[Long.numberOfTrailingZeros(errors)].increment();
+            errors &= errors - 1;
+        }
+    }
+
+    /**
+     * A message that could not be decoded at all.
+     */
+    public void recordInvalidFormat() {
+        invalidFormat.increment();
+    }
+
+    public void recordConnectionOpened() {
+        connectionsOpened.increment();
+    }
+
+    public void recordConnectionClosed() {
+        connectionsClosed.increment();
+    }
+
+    public void recordConnectionRefused(Refusal reason) {
+        connectionsRefused[reason.ordinal()].increment();
+    }
+
+    public void recordThrottled(Throttle outcome) {
+        throttled[outcome.ordinal()].increment();
+    }
+
+    /**
+     * A message held back by the rate limiter, and for how long.
+     */
+    public void recordThrottleDelay(long nanos) {
+        throttled[Throttle.DELAYED.ordinal()].increment();
+        throttleDelayNanos.add(nanos);
+    }
+
+    /**
+     * A message frame discarded because its connection's outbound queue was full.
+     */
+    public void recordOutboundDropped(int bytes) {
+        outboundDroppedFrames.increment();
+        outboundDroppedBytes.add(bytes);
+    }
+
+    /**
+     * Queued frames merged into one buffer by the coalescing slow-consumer policy.
+     */
+    public void recordOutboundCoalesced(int frames) {
+        outboundCoalescedFrames.add(frames);
+    }
+
+    public void recordSlowConsumerClosed() {
+        slowConsumersClosed.increment();
+    }
+
+    /**
+     * One write syscall on a connection's socket, carrying all or part of {@code frames} frames.
+     */
+    public void recordSocketWrite(int frames) {
+        socketWrites.increment();
+        socketWriteFrames.add(frames);
+    }
+
+    /**
+     * Rooms that have seen messages, in numeric order.
+     */
+    public Map<String, Room> getRooms() {
+        Map<String, Room> sorted = new TreeMap<>(ROOM_ORDER);
+        sorted.putAll(rooms);
+        return sorted;
+    }
+
+    public LatencyHistogram getStage(Stage stage) {
+        return stages[stage.ordinal()];
+    }
+
+    /**
+     * Failures by reason label, including {@link #INVALID_FORMAT}; reasons never seen are left out.
+     */
+    public Map<String, Long> getValidationFailures() {
+        Map<String, Long> failures = new TreeMap<>();
+        for (int bit = 0; bit < ruleFailures.length; bit++) {
+            long count = ruleFailures[bit].sum();
+            if (count > 0) {
+                failures.put(MessageValidator.reason(bit), count);
+            }
+        }
+        long malformed = invalidFormat.sum();
+        if (malformed > 0) {
+            failures.put(INVALID_FORMAT, malformed);
+        }
+        return failures;
+    }
+
+    public long getConnectionsOpened() {
+        return connectionsOpened.sum();
+    }
+
+    public long getConnectionsClosed() {
+        return connectionsClosed.sum();
+    }
+
+    public long getConnectionsRefused(Refusal reason) {
+        return connectionsRefused[reason.ordinal()].sum();
+    }
+
+    public long getThrottled(Throttle outcome) {
+        return throttled[outcome.ordinal()].sum();
+    }
+
+    public long getThrottleDelayNanos() {
+        return throttleDelayNanos.sum();
+    }
+
+    public long getRoomsEvicted() {
+        return roomsEvicted.sum();
+    }
+
+    public long getOutboundDroppedFrames() {
+        return outboundDroppedFrames.sum();
+    }
+
+    public long getOutboundDroppedBytes() {
+        return outboundDroppedBytes.sum();
+    }
+
+    public long getOutboundCoalescedFrames() {
+        return outboundCoalescedFrames.sum();
+    }
+
+    public long getSlowConsumersClosed() {
+        return slowConsumersClosed.sum();
+    }
+
+    public long getSocketWrites() {
+        return socketWrites.sum();
+    }
+
+    public long getSocketWriteFrames() {
+        return socketWriteFrames.sum();
+    }
+}
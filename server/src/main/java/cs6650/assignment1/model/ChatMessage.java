@@ -23,6 +23,10 @@ public class ChatMessage {
     @JsonProperty("messageType")
     private MessageType messageType;
     
+    // Optional client-chosen correlation id, echoed in the response
+    @JsonProperty("messageId")
+    private Long messageId;
+    
     public enum MessageType {
         TEXT, JOIN, LEAVE
     }
@@ -79,4 +83,12 @@ public class ChatMessage {
     public void setMessageType(MessageType messageType) {
         this.messageType = messageType;
     }
+    
+    public Long getMessageId() {
+        return messageId;
+    }
+    
+    public void setMessageId(Long messageId) {
+        this.messageId = messageId;
+    }
 }
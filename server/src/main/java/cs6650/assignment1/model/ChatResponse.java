@@ -1,6 +1,7 @@
 package cs6650.assignment1.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 import java.time.Instant;
 
@@ -18,6 +19,10 @@ public class ChatResponse {
     private ChatMessage.MessageType messageType;
     private String status;
     
+    // Echo of the request's messageId; left out when the request had none
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long messageId;
+    
     // Constructors
     public ChatResponse() {
     }
@@ -41,6 +46,7 @@ public class ChatResponse {
         this.serverTimestamp = Instant.now();
         this.messageType = chatMessage.getMessageType();
         this.status = status;
+        this.messageId = chatMessage.getMessageId();
     }
     
     // Getters and Setters
@@ -99,4 +105,12 @@ public class ChatResponse {
     public void setStatus(String status) {
         this.status = status;
     }
+    
+    public Long getMessageId() {
+        return messageId;
+    }
+    
+    public void setMessageId(Long messageId) {
+        this.messageId = messageId;
+    }
 }
@@ -1,6 +1,7 @@
 package cs6650.assignment1.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 import java.time.Instant;
 import java.util.List;
@@ -13,6 +14,10 @@ public class ErrorResponse {
     
     private List<String> errors;
     
+    // Echo of the request's messageId, when it could be read
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long messageId;
+    
     // Constructors
     public ErrorResponse() {
     }
@@ -24,9 +29,14 @@ public class ErrorResponse {
     }
     
     public ErrorResponse(List<String> errors) {
+        this(errors, null);
+    }
+    
+    public ErrorResponse(List<String> errors, Long messageId) {
         this.status = "error";
         this.timestamp = Instant.now();
         this.errors = errors;
+        this.messageId = messageId;
     }
     
     // Getters and Setters
@@ -53,4 +63,12 @@ public class ErrorResponse {
     public void setErrors(List<String> errors) {
         this.errors = errors;
     }
+    
+    public Long getMessageId() {
+        return messageId;
+    }
+    
+    public void setMessageId(Long messageId) {
+        this.messageId = messageId;
+    }
 }
@@ -0,0 +1,100 @@
+package cs6650.assignment1.outbound;
+
+import cs6650.assignment1.metrics.ServerMetrics;
+import org.java_websocket.WebSocketImpl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A connection's socket as the library sees it, writing the queued frames behind the one it is
+ * asked to write in the same syscall.
+ *
+ * The selector thread writes a connection by handing the head of its outbound queue to
+ * {@link #write}, polling it once it is fully written and moving on to the next. Here the head and
+ * the unwritten frames behind it go to the kernel in one gathering write; the frames that made it
+ * out are then polled without touching the socket again, since writing an empty buffer is free.
+ * Only the selector thread writes, so the batch array is reused.
+ */
+public class GatheringChannel implements ByteChannel {
+
+    private final SocketChannel channel;
+    private final WebSocketImpl conn;
+    private final ByteBuffer[] batch;
+    private final ServerMetrics metrics;
+
+    public GatheringChannel(SocketChannel channel, WebSocketImpl conn, int maxFrames, ServerMetrics metrics) {
+        this.channel = channel;
+        this.conn = conn;
+        this.batch = new ByteBuffer[Math.max(1, maxFrames)];
+        this.metrics = metrics;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        return channel.read(dst);
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        if (!src.hasRemaining()) {
+            return 0;
+        }
+        BlockingQueue<ByteBuffer> queue = conn.outQueue;
+        if (batch.length > 1 && queue instanceof OutboundQueue) {
+            // Under the queue's lock, so none of these frames is dropped or merged mid-write
+            return ((OutboundQueue) queue).gatherWrite(this, src);
+        }
+        return batch.length > 1 ? gather(queue, src) : writeOne(src);
+    }
+
+    /**
+     * Writes {@code head} and the frames after it that still have bytes to send; falls back to
+     * writing {@code head} alone if it is not at the front of the queue.
+     */
+    int gather(Iterable<ByteBuffer> queue, ByteBuffer head) throws IOException {
+        int frames = 0;
+        for (ByteBuffer frame : queue) {
+            if (frames == 0 && frame != head) {
+                break;
+            }
+            if (frames == batch.length) {
+                break;
+            }
+            if (frame.hasRemaining()) {
+                batch[frames++] = frame;
+            }
+        }
+        if (frames <= 1) {
+            batch[0] = null;
+            return writeOne(head);
+        }
+        try {
+            long written = channel.write(batch, 0, frames);
+            metrics.recordSocketWrite(frames);
+            return (int) Math.min(written, Integer.MAX_VALUE);
+        } finally {
+            Arrays.fill(batch, 0, frames, null);
+        }
+    }
+
+    private int writeOne(ByteBuffer src) throws IOException {
+        int written = channel.write(src);
+        metrics.recordSocketWrite(1);
+        return written;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
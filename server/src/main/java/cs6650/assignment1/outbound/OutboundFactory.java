@@ -0,0 +1,91 @@
+package cs6650.assignment1.outbound;
+
+import cs6650.assignment1.buffer.BufferPool;
+import cs6650.assignment1.metrics.ServerMetrics;
+import org.java_websocket.WebSocketAdapter;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.WebSocketServerFactory;
+import org.java_websocket.drafts.Draft;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+
+/**
+ * Creates connections with an {@link OutboundQueue} in place of the library's unbounded one when
+ * the {@link OutboundPolicy} is bounded or frames are pooled (the queue releases them), writing
+ * through a {@link GatheringChannel}.
+ *
+ * {@code WebSocketImpl.outQueue} is a final field filled in by the constructor with no hook to
+ * supply another queue, so it is replaced reflectively right after construction, before the
+ * connection is registered with the selector or anything is queued. If the JVM refuses, a
+ * warning is logged once and connections keep unbounded queues, and frames stay on the heap.
+ */
+public class OutboundFactory implements WebSocketServerFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboundFactory.class);
+
+    private static final Field OUT_QUEUE = outQueueField();
+
+    private final OutboundPolicy policy;
+    private final int gatherFrames;
+    private final BufferPool bufferPool;
+    private final ServerMetrics metrics;
+
+    public OutboundFactory(OutboundPolicy policy, WritePolicy writePolicy, BufferPool bufferPool,
+                           ServerMetrics metrics) {
+        this.policy = policy;
+        this.gatherFrames = writePolicy.getGatherFrames();
+        this.bufferPool = bufferPool;
+        this.metrics = metrics;
+    }
+
+    private static Field outQueueField() {
+        try {
+            Field field = WebSocketImpl.class.getField("outQueue");
+            field.setAccessible(true);
+            return field;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.warn("Cannot bound outbound queues, connections keep unbounded queues: {}", e.toString());
+            return null;
+        }
+    }
+
+    @Override
+    public WebSocketImpl createWebSocket(WebSocketAdapter adapter, Draft draft) {
+        return install(new WebSocketImpl(adapter, draft));
+    }
+
+    @Override
+    public WebSocketImpl createWebSocket(WebSocketAdapter adapter, List<Draft> drafts) {
+        return install(new WebSocketImpl(adapter, drafts));
+    }
+
+    private WebSocketImpl install(WebSocketImpl conn) {
+        if (OUT_QUEUE != null && (policy.isBounded() || bufferPool.isEnabled())) {
+            try {
+                OUT_QUEUE.set(conn, new OutboundQueue(policy, bufferPool, metrics));
+            } catch (IllegalAccessException e) {
+                // Unreachable once setAccessible succeeded
+                throw new IllegalStateException(e);
+            }
+        }
+        return conn;
+    }
+
+    /**
+     * The selector registers the connection as the key's attachment before wrapping its channel.
+     */
+    @Override
+    public ByteChannel wrapChannel(SocketChannel channel, SelectionKey key) {
+        return new GatheringChannel(channel, (WebSocketImpl) key.attachment(), gatherFrames, metrics);
+    }
+
+    @Override
+    public void close() {
+    }
+}
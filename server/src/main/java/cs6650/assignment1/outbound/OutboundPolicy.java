@@ -0,0 +1,84 @@
+package cs6650.assignment1.outbound;
+
+/**
+ * How much a connection may have waiting to be written, and what happens to a consumer that
+ * falls further behind. A limit of 0 is off; with both off the library's unbounded queue is kept.
+ *
+ * Only complete text and binary frames count towards dropping and coalescing. Control frames
+ * (ping, pong, close) and the handshake response are always queued, so a slow consumer can
+ * still be closed cleanly.
+ */
+public class OutboundPolicy {
+
+    public enum SlowConsumerAction {
+        /** Discard the oldest queued messages that have not started writing to make room. */
+        DROP_OLDEST,
+        /** Discard the message that would go over the limit. */
+        DROP_NEW,
+        /**
+         * Merge the queued messages into one buffer, which lifts the frame limit without losing
+         * anything; messages over the byte limit are still dropped.
+         */
+        COALESCE,
+        /** Close the connection with 1008 (policy violation) and discard what it has queued. */
+        DISCONNECT
+    }
+
+    private final int maxBytes;
+    private final int maxFrames;
+    private final SlowConsumerAction action;
+
+    public OutboundPolicy(int maxBytes, int maxFrames, SlowConsumerAction action) {
+        this.maxBytes = Math.max(0, maxBytes);
+        this.maxFrames = Math.max(0, maxFrames);
+        this.action = action;
+    }
+
+    public static OutboundPolicy defaults() {
+        return new OutboundPolicy(1 << 20, 4096, SlowConsumerAction.DROP_OLDEST);
+    }
+
+    /**
+     * Defaults overridden by -Dchatflow.outbound.* system properties.
+     */
+    public static OutboundPolicy fromSystemProperties() {
+        OutboundPolicy d = defaults();
+        String action = System.getProperty("chatflow.outbound.policy");
+        return new OutboundPolicy(
+            Integer.getInteger("chatflow.outbound.max.bytes", d.maxBytes),
+            Integer.getInteger("chatflow.outbound.max.frames", d.maxFrames),
+            action == null || action.isBlank() ? d.action : SlowConsumerAction.valueOf(action.trim().toUpperCase())
+        );
+    }
+
+    public boolean isBounded() {
+        return maxBytes > 0 || maxFrames > 0;
+    }
+
+    /**
+     * 0 when queued bytes are not limited.
+     */
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * 0 when queued frames are not limited.
+     */
+    public int getMaxFrames() {
+        return maxFrames;
+    }
+
+    public SlowConsumerAction getAction() {
+        return action;
+    }
+
+    @Override
+    public String toString() {
+        if (!isBounded()) {
+            return "unbounded";
+        }
+        return "max " + (maxBytes == 0 ? "unlimited" : maxBytes) + " bytes / "
+            + (maxFrames == 0 ? "unlimited" : maxFrames) + " frames per connection, then " + action;
+    }
+}
@@ -0,0 +1,282 @@
+package cs6650.assignment1.outbound;
+
+import cs6650.assignment1.buffer.BufferPool;
+import cs6650.assignment1.metrics.ServerMetrics;
+import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketImpl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A connection's outbound frame queue with byte and frame limits, installed in place of the
+ * library's unbounded {@code WebSocketImpl.outQueue} by {@link OutboundFactory}.
+ *
+ * Every frame sent to the connection, by the library or by a broadcast, passes through
+ * {@link #offer}, which applies the {@link OutboundPolicy.SlowConsumerAction} once a limit is
+ * reached. The selector thread writes the head frame between {@link #peek} and {@link #poll},
+ * and a {@link GatheringChannel} the frames behind it too; a frame that has started going out may
+ * be half on the wire, so it is never dropped or merged. Queued bytes are kept as a counter, so
+ * the buffered amount is known without walking the queue.
+ *
+ * Frames encoded into {@link BufferPool} buffers are released here, once polled after being
+ * written or when dropped, merged or cleared; whoever polls must not use the frame it gets.
+ *
+ * Closing a connection from inside {@code offer} could deadlock on the library's locks, so a
+ * {@link OutboundPolicy.SlowConsumerAction#DISCONNECT} is only requested there and carried out
+ * by {@link #disconnectIfSlow} once the sender is back in our own code.
+ */
+public class OutboundQueue extends LinkedBlockingQueue<ByteBuffer> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int maxBytes;
+    private final int maxFrames;
+    private final OutboundPolicy.SlowConsumerAction action;
+    private final ServerMetrics metrics;
+    private final BufferPool bufferPool;
+    private final Object lock = new Object();
+    // Guarded by lock: the head the selector is writing, from peek until poll
+    private ByteBuffer writing;
+    // Written under lock, read by scrapes
+    private volatile int bytes;
+    // Over a limit since the queue was last empty
+    private volatile boolean throttled;
+    private volatile boolean disconnectRequested;
+    // Guarded by lock: set once the connection is gone, after which frames are released on arrival
+    private boolean closed;
+    private final AtomicBoolean disconnected = new AtomicBoolean();
+
+    public OutboundQueue(OutboundPolicy policy, BufferPool bufferPool, ServerMetrics metrics) {
+        this.maxBytes = policy.getMaxBytes();
+        this.maxFrames = policy.getMaxFrames();
+        this.action = policy.getAction();
+        this.metrics = metrics;
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * The bounded queue of a connection, or null if it has the library's own.
+     */
+    public static OutboundQueue of(WebSocket conn) {
+        return conn instanceof WebSocketImpl && ((WebSocketImpl) conn).outQueue instanceof OutboundQueue
+            ? (OutboundQueue) ((WebSocketImpl) conn).outQueue : null;
+    }
+
+    /**
+     * Closes the connection with 1008 if its queue overflowed under
+     * {@link OutboundPolicy.SlowConsumerAction#DISCONNECT}. Call after sending to it, outside
+     * any library callback that holds the connection's locks.
+     */
+    public static void disconnectIfSlow(WebSocket conn) {
+        OutboundQueue queue = of(conn);
+        if (queue != null && queue.disconnectRequested && queue.disconnected.compareAndSet(false, true)) {
+            queue.metrics.recordSlowConsumerClosed();
+            conn.closeConnection(1008, "Slow consumer");
+        }
+    }
+
+    @Override
+    public boolean offer(ByteBuffer frame) {
+        synchronized (lock) {
+            int size = frame.limit();
+            if (closed) {
+                bufferPool.release(frame);
+            } else if (!isMessage(frame)) {
+                enqueue(frame, size);
+            } else if (disconnectRequested) {
+                drop(frame);
+            } else if (fits(size)) {
+                enqueue(frame, size);
+            } else {
+                throttled = true;
+                overflow(frame, size);
+            }
+            return true;
+        }
+    }
+
+    private void overflow(ByteBuffer frame, int size) {
+        switch (action) {
+            case DROP_OLDEST:
+                Iterator<ByteBuffer> it = iterator();
+                while (!fits(size) && it.hasNext()) {
+                    ByteBuffer queued = it.next();
+                    if (unsent(queued) && isMessage(queued)) {
+                        it.remove();
+                        bytes -= queued.limit();
+                        drop(queued);
+                    }
+                }
+                if (fits(size)) {
+                    enqueue(frame, size);
+                } else {
+                    drop(frame);
+                }
+                break;
+            case COALESCE:
+                if (maxBytes > 0 && bytes + size > maxBytes) {
+                    drop(frame);
+                } else {
+                    coalesce(frame, size);
+                }
+                break;
+            case DISCONNECT:
+                disconnectRequested = true;
+                Iterator<ByteBuffer> pending = iterator();
+                while (pending.hasNext()) {
+                    ByteBuffer queued = pending.next();
+                    if (unsent(queued) && isMessage(queued)) {
+                        pending.remove();
+                        bytes -= queued.limit();
+                        drop(queued);
+                    }
+                }
+                drop(frame);
+                break;
+            default: // DROP_NEW
+                drop(frame);
+        }
+    }
+
+    /**
+     * Replaces everything queued behind the frame being written, and the new frame, with one
+     * buffer holding the same bytes in the same order; back-to-back frames are a valid stream.
+     */
+    private void coalesce(ByteBuffer frame, int size) {
+        int total = size;
+        int frames = 1;
+        for (ByteBuffer queued : this) {
+            if (unsent(queued)) {
+                total += queued.remaining();
+                frames++;
+            }
+        }
+        ByteBuffer merged = ByteBuffer.allocate(total);
+        Iterator<ByteBuffer> it = iterator();
+        while (it.hasNext()) {
+            ByteBuffer queued = it.next();
+            if (unsent(queued)) {
+                it.remove();
+                bytes -= queued.limit();
+                merged.put(queued);
+                bufferPool.release(queued);
+            }
+        }
+        merged.put(frame.duplicate()).flip();
+        bufferPool.release(frame);
+        enqueue(merged, total);
+        metrics.recordOutboundCoalesced(frames);
+    }
+
+    /**
+     * Not yet handed to the socket, so it can still be dropped or merged.
+     */
+    private boolean unsent(ByteBuffer queued) {
+        return queued != writing && queued.position() == 0;
+    }
+
+    private boolean fits(int size) {
+        return (maxFrames == 0 || size() < maxFrames) && (maxBytes == 0 || bytes + size <= maxBytes);
+    }
+
+    private void enqueue(ByteBuffer frame, int size) {
+        super.offer(frame);
+        bytes += size;
+    }
+
+    private void drop(ByteBuffer frame) {
+        metrics.recordOutboundDropped(frame.limit());
+        bufferPool.release(frame);
+    }
+
+    /**
+     * A complete text or binary frame; everything else (control frames, continuation frames and
+     * the handshake response) must reach the wire.
+     */
+    private static boolean isMessage(ByteBuffer frame) {
+        if (!frame.hasRemaining()) {
+            return false;
+        }
+        int header = frame.get(frame.position());
+        int opcode = header & 0x0F;
+        return (header & 0x80) != 0 && (opcode == 0x1 || opcode == 0x2);
+    }
+
+    @Override
+    public ByteBuffer peek() {
+        synchronized (lock) {
+            writing = super.peek();
+            return writing;
+        }
+    }
+
+    @Override
+    public ByteBuffer poll() {
+        synchronized (lock) {
+            ByteBuffer head = super.poll();
+            if (head != null) {
+                bytes -= head.limit();
+                if (head == writing) {
+                    writing = null;
+                }
+                if (isEmpty()) {
+                    throttled = false;
+                }
+                bufferPool.release(head);
+            }
+            return head;
+        }
+    }
+
+    /**
+     * Writes {@code head} and the frames behind it in one gathering write, holding the lock so the
+     * positions the write advances are seen by {@link #offer}.
+     */
+    int gatherWrite(GatheringChannel channel, ByteBuffer head) throws IOException {
+        synchronized (lock) {
+            return channel.gather(this, head);
+        }
+    }
+
+    /**
+     * Releases everything queued once the connection has closed, and any frame sent after.
+     * A frame being written outside the lock (gathering off) is released too: its channel is
+     * closed by then, so whatever the write sends no longer matters.
+     */
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            clear();
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (lock) {
+            for (ByteBuffer queued : this) {
+                bufferPool.release(queued);
+            }
+            super.clear();
+            bytes = 0;
+            writing = null;
+        }
+    }
+
+    /**
+     * Bytes waiting to be written, counting the frame being written in full.
+     */
+    public int getBufferedBytes() {
+        return bytes;
+    }
+
+    /**
+     * Whether the connection hit a limit and has not caught up since.
+     */
+    public boolean isThrottled() {
+        return throttled;
+    }
+}
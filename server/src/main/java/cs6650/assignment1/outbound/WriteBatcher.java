@@ -0,0 +1,228 @@
+package cs6650.assignment1.outbound;
+
+import cs6650.assignment1.buffer.BufferPool;
+import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.enums.Opcode;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.java_websocket.extensions.DefaultExtension;
+import org.java_websocket.framing.BinaryFrame;
+import org.java_websocket.framing.DataFrame;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.framing.TextFrame;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Queues response frames and tells the selector when a connection has something to write.
+ *
+ * The library asks for a write as soon as each frame is queued: it sets the connection's write
+ * interest and wakes the selector, which then writes whatever is queued by that time. With a
+ * batch window, frames are queued right away but the request is held back: the first frame
+ * for an idle connection marks it pending and wakes the flusher thread, which sleeps out the
+ * window and then requests one write per pending connection. Everything sent to it meanwhile
+ * goes out in the same write, gathered by {@link GatheringChannel}.
+ *
+ * Frames are encoded with the connection's negotiated extension, exactly as
+ * {@code WebSocket.sendFrame} would. When the connection's {@link OutboundQueue} can release
+ * them, they are encoded into {@link BufferPool} buffers, and a payload given as bytes on a
+ * connection without extensions is copied straight into one with no frame object in between.
+ * Frames too large for a pooled buffer go on the heap. Only frames sent here are batched;
+ * control frames and anything the library sends itself are still written straight away.
+ */
+public class WriteBatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBatcher.class);
+
+    private static final int FIN = 0x80;
+
+    private final long windowNanos;
+    private final BufferPool bufferPool;
+    private final Set<WebSocketImpl> pending = ConcurrentHashMap.newKeySet();
+    // Null when the window is 0
+    private final Thread flusher;
+    private volatile boolean idle;
+    private volatile boolean running = true;
+
+    public WriteBatcher(WritePolicy policy, BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(policy.getWindowMicros());
+        if (windowNanos == 0) {
+            this.flusher = null;
+        } else {
+            this.flusher = new Thread(this::flushLoop, "WriteFlusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+    }
+
+    /**
+     * Sends a complete binary message.
+     */
+    public void send(WebSocket conn, ByteBuffer binary) {
+        send(conn, dataFrame(Opcode.BINARY, binary));
+    }
+
+    /**
+     * Sends a complete text or binary message from a byte range, which is copied before this returns.
+     */
+    public void send(WebSocket conn, Opcode opcode, byte[] payload, int offset, int length) {
+        if (pools(conn) && ((Draft_6455) conn.getDraft()).getExtension().getClass() == DefaultExtension.class
+            && headerLength(length) + length <= bufferPool.getBufferSize()) {
+            checkOpen(conn);
+            ByteBuffer wire = bufferPool.acquire();
+            putHeader(wire, FIN | opcode(opcode), length);
+            wire.put(payload, offset, length).flip();
+            enqueue((WebSocketImpl) conn, wire);
+            return;
+        }
+        send(conn, dataFrame(opcode, ByteBuffer.wrap(payload, offset, length)));
+    }
+
+    public void send(WebSocket conn, Framedata frame) {
+        boolean pooled = pools(conn);
+        if (!pooled && (flusher == null || !(conn instanceof WebSocketImpl)
+                        || !(conn.getDraft() instanceof Draft_6455))) {
+            conn.sendFrame(frame);
+            return;
+        }
+        checkOpen(conn);
+        WebSocketImpl impl = (WebSocketImpl) conn;
+        Draft_6455 draft = (Draft_6455) impl.getDraft();
+        ByteBuffer wire;
+        if (pooled) {
+            draft.getExtension().encodeFrame(frame);
+            wire = encode(frame);
+        } else {
+            wire = draft.createBinaryFrame(frame);
+        }
+        enqueue(impl, wire);
+    }
+
+    /**
+     * Whether frames for the connection can go in pooled buffers: its queue releases them.
+     */
+    private boolean pools(WebSocket conn) {
+        return bufferPool.isEnabled() && OutboundQueue.of(conn) != null && conn.getDraft() instanceof Draft_6455;
+    }
+
+    private static void checkOpen(WebSocket conn) {
+        if (!conn.isOpen()) {
+            throw new WebsocketNotConnectedException();
+        }
+    }
+
+    /**
+     * The server's unmasked wire encoding of a frame whose extension has been applied.
+     */
+    private ByteBuffer encode(Framedata frame) {
+        ByteBuffer payload = frame.getPayloadData();
+        int length = payload.remaining();
+        int total = headerLength(length) + length;
+        ByteBuffer wire = total <= bufferPool.getBufferSize() ? bufferPool.acquire() : ByteBuffer.allocate(total);
+        int first = (frame.isFin() ? FIN : 0) | (frame.isRSV1() ? 0x40 : 0) | (frame.isRSV2() ? 0x20 : 0)
+            | (frame.isRSV3() ? 0x10 : 0) | opcode(frame.getOpcode());
+        putHeader(wire, first, length);
+        wire.put(wire.position(), payload, payload.position(), length);
+        wire.position(total).flip();
+        return wire;
+    }
+
+    private static int headerLength(int payloadLength) {
+        return payloadLength < 126 ? 2 : payloadLength <= 0xFFFF ? 4 : 10;
+    }
+
+    private static void putHeader(ByteBuffer wire, int first, int payloadLength) {
+        wire.put((byte) first);
+        if (payloadLength < 126) {
+            wire.put((byte) payloadLength);
+        } else if (payloadLength <= 0xFFFF) {
+            wire.put((byte) 126).putShort((short) payloadLength);
+        } else {
+            wire.put((byte) 127).putLong(payloadLength);
+        }
+    }
+
+    private static int opcode(Opcode opcode) {
+        switch (opcode) {
+            case CONTINUOUS:
+                return 0x0;
+            case TEXT:
+                return 0x1;
+            case BINARY:
+                return 0x2;
+            case CLOSING:
+                return 0x8;
+            case PING:
+                return 0x9;
+            default: // PONG
+                return 0xA;
+        }
+    }
+
+    private static DataFrame dataFrame(Opcode opcode, ByteBuffer payload) {
+        DataFrame frame = opcode == Opcode.BINARY ? new BinaryFrame() : new TextFrame();
+        frame.setPayload(payload);
+        frame.setFin(true);
+        return frame;
+    }
+
+    /**
+     * Queues an already encoded wire frame, e.g. a view of a frame shared by a broadcast.
+     */
+    public void enqueue(WebSocketImpl conn, ByteBuffer wireFrame) {
+        conn.outQueue.add(wireFrame);
+        requestWrite(conn);
+    }
+
+    private void requestWrite(WebSocketImpl conn) {
+        if (flusher == null) {
+            conn.getWebSocketListener().onWriteDemand(conn);
+        } else if (pending.add(conn) && idle) {
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    private void flushLoop() {
+        while (running) {
+            idle = true;
+            // Re-check after publishing idle, or a connection added in between would wait for the next one
+            while (running && pending.isEmpty()) {
+                LockSupport.park(this);
+            }
+            idle = false;
+            LockSupport.parkNanos(this, windowNanos);
+            flush();
+        }
+        flush();
+    }
+
+    private void flush() {
+        Iterator<WebSocketImpl> it = pending.iterator();
+        while (it.hasNext()) {
+            WebSocketImpl conn = it.next();
+            // Removed first: a frame queued after this still marks the connection again
+            it.remove();
+            try {
+                conn.getWebSocketListener().onWriteDemand(conn);
+            } catch (Exception e) {
+                logger.debug("Write request for {} failed: {}", conn.getRemoteSocketAddress(), e.getMessage());
+            }
+        }
+    }
+
+    public void shutdown() {
+        running = false;
+        if (flusher != null) {
+            LockSupport.unpark(flusher);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package cs6650.assignment1.outbound;
+
+/**
+ * How queued frames reach the socket.
+ *
+ * With a gather limit above 1, each write on the selector thread hands the kernel the head frame
+ * and up to that many frames queued behind it in one gathering write, so a connection with a
+ * backlog costs one syscall instead of one per frame. A batch window above 0 holds back the
+ * selector's write wakeup for that long after a frame is queued, so frames sent in the meantime
+ * go out together; it trades up to the window in latency for fewer, larger writes.
+ */
+public class WritePolicy {
+
+    private final int gatherFrames;
+    private final int windowMicros;
+
+    public WritePolicy(int gatherFrames, int windowMicros) {
+        this.gatherFrames = Math.max(1, gatherFrames);
+        this.windowMicros = Math.max(0, windowMicros);
+    }
+
+    public static WritePolicy defaults() {
+        return new WritePolicy(64, 0);
+    }
+
+    /**
+     * Defaults overridden by -Dchatflow.write.* system properties.
+     */
+    public static WritePolicy fromSystemProperties() {
+        WritePolicy d = defaults();
+        return new WritePolicy(
+            Integer.getInteger("chatflow.write.gather.frames", d.gatherFrames),
+            Integer.getInteger("chatflow.write.window.us", d.windowMicros)
+        );
+    }
+
+    /**
+     * Most frames handed to one socket write; 1 writes frame by frame.
+     */
+    public int getGatherFrames() {
+        return gatherFrames;
+    }
+
+    /**
+     * 0 when writes are requested as soon as a frame is queued.
+     */
+    public int getWindowMicros() {
+        return windowMicros;
+    }
+
+    @Override
+    public String toString() {
+        return (gatherFrames == 1 ? "one frame" : "up to " + gatherFrames + " frames") + " per write, "
+            + (windowMicros == 0 ? "flushed immediately" : "batched for " + windowMicros + " us");
+    }
+}
@@ -0,0 +1,60 @@
+package cs6650.assignment1.processing;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for sizing the processing stage: throughput, rejections, queue wait and service time.
+ */
+public class ProcessingMetrics {
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalQueueNanos = new LongAdder();
+    private final LongAdder totalServiceNanos = new LongAdder();
+    private final AtomicLong maxServiceNanos = new AtomicLong();
+
+    void recordSubmitted() {
+        submitted.increment();
+    }
+
+    void recordRejected() {
+        rejected.increment();
+    }
+
+    void recordCompleted(long queueNanos, long serviceNanos) {
+        completed.increment();
+        totalQueueNanos.add(queueNanos);
+        totalServiceNanos.add(serviceNanos);
+        if (serviceNanos > maxServiceNanos.get()) {
+            maxServiceNanos.accumulateAndGet(serviceNanos, Math::max);
+        }
+    }
+
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public double getMeanQueueMicros() {
+        long count = completed.sum();
+        return count == 0 ? 0.0 : totalQueueNanos.sum() / 1000.0 / count;
+    }
+
+    public double getMeanServiceMicros() {
+        long count = completed.sum();
+        return count == 0 ? 0.0 : totalServiceNanos.sum() / 1000.0 / count;
+    }
+
+    public double getMaxServiceMicros() {
+        return maxServiceNanos.get() / 1000.0;
+    }
+}
@@ -0,0 +1,275 @@
+package cs6650.assignment1.processing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Moves message handling off the WebSocket threads onto a fixed set of worker lanes.
+ *
+ * Each lane is one thread draining its own bounded queue. Work is sharded by key, so all tasks
+ * with the same key run on the same lane in submission order. Chat messages are keyed by room:
+ * one lane is the single writer for everything a room does, and different rooms run in parallel.
+ * When a lane's queue is full the overflow policy decides whether the caller is rejected
+ * or blocked until space frees up.
+ *
+ * Tasks may own resources such as pooled payload buffers that only they release, so none is
+ * dropped: on shutdown each lane finishes its current task and whatever is still queued runs on
+ * the thread calling {@link #shutdown}, and later submissions are rejected.
+ */
+public class ProcessingStage {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessingStage.class);
+
+    private static final long SHUTDOWN_JOIN_MILLIS = 1000;
+
+    public enum Mode {
+        INLINE, POOL, VIRTUAL
+    }
+
+    public enum OverflowPolicy {
+        REJECT, BLOCK
+    }
+
+    private final Mode mode;
+    private final OverflowPolicy overflowPolicy;
+    private final Lane[] lanes;
+    private final int queueCapacity;
+    private final ProcessingMetrics metrics = new ProcessingMetrics();
+    private volatile boolean stopped;
+
+    public ProcessingStage(Mode mode, int workers, int queueCapacity, OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+
+        ThreadFactory threadFactory = null;
+        if (mode == Mode.VIRTUAL) {
+            threadFactory = virtualThreadFactory();
+            if (threadFactory == null) {
+                logger.warn("Virtual threads require JDK 21+, falling back to platform worker threads");
+                mode = Mode.POOL;
+                workers = Math.min(workers, Runtime.getRuntime().availableProcessors());
+            }
+        }
+        if (mode == Mode.POOL) {
+            threadFactory = platformThreadFactory();
+        }
+        this.mode = mode;
+
+        if (mode == Mode.INLINE) {
+            this.lanes = new Lane[0];
+            this.queueCapacity = 0;
+        } else {
+            this.queueCapacity = queueCapacity;
+            this.lanes = new Lane[Math.max(1, workers)];
+            for (int i = 0; i < lanes.length; i++) {
+                lanes[i] = new Lane(queueCapacity);
+                lanes[i].thread = threadFactory.newThread(lanes[i]);
+                lanes[i].thread.start();
+            }
+        }
+
+        logger.info("Processing stage: mode={}, lanes={}, queueCapacity={}, overflow={}",
+                    this.mode, lanes.length, queueCapacity, overflowPolicy);
+    }
+
+    /**
+     * Queues a task on the lane owning the given key.
+     *
+     * @return false if the task was rejected because the lane is full
+     */
+    public boolean submit(Object shardKey, Runnable task) {
+        return submit(System.identityHashCode(shardKey), task);
+    }
+
+    /**
+     * Queues a task on the lane owning the given shard. Small dense keys such as room numbers
+     * are spread round-robin, so the busiest low-numbered rooms of a skewed load land on
+     * different lanes.
+     *
+     * @return false if the task was rejected because the lane is full
+     */
+    public boolean submit(int shard, Runnable task) {
+        return submit(shard, task, overflowPolicy == OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * Like {@link #submit(int, Runnable)}, but rejects the task when the lane is full even under
+     * {@link OverflowPolicy#BLOCK}, for callers such as a timer thread that must never stall.
+     *
+     * @return false if the task was rejected because the lane is full
+     */
+    public boolean trySubmit(int shard, Runnable task) {
+        return submit(shard, task, false);
+    }
+
+    private boolean submit(int shard, Runnable task, boolean block) {
+        metrics.recordSubmitted();
+
+        if (lanes.length == 0) {
+            long start = System.nanoTime();
+            runSafely(task);
+            metrics.recordCompleted(0, System.nanoTime() - start);
+            return true;
+        }
+
+        if (stopped) {
+            metrics.recordRejected();
+            return false;
+        }
+        Lane lane = lanes[Math.floorMod(shard, lanes.length)];
+        QueuedTask queued = new QueuedTask(task, System.nanoTime());
+
+        if (block) {
+            try {
+                lane.queue.put(queued);
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                metrics.recordRejected();
+                return false;
+            }
+        }
+
+        if (!lane.queue.offer(queued)) {
+            metrics.recordRejected();
+            return false;
+        }
+        return true;
+    }
+
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Lane lane : lanes) {
+            depth += lane.queue.size();
+        }
+        return depth;
+    }
+
+    public int getMaxLaneDepth() {
+        int max = 0;
+        for (Lane lane : lanes) {
+            max = Math.max(max, lane.queue.size());
+        }
+        return max;
+    }
+
+    /**
+     * Capacity of each lane's queue; 0 in inline mode.
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public ProcessingMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void shutdown() {
+        stopped = true;
+        for (Lane lane : lanes) {
+            lane.running = false;
+            lane.thread.interrupt();
+        }
+        int drained = 0;
+        for (Lane lane : lanes) {
+            try {
+                lane.thread.join(SHUTDOWN_JOIN_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (lane.thread.isAlive()) {
+                // Running its queue here too would break the lane's ordering
+                logger.warn("{} still busy after {} ms, {} queued task(s) left to it",
+                            lane.thread.getName(), SHUTDOWN_JOIN_MILLIS, lane.queue.size());
+                continue;
+            }
+            QueuedTask queued;
+            while ((queued = lane.queue.poll()) != null) {
+                runSafely(queued.task);
+                drained++;
+            }
+        }
+        if (drained > 0) {
+            logger.info("Processing stage: ran {} task(s) still queued at shutdown", drained);
+        }
+    }
+
+    private void runSafely(Runnable task) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            logger.error("Unhandled error in processing task", e);
+        }
+    }
+
+    private static ThreadFactory platformThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, "MessageWorker-" + counter.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * Thread.ofVirtual() looked up reflectively so the server still builds and runs on JDK 17.
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class)
+                .invoke(builder, "MessageWorker-v", 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static class QueuedTask {
+        final Runnable task;
+        final long enqueuedAt;
+
+        QueuedTask(Runnable task, long enqueuedAt) {
+            this.task = task;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private class Lane implements Runnable {
+        final BlockingQueue<QueuedTask> queue;
+        volatile boolean running = true;
+        Thread thread;
+
+        Lane(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                QueuedTask queued;
+                try {
+                    queued = queue.take();
+                } catch (InterruptedException e) {
+                    break;
+                }
+                long start = System.nanoTime();
+                runSafely(queued.task);
+                metrics.recordCompleted(start - queued.enqueuedAt, System.nanoTime() - start);
+            }
+        }
+    }
+}
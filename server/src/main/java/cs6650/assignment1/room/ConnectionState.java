@@ -0,0 +1,111 @@
+package cs6650.assignment1.room;
+
+import cs6650.assignment1.admission.TokenBucket;
+import cs6650.assignment1.codec.WireFormat;
+import cs6650.assignment1.metrics.ServerMetrics;
+import org.java_websocket.WebSocket;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Everything the message path needs about an admitted connection, attached to the connection
+ * itself so it is found with a field read instead of a map lookup.
+ */
+public final class ConnectionState {
+
+    private final WebSocket conn;
+    private final RoomRegistry.Room room;
+    private final WireFormat wireFormat;
+    private final TokenBucket rateLimiter;
+    private final ServerMetrics.Room metrics;
+    // Assigned by the registry on join, -1 once the connection has left
+    volatile int slot = -1;
+    // Messages held back by the rate limiter, oldest first, and how many are not dispatched yet
+    private final Queue<Runnable> delayed = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger delayedPending = new AtomicInteger();
+
+    /**
+     * @param rateLimiter null when messages are not rate limited
+     */
+    public ConnectionState(WebSocket conn, RoomRegistry.Room room, WireFormat wireFormat, TokenBucket rateLimiter,
+                           ServerMetrics.Room metrics) {
+        this.conn = conn;
+        this.room = room;
+        this.wireFormat = wireFormat;
+        this.rateLimiter = rateLimiter;
+        this.metrics = metrics;
+    }
+
+    /**
+     * State of an admitted connection, or null before admission and for refused connections.
+     */
+    public static ConnectionState of(WebSocket conn) {
+        Object attachment = conn.getAttachment();
+        return attachment instanceof ConnectionState ? (ConnectionState) attachment : null;
+    }
+
+    public WebSocket getConnection() {
+        return conn;
+    }
+
+    public RoomRegistry.Room getRoom() {
+        return room;
+    }
+
+    public String getRoomId() {
+        return room.getName();
+    }
+
+    public WireFormat getWireFormat() {
+        return wireFormat;
+    }
+
+    public TokenBucket getRateLimiter() {
+        return rateLimiter;
+    }
+
+    public ServerMetrics.Room getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Whether messages held back by the rate limiter are still to be dispatched. Messages arriving
+     * meanwhile are held back behind them, even if a token is free, so they cannot overtake.
+     */
+    public boolean hasDelayed() {
+        return delayedPending.get() > 0;
+    }
+
+    /**
+     * Holds back a message's dispatch; each call must be followed by one {@link #dispatchDelayed}.
+     */
+    public void holdBack(Runnable dispatch) {
+        delayedPending.incrementAndGet();
+        delayed.add(dispatch);
+    }
+
+    /**
+     * Dispatches the oldest held-back message, whichever message's delay is over, so they leave
+     * in arrival order. Only called from the single delay thread.
+     */
+    public void dispatchDelayed() {
+        try {
+            Runnable dispatch = delayed.poll();
+            if (dispatch != null) {
+                dispatch.run();
+            }
+        } finally {
+            // Only once dispatched, so a message arriving meanwhile still waits behind it
+            delayedPending.decrementAndGet();
+        }
+    }
+
+    /**
+     * The connection's registry slot, or -1 if it is not in a room.
+     */
+    public int getSlot() {
+        return slot;
+    }
+}
@@ -0,0 +1,179 @@
+package cs6650.assignment1.room;
+
+import cs6650.assignment1.codec.WireFormat;
+import cs6650.assignment1.compression.CompressionMetrics;
+import cs6650.assignment1.compression.CompressionPolicy;
+import cs6650.assignment1.compression.DeflateExtension;
+import cs6650.assignment1.metrics.ServerMetrics;
+import cs6650.assignment1.outbound.OutboundQueue;
+import cs6650.assignment1.outbound.WriteBatcher;
+import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.DefaultExtension;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.framing.BinaryFrame;
+import org.java_websocket.framing.DataFrame;
+import org.java_websocket.framing.TextFrame;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fans a message out to every member of a room.
+ *
+ * The payload is encoded by the caller once, and the wire frame is encoded here once per
+ * broadcast, wire format and compression; each member then gets a read-only view of the same
+ * bytes queued on its connection. permessage-deflate members can share a compressed frame
+ * because the server never keeps compression context between messages.
+ * When the processing stage runs on worker lanes, each room's messages are already handled by
+ * one lane, so the fan-out runs right there and the room has a single writer. Without worker
+ * lanes, broadcasts move to per-room lanes of their own so WebSocket threads never block on
+ * large rooms and messages within one room keep their order.
+ */
+public class RoomBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoomBroadcaster.class);
+
+    private static final int UNSHARED = -1;
+    private static final int PLAIN = 0;
+    private static final int DEFLATED = 1;
+
+    private final ExecutorService[] lanes;
+    // Server-role draft with no extension: frames are unmasked and byte-identical for all peers
+    private final Draft frameEncoder = new Draft_6455();
+    // Stateless on the sending side, so all lanes can share it
+    private final DeflateExtension frameDeflater;
+    private final ServerMetrics serverMetrics;
+    private final WriteBatcher writeBatcher;
+
+    /**
+     * @param laneCount broadcast lanes, or 0 to fan out on the thread that calls {@link #broadcast}
+     */
+    public RoomBroadcaster(int laneCount, CompressionPolicy compressionPolicy, CompressionMetrics compressionMetrics,
+                           ServerMetrics serverMetrics, WriteBatcher writeBatcher) {
+        this.serverMetrics = serverMetrics;
+        this.writeBatcher = writeBatcher;
+        this.frameDeflater = new DeflateExtension(compressionPolicy, compressionMetrics);
+        frameDeflater.setThreshold(0);
+        this.lanes = new ExecutorService[Math.max(0, laneCount)];
+        for (int i = 0; i < lanes.length; i++) {
+            String name = "RoomBroadcast-" + i;
+            lanes[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Sends to every member of the sender's room, the sender included.
+     *
+     * @param json   UTF-8 JSON payload for members on {@link WireFormat#JSON}
+     * @param binary payload for members on {@link WireFormat#BINARY}
+     *               (ownership of both arrays passes to the broadcaster)
+     */
+    public void broadcast(ConnectionState sender, byte[] json, byte[] binary) {
+        RoomRegistry.Room room = sender.getRoom();
+        ServerMetrics.Room metrics = sender.getMetrics();
+        if (lanes.length == 0) {
+            fanOut(room, metrics, json, binary);
+        } else {
+            lanes[room.getId() % lanes.length].execute(() -> fanOut(room, metrics, json, binary));
+        }
+    }
+
+    private void fanOut(RoomRegistry.Room room, ServerMetrics.Room metrics, byte[] json, byte[] binary) {
+        long start = System.nanoTime();
+        // Wire frames indexed by [format][variant], each encoded on first use so a room only
+        // pays for the formats and compression its members actually use
+        ByteBuffer[][] frames = new ByteBuffer[WireFormat.values().length][2];
+        int delivered = 0;
+
+        for (int stripe = 0; stripe < room.stripeCount(); stripe++) {
+            for (ConnectionState state : room.stripe(stripe)) {
+                WebSocket member = state.getConnection();
+                try {
+                    if (!member.isOpen()) {
+                        continue;
+                    }
+                    WireFormat format = state.getWireFormat();
+                    byte[] payload = format == WireFormat.BINARY ? binary : json;
+                    int variant = sharedFrameVariant(member, payload.length);
+                    if (variant == UNSHARED) {
+                        // Other extensions rewrite the payload per connection
+                        writeBatcher.send(member, dataFrame(format, payload));
+                    } else {
+                        ByteBuffer[] formatFrames = frames[format.ordinal()];
+                        if (formatFrames[variant] == null) {
+                            formatFrames[variant] = encodeWireFrame(format, payload, variant == DEFLATED);
+                        }
+                        // Shared pre-encoded frame; only the buffer position is per-member
+                        writeBatcher.enqueue((WebSocketImpl) member, formatFrames[variant].duplicate());
+                    }
+                    OutboundQueue.disconnectIfSlow(member);
+                    delivered++;
+                } catch (Exception e) {
+                    // One bad member must not stop delivery to the rest of the room
+                    logger.debug("Broadcast to member of room {} failed: {}", room.getName(), e.getMessage());
+                }
+            }
+        }
+        serverMetrics.recordStage(ServerMetrics.Stage.SEND, System.nanoTime() - start);
+        metrics.recordOut(delivered);
+        logger.debug("Broadcast in room {} delivered to {} members", room.getName(), delivered);
+    }
+
+    /**
+     * Which shared frame a member can take: {@link #PLAIN}, {@link #DEFLATED} (negotiated
+     * permessage-deflate and the payload reaches its threshold) or {@link #UNSHARED}.
+     */
+    private static int sharedFrameVariant(WebSocket member, int payloadLength) {
+        if (!(member instanceof WebSocketImpl) || !(member.getDraft() instanceof Draft_6455)) {
+            return UNSHARED;
+        }
+        IExtension extension = ((Draft_6455) member.getDraft()).getExtension();
+        if (extension.getClass() == DefaultExtension.class) {
+            return PLAIN;
+        }
+        if (extension instanceof DeflateExtension) {
+            return ((DeflateExtension) extension).compresses(payloadLength) ? DEFLATED : PLAIN;
+        }
+        return UNSHARED;
+    }
+
+    private ByteBuffer encodeWireFrame(WireFormat format, byte[] payload, boolean deflate) {
+        DataFrame frame = dataFrame(format, payload);
+        if (deflate) {
+            frameDeflater.encodeFrame(frame);
+        }
+        return frameEncoder.createBinaryFrame(frame);
+    }
+
+    private static DataFrame dataFrame(WireFormat format, byte[] payload) {
+        DataFrame frame = format == WireFormat.BINARY ? new BinaryFrame() : new TextFrame();
+        frame.setPayload(ByteBuffer.wrap(payload));
+        frame.setFin(true);
+        return frame;
+    }
+
+    public void shutdown() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        for (ExecutorService lane : lanes) {
+            try {
+                lane.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package cs6650.assignment1.room;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Rooms by number and the connections in each, plus a compact integer slot per connection.
+ *
+ * Rooms are created when the first connection reserves a place in them and evicted once they
+ * have been empty for longer than the idle timeout, so the room keyspace is only bounded by
+ * what is in use. Each room belongs to one of {@link #SHARDS} shards by ID, and every change to
+ * a room's membership happens under its shard's lock, so joins and leaves in different rooms
+ * rarely contend. Reads never lock or allocate: a room is one map lookup, and its members are a
+ * fixed set of copy-on-write stripes. A change copies only the stripe the connection's slot
+ * maps to, so a room of n members costs O(n / {@link #STRIPES}) per change, which keeps ramping
+ * up to 100k+ connections cheap. Iteration is a snapshot per stripe, so joins and leaves during
+ * a broadcast never throw.
+ */
+public class RoomRegistry {
+
+    static final int STRIPES = 16;
+    static final int SHARDS = 64;
+
+    private static final ConnectionState[] EMPTY = new ConnectionState[0];
+
+    /**
+     * One room's members, spread over copy-on-write stripes by slot.
+     */
+    public static final class Room {
+        private final int id;
+        private final String name;
+        private final AtomicReferenceArray<ConnectionState[]> stripes = new AtomicReferenceArray<>(STRIPES);
+        private final AtomicInteger size = new AtomicInteger();
+        // Guarded by the shard lock: admitted connections, joined or about to
+        private int reserved;
+        private long emptySince;
+
+        Room(int id, long now) {
+            this.id = id;
+            this.name = Integer.toString(id);
+            this.emptySince = now;
+            for (int i = 0; i < STRIPES; i++) {
+                stripes.set(i, EMPTY);
+            }
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * The room ID as text, for logs, metrics labels and per-room policies.
+         */
+        public String getName() {
+            return name;
+        }
+
+        public int size() {
+            return size.get();
+        }
+
+        public int stripeCount() {
+            return STRIPES;
+        }
+
+        /**
+         * Snapshot of one stripe's members; must not be modified.
+         */
+        public ConnectionState[] stripe(int index) {
+            return stripes.get(index);
+        }
+
+        // Writers hold the shard lock
+        void add(ConnectionState member) {
+            int index = member.slot & (STRIPES - 1);
+            ConnectionState[] current = stripes.get(index);
+            ConnectionState[] next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = member;
+            stripes.set(index, next);
+            size.incrementAndGet();
+        }
+
+        void remove(ConnectionState member) {
+            int index = member.slot & (STRIPES - 1);
+            ConnectionState[] current = stripes.get(index);
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == member) {
+                    ConnectionState[] next = current.length == 1 ? EMPTY : new ConnectionState[current.length - 1];
+                    System.arraycopy(current, 0, next, 0, i);
+                    System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                    stripes.set(index, next);
+                    size.decrementAndGet();
+                    return;
+                }
+            }
+        }
+
+        void unreserve(long now) {
+            if (--reserved == 0) {
+                emptySince = now;
+            }
+        }
+    }
+
+    private final Object[] shardLocks = new Object[SHARDS];
+    private final Map<Integer, Room> rooms = new ConcurrentHashMap<>();
+    private final Object slotLock = new Object();
+    // Indexed by slot; freed slots are reused so the table stays as dense as the peak connection count
+    private volatile AtomicReferenceArray<ConnectionState> connections = new AtomicReferenceArray<>(1024);
+    private int[] freeSlots = new int[64];
+    private int freeCount;
+    private int nextSlot;
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    public RoomRegistry() {
+        for (int i = 0; i < SHARDS; i++) {
+            shardLocks[i] = new Object();
+        }
+    }
+
+    private Object shardLock(int roomId) {
+        return shardLocks[roomId & (SHARDS - 1)];
+    }
+
+    /**
+     * Takes a place in a room for a connection about to join it, creating the room if needed.
+     * The room cannot be evicted until the place is given back by {@link #leave}, so the
+     * connection must {@link #join} straight after.
+     *
+     * @param maxMembers 0 for no limit
+     * @return the room, or null if it already has {@code maxMembers} places taken
+     */
+    public Room reserve(int roomId, int maxMembers) {
+        synchronized (shardLock(roomId)) {
+            Room room = rooms.get(roomId);
+            if (room == null) {
+                room = new Room(roomId, System.nanoTime());
+                rooms.put(roomId, room);
+            }
+            if (maxMembers > 0 && room.reserved >= maxMembers) {
+                return null;
+            }
+            room.reserved++;
+            return room;
+        }
+    }
+
+    /**
+     * The room with this ID, or null if it has no members and none are about to join.
+     */
+    public Room find(int roomId) {
+        return rooms.get(roomId);
+    }
+
+    /**
+     * Every room currently in the registry, including empty rooms not yet evicted.
+     */
+    public List<Room> rooms() {
+        return new ArrayList<>(rooms.values());
+    }
+
+    public int roomCount() {
+        return rooms.size();
+    }
+
+    /**
+     * Removes rooms that have had no members and no reservations for at least {@code idleNanos}.
+     * The callback runs under the room's shard lock, so nothing can join the same room ID
+     * until it returns.
+     *
+     * @return how many rooms were evicted
+     */
+    public int evictIdle(long idleNanos, Consumer<Room> onEvict) {
+        int evicted = 0;
+        for (Room room : rooms.values()) {
+            synchronized (shardLock(room.id)) {
+                if (room.reserved == 0 && System.nanoTime() - room.emptySince >= idleNanos
+                    && rooms.remove(room.id, room)) {
+                    onEvict.accept(room);
+                    evicted++;
+                }
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Gives the connection a slot and adds it to the room it reserved a place in.
+     */
+    public void join(ConnectionState member) {
+        synchronized (slotLock) {
+            int slot = freeCount > 0 ? freeSlots[--freeCount] : nextSlot++;
+            AtomicReferenceArray<ConnectionState> table = connections;
+            if (slot >= table.length()) {
+                AtomicReferenceArray<ConnectionState> grown = new AtomicReferenceArray<>(table.length() * 2);
+                for (int i = 0; i < table.length(); i++) {
+                    grown.set(i, table.get(i));
+                }
+                connections = grown;
+                table = grown;
+            }
+            table.set(slot, member);
+            member.slot = slot;
+        }
+        Room room = member.getRoom();
+        synchronized (shardLock(room.id)) {
+            room.add(member);
+        }
+        connectionCount.incrementAndGet();
+    }
+
+    /**
+     * Removes the connection from its room, gives back its place and frees its slot.
+     *
+     * @return false if it had already left
+     */
+    public boolean leave(ConnectionState member) {
+        Room room = member.getRoom();
+        int slot;
+        synchronized (shardLock(room.id)) {
+            slot = member.slot;
+            if (slot < 0) {
+                return false;
+            }
+            // Room removal needs the slot to find the stripe, so it happens before the slot is freed
+            room.remove(member);
+            room.unreserve(System.nanoTime());
+            member.slot = -1;
+        }
+        synchronized (slotLock) {
+            connections.set(slot, null);
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = slot;
+        }
+        connectionCount.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * The connection in a slot, or null if the slot is free.
+     */
+    public ConnectionState connection(int slot) {
+        AtomicReferenceArray<ConnectionState> table = connections;
+        return slot >= 0 && slot < table.length() ? table.get(slot) : null;
+    }
+
+    /**
+     * Upper bound (exclusive) of the slots in use, for iterating with {@link #connection}.
+     */
+    public int slotLimit() {
+        return connections.length();
+    }
+
+    public int connectionCount() {
+        return connectionCount.get();
+    }
+
+    public int roomSize(int roomId) {
+        Room room = find(roomId);
+        return room != null ? room.size() : 0;
+    }
+}
@@ -0,0 +1,385 @@
+package cs6650.assignment1.server;
+
+import cs6650.assignment1.buffer.BufferPool;
+import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.enums.Opcode;
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.extensions.DefaultExtension;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.framing.BinaryFrame;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.framing.DataFrame;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.framing.TextFrame;
+import org.java_websocket.protocols.IProtocol;
+import org.java_websocket.util.Charsetfunctions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * RFC 6455 draft that hands complete text frames to the listener as raw UTF-8 bytes.
+ *
+ * The stock draft decodes every text payload into a String before calling onMessage, which
+ * the server would immediately re-encode to parse. Frames are already UTF-8 validated by the
+ * time they get here. Fragmented messages still take the normal String path.
+ *
+ * With a {@link BufferPool}, unfragmented data frames that arrive whole and fit a pooled buffer
+ * skip the library's parser, which allocates a frame, a payload array and a list per read: they
+ * are unmasked straight into a pooled buffer and handed over in a frame object this draft reuses.
+ * Anything else (control frames, fragments, extension bits, frames split across reads) goes to
+ * the library. The library holds on to a frame split across reads, so the header of every byte
+ * it is given is followed here too, and frames are only taken from the start of a frame.
+ *
+ * While a fragmented message is open, an unfragmented data frame is a protocol error. Frames
+ * delivered here skip the library's check for that, so open fragments are tracked too and such a
+ * frame goes to the library, which closes the connection.
+ */
+public class ChatDraft extends Draft_6455 {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatDraft.class);
+
+    private static final int MASK_LENGTH = 4;
+    private static final int MAX_HEADER_LENGTH = 2 + 8 + MASK_LENGTH;
+
+    /**
+     * Receives the payload of unfragmented text frames. The buffer is owned by the frame and
+     * is not reused by the library, so it may be handed to another thread. Payloads of text and
+     * binary frames may come from the draft's {@link BufferPool}; the listener releases them once
+     * done, and releasing one that did not is a no-op.
+     */
+    public interface TextFrameListener {
+        void onTextFrame(WebSocket conn, ByteBuffer payload);
+    }
+
+    // Null or disabled: every frame goes through the library's parser
+    private final BufferPool bufferPool;
+    // Returned from translateFrame and processed before the next call on the connection's decoder
+    private final FrameList frames = new FrameList();
+    private final List<PooledFrame> spareFrames = new ArrayList<>();
+    // Where the library's parser is in the stream: the rest of a frame still to come, or the
+    // start of a header split across reads
+    private long frameRemaining;
+    private final byte[] header = new byte[MAX_HEADER_LENGTH];
+    private int headerBytes;
+    // A data frame without FIN has been processed and its final continuation frame has not
+    private boolean fragmentOpen;
+
+    public ChatDraft() {
+        this(Collections.emptyList(), Collections.emptyList(), Integer.MAX_VALUE, null);
+    }
+
+    public ChatDraft(List<IExtension> extensions, List<IProtocol> protocols, int maxFrameSize,
+                     BufferPool bufferPool) {
+        super(extensions, protocols, maxFrameSize);
+        this.bufferPool = bufferPool;
+    }
+
+    @Override
+    public List<Framedata> translateFrame(ByteBuffer buffer) throws InvalidDataException {
+        if (bufferPool == null || !bufferPool.isEnabled() || getExtension().getClass() != DefaultExtension.class) {
+            return super.translateFrame(buffer);
+        }
+        frames.clear();
+        try {
+            while (frameRemaining == 0 && headerBytes == 0 && takePooledFrame(buffer)) {
+                // Frames taken so far are processed before whatever the library makes of the rest
+            }
+            if (!buffer.hasRemaining()) {
+                return frames;
+            }
+            follow(buffer.duplicate());
+            List<Framedata> rest = super.translateFrame(buffer);
+            if (frames.isEmpty()) {
+                return rest;
+            }
+            frames.addAll(rest);
+            return frames;
+        } catch (InvalidDataException | RuntimeException e) {
+            // The connection is closed without processing any frame from this read
+            for (Framedata frame : frames) {
+                bufferPool.release(frame.getPayloadData());
+            }
+            frames.clear();
+            throw e;
+        }
+    }
+
+    /**
+     * Unmasks the whole unfragmented data frame at the buffer's position into a pooled buffer.
+     *
+     * @return false, consuming nothing, if there is no such frame for the pool to take
+     */
+    private boolean takePooledFrame(ByteBuffer buffer) throws InvalidDataException {
+        int start = buffer.position();
+        int available = buffer.remaining();
+        if (available < 2) {
+            return false;
+        }
+        int first = buffer.get(start) & 0xFF;
+        int second = buffer.get(start + 1) & 0xFF;
+        int opcode = first & 0x0F;
+        // FIN with no RSV bits, a text or binary opcode, and masked as every client frame must be
+        if ((first & 0xF0) != 0x80 || (opcode != 0x1 && opcode != 0x2) || (second & 0x80) == 0) {
+            return false;
+        }
+        int length = second & 0x7F;
+        int headerLength = 2;
+        if (length == 126) {
+            if (available < 4) {
+                return false;
+            }
+            length = buffer.getShort(start + 2) & 0xFFFF;
+            headerLength = 4;
+        } else if (length == 127) {
+            return false;
+        }
+        int payloadStart = start + headerLength + MASK_LENGTH;
+        if (length > bufferPool.getBufferSize() || length > getMaxFrameSize()
+            || available < headerLength + MASK_LENGTH + length) {
+            return false;
+        }
+
+        ByteBuffer payload = bufferPool.acquire();
+        // Big-endian words line up with the mask bytes at every multiple of 4
+        int mask = buffer.getInt(start + headerLength);
+        int i = 0;
+        for (; i + 4 <= length; i += 4) {
+            payload.putInt(i, buffer.getInt(payloadStart + i) ^ mask);
+        }
+        for (; i < length; i++) {
+            payload.put(i, (byte) (buffer.get(payloadStart + i) ^ (mask >>> (24 - 8 * (i & 3)))));
+        }
+        payload.limit(length);
+        buffer.position(payloadStart + length);
+
+        PooledFrame frame = spareFrame(frames.size());
+        frame.set(opcode == 0x1 ? Opcode.TEXT : Opcode.BINARY, payload);
+        frames.add(frame);
+        if (opcode == 0x1 && !Charsetfunctions.isValidUTF8(payload)) {
+            throw new InvalidDataException(CloseFrame.NO_UTF8, "Received text is no valid utf8 string!");
+        }
+        return true;
+    }
+
+    private PooledFrame spareFrame(int index) {
+        if (index == spareFrames.size()) {
+            spareFrames.add(new PooledFrame());
+        }
+        return spareFrames.get(index);
+    }
+
+    /**
+     * Walks the frame headers in bytes about to be given to the library, ending where it will.
+     */
+    private void follow(ByteBuffer bytes) {
+        while (bytes.hasRemaining()) {
+            if (frameRemaining > 0) {
+                int skipped = (int) Math.min(frameRemaining, bytes.remaining());
+                bytes.position(bytes.position() + skipped);
+                frameRemaining -= skipped;
+                continue;
+            }
+            header[headerBytes++] = bytes.get();
+            if (headerBytes >= 2 && headerBytes == headerLength()) {
+                frameRemaining = payloadLength();
+                headerBytes = 0;
+            }
+        }
+    }
+
+    private int headerLength() {
+        int length = header[1] & 0x7F;
+        int extended = length == 126 ? 2 : length == 127 ? 8 : 0;
+        return 2 + extended + ((header[1] & 0x80) != 0 ? MASK_LENGTH : 0);
+    }
+
+    private long payloadLength() {
+        long length = header[1] & 0x7F;
+        if (length == 126) {
+            return ((header[2] & 0xFF) << 8) | (header[3] & 0xFF);
+        }
+        if (length == 127) {
+            length = 0;
+            for (int i = 2; i < 10; i++) {
+                length = (length << 8) | (header[i] & 0xFF);
+            }
+        }
+        // A negative length is refused by the library, which closes the connection
+        return Math.max(0, length);
+    }
+
+    @Override
+    public void processFrame(WebSocketImpl webSocketImpl, Framedata frame) throws InvalidDataException {
+        Opcode opcode = frame.getOpcode();
+        boolean fragmented = fragmentOpen;
+        if (opcode == Opcode.TEXT || opcode == Opcode.BINARY || opcode == Opcode.CONTINUOUS) {
+            fragmentOpen = !frame.isFin();
+        }
+        if (fragmented && frame instanceof PooledFrame) {
+            // Not expected here: a heap copy lets the library reject it as it would its own frame
+            processUnpooled(webSocketImpl, (PooledFrame) frame);
+            return;
+        }
+        if (frame instanceof PooledFrame && opcode == Opcode.BINARY) {
+            try {
+                webSocketImpl.getWebSocketListener().onWebsocketMessage(webSocketImpl, frame.getPayloadData());
+            } catch (RuntimeException e) {
+                logger.error("Runtime exception during onWebsocketMessage", e);
+                webSocketImpl.getWebSocketListener().onWebsocketError(webSocketImpl, e);
+            }
+            return;
+        }
+        if (opcode == Opcode.TEXT && frame.isFin() && !fragmented
+            && webSocketImpl.getWebSocketListener() instanceof TextFrameListener) {
+            try {
+                ((TextFrameListener) webSocketImpl.getWebSocketListener())
+                    .onTextFrame(webSocketImpl, frame.getPayloadData());
+            } catch (RuntimeException e) {
+                logger.error("Runtime exception during onTextFrame", e);
+                webSocketImpl.getWebSocketListener().onWebsocketError(webSocketImpl, e);
+            }
+            return;
+        }
+        if (frame instanceof PooledFrame) {
+            // A listener that only takes Strings: decode and give the buffer back
+            ByteBuffer payload = frame.getPayloadData();
+            try {
+                webSocketImpl.getWebSocketListener().onWebsocketMessage(webSocketImpl,
+                                                                       Charsetfunctions.stringUtf8(payload));
+            } catch (RuntimeException e) {
+                logger.error("Runtime exception during onWebsocketMessage", e);
+                webSocketImpl.getWebSocketListener().onWebsocketError(webSocketImpl, e);
+            } finally {
+                bufferPool.release(payload);
+            }
+            return;
+        }
+        super.processFrame(webSocketImpl, frame);
+    }
+
+    private void processUnpooled(WebSocketImpl webSocketImpl, PooledFrame frame) throws InvalidDataException {
+        ByteBuffer payload = frame.getPayloadData();
+        DataFrame copy = frame.getOpcode() == Opcode.TEXT ? new TextFrame() : new BinaryFrame();
+        copy.setPayload(ByteBuffer.allocate(payload.remaining()).put(payload.duplicate()).flip());
+        bufferPool.release(payload);
+        try {
+            super.processFrame(webSocketImpl, copy);
+        } catch (InvalidDataException | RuntimeException e) {
+            // The library stops processing this read, so later pooled frames in it are never delivered
+            for (int i = frames.indexOf(frame) + 1; i < frames.size(); i++) {
+                if (frames.get(i) instanceof PooledFrame) {
+                    bufferPool.release(frames.get(i).getPayloadData());
+                }
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public Draft copyInstance() {
+        List<IExtension> extensions = new ArrayList<>();
+        for (IExtension extension : getKnownExtensions()) {
+            extensions.add(extension.copyInstance());
+        }
+        List<IProtocol> protocols = new ArrayList<>();
+        for (IProtocol protocol : getKnownProtocols()) {
+            protocols.add(protocol.copyInstance());
+        }
+        return new ChatDraft(extensions, protocols, getMaxFrameSize(), bufferPool);
+    }
+
+    /**
+     * The library iterates the frames of every read once; the iterator is reused like the list.
+     */
+    private static final class FrameList extends ArrayList<Framedata> {
+        private static final long serialVersionUID = 1L;
+
+        private final FrameIterator iterator = new FrameIterator();
+
+        @Override
+        public Iterator<Framedata> iterator() {
+            iterator.next = 0;
+            return iterator;
+        }
+
+        private final class FrameIterator implements Iterator<Framedata> {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size();
+            }
+
+            @Override
+            public Framedata next() {
+                if (next >= size()) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        }
+    }
+
+    /**
+     * A whole unfragmented data frame whose payload is a pooled buffer, reused once processed.
+     */
+    private static final class PooledFrame implements Framedata {
+        private Opcode opcode;
+        private ByteBuffer payload;
+
+        void set(Opcode opcode, ByteBuffer payload) {
+            this.opcode = opcode;
+            this.payload = payload;
+        }
+
+        @Override
+        public boolean isFin() {
+            return true;
+        }
+
+        @Override
+        public boolean isRSV1() {
+            return false;
+        }
+
+        @Override
+        public boolean isRSV2() {
+            return false;
+        }
+
+        @Override
+        public boolean isRSV3() {
+            return false;
+        }
+
+        @Override
+        public boolean getTransfereMasked() {
+            return true;
+        }
+
+        @Override
+        public Opcode getOpcode() {
+            return opcode;
+        }
+
+        @Override
+        public ByteBuffer getPayloadData() {
+            return payload;
+        }
+
+        @Override
+        public void append(Framedata nextframe) {
+            throw new UnsupportedOperationException("Pooled frames are never fragmented");
+        }
+    }
+}
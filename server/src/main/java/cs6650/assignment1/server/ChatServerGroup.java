@@ -0,0 +1,181 @@
+package cs6650.assignment1.server;
+
+import cs6650.assignment1.admission.AdmissionController;
+import cs6650.assignment1.buffer.BufferPool;
+import cs6650.assignment1.compression.CompressionMetrics;
+import cs6650.assignment1.config.ServerConfig;
+import cs6650.assignment1.metrics.ServerMetrics;
+import cs6650.assignment1.outbound.WriteBatcher;
+import cs6650.assignment1.processing.ProcessingStage;
+import cs6650.assignment1.room.RoomBroadcaster;
+import cs6650.assignment1.room.RoomRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One or more ChatWebSocketServer listeners on the same port sharing rooms and workers.
+ *
+ * Each listener has its own selector thread and decoder threads. With more than one listener
+ * the port is bound with SO_REUSEPORT so the kernel spreads new connections across them,
+ * which removes the single selector thread as the bottleneck on many-core machines.
+ */
+public class ChatServerGroup {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatServerGroup.class);
+
+    private final RoomRegistry roomRegistry;
+    private final RoomBroadcaster roomBroadcaster;
+    private final WriteBatcher writeBatcher;
+    private final BufferPool bufferPool;
+    private final ProcessingStage processingStage;
+    private final CompressionMetrics compressionMetrics;
+    private final ServerMetrics serverMetrics;
+    private final HealthMonitor healthMonitor;
+    private final AdmissionController admissionController;
+    private final List<ChatWebSocketServer> listeners;
+    private final int roomIdleSeconds;
+    // Null when idle rooms are kept
+    private final ScheduledExecutorService roomEvictor;
+
+    /**
+     * @param reusePortAvailable whether {@link ReusePortSelectorProvider} was installed; without
+     *                           it only a single listener can bind the port
+     */
+    public ChatServerGroup(ServerConfig config, boolean reusePortAvailable) {
+        this.roomRegistry = new RoomRegistry();
+        this.compressionMetrics = new CompressionMetrics();
+        this.serverMetrics = new ServerMetrics();
+        this.processingStage = new ProcessingStage(
+            config.getProcessingMode(),
+            config.getProcessingWorkers(),
+            config.getProcessingQueueCapacity(),
+            config.getProcessingOverflow()
+        );
+        // Worker lanes already own their rooms, so broadcasts only need lanes of their own inline
+        int broadcastLanes = processingStage.getLaneCount() > 0 ? 0 : config.getBroadcastThreads();
+        // Threads that may keep buffers on their own free lists: lanes, decoders, selectors, the flusher
+        int bufferThreads = processingStage.getLaneCount() + broadcastLanes
+            + config.getListeners() * (config.getDecoders() + 1) + 1;
+        this.bufferPool = new BufferPool(config.getBufferSize(), config.getSharedBuffers(), bufferThreads,
+                                         config.isBufferDebug());
+        this.writeBatcher = new WriteBatcher(config.getWritePolicy(), bufferPool);
+        this.roomBroadcaster = new RoomBroadcaster(broadcastLanes, config.getCompressionPolicy(), compressionMetrics,
+                                                   serverMetrics, writeBatcher);
+        this.roomIdleSeconds = config.getRoomIdleSeconds();
+        this.roomEvictor = roomIdleSeconds == 0
+            ? null
+            : Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "RoomEvictor");
+                t.setDaemon(true);
+                return t;
+            });
+        this.healthMonitor = new HealthMonitor(config, processingStage, this::getActiveConnections);
+        this.admissionController = new AdmissionController(config.getAdmissionPolicy());
+
+        int listenerCount = config.getListeners();
+        if (listenerCount > 1 && !reusePortAvailable) {
+            logger.warn("SO_REUSEPORT is unavailable, starting 1 listener instead of {}", listenerCount);
+            listenerCount = 1;
+        }
+
+        List<ChatWebSocketServer> servers = new ArrayList<>(listenerCount);
+        for (int i = 0; i < listenerCount; i++) {
+            servers.add(new ChatWebSocketServer(config, roomRegistry, roomBroadcaster, writeBatcher, bufferPool,
+                                                processingStage, compressionMetrics, serverMetrics, healthMonitor,
+                                                admissionController));
+        }
+        this.listeners = Collections.unmodifiableList(servers);
+
+        logger.info("Server group: {} listener(s) x {} decoder(s) on port {}",
+                    listenerCount, config.getDecoders(), config.getWebsocketPort());
+        logger.info("Rooms: {}, idle rooms evicted after {}", config.getRoomRange(),
+                    roomIdleSeconds == 0 ? "never" : roomIdleSeconds + " s");
+        logger.info("Frame buffers: {}", bufferPool);
+    }
+
+    public void start() {
+        healthMonitor.start();
+        if (roomEvictor != null) {
+            // Sweeping twice per timeout evicts a room at most half a timeout late
+            long periodMillis = Math.max(1000, TimeUnit.SECONDS.toMillis(roomIdleSeconds) / 2);
+            roomEvictor.scheduleWithFixedDelay(this::evictIdleRooms, periodMillis, periodMillis,
+                                               TimeUnit.MILLISECONDS);
+        }
+        for (ChatWebSocketServer listener : listeners) {
+            listener.start();
+        }
+    }
+
+    public void stop(int timeout) throws InterruptedException {
+        for (ChatWebSocketServer listener : listeners) {
+            listener.stop(timeout);
+        }
+        healthMonitor.stop();
+        if (roomEvictor != null) {
+            roomEvictor.shutdownNow();
+        }
+        // Delayed messages are dispatched to the processing stage, which then runs them
+        admissionController.shutdown();
+        processingStage.shutdown();
+        roomBroadcaster.shutdown();
+        writeBatcher.shutdown();
+        // Every connection has closed and released its frames by now
+        bufferPool.reportLeaks();
+    }
+
+    private void evictIdleRooms() {
+        try {
+            int evicted = roomRegistry.evictIdle(TimeUnit.SECONDS.toNanos(roomIdleSeconds),
+                                                 room -> serverMetrics.recordRoomEvicted(room.getName()));
+            if (evicted > 0) {
+                logger.debug("Evicted {} idle room(s), {} left", evicted, roomRegistry.roomCount());
+            }
+        } catch (Exception e) {
+            // An exception would cancel the schedule
+            logger.error("Idle room eviction failed", e);
+        }
+    }
+
+    public int getActiveConnections() {
+        return roomRegistry.connectionCount();
+    }
+
+    public int getRoomSize(int roomId) {
+        return roomRegistry.roomSize(roomId);
+    }
+
+    public ProcessingStage getProcessingStage() {
+        return processingStage;
+    }
+
+    public CompressionMetrics getCompressionMetrics() {
+        return compressionMetrics;
+    }
+
+    public ServerMetrics getServerMetrics() {
+        return serverMetrics;
+    }
+
+    public HealthMonitor getHealthMonitor() {
+        return healthMonitor;
+    }
+
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    public RoomRegistry getRoomRegistry() {
+        return roomRegistry;
+    }
+
+    public List<ChatWebSocketServer> getListeners() {
+        return listeners;
+    }
+}
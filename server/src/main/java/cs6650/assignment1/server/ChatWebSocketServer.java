@@ -2,38 +2,121 @@ package cs6650.assignment1.server;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import cs6650.assignment1.admission.AdmissionController;
+import cs6650.assignment1.admission.AdmissionPolicy;
+import cs6650.assignment1.admission.TokenBucket;
+import cs6650.assignment1.buffer.BufferPool;
+import cs6650.assignment1.codec.BinaryMessageCodec;
+import cs6650.assignment1.codec.ChatMessageHolder;
+import cs6650.assignment1.codec.ChatMessageParser;
+import cs6650.assignment1.codec.ChatResponseEncoder;
+import cs6650.assignment1.codec.WireFormat;
+import cs6650.assignment1.compression.CompressionMetrics;
+import cs6650.assignment1.compression.CompressionPolicy;
+import cs6650.assignment1.compression.DeflateExtension;
+import cs6650.assignment1.config.ServerConfig;
+import cs6650.assignment1.metrics.ServerMetrics;
 import cs6650.assignment1.model.ChatMessage;
-import cs6650.assignment1.model.ChatResponse;
 import cs6650.assignment1.model.ErrorResponse;
+import cs6650.assignment1.outbound.OutboundFactory;
+import cs6650.assignment1.outbound.OutboundQueue;
+import cs6650.assignment1.outbound.WriteBatcher;
+import cs6650.assignment1.processing.ProcessingStage;
+import cs6650.assignment1.room.ConnectionState;
+import cs6650.assignment1.room.RoomBroadcaster;
+import cs6650.assignment1.room.RoomRegistry;
 import cs6650.assignment1.validation.MessageValidator;
 import org.java_websocket.WebSocket;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.enums.Opcode;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.framing.TextFrame;
 import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.protocols.Protocol;
 import org.java_websocket.server.WebSocketServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.time.Instant;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public class ChatWebSocketServer extends WebSocketServer {
+public class ChatWebSocketServer extends WebSocketServer implements ChatDraft.TextFrameListener {
     
     private static final Logger logger = LoggerFactory.getLogger(ChatWebSocketServer.class);
     private final ObjectMapper objectMapper;
-    private final Map<WebSocket, String> connectionRooms;
-    private final Pattern roomPattern = Pattern.compile("^/chat/(\\d+)$");  // Strict: only /chat/{roomId}
+    // Admitted connections on this listener; their state is attached to the connection
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final RoomRegistry roomRegistry;
+    private final RoomBroadcaster roomBroadcaster;
+    private final WriteBatcher writeBatcher;
+    private final BufferPool bufferPool;
+    private final ServerConfig.DeliveryMode deliveryMode;
+    private final ProcessingStage processingStage;
+    private final MessageValidator messageValidator;
+    private final CompressionPolicy compressionPolicy;
+    private final ServerMetrics serverMetrics;
+    private final HealthMonitor healthMonitor;
+    private final AdmissionController admissionController;
+    private final AdmissionPolicy.OverLimitAction overLimitAction;
+    private final long maxThrottleWaitNanos;
+    private final int maxPerRoom;
+    private final int maxRoomId;
+    private final String roomRange;
+    private static final String PATH_PREFIX = "/chat/";  // Strict: only /chat/{roomId}[?query]
     
-    public ChatWebSocketServer(int port) {
-        super(new InetSocketAddress(port));
+    /**
+     * Room state, broadcast lanes, write batching, the buffer pool, the processing stage,
+     * metrics, health and admission are shared, so several listeners on the same port (see
+     * {@link ChatServerGroup}) behave as one server.
+     */
+    public ChatWebSocketServer(ServerConfig config, RoomRegistry roomRegistry, RoomBroadcaster roomBroadcaster,
+                               WriteBatcher writeBatcher, BufferPool bufferPool, ProcessingStage processingStage,
+                               CompressionMetrics compressionMetrics, ServerMetrics serverMetrics,
+                               HealthMonitor healthMonitor, AdmissionController admissionController) {
+        super(new InetSocketAddress(config.getWebsocketPort()), config.getDecoders(),
+              List.of(chatDraft(config.getCompressionPolicy(), compressionMetrics, bufferPool)));
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
-        this.connectionRooms = new ConcurrentHashMap<>();
+        this.roomRegistry = roomRegistry;
+        this.roomBroadcaster = roomBroadcaster;
+        this.writeBatcher = writeBatcher;
+        this.bufferPool = bufferPool;
+        this.deliveryMode = config.getDeliveryMode();
+        this.processingStage = processingStage;
+        this.messageValidator = new MessageValidator(config.getValidationRules());
+        this.compressionPolicy = config.getCompressionPolicy();
+        this.serverMetrics = serverMetrics;
+        this.healthMonitor = healthMonitor;
+        this.admissionController = admissionController;
+        this.overLimitAction = admissionController.getPolicy().getOverLimitAction();
+        this.maxThrottleWaitNanos = admissionController.getMaxWaitNanos();
+        this.maxPerRoom = admissionController.getPolicy().getMaxConnectionsPerRoom();
+        this.maxRoomId = config.getMaxRoomId();
+        this.roomRange = config.getRoomRange();
+        setWebSocketFactory(new OutboundFactory(config.getOutboundPolicy(), config.getWritePolicy(), bufferPool,
+                                                serverMetrics));
         
-        logger.info("ChatWebSocketServer initialized on port {}", port);
+        logger.info("ChatWebSocketServer initialized on port {} (delivery: {}, decoders: {})",
+                    config.getWebsocketPort(), deliveryMode, config.getDecoders());
+    }
+    
+    /**
+     * Offers the binary subprotocol; the empty protocol keeps plain JSON clients working.
+     * permessage-deflate is only offered when compression is enabled. Incoming data frames are
+     * read into the buffer pool's buffers.
+     */
+    private static ChatDraft chatDraft(CompressionPolicy compressionPolicy, CompressionMetrics compressionMetrics,
+                                       BufferPool bufferPool) {
+        List<IExtension> extensions = compressionPolicy.isEnabled()
+            ? List.of(new DeflateExtension(compressionPolicy, compressionMetrics))
+            : List.of();
+        return new ChatDraft(extensions,
+                             List.of(new Protocol(WireFormat.BINARY_SUBPROTOCOL), new Protocol("")),
+                             Integer.MAX_VALUE, bufferPool);
     }
     
     @Override
@@ -42,88 +125,360 @@ public class ChatWebSocketServer extends WebSocketServer {
         logger.debug("New connection attempt from {}: {}", conn.getRemoteSocketAddress(), resourceDescriptor);
         
         // Validate and extract room ID from path
-        Matcher matcher = roomPattern.matcher(resourceDescriptor);
-        if (matcher.matches()) {
-            String roomId = matcher.group(1);
-            int roomNum = Integer.parseInt(roomId);
+        int queryStart = roomPathEnd(resourceDescriptor);
+        if (queryStart >= 0) {
+            int roomNum = parseRoomNumber(resourceDescriptor, queryStart);
+            String roomId = resourceDescriptor.substring(PATH_PREFIX.length(), queryStart);
+            String query = queryStart < resourceDescriptor.length()
+                ? resourceDescriptor.substring(queryStart + 1) : null;
+            WireFormat wireFormat = negotiateWireFormat(conn, query);
             
-            // Validate room number is between 1-20
-            if (roomNum >= 1 && roomNum <= 20) {
-                connectionRooms.put(conn, roomId);
-                logger.info("Client connected to room {}", roomId);
+            if (!healthMonitor.isAcceptingConnections()) {
+                // Shed while degraded; 1013 tells the client to retry later, ideally elsewhere
+                logger.warn("Server degraded, refusing connection to room {}", roomId);
+                serverMetrics.recordConnectionRefused(ServerMetrics.Refusal.DEGRADED);
+                conn.close(1013, "Server overloaded, try again later");
+            } else if (wireFormat == null) {
+                logger.warn("Unsupported protocol requested: {}", resourceDescriptor);
+                serverMetrics.recordConnectionRefused(ServerMetrics.Refusal.INVALID_REQUEST);
+                conn.close(1003, "Unsupported protocol. Use protocol=json or protocol=binary");
+            } else if (roomNum >= 1 && (maxRoomId == 0 || roomNum <= maxRoomId)) {
+                // Take a slot under the server cap, then a place in the room under the room cap
+                if (!admissionController.tryAdmit()) {
+                    logger.warn("Connection limit reached, refusing connection to room {}", roomId);
+                    serverMetrics.recordConnectionRefused(ServerMetrics.Refusal.SERVER_FULL);
+                    conn.close(1013, "Server is full, try again later");
+                    return;
+                }
+                RoomRegistry.Room room = roomRegistry.reserve(roomNum, maxPerRoom);
+                if (room == null) {
+                    admissionController.release();
+                    logger.warn("Room {} is full, refusing connection", roomId);
+                    serverMetrics.recordConnectionRefused(ServerMetrics.Refusal.ROOM_FULL);
+                    conn.close(1013, "Room " + roomId + " is full, try again later");
+                    return;
+                }
+                roomId = room.getName();
+                boolean compressed = applyCompressionPolicy(conn, roomId);
+                ConnectionState state = new ConnectionState(conn, room, wireFormat,
+                                                            admissionController.newRateLimiter(),
+                                                            serverMetrics.room(roomId));
+                roomRegistry.join(state);
+                conn.setAttachment(state);
+                activeConnections.incrementAndGet();
+                serverMetrics.recordConnectionOpened();
+                logger.info("Client connected to room {} ({}{})", roomId, wireFormat, compressed ? ", deflate" : "");
             } else {
-                logger.warn("Invalid room number: {} (must be 1-20)", roomNum);
-                conn.close(1003, "Invalid room number. Room must be between 1 and 20");
+                logger.warn("Invalid room number: {} (must be {})", roomNum, roomRange);
+                serverMetrics.recordConnectionRefused(ServerMetrics.Refusal.INVALID_REQUEST);
+                conn.close(1003, "Invalid room number. Room must be " + roomRange);
             }
         } else {
             logger.warn("Invalid connection path: {}", resourceDescriptor);
-            conn.close(1003, "Invalid endpoint. Use /chat/{roomId} where roomId is 1-20");
+            serverMetrics.recordConnectionRefused(ServerMetrics.Refusal.INVALID_REQUEST);
+            conn.close(1003, "Invalid endpoint. Use /chat/{roomId} where roomId is " + roomRange);
         }
     }
     
+    /**
+     * Checks the path is {@code /chat/} followed by digits and an optional query.
+     *
+     * @return index of the {@code ?} or the end of the path, or -1 if the path is invalid
+     */
+    private static int roomPathEnd(String path) {
+        if (!path.startsWith(PATH_PREFIX)) {
+            return -1;
+        }
+        int i = PATH_PREFIX.length();
+        while (i < path.length() && path.charAt(i) >= '0' && path.charAt(i) <= '9') {
+            i++;
+        }
+        if (i == PATH_PREFIX.length() || (i < path.length() && path.charAt(i) != '?')) {
+            return -1;
+        }
+        return i;
+    }
+    
+    /**
+     * The room number between the prefix and {@code end}, saturating at Integer.MAX_VALUE so
+     * overlong IDs are rejected as out of range rather than overflowing.
+     */
+    private static int parseRoomNumber(String path, int end) {
+        long room = 0;
+        for (int i = PATH_PREFIX.length(); i < end; i++) {
+            room = Math.min(Integer.MAX_VALUE, room * 10 + (path.charAt(i) - '0'));
+        }
+        return (int) room;
+    }
+    
+    /**
+     * The binary subprotocol takes precedence over the query parameter; JSON is the default.
+     *
+     * @return the negotiated format, or null for an unrecognised {@code protocol} value
+     */
+    private static WireFormat negotiateWireFormat(WebSocket conn, String query) {
+        if (conn.getProtocol() != null
+            && WireFormat.BINARY_SUBPROTOCOL.equals(conn.getProtocol().getProvidedProtocol())) {
+            return WireFormat.BINARY;
+        }
+        if (query != null) {
+            for (String param : query.split("&")) {
+                int eq = param.indexOf('=');
+                if (eq > 0 && param.substring(0, eq).equals(WireFormat.QUERY_PARAMETER)) {
+                    return WireFormat.fromQueryValue(param.substring(eq + 1));
+                }
+            }
+        }
+        return WireFormat.JSON;
+    }
+    
+    /**
+     * Sets the room's outgoing compression threshold on a connection that negotiated
+     * permessage-deflate. Must run before anything is sent to the connection.
+     *
+     * @return whether frames to this connection may be compressed
+     */
+    private boolean applyCompressionPolicy(WebSocket conn, String roomId) {
+        if (conn.getDraft() instanceof Draft_6455
+            && ((Draft_6455) conn.getDraft()).getExtension() instanceof DeflateExtension) {
+            int threshold = compressionPolicy.thresholdForRoom(roomId);
+            ((DeflateExtension) ((Draft_6455) conn.getDraft()).getExtension()).setThreshold(threshold);
+            return threshold != CompressionPolicy.NEVER;
+        }
+        return false;
+    }
+    
+    private static WireFormat wireFormat(WebSocket conn) {
+        ConnectionState state = ConnectionState.of(conn);
+        return state != null ? state.getWireFormat() : WireFormat.JSON;
+    }
+    
+    private static String roomId(ConnectionState state) {
+        return state != null ? state.getRoomId() : null;
+    }
+    
     @Override
     public void onClose(WebSocket conn, int code, String reason, boolean remote) {
-        String roomId = connectionRooms.remove(conn);
+        ConnectionState state = ConnectionState.of(conn);
+        String roomId = roomId(state);
+        if (state != null && roomRegistry.leave(state)) {
+            admissionController.release();
+            activeConnections.decrementAndGet();
+            serverMetrics.recordConnectionClosed();
+        }
+        OutboundQueue outbound = OutboundQueue.of(conn);
+        if (outbound != null) {
+            // Hands pooled frames that will never be written back to the pool
+            outbound.close();
+        }
         logger.info("Connection closed for room {}: {} - {}", roomId, code, reason);
     }
     
+    @Override
+    public void onTextFrame(WebSocket conn, ByteBuffer payload) {
+        submit(conn, payload, WireFormat.JSON);
+    }
+    
+    @Override
+    public void onMessage(WebSocket conn, ByteBuffer message) {
+        submit(conn, message, WireFormat.BINARY);
+    }
+    
+    private void submit(WebSocket conn, ByteBuffer payload, WireFormat requestFormat) {
+        // Null for messages racing a refused handshake's close; those are handled outside any room
+        ConnectionState state = ConnectionState.of(conn);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Message received in room {}: {} bytes ({})", roomId(state), payload.remaining(), requestFormat);
+        }
+        (state != null ? state.getMetrics() : serverMetrics.room(null)).recordIn();
+        
+        TokenBucket rateLimiter = state != null ? state.getRateLimiter() : null;
+        if (rateLimiter != null) {
+            long wait = rateLimiter.acquire(System.nanoTime(), maxThrottleWaitNanos);
+            if (wait < 0) {
+                bufferPool.release(payload);
+                throttle(conn, state.getRoomId());
+                return;
+            }
+            // Behind any message still held back, even with a token free, to keep arrival order
+            if (wait > 0 || state.hasDelayed()) {
+                serverMetrics.recordThrottleDelay(wait);
+                state.holdBack(() -> dispatch(conn, state, payload, requestFormat, false));
+                admissionController.delay(state::dispatchDelayed, wait);
+                return;
+            }
+        }
+        dispatch(conn, state, payload, requestFormat, true);
+    }
+    
+    /**
+     * @param mayBlock false on the delay thread, which serves every connection: a full lane
+     *                 rejects the message there even under the blocking overflow policy
+     */
+    private void dispatch(WebSocket conn, ConnectionState state, ByteBuffer payload, WireFormat requestFormat,
+                          boolean mayBlock) {
+        // Shard on the room: one lane handles all of a room's messages, so they (and each
+        // connection's) keep arrival order and the room's broadcasts have a single writer
+        Runnable task = () -> {
+            try {
+                handleMessage(conn, state, payload, requestFormat);
+            } finally {
+                // The payload may be a pooled buffer from the draft
+                bufferPool.release(payload);
+            }
+        };
+        boolean queued = state == null ? processingStage.submit(conn, task)
+            : mayBlock ? processingStage.submit(state.getRoom().getId(), task)
+            : processingStage.trySubmit(state.getRoom().getId(), task);
+        if (!queued) {
+            bufferPool.release(payload);
+            // Not parsed, so the client cannot match this error to its request by messageId
+            sendError(conn, List.of("Server busy, message rejected"), null);
+        }
+    }
+    
+    /**
+     * A message over the connection's rate limit, and beyond the longest delay when delaying.
+     */
+    private void throttle(WebSocket conn, String roomId) {
+        if (overLimitAction == AdmissionPolicy.OverLimitAction.CLOSE) {
+            logger.warn("Rate limit exceeded in room {}, closing connection", roomId);
+            serverMetrics.recordThrottled(ServerMetrics.Throttle.CLOSED);
+            conn.close(1008, "Rate limit exceeded");
+        } else {
+            serverMetrics.recordThrottled(ServerMetrics.Throttle.REJECTED);
+            // Not parsed, so the client cannot match this error to its request by messageId
+            sendError(conn, List.of("Rate limit exceeded, message rejected"), null);
+        }
+    }
+    
+    /**
+     * Fragmented text messages arrive here already decoded by the library.
+     */
     @Override
     public void onMessage(WebSocket conn, String message) {
-        String roomId = connectionRooms.get(conn);
-        logger.debug("Message received in room {}: {}", roomId, message);
+        onTextFrame(conn, ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8)));
+    }
+    
+    /**
+     * The request is decoded according to its frame type (text = JSON, binary = binary);
+     * replies use the format the connection negotiated. Each stage is timed with one
+     * nanoTime call at its end.
+     */
+    private void handleMessage(WebSocket conn, ConnectionState state, ByteBuffer payload, WireFormat requestFormat) {
+        if (!conn.isOpen()) {
+            return;
+        }
+        String roomId = roomId(state);
         
+        long start = System.nanoTime();
+        // Parse incoming message: fast path into the pooled holder, databind for anything unusual
+        ChatMessageHolder holder = ChatMessageHolder.local();
+        holder.clear();
         try {
-            // Parse incoming message
-            ChatMessage chatMessage = objectMapper.readValue(message, ChatMessage.class);
+            if (requestFormat == WireFormat.BINARY) {
+                if (!BinaryMessageCodec.decodeRequest(payload, holder)) {
+                    serverMetrics.recordInvalidFormat();
+                    sendError(conn, List.of("Invalid message format: malformed binary message"), holder.messageIdOrNull());
+                    return;
+                }
+            } else if (!ChatMessageParser.local().parse(payload, holder)) {
+                holder.copyFrom(readWithObjectMapper(payload));
+            }
+            long parsed = System.nanoTime();
+            serverMetrics.recordStage(ServerMetrics.Stage.PARSE, parsed - start);
             
-            // Validate message
-            List<String> validationErrors = MessageValidator.validate(chatMessage);
+            // Validate message; error strings are only built on failure
+            long validationErrors = messageValidator.check(holder);
+            long validated = System.nanoTime();
+            serverMetrics.recordStage(ServerMetrics.Stage.VALIDATE, validated - parsed);
             
-            if (!validationErrors.isEmpty()) {
+            if (validationErrors != MessageValidator.VALID) {
+                serverMetrics.recordValidationFailures(validationErrors);
                 // Send error response
-                ErrorResponse errorResponse = new ErrorResponse(validationErrors);
-                String errorJson = objectMapper.writeValueAsString(errorResponse);
-                conn.send(errorJson);
+                sendError(conn, messageValidator.describe(validationErrors), holder.messageIdOrNull());
                 // logger.warn("Validation failed for room {}: {}", roomId, validationErrors);
                 return;
             }
             
-            // Create success response
-            ChatResponse response = new ChatResponse(
-                chatMessage.getUserId(),
-                chatMessage.getUsername(),
-                chatMessage.getMessage(),
-                chatMessage.getTimestamp(),
-                Instant.now(),
-                chatMessage.getMessageType(),
-                "success"
-            );
-            
-            // Send response back to client
-            String responseJson = objectMapper.writeValueAsString(response);
-            conn.send(responseJson);
+            // Encode the success response into the thread's reusable buffer, then echo it to the
+            // sender or fan a copy out to the whole room (members may use either format)
+            long serverMillis = System.currentTimeMillis();
+            if (deliveryMode == ServerConfig.DeliveryMode.BROADCAST && state != null) {
+                ChatResponseEncoder encoder = ChatResponseEncoder.local();
+                encoder.encode(holder, serverMillis);
+                BinaryMessageCodec binaryCodec = BinaryMessageCodec.local();
+                binaryCodec.encodeResponse(holder, serverMillis);
+                byte[] json = encoder.toByteArray();
+                byte[] binary = binaryCodec.toByteArray();
+                // The send stage and messages out are recorded by the broadcast lane
+                serverMetrics.recordStage(ServerMetrics.Stage.SERIALIZE, System.nanoTime() - validated);
+                roomBroadcaster.broadcast(state, json, binary);
+            } else {
+                if (wireFormat(conn) == WireFormat.BINARY) {
+                    BinaryMessageCodec binaryCodec = BinaryMessageCodec.local();
+                    binaryCodec.encodeResponse(holder, serverMillis);
+                    long serialized = System.nanoTime();
+                    serverMetrics.recordStage(ServerMetrics.Stage.SERIALIZE, serialized - validated);
+                    // Copied from the thread's encode buffer straight into the wire frame
+                    writeBatcher.send(conn, Opcode.BINARY, binaryCodec.buffer(), 0, binaryCodec.length());
+                    serverMetrics.recordStage(ServerMetrics.Stage.SEND, System.nanoTime() - serialized);
+                } else {
+                    ChatResponseEncoder encoder = ChatResponseEncoder.local();
+                    encoder.encode(holder, serverMillis);
+                    long serialized = System.nanoTime();
+                    serverMetrics.recordStage(ServerMetrics.Stage.SERIALIZE, serialized - validated);
+                    writeBatcher.send(conn, Opcode.TEXT, encoder.buffer(), 0, encoder.length());
+                    serverMetrics.recordStage(ServerMetrics.Stage.SEND, System.nanoTime() - serialized);
+                }
+                (state != null ? state.getMetrics() : serverMetrics.room(null)).recordOut(1);
+                OutboundQueue.disconnectIfSlow(conn);
+            }
             
             logger.debug("Processed message in room {} from user {}", 
-                        roomId, chatMessage.getUsername());
+                        roomId, holder.getUsername());
             
         } catch (Exception e) {
             logger.error("Error processing message in room {}: {}", roomId, e.getMessage(), e);
-            
-            try {
-                ErrorResponse errorResponse = new ErrorResponse(
-                    List.of("Invalid message format: " + e.getMessage())
-                );
-                String errorJson = objectMapper.writeValueAsString(errorResponse);
-                conn.send(errorJson);
-            } catch (Exception ex) {
-                logger.error("Error sending error response", ex);
+            serverMetrics.recordInvalidFormat();
+            // The messageId is echoed if parsing got that far
+            sendError(conn, List.of("Invalid message format: " + e.getMessage()), holder.messageIdOrNull());
+        }
+    }
+    
+    private ChatMessage readWithObjectMapper(ByteBuffer payload) throws IOException {
+        if (payload.hasArray()) {
+            return objectMapper.readValue(payload.array(), payload.arrayOffset() + payload.position(),
+                                          payload.remaining(), ChatMessage.class);
+        }
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(payload.position(), bytes);
+        return objectMapper.readValue(bytes, ChatMessage.class);
+    }
+    
+    private void sendError(WebSocket conn, List<String> errors, Long messageId) {
+        try {
+            if (wireFormat(conn) == WireFormat.BINARY) {
+                BinaryMessageCodec binaryCodec = BinaryMessageCodec.local();
+                binaryCodec.encodeError(errors, System.currentTimeMillis(), messageId);
+                writeBatcher.send(conn, binaryCodec.asByteBuffer());
+                return;
             }
+            ErrorResponse errorResponse = new ErrorResponse(errors, messageId);
+            TextFrame frame = new TextFrame();
+            frame.setPayload(ByteBuffer.wrap(objectMapper.writeValueAsBytes(errorResponse)));
+            frame.setFin(true);
+            writeBatcher.send(conn, frame);
+        } catch (Exception ex) {
+            logger.error("Error sending error response", ex);
+        } finally {
+            OutboundQueue.disconnectIfSlow(conn);
         }
     }
     
     @Override
     public void onError(WebSocket conn, Exception ex) {
-        String roomId = conn != null ? connectionRooms.get(conn) : "unknown";
+        String roomId = conn != null ? roomId(ConnectionState.of(conn)) : "unknown";
         logger.error("WebSocket error for room {}: {}", roomId, ex.getMessage(), ex);
     }
     
@@ -136,6 +491,6 @@ public class ChatWebSocketServer extends WebSocketServer {
     }
     
     public int getActiveConnections() {
-        return connectionRooms.size();
+        return activeConnections.get();
     }
 }
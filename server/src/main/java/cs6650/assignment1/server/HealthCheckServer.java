@@ -3,47 +3,116 @@ package cs6650.assignment1.server;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
+import cs6650.assignment1.metrics.PrometheusText;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Simple HTTP server for health check endpoint
+ * Simple HTTP server for the health check and Prometheus metrics endpoints.
+ *
+ * Requests run on a small executor of their own, so probes are answered promptly while the
+ * WebSocket threads are saturated.
  */
 public class HealthCheckServer {
     
     private static final Logger logger = LoggerFactory.getLogger(HealthCheckServer.class);
     private final HttpServer server;
+    private final ExecutorService executor;
     
-    public HealthCheckServer(int port) throws IOException {
+    public HealthCheckServer(int port, int threads, HealthMonitor healthMonitor,
+                             MetricsExporter metricsExporter) throws IOException {
         this.server = HttpServer.create(new InetSocketAddress(port), 0);
-        this.server.createContext("/health", new HealthHandler());
-        this.server.setExecutor(null); // Use default executor
+        this.server.createContext("/health", new HealthHandler(healthMonitor));
+        this.server.createContext("/metrics", new MetricsHandler(metricsExporter));
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "HealthHttp-" + counter.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+        this.server.setExecutor(executor);
     }
     
     public void start() {
         server.start();
         logger.info("Health check server started on port {}", server.getAddress().getPort());
         logger.info("Health endpoint: http://localhost:{}/health", server.getAddress().getPort());
+        logger.info("Metrics endpoint: http://localhost:{}/metrics", server.getAddress().getPort());
     }
     
     public void stop() {
         server.stop(0);
+        executor.shutdownNow();
         logger.info("Health check server stopped");
     }
     
+    /**
+     * Readiness: 200 while healthy, 503 while degraded so a load balancer stops routing new
+     * connections here. The body reports every check either way.
+     */
     static class HealthHandler implements HttpHandler {
+        private final HealthMonitor healthMonitor;
+        
+        HealthHandler(HealthMonitor healthMonitor) {
+            this.healthMonitor = healthMonitor;
+        }
+        
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             if ("GET".equals(exchange.getRequestMethod())) {
-                String response = "{\"status\":\"healthy\"}";
+                HealthMonitor.Snapshot snapshot = healthMonitor.getSnapshot();
+                byte[] response = toJson(snapshot).getBytes(StandardCharsets.UTF_8);
+                int code = snapshot.getStatus() == HealthMonitor.Status.HEALTHY ? 200 : 503;
                 exchange.getResponseHeaders().set("Content-Type", "application/json");
-                exchange.sendResponseHeaders(200, response.getBytes().length);
+                exchange.sendResponseHeaders(code, response.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(response);
+                }
+            } else {
+                exchange.sendResponseHeaders(405, -1); // Method Not Allowed
+            }
+        }
+    }
+    
+    static String toJson(HealthMonitor.Snapshot snapshot) {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"status\":\"").append(snapshot.getStatus().label()).append("\",\"reasons\":[");
+        for (int i = 0; i < snapshot.getReasons().size(); i++) {
+            json.append(i > 0 ? ",\"" : "\"").append(snapshot.getReasons().get(i)).append('"');
+        }
+        json.append("],\"selectorLagMs\":").append(snapshot.getSelectorLagMillis())
+            .append(",\"workerQueueFill\":").append(String.format(Locale.ROOT, "%.3f", snapshot.getWorkerQueueFill()))
+            .append(",\"connections\":").append(snapshot.getConnections())
+            .append(",\"maxConnections\":").append(snapshot.getMaxConnections())
+            .append(",\"heapFill\":").append(String.format(Locale.ROOT, "%.3f", snapshot.getHeapFill()))
+            .append('}');
+        return json.toString();
+    }
+    
+    static class MetricsHandler implements HttpHandler {
+        private final MetricsExporter metricsExporter;
+        
+        MetricsHandler(MetricsExporter metricsExporter) {
+            this.metricsExporter = metricsExporter;
+        }
+        
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if ("GET".equals(exchange.getRequestMethod())) {
+                byte[] response = metricsExporter.scrape().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", PrometheusText.CONTENT_TYPE);
+                exchange.sendResponseHeaders(200, response.length);
                 try (OutputStream os = exchange.getResponseBody()) {
-                    os.write(response.getBytes());
+                    os.write(response);
                 }
             } else {
                 exchange.sendResponseHeaders(405, -1); // Method Not Allowed
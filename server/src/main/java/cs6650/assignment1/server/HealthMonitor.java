@@ -0,0 +1,216 @@
+package cs6650.assignment1.server;
+
+import cs6650.assignment1.config.ServerConfig;
+import cs6650.assignment1.processing.ProcessingStage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Decides whether the server is ready for more connections, from selector lag, worker queue
+ * depth, the connection count against its cap and heap pressure.
+ *
+ * The checks run on their own thread every tick and publish an immutable {@link Snapshot}, so
+ * health probes and the handshake path only read a volatile field. Selector lag is how late the
+ * tick fires: the WebSocket selector gives no hook to time its loop directly, but CPU saturation
+ * and GC pauses delay both threads alike.
+ */
+public class HealthMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(HealthMonitor.class);
+
+    public enum Status {
+        HEALTHY, DEGRADED;
+
+        public String label() {
+            return name().toLowerCase();
+        }
+    }
+
+    /**
+     * One evaluation of every check; {@link #getReasons} names the checks over their threshold.
+     */
+    public static final class Snapshot {
+        private final Status status;
+        private final List<String> reasons;
+        private final long selectorLagMillis;
+        private final double workerQueueFill;
+        private final int connections;
+        private final int maxConnections;
+        private final double heapFill;
+
+        Snapshot(List<String> reasons, long selectorLagMillis, double workerQueueFill, int connections,
+                 int maxConnections, double heapFill) {
+            this.status = reasons.isEmpty() ? Status.HEALTHY : Status.DEGRADED;
+            this.reasons = Collections.unmodifiableList(reasons);
+            this.selectorLagMillis = selectorLagMillis;
+            this.workerQueueFill = workerQueueFill;
+            this.connections = connections;
+            this.maxConnections = maxConnections;
+            this.heapFill = heapFill;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public List<String> getReasons() {
+            return reasons;
+        }
+
+        public long getSelectorLagMillis() {
+            return selectorLagMillis;
+        }
+
+        /**
+         * Fill of the fullest worker lane, 0 to 1.
+         */
+        public double getWorkerQueueFill() {
+            return workerQueueFill;
+        }
+
+        public int getConnections() {
+            return connections;
+        }
+
+        /**
+         * 0 when connections are not capped.
+         */
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        /**
+         * Heap still in use after the last collection, 0 to 1.
+         */
+        public double getHeapFill() {
+            return heapFill;
+        }
+    }
+
+    private final ProcessingStage processingStage;
+    private final IntSupplier activeConnections;
+    private final int maxConnections;
+    private final long tickMillis;
+    private final long maxSelectorLagMillis;
+    private final double maxWorkerQueueFill;
+    private final double maxHeapFill;
+    private final List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+    private final ScheduledExecutorService ticker;
+
+    private volatile Snapshot snapshot;
+    private long expectedTickNanos;
+
+    public HealthMonitor(ServerConfig config, ProcessingStage processingStage, IntSupplier activeConnections) {
+        this.processingStage = processingStage;
+        this.activeConnections = activeConnections;
+        this.maxConnections = config.getAdmissionPolicy().getMaxConnections();
+        this.tickMillis = config.getHealthTickMillis();
+        this.maxSelectorLagMillis = config.getHealthMaxLagMillis();
+        this.maxWorkerQueueFill = config.getHealthMaxQueueFill();
+        this.maxHeapFill = config.getHealthMaxHeapFill();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            // Tenured pools only: eden and survivor spaces do not support a usage threshold, and a
+            // survivor space is routinely near full right after a young collection
+            if (pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported()
+                && pool.isCollectionUsageThresholdSupported()) {
+                heapPools.add(pool);
+            }
+        }
+        this.snapshot = new Snapshot(new ArrayList<>(), 0, 0, 0, maxConnections, 0);
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "HealthMonitor");
+            t.setDaemon(true);
+            // Keep measuring while the workers have the CPU
+            t.setPriority(Thread.MAX_PRIORITY);
+            return t;
+        });
+    }
+
+    public void start() {
+        expectedTickNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        ticker.scheduleAtFixedRate(this::evaluate, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        logger.info("Health monitor: tick={} ms, maxConnections={}, lag<{} ms, queue<{}, heap<{}",
+                    tickMillis, maxConnections == 0 ? "unlimited" : maxConnections, maxSelectorLagMillis,
+                    maxWorkerQueueFill, maxHeapFill);
+    }
+
+    public void stop() {
+        ticker.shutdownNow();
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Whether a new connection may join. Read on every handshake, so only the published snapshot
+     * is consulted; the connection cap itself is enforced by the admission controller.
+     */
+    public boolean isAcceptingConnections() {
+        return snapshot.getStatus() == Status.HEALTHY;
+    }
+
+    private void evaluate() {
+        long now = System.nanoTime();
+        long lagMillis = Math.max(0, TimeUnit.NANOSECONDS.toMillis(now - expectedTickNanos));
+        // Re-anchor on the actual tick so one long pause is not reported again on every tick after it
+        expectedTickNanos = now + TimeUnit.MILLISECONDS.toNanos(tickMillis);
+
+        double queueFill = processingStage.getQueueCapacity() == 0
+            ? 0.0 : (double) processingStage.getMaxLaneDepth() / processingStage.getQueueCapacity();
+        int connections = activeConnections.getAsInt();
+        double heapFill = heapFill();
+
+        List<String> reasons = new ArrayList<>(4);
+        if (lagMillis >= maxSelectorLagMillis) {
+            reasons.add("selector_lag");
+        }
+        if (queueFill >= maxWorkerQueueFill) {
+            reasons.add("worker_queue");
+        }
+        if (maxConnections > 0 && connections >= maxConnections) {
+            reasons.add("connection_cap");
+        }
+        if (heapFill >= maxHeapFill) {
+            reasons.add("heap");
+        }
+
+        Snapshot next = new Snapshot(reasons, lagMillis, queueFill, connections, maxConnections, heapFill);
+        if (next.getStatus() != snapshot.getStatus()) {
+            logger.warn("Server is now {}{}", next.getStatus().label(), reasons.isEmpty() ? "" : " " + reasons);
+        }
+        snapshot = next;
+    }
+
+    /**
+     * Live data left after the last GC in the fullest tenured heap pool, so short-lived garbage
+     * between collections does not read as pressure. Falls back to current usage before the
+     * first collection.
+     */
+    private double heapFill() {
+        double fill = 0.0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (usage != null && usage.getMax() > 0) {
+                fill = Math.max(fill, (double) usage.getUsed() / usage.getMax());
+            }
+        }
+        if (fill == 0.0) {
+            Runtime runtime = Runtime.getRuntime();
+            fill = (double) (runtime.totalMemory() - runtime.freeMemory()) / runtime.maxMemory();
+        }
+        return fill;
+    }
+}
@@ -0,0 +1,220 @@
+package cs6650.assignment1.server;
+
+import cs6650.assignment1.buffer.BufferPool;
+import cs6650.assignment1.compression.CompressionMetrics;
+import cs6650.assignment1.metrics.PrometheusText;
+import cs6650.assignment1.metrics.ServerMetrics;
+import cs6650.assignment1.outbound.OutboundQueue;
+import cs6650.assignment1.processing.ProcessingMetrics;
+import cs6650.assignment1.processing.ProcessingStage;
+import cs6650.assignment1.room.ConnectionState;
+import cs6650.assignment1.room.RoomRegistry;
+import org.java_websocket.WebSocketImpl;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Renders the {@code /metrics} scrape for a {@link ChatServerGroup}: the counters and stage
+ * histograms recorded on the hot path, plus gauges that are only read when scraped
+ * (connections, processing queue depth and the outbound buffers of every connection).
+ */
+public class MetricsExporter {
+
+    private final ChatServerGroup server;
+
+    public MetricsExporter(ChatServerGroup server) {
+        this.server = server;
+    }
+
+    public String scrape() {
+        PrometheusText out = new PrometheusText();
+        ServerMetrics metrics = server.getServerMetrics();
+        writeRooms(out, metrics);
+        writeValidation(out, metrics);
+        writeStages(out, metrics);
+        writeConnections(out, metrics);
+        writeThrottling(out, metrics);
+        writeOutboundBuffers(out, server.getRoomRegistry(), metrics);
+        writeBufferPool(out, server.getBufferPool());
+        writeHealth(out, server.getHealthMonitor().getSnapshot());
+        writeProcessing(out, server.getProcessingStage());
+        writeCompression(out, server.getCompressionMetrics());
+        return out.toString();
+    }
+
+    private static void writeRooms(PrometheusText out, ServerMetrics metrics) {
+        Map<String, ServerMetrics.Room> rooms = metrics.getRooms();
+        out.family("chatflow_room_messages_in_total", "counter", "Messages received per room");
+        for (Map.Entry<String, ServerMetrics.Room> room : rooms.entrySet()) {
+            out.sample("chatflow_room_messages_in_total", room.getValue().getIn(), "room", room.getKey());
+        }
+        out.family("chatflow_room_messages_out_total", "counter",
+                   "Successful responses sent per room; one per member reached in broadcast mode");
+        for (Map.Entry<String, ServerMetrics.Room> room : rooms.entrySet()) {
+            out.sample("chatflow_room_messages_out_total", room.getValue().getOut(), "room", room.getKey());
+        }
+    }
+
+    private static void writeValidation(PrometheusText out, ServerMetrics metrics) {
+        out.family("chatflow_validation_failures_total", "counter",
+                   "Rejected messages by reason; a message failing several rules counts once per rule");
+        for (Map.Entry<String, Long> failure : metrics.getValidationFailures().entrySet()) {
+            out.sample("chatflow_validation_failures_total", failure.getValue(), "reason", failure.getKey());
+        }
+    }
+
+    private static void writeStages(PrometheusText out, ServerMetrics metrics) {
+        out.family("chatflow_stage_duration_seconds", "histogram",
+                   "Time spent in each message handling stage");
+        for (ServerMetrics.Stage stage : ServerMetrics.Stage.values()) {
+            metrics.getStage(stage).writeTo(out, "chatflow_stage_duration_seconds", "stage", stage.label());
+        }
+    }
+
+    private void writeConnections(PrometheusText out, ServerMetrics metrics) {
+        out.family("chatflow_connections_active", "gauge", "Open connections that joined a room")
+           .sample("chatflow_connections_active", server.getActiveConnections());
+        out.family("chatflow_connections_opened_total", "counter", "Connections that joined a room")
+           .sample("chatflow_connections_opened_total", metrics.getConnectionsOpened());
+        out.family("chatflow_connections_closed_total", "counter", "Connections closed after joining a room")
+           .sample("chatflow_connections_closed_total", metrics.getConnectionsClosed());
+        out.family("chatflow_connections_refused_total", "counter", "Handshakes closed straight away, by reason");
+        for (ServerMetrics.Refusal reason : ServerMetrics.Refusal.values()) {
+            out.sample("chatflow_connections_refused_total", metrics.getConnectionsRefused(reason),
+                       "reason", reason.label());
+        }
+        out.family("chatflow_rooms_active", "gauge", "Rooms with members, or empty and not yet evicted")
+           .sample("chatflow_rooms_active", server.getRoomRegistry().roomCount());
+        out.family("chatflow_rooms_evicted_total", "counter", "Rooms removed after staying empty past the idle timeout")
+           .sample("chatflow_rooms_evicted_total", metrics.getRoomsEvicted());
+    }
+
+    private static void writeThrottling(PrometheusText out, ServerMetrics metrics) {
+        out.family("chatflow_throttled_messages_total", "counter",
+                   "Messages over their connection's rate limit, by what was done with them");
+        for (ServerMetrics.Throttle outcome : ServerMetrics.Throttle.values()) {
+            out.sample("chatflow_throttled_messages_total", metrics.getThrottled(outcome), "action", outcome.label());
+        }
+        out.family("chatflow_throttle_delay_seconds_total", "counter", "Time delayed messages were held back")
+           .sample("chatflow_throttle_delay_seconds_total", metrics.getThrottleDelayNanos() / 1e9);
+    }
+
+    /**
+     * Frames and bytes queued for writing on each room's connections, summed per room along
+     * with the deepest single connection, so slow consumers show up without a series per
+     * connection. Walks the registry's connection slots once; bounded queues keep their own
+     * counters, the library's unbounded ones are walked frame by frame.
+     */
+    private static void writeOutboundBuffers(PrometheusText out, RoomRegistry roomRegistry, ServerMetrics metrics) {
+        Map<String, long[]> rooms = new TreeMap<>(ServerMetrics.ROOM_ORDER);
+        for (RoomRegistry.Room room : roomRegistry.rooms()) {
+            rooms.put(room.getName(), new long[3]); // frames, bytes, max frames on one connection
+        }
+        int throttled = 0;
+        for (int slot = 0; slot < roomRegistry.slotLimit(); slot++) {
+            ConnectionState state = roomRegistry.connection(slot);
+            if (state == null || !(state.getConnection() instanceof WebSocketImpl)) {
+                continue;
+            }
+            long[] depth = rooms.get(state.getRoomId());
+            if (depth == null) {
+                continue;
+            }
+            WebSocketImpl conn = (WebSocketImpl) state.getConnection();
+            OutboundQueue bounded = OutboundQueue.of(conn);
+            int frames;
+            if (bounded != null) {
+                frames = bounded.size();
+                depth[1] += bounded.getBufferedBytes();
+                if (bounded.isThrottled()) {
+                    throttled++;
+                }
+            } else {
+                frames = 0;
+                for (ByteBuffer frame : conn.outQueue) {
+                    frames++;
+                    depth[1] += frame.remaining();
+                }
+            }
+            depth[0] += frames;
+            depth[2] = Math.max(depth[2], frames);
+        }
+
+        out.family("chatflow_outbound_queue_frames", "gauge",
+                   "Frames waiting to be written, summed over the room's connections");
+        rooms.forEach((roomId, depth) -> out.sample("chatflow_outbound_queue_frames", depth[0], "room", roomId));
+        out.family("chatflow_outbound_queue_bytes", "gauge",
+                   "Bytes waiting to be written, summed over the room's connections");
+        rooms.forEach((roomId, depth) -> out.sample("chatflow_outbound_queue_bytes", depth[1], "room", roomId));
+        out.family("chatflow_outbound_queue_frames_max", "gauge",
+                   "Frames waiting on the room's most backed-up connection");
+        rooms.forEach((roomId, depth) -> out.sample("chatflow_outbound_queue_frames_max", depth[2], "room", roomId));
+
+        out.family("chatflow_outbound_throttled_connections", "gauge",
+                   "Connections that hit their outbound limit and have not drained since")
+           .sample("chatflow_outbound_throttled_connections", throttled);
+        out.family("chatflow_outbound_dropped_frames_total", "counter",
+                   "Messages discarded because the connection's outbound queue was full")
+           .sample("chatflow_outbound_dropped_frames_total", metrics.getOutboundDroppedFrames());
+        out.family("chatflow_outbound_dropped_bytes_total", "counter", "Bytes of the discarded messages")
+           .sample("chatflow_outbound_dropped_bytes_total", metrics.getOutboundDroppedBytes());
+        out.family("chatflow_outbound_coalesced_frames_total", "counter",
+                   "Queued frames merged into one buffer by the coalesce policy")
+           .sample("chatflow_outbound_coalesced_frames_total", metrics.getOutboundCoalescedFrames());
+        out.family("chatflow_slow_consumers_closed_total", "counter",
+                   "Connections closed by the disconnect policy for falling behind")
+           .sample("chatflow_slow_consumers_closed_total", metrics.getSlowConsumersClosed());
+        out.family("chatflow_socket_writes_total", "counter", "Write syscalls on connection sockets")
+           .sample("chatflow_socket_writes_total", metrics.getSocketWrites());
+        out.family("chatflow_socket_write_frames_total", "counter",
+                   "Frames handed to those writes; a frame a write only partly sent is counted again")
+           .sample("chatflow_socket_write_frames_total", metrics.getSocketWriteFrames());
+    }
+
+    private static void writeBufferPool(PrometheusText out, BufferPool pool) {
+        out.family("chatflow_buffers_outstanding", "gauge", "Pooled frame buffers acquired and not yet released")
+           .sample("chatflow_buffers_outstanding", pool.getOutstanding());
+        out.family("chatflow_buffers_allocated_total", "counter",
+                   "Direct frame buffers created because the pool had none free")
+           .sample("chatflow_buffers_allocated_total", pool.getAllocated());
+        out.family("chatflow_buffers_fallback_total", "counter",
+                   "Heap buffers handed out because the pool already had as many direct buffers as it tracks")
+           .sample("chatflow_buffers_fallback_total", pool.getFallbacks());
+        out.family("chatflow_buffers_refused_total", "counter",
+                   "Releases refused because the buffer was not out of the pool (double release or a duplicate)")
+           .sample("chatflow_buffers_refused_total", pool.getRefused());
+    }
+
+    private static void writeHealth(PrometheusText out, HealthMonitor.Snapshot health) {
+        out.family("chatflow_health_degraded", "gauge", "1 while the server reports degraded and sheds connections")
+           .sample("chatflow_health_degraded", health.getStatus() == HealthMonitor.Status.DEGRADED ? 1 : 0);
+        out.family("chatflow_selector_lag_seconds", "gauge", "How late the last health tick fired")
+           .sample("chatflow_selector_lag_seconds", health.getSelectorLagMillis() / 1e3);
+        out.family("chatflow_heap_fill_ratio", "gauge", "Heap in use after the last collection")
+           .sample("chatflow_heap_fill_ratio", health.getHeapFill());
+    }
+
+    private static void writeProcessing(PrometheusText out, ProcessingStage stage) {
+        ProcessingMetrics metrics = stage.getMetrics();
+        out.family("chatflow_processing_completed_total", "counter", "Messages handled by the processing stage")
+           .sample("chatflow_processing_completed_total", metrics.getCompleted());
+        out.family("chatflow_processing_rejected_total", "counter",
+                   "Messages rejected because a worker lane was full")
+           .sample("chatflow_processing_rejected_total", metrics.getRejected());
+        out.family("chatflow_processing_queue_depth", "gauge", "Messages waiting in the processing stage")
+           .sample("chatflow_processing_queue_depth", stage.getQueueDepth());
+    }
+
+    private static void writeCompression(PrometheusText out, CompressionMetrics metrics) {
+        out.family("chatflow_deflate_bytes_total", "counter",
+                   "Outgoing payload bytes before and after permessage-deflate")
+           .sample("chatflow_deflate_bytes_total", metrics.getDeflateInputBytes(), "side", "raw")
+           .sample("chatflow_deflate_bytes_total", metrics.getDeflateOutputBytes(), "side", "wire");
+        out.family("chatflow_inflate_bytes_total", "counter",
+                   "Incoming payload bytes before and after permessage-deflate")
+           .sample("chatflow_inflate_bytes_total", metrics.getInflateInputBytes(), "side", "wire")
+           .sample("chatflow_inflate_bytes_total", metrics.getInflateOutputBytes(), "side", "raw");
+    }
+}
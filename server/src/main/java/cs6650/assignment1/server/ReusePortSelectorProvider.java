@@ -0,0 +1,107 @@
+package cs6650.assignment1.server;
+
+import java.io.IOException;
+import java.net.ProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.Pipe;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.spi.AbstractSelector;
+import java.nio.channels.spi.SelectorProvider;
+
+/**
+ * SelectorProvider that turns on SO_REUSEPORT for every server socket it opens.
+ *
+ * Java-WebSocket creates and binds its ServerSocketChannel internally, so the only way to let
+ * several WebSocketServer instances listen on the same port is at the provider level. On Linux
+ * the kernel then load-balances incoming connections across the listeners' accept queues.
+ *
+ * Everything else is delegated to the platform provider, which lives in sun.nio.ch and needs
+ * "--add-exports java.base/sun.nio.ch=ALL-UNNAMED" (set in the JAR manifest).
+ */
+public class ReusePortSelectorProvider extends SelectorProvider {
+
+    private static final String PROVIDER_PROPERTY = "java.nio.channels.spi.SelectorProvider";
+
+    private final SelectorProvider delegate;
+
+    public ReusePortSelectorProvider() {
+        this.delegate = platformProvider();
+        if (delegate == null) {
+            throw new IllegalStateException(
+                "Cannot access platform SelectorProvider; run with --add-exports java.base/sun.nio.ch=ALL-UNNAMED");
+        }
+    }
+
+    /**
+     * Registers this provider as the JVM-wide default. Must run before any NIO channel or
+     * selector is created.
+     *
+     * @return true if SO_REUSEPORT listeners are available
+     */
+    public static boolean install() {
+        // A failing provider constructor would break NIO for the whole JVM, so check first
+        if (platformProvider() == null) {
+            return false;
+        }
+        System.setProperty(PROVIDER_PROPERTY, ReusePortSelectorProvider.class.getName());
+        return SelectorProvider.provider() instanceof ReusePortSelectorProvider;
+    }
+
+    private static SelectorProvider platformProvider() {
+        try {
+            Class<?> defaultProvider = Class.forName("sun.nio.ch.DefaultSelectorProvider");
+            return (SelectorProvider) defaultProvider.getMethod("get").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public ServerSocketChannel openServerSocketChannel() throws IOException {
+        return enableReusePort(delegate.openServerSocketChannel());
+    }
+
+    @Override
+    public ServerSocketChannel openServerSocketChannel(ProtocolFamily family) throws IOException {
+        return enableReusePort(delegate.openServerSocketChannel(family));
+    }
+
+    private static ServerSocketChannel enableReusePort(ServerSocketChannel channel) throws IOException {
+        if (channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+            channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+        }
+        return channel;
+    }
+
+    @Override
+    public DatagramChannel openDatagramChannel() throws IOException {
+        return delegate.openDatagramChannel();
+    }
+
+    @Override
+    public DatagramChannel openDatagramChannel(ProtocolFamily family) throws IOException {
+        return delegate.openDatagramChannel(family);
+    }
+
+    @Override
+    public Pipe openPipe() throws IOException {
+        return delegate.openPipe();
+    }
+
+    @Override
+    public AbstractSelector openSelector() throws IOException {
+        return delegate.openSelector();
+    }
+
+    @Override
+    public SocketChannel openSocketChannel() throws IOException {
+        return delegate.openSocketChannel();
+    }
+
+    @Override
+    public SocketChannel openSocketChannel(ProtocolFamily family) throws IOException {
+        return delegate.openSocketChannel(family);
+    }
+}
@@ -0,0 +1,17 @@
+package cs6650.assignment1.validation;
+
+import cs6650.assignment1.codec.ChatMessageHolder;
+
+/**
+ * Extra check plugged into {@link MessageValidator} after the built-in field rules.
+ * Implementations must be thread-safe and should not allocate on the success path.
+ */
+public interface MessageRule {
+
+    boolean test(ChatMessageHolder message);
+
+    /**
+     * Error reported when {@link #test} returns false.
+     */
+    String errorMessage();
+}
@@ -1,48 +1,234 @@
 package cs6650.assignment1.validation;
 
-import cs6650.assignment1.model.ChatMessage;
+import cs6650.assignment1.codec.ChatMessageHolder;
+import cs6650.assignment1.codec.Timestamps;
+import cs6650.assignment1.codec.Utf8Text;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * Validates a parsed message against {@link ValidationRules} plus any pluggable {@link MessageRule}s.
+ *
+ * {@link #check} makes at most one pass over each text field, uses no regex and allocates nothing;
+ * it returns a bitmask of failed rules (0 when valid). Error strings are only built by
+ * {@link #describe} when something failed. Instances are immutable and thread-safe.
+ */
 public class MessageValidator {
-    
-    public static List<String> validate(ChatMessage message) {
-        List<String> errors = new ArrayList<>();
-        
+
+    public static final long VALID = 0L;
+
+    public static final long USER_ID_REQUIRED = 1L;
+    public static final long USER_ID_RANGE = 1L << 1;
+    public static final long USERNAME_REQUIRED = 1L << 2;
+    public static final long USERNAME_LENGTH = 1L << 3;
+    public static final long USERNAME_CHARSET = 1L << 4;
+    public static final long MESSAGE_REQUIRED = 1L << 5;
+    public static final long MESSAGE_LENGTH = 1L << 6;
+    public static final long TIMESTAMP_REQUIRED = 1L << 7;
+    public static final long MESSAGE_TYPE_REQUIRED = 1L << 8;
+    public static final long TIMESTAMP_RANGE = 1L << 9;
+
+    private static final int BUILT_IN_RULES = 10;
+    private static final int MAX_CUSTOM_RULES = Long.SIZE - BUILT_IN_RULES;
+    private static final String[] REASONS = {
+        "user_id_required", "user_id_range", "username_required", "username_length", "username_charset",
+        "message_required", "message_length", "timestamp_required", "message_type_required", "timestamp_range"
+    };
+
+    private final ValidationRules rules;
+    private final MessageRule[] customRules;
+    private final String[] messages;
+
+    public MessageValidator(ValidationRules rules) {
+        this(rules, Collections.emptyList());
+    }
+
+    public MessageValidator(ValidationRules rules, List<MessageRule> customRules) {
+        if (customRules.size() > MAX_CUSTOM_RULES) {
+            throw new IllegalArgumentException("At most " + MAX_CUSTOM_RULES + " custom rules are supported");
+        }
+        this.rules = rules;
+        this.customRules = customRules.toArray(new MessageRule[0]);
+
+        // Messages are fixed per rule set, so build them once
+        this.messages = new String[BUILT_IN_RULES + this.customRules.length];
+        messages[0] = "userId is required";
+        messages[1] = "userId must be between " + rules.getUserIdMin() + " and " + rules.getUserIdMax();
+        messages[2] = "username is required";
+        messages[3] = "username must be " + rules.getUsernameMinLength() + "-" + rules.getUsernameMaxLength() + " characters";
+        messages[4] = "username must be alphanumeric";
+        messages[5] = "message is required";
+        messages[6] = "message must be " + rules.getMessageMinLength() + "-" + rules.getMessageMaxLength() + " characters";
+        messages[7] = "timestamp is required";
+        messages[8] = "messageType is required";
+        messages[9] = "timestamp must be between years 0000 and 9999";
+        for (int i = 0; i < this.customRules.length; i++) {
+            messages[BUILT_IN_RULES + i] = this.customRules[i].errorMessage();
+        }
+    }
+
+    /**
+     * @return {@link #VALID}, or the bits of every failed rule
+     */
+    public long check(ChatMessageHolder message) {
+        long errors = VALID;
+
         // Validate userId
-        if (message.getUserId() == null) {
-            errors.add("userId is required");
-        } else if (message.getUserId() < 1 || message.getUserId() > 100000) {
-            errors.add("userId must be between 1 and 100000");
+        if (!message.hasUserId()) {
+            errors |= USER_ID_REQUIRED;
+        } else if (message.getUserId() < rules.getUserIdMin() || message.getUserId() > rules.getUserIdMax()) {
+            errors |= USER_ID_RANGE;
         }
-        
+
         // Validate username
-        if (message.getUsername() == null || message.getUsername().isBlank()) {
-            errors.add("username is required");
-        } else if (message.getUsername().length() < 3 || message.getUsername().length() > 20) {
-            errors.add("username must be 3-20 characters");
-        } else if (!message.getUsername().matches("^[a-zA-Z0-9]+$")) {
-            errors.add("username must be alphanumeric");
-        }
-        
+        Utf8Text username = message.getUsername();
+        if (isBlank(username)) {
+            errors |= USERNAME_REQUIRED;
+        } else if (!lengthWithin(username, rules.getUsernameMinLength(), rules.getUsernameMaxLength())) {
+            errors |= USERNAME_LENGTH;
+        } else if (rules.isUsernameAlphanumeric() && !isAlphanumeric(username)) {
+            errors |= USERNAME_CHARSET;
+        }
+
         // Validate message
-        if (message.getMessage() == null || message.getMessage().isBlank()) {
-            errors.add("message is required");
-        } else if (message.getMessage().length() < 1 || message.getMessage().length() > 500) {
-            errors.add("message must be 1-500 characters");
-        }
-        
-        // Validate timestamp
-        if (message.getTimestamp() == null) {
-            errors.add("timestamp is required");
-        }
-        
-        // Validate messageType
+        Utf8Text text = message.getMessage();
+        if (isBlank(text)) {
+            errors |= MESSAGE_REQUIRED;
+        } else if (!lengthWithin(text, rules.getMessageMinLength(), rules.getMessageMaxLength())) {
+            errors |= MESSAGE_LENGTH;
+        }
+
+        // Validate timestamp and messageType
+        if (!message.hasTimestamp()) {
+            errors |= TIMESTAMP_REQUIRED;
+        } else if (!Timestamps.isFormattable(message.getTimestampMillis())) {
+            // Binary requests carry any epoch millis, and responses echo it as a four-digit year
+            errors |= TIMESTAMP_RANGE;
+        }
         if (message.getMessageType() == null) {
-            errors.add("messageType is required");
+            errors |= MESSAGE_TYPE_REQUIRED;
+        }
+
+        for (int i = 0; i < customRules.length; i++) {
+            if (!customRules[i].test(message)) {
+                errors |= 1L << (BUILT_IN_RULES + i);
+            }
         }
-        
         return errors;
     }
+
+    /**
+     * Error messages for a {@link #check} result, in rule order.
+     */
+    public List<String> describe(long errors) {
+        if (errors == VALID) {
+            return Collections.emptyList();
+        }
+        List<String> result = new ArrayList<>(Long.bitCount(errors));
+        for (int bit = 0; bit < messages.length; bit++) {
+            if ((errors & (1L << bit)) != 0) {
+                result.add(messages[bit]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Convenience for {@code describe(check(message))}; returns a shared empty list when valid.
+     */
+    public List<String> validate(ChatMessageHolder message) {
+        return describe(check(message));
+    }
+
+    /**
+     * Short label for a rule bit, used as the metrics reason; custom rules are numbered in the
+     * order they were given.
+     */
+    public static String reason(int bit) {
+        return bit < BUILT_IN_RULES ? REASONS[bit] : "custom_rule_" + (bit - BUILT_IN_RULES);
+    }
+
+    public ValidationRules getRules() {
+        return rules;
+    }
+
+    /**
+     * String.isBlank semantics; stops at the first non-whitespace code point, which for real
+     * messages is almost always the first byte.
+     */
+    private static boolean isBlank(Utf8Text text) {
+        if (!text.isPresent()) {
+            return true;
+        }
+        byte[] bytes = text.bytes();
+        int length = text.byteLength();
+        int i = 0;
+        while (i < length) {
+            int b = bytes[i] & 0xFF;
+            if (b < 0x80) {
+                if (!Character.isWhitespace(b)) {
+                    return false;
+                }
+                i++;
+                continue;
+            }
+            // A few Unicode spaces count as whitespace, so decode multi-byte sequences
+            int size = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : 2;
+            if (!Character.isWhitespace(decode(bytes, i, size))) {
+                return false;
+            }
+            i += size;
+        }
+        return true;
+    }
+
+    /**
+     * Whether the UTF-16 length (as String.length()) is within [min, max]. Every UTF-16 unit
+     * takes 1 to 3 bytes, so the byte length usually decides without looking at the bytes.
+     */
+    private static boolean lengthWithin(Utf8Text text, int min, int max) {
+        int byteLength = text.byteLength();
+        if (byteLength <= max && (byteLength + 2) / 3 >= min) {
+            return true;
+        }
+        if (byteLength < min) {
+            return false;
+        }
+        byte[] bytes = text.bytes();
+        int units = 0;
+        for (int i = 0; i < byteLength; i++) {
+            int b = bytes[i] & 0xFF;
+            if ((b & 0xC0) != 0x80) {
+                // Lead byte: 4-byte sequences become a surrogate pair
+                units += b >= 0xF0 ? 2 : 1;
+            }
+        }
+        return units >= min && units <= max;
+    }
+
+    private static boolean isAlphanumeric(Utf8Text text) {
+        byte[] bytes = text.bytes();
+        int length = text.byteLength();
+        for (int i = 0; i < length; i++) {
+            byte b = bytes[i];
+            if (!((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int decode(byte[] bytes, int i, int size) {
+        int b = bytes[i] & 0xFF;
+        switch (size) {
+            case 2:
+                return (b & 0x1F) << 6 | (bytes[i + 1] & 0x3F);
+            case 3:
+                return (b & 0x0F) << 12 | (bytes[i + 1] & 0x3F) << 6 | (bytes[i + 2] & 0x3F);
+            default:
+                return (b & 0x07) << 18 | (bytes[i + 1] & 0x3F) << 12 | (bytes[i + 2] & 0x3F) << 6 | (bytes[i + 3] & 0x3F);
+        }
+    }
 }
@@ -0,0 +1,85 @@
+package cs6650.assignment1.validation;
+
+/**
+ * Bounds used by {@link MessageValidator}. Lengths are in UTF-16 code units, as String.length().
+ */
+public class ValidationRules {
+
+    private final int userIdMin;
+    private final int userIdMax;
+    private final int usernameMinLength;
+    private final int usernameMaxLength;
+    private final boolean usernameAlphanumeric;
+    private final int messageMinLength;
+    private final int messageMaxLength;
+
+    public ValidationRules(int userIdMin, int userIdMax, int usernameMinLength, int usernameMaxLength,
+                           boolean usernameAlphanumeric, int messageMinLength, int messageMaxLength) {
+        this.userIdMin = userIdMin;
+        this.userIdMax = userIdMax;
+        this.usernameMinLength = usernameMinLength;
+        this.usernameMaxLength = usernameMaxLength;
+        this.usernameAlphanumeric = usernameAlphanumeric;
+        this.messageMinLength = messageMinLength;
+        this.messageMaxLength = messageMaxLength;
+    }
+
+    /**
+     * The assignment's rules: userId 1-100000, username 3-20 alphanumeric, message 1-500.
+     */
+    public static ValidationRules defaults() {
+        return new ValidationRules(1, 100000, 3, 20, true, 1, 500);
+    }
+
+    /**
+     * Defaults overridden by -Dchatflow.validation.* system properties.
+     */
+    public static ValidationRules fromSystemProperties() {
+        ValidationRules d = defaults();
+        return new ValidationRules(
+            Integer.getInteger("chatflow.validation.userid.min", d.userIdMin),
+            Integer.getInteger("chatflow.validation.userid.max", d.userIdMax),
+            Integer.getInteger("chatflow.validation.username.min", d.usernameMinLength),
+            Integer.getInteger("chatflow.validation.username.max", d.usernameMaxLength),
+            Boolean.parseBoolean(System.getProperty("chatflow.validation.username.alphanumeric",
+                                                    String.valueOf(d.usernameAlphanumeric))),
+            Integer.getInteger("chatflow.validation.message.min", d.messageMinLength),
+            Integer.getInteger("chatflow.validation.message.max", d.messageMaxLength)
+        );
+    }
+
+    public int getUserIdMin() {
+        return userIdMin;
+    }
+
+    public int getUserIdMax() {
+        return userIdMax;
+    }
+
+    public int getUsernameMinLength() {
+        return usernameMinLength;
+    }
+
+    public int getUsernameMaxLength() {
+        return usernameMaxLength;
+    }
+
+    public boolean isUsernameAlphanumeric() {
+        return usernameAlphanumeric;
+    }
+
+    public int getMessageMinLength() {
+        return messageMinLength;
+    }
+
+    public int getMessageMaxLength() {
+        return messageMaxLength;
+    }
+
+    @Override
+    public String toString() {
+        return "userId " + userIdMin + "-" + userIdMax
+            + ", username " + usernameMinLength + "-" + usernameMaxLength + (usernameAlphanumeric ? " alphanumeric" : "")
+            + ", message " + messageMinLength + "-" + messageMaxLength;
+    }
+}